@@ -0,0 +1,93 @@
+package com.asma.paymentservice.service;
+
+import com.asma.paymentservice.config.JacksonConfig;
+import com.asma.paymentservice.entity.Invoice;
+import com.asma.paymentservice.entity.InvoiceStatus;
+import com.asma.paymentservice.entity.Payment;
+import com.asma.paymentservice.entity.PaymentStatus;
+import com.asma.paymentservice.repository.NumberSequenceRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Services wired only with what their in-memory hot paths use, and sample entities, for the benchmarks.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * The application's ObjectMapper, with the JsonNullable module.
+     */
+    static ObjectMapper objectMapper() {
+        return new JacksonConfig().objectMapper(Jackson2ObjectMapperBuilder.json());
+    }
+
+    static PaymentService paymentService() {
+        return new PaymentService(null, null, null, null, null, null, null,
+                new ServiceMetrics(new SimpleMeterRegistry()), objectMapper());
+    }
+
+    /**
+     * Invoice numbers come from blocks large enough that the (mocked) sequence table is hit once per trial.
+     */
+    static InvoiceService invoiceService() {
+        AtomicLong counter = new AtomicLong();
+        NumberSequenceRepository sequences = mock(NumberSequenceRepository.class);
+        when(sequences.advance(anyString(), anyLong())).thenAnswer(invocation -> {
+            counter.addAndGet(invocation.getArgument(1));
+            return 1;
+        });
+        when(sequences.currentValue(anyString())).thenAnswer(invocation -> counter.get());
+        InvoiceNumberAllocator allocator = new InvoiceNumberAllocator(sequences, mock(PlatformTransactionManager.class), 100_000_000L);
+        return new InvoiceService(null, null, allocator, null, null, null, null,
+                new ServiceMetrics(new SimpleMeterRegistry()), objectMapper());
+    }
+
+    /**
+     * Every other payment has an orderId, so both states of the JsonNullable field are exercised.
+     */
+    static Payment payment(long id) {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 3, 15, 10, 30).plusSeconds(id);
+        return Payment.builder()
+                .id(id)
+                .amount(new BigDecimal("149.99"))
+                .currency("EUR")
+                .method("CREDIT_CARD")
+                .status(PaymentStatus.APPROVED)
+                .userId("user-" + (id % 1000))
+                .orderId(id % 2 == 0 ? "order-" + id : null)
+                .createdAt(createdAt)
+                .updatedAt(createdAt.plusMinutes(1))
+                .build();
+    }
+
+    static Invoice invoice(long id) {
+        return Invoice.builder()
+                .id(id)
+                .invoiceNumber(String.format("INV-20240315-%08d", id))
+                .paymentId(id)
+                .userId("user-" + (id % 1000))
+                .amount(new BigDecimal("149.99"))
+                .currency("EUR")
+                .status(InvoiceStatus.SENT)
+                .issueDate(LocalDate.of(2024, 3, 15))
+                .dueDate(LocalDate.of(2024, 4, 14))
+                .sentAt(LocalDate.of(2024, 3, 16))
+                .orderId("order-" + id)
+                .build();
+    }
+}
@@ -0,0 +1,116 @@
+package com.asma.paymentservice.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the duplicate check in payment creation for a new orderId, with and without the
+ * {@link BloomFilter} pre-check.
+ *
+ * The database is an embedded H2 table with the same index as {@code idx_payment_order_user_status};
+ * against a networked PostgreSQL the lookup also pays a round trip, so the saving per create is larger.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderKeyFilterBenchmark {
+
+    private static final String LOOKUP_SQL =
+            "SELECT id FROM payment WHERE order_id = ? AND user_id = ? AND status = 'PENDING'";
+
+    @Param({"100000"})
+    private int pendingPayments;
+
+    private Connection connection;
+    private PreparedStatement lookup;
+    private BloomFilter filter;
+    private long nextOrder;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:order_filter_bench;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE payment (id BIGINT PRIMARY KEY, order_id VARCHAR(255), "
+                    + "user_id VARCHAR(255), status VARCHAR(20))");
+            statement.execute("CREATE INDEX idx_payment_order_user_status ON payment (order_id, user_id, status)");
+        }
+        filter = BloomFilter.create(pendingPayments, 0.01);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO payment (id, order_id, user_id, status) VALUES (?, ?, ?, 'PENDING')")) {
+            for (int i = 0; i < pendingPayments; i++) {
+                String orderId = "order-" + i;
+                String userId = "user-" + (i % 1000);
+                insert.setLong(1, i);
+                insert.setString(2, orderId);
+                insert.setString(3, userId);
+                insert.addBatch();
+                filter.put(orderId + '\u0000' + userId);
+                if (i % 1000 == 999) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        lookup = connection.prepareStatement(LOOKUP_SQL);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    /**
+     * What every create paid before: one indexed lookup.
+     */
+    @Benchmark
+    public boolean databaseLookup() throws SQLException {
+        String orderId = "new-order-" + nextOrder++;
+        return exists(orderId, "user-1");
+    }
+
+    /**
+     * Filter first; the lookup only runs on a (false) positive.
+     */
+    @Benchmark
+    public boolean filterThenDatabaseLookup() throws SQLException {
+        String orderId = "new-order-" + nextOrder++;
+        String userId = "user-1";
+        if (!filter.mightContain(orderId + '\u0000' + userId)) {
+            return false;
+        }
+        return exists(orderId, userId);
+    }
+
+    private boolean exists(String orderId, String userId) throws SQLException {
+        lookup.setString(1, orderId);
+        lookup.setString(2, userId);
+        try (ResultSet resultSet = lookup.executeQuery()) {
+            return resultSet.next();
+        }
+    }
+}
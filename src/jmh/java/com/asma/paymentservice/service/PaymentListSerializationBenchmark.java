@@ -0,0 +1,80 @@
+package com.asma.paymentservice.service;
+
+import com.asma.paymentservice.dto.PaymentListResponse;
+import com.asma.paymentservice.entity.Payment;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU and garbage of a GET /payments response body once the page is loaded: mapping a page, serializing it with
+ * the application's ObjectMapper (JsonNullable orderId, OffsetDateTime timestamps), and both.
+ * Page sizes are the default (20) and the maximum (100).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentListSerializationBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+    private List<Payment> payments;
+    private PaymentListResponse page;
+
+    @Setup
+    public void setUp() {
+        objectMapper = BenchmarkFixtures.objectMapper();
+        payments = new ArrayList<>();
+        for (long id = 1; id <= pageSize; id++) {
+            payments.add(BenchmarkFixtures.payment(id));
+        }
+        page = toPage(payments);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public PaymentListResponse map() {
+        return toPage(payments);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(toPage(payments));
+    }
+
+    private PaymentListResponse toPage(List<Payment> content) {
+        PaymentListResponse response = new PaymentListResponse();
+        response.setContent(ResponseMapper.toPaymentResponses(content));
+        response.setTotalElements(10_000L);
+        response.setTotalPages(10_000 / pageSize);
+        response.setPage(0);
+        response.setSize(pageSize);
+        response.setHasNext(true);
+        Payment last = content.get(content.size() - 1);
+        response.setNextCursor(PageCursor.encode(last.getCreatedAt(), last.getId()));
+        return response;
+    }
+}
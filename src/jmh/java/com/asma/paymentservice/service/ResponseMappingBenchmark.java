@@ -0,0 +1,64 @@
+package com.asma.paymentservice.service;
+
+import com.asma.paymentservice.dto.InvoiceResponse;
+import com.asma.paymentservice.dto.PaymentResponse;
+import com.asma.paymentservice.entity.Invoice;
+import com.asma.paymentservice.entity.Payment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-item work of the read and invoicing paths: entity to DTO mapping, run for every payment or invoice returned,
+ * and invoice number generation, run for every invoice created (including its timer).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseMappingBenchmark {
+
+    private InvoiceService invoiceService;
+    private Payment paymentWithOrderId;
+    private Payment paymentWithoutOrderId;
+    private Invoice invoice;
+
+    @Setup
+    public void setUp() {
+        invoiceService = BenchmarkFixtures.invoiceService();
+        paymentWithOrderId = BenchmarkFixtures.payment(2);
+        paymentWithoutOrderId = BenchmarkFixtures.payment(1);
+        invoice = BenchmarkFixtures.invoice(1);
+    }
+
+    @Benchmark
+    public PaymentResponse mapPaymentWithOrderId() {
+        return ResponseMapper.toPaymentResponse(paymentWithOrderId);
+    }
+
+    @Benchmark
+    public PaymentResponse mapPaymentWithoutOrderId() {
+        return ResponseMapper.toPaymentResponse(paymentWithoutOrderId);
+    }
+
+    @Benchmark
+    public InvoiceResponse mapInvoice() {
+        return ResponseMapper.toInvoiceResponse(invoice);
+    }
+
+    @Benchmark
+    public String generateInvoiceNumber() {
+        return invoiceService.generateInvoiceNumber();
+    }
+}
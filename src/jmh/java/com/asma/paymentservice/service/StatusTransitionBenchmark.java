@@ -0,0 +1,57 @@
+package com.asma.paymentservice.service;
+
+import com.asma.paymentservice.entity.InvoiceStatus;
+import com.asma.paymentservice.entity.PaymentStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Status transition validation of every status change, for transitions that are allowed. Rejected transitions
+ * build an exception and log a warning; their cost is dominated by logging and is not measured here.
+ *
+ * Run with the gc profiler (the default of the jmh profile): {@code gc.alloc.rate.norm} should stay at 0 B/op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatusTransitionBenchmark {
+
+    private PaymentService paymentService;
+    private InvoiceService invoiceService;
+    private Long id;
+
+    @Setup
+    public void setUp() {
+        paymentService = BenchmarkFixtures.paymentService();
+        invoiceService = BenchmarkFixtures.invoiceService();
+        id = 42L;
+    }
+
+    @Benchmark
+    public void paymentPendingToApproved() {
+        paymentService.validateStatusTransition(id, PaymentStatus.PENDING, PaymentStatus.APPROVED);
+    }
+
+    @Benchmark
+    public void invoiceCreatedToSent() {
+        invoiceService.validateStatusTransition(id, InvoiceStatus.CREATED, InvoiceStatus.SENT);
+    }
+
+    @Benchmark
+    public void invoiceSentToPaid() {
+        invoiceService.validateStatusTransition(id, InvoiceStatus.SENT, InvoiceStatus.PAID);
+    }
+}
@@ -0,0 +1,309 @@
+package com.asma.paymentservice.loadtest;
+
+import com.asma.paymentservice.PaymentServiceApplication;
+import com.asma.paymentservice.service.VirtualThreads;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end load test: boots the application on a random port with its default (embedded H2) configuration,
+ * seeds payments, then sends a {@link Scenario} at a constant arrival rate (see {@link OpenLoopRunner}).
+ *
+ * <pre>
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--scenario=mixed --rate=300 --duration=PT60S"
+ * </pre>
+ *
+ * Options (defaults): {@code --scenario} create, approve, list or mixed (mixed); {@code --rate} requests per
+ * second (200); {@code --duration} (PT30S) and {@code --warmup} (PT10S) as ISO-8601 durations; {@code --seed}
+ * payments created before the run (10000, raised to cover the approvals); {@code --timeout} per request (PT30S);
+ * {@code --random-seed} (42); {@code --output} report directory (target/loadtest); {@code --threads} platform,
+ * virtual or compare (platform). Any other {@code --name=value} is passed to the application, e.g.
+ * {@code --paymentservice.outbox.workers=4}.
+ *
+ * The report {@code <output>/<scenario>.json} ({@code <scenario>-virtual.json} on virtual threads) holds the
+ * throughput, the peak number of requests in flight and the latency percentiles per operation, with the compressed
+ * HdrHistograms so that runs can be merged or re-plotted; {@code <scenario>-<operation>.hgrm} files hold the full
+ * percentile distributions. {@code --threads=compare} runs the scenario on a fresh application in each mode and
+ * writes them side by side to {@code <scenario>-threads.json}; virtual threads need a Java 21+ runtime, the
+ * {@code threads} field of each report tells which mode actually ran.
+ */
+public final class LoadTest {
+
+    private static final String PLATFORM = "platform";
+    private static final String VIRTUAL = "virtual";
+    private static final String VIRTUAL_THREADS_PROPERTY = "paymentservice.virtual-threads.enabled";
+    private static final String PINNED_METRIC = "paymentservice.virtual-threads.pinned";
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("scenario", "mixed");
+        DEFAULTS.put("rate", "200");
+        DEFAULTS.put("duration", "PT30S");
+        DEFAULTS.put("warmup", "PT10S");
+        DEFAULTS.put("seed", "10000");
+        DEFAULTS.put("timeout", "PT30S");
+        DEFAULTS.put("random-seed", "42");
+        DEFAULTS.put("output", "target/loadtest");
+        DEFAULTS.put("threads", PLATFORM);
+    }
+
+    /**
+     * Keeps the application from measuring itself: no per-request logging or SQL output. Passed as command-line
+     * arguments so that they override application.properties, unless given explicitly.
+     */
+    private static final Map<String, String> APPLICATION_DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        APPLICATION_DEFAULTS.put("server.port", "0");
+        APPLICATION_DEFAULTS.put("spring.jpa.show-sql", "false");
+        APPLICATION_DEFAULTS.put("logging.level.com.asma.paymentservice", "WARN");
+        APPLICATION_DEFAULTS.put("logging.level.org.hibernate.SQL", "WARN");
+        APPLICATION_DEFAULTS.put("logging.level.org.springframework", "WARN");
+        APPLICATION_DEFAULTS.put("spring.main.banner-mode", "off");
+    }
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        Map<String, String> applicationArgs = new LinkedHashMap<>(APPLICATION_DEFAULTS);
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            String name = arg.substring(2, separator);
+            if (DEFAULTS.containsKey(name)) {
+                options.put(name, arg.substring(separator + 1));
+            } else {
+                applicationArgs.put(name, arg.substring(separator + 1));
+            }
+        }
+
+        Scenario scenario = Scenario.parse(options.get("scenario"));
+        double rate = Double.parseDouble(options.get("rate"));
+        Duration duration = Duration.parse(options.get("duration"));
+        Duration warmup = Duration.parse(options.get("warmup"));
+        Duration timeout = Duration.parse(options.get("timeout"));
+        long randomSeed = Long.parseLong(options.get("random-seed"));
+        // Enough PENDING payments for every approval of the run, with a margin
+        double approvals = rate * scenario.share(Operation.APPROVE) * (duration.getSeconds() + warmup.getSeconds());
+        int seed = Math.max(Integer.parseInt(options.get("seed")), (int) Math.ceil(approvals * 1.1));
+
+        Path output = Paths.get(options.get("output"));
+        Files.createDirectories(output);
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        String threads = options.get("threads");
+        List<String> threadModes = "compare".equals(threads) ? Arrays.asList(PLATFORM, VIRTUAL) : Collections.singletonList(threads);
+        Map<String, Map<String, Object>> reports = new LinkedHashMap<>();
+        for (String threadMode : threadModes) {
+            if (!PLATFORM.equals(threadMode) && !VIRTUAL.equals(threadMode)) {
+                throw new IllegalArgumentException("Unknown thread mode: " + threadMode + " (platform, virtual or compare)");
+            }
+            applicationArgs.put(VIRTUAL_THREADS_PROPERTY, String.valueOf(VIRTUAL.equals(threadMode)));
+            String name = scenario.label() + (VIRTUAL.equals(threadMode) ? "-" + VIRTUAL : "");
+            Map<String, Object> report = run(scenario, rate, duration, warmup, timeout, seed, randomSeed, applicationArgs,
+                    output, name, objectMapper);
+            reports.put(threadMode, report);
+        }
+        if (reports.size() > 1) {
+            Path comparisonFile = output.resolve(scenario.label() + "-threads.json");
+            objectMapper.writeValue(comparisonFile.toFile(), compare(reports));
+            System.out.println("Thread mode comparison written to " + comparisonFile.toAbsolutePath());
+        }
+    }
+
+    /**
+     * Boots a fresh application, seeds it, warms it up and measures; the application is closed afterwards so that
+     * the next run starts from the same state.
+     */
+    private static Map<String, Object> run(Scenario scenario, double rate, Duration duration, Duration warmup,
+                                           Duration timeout, int seed, long randomSeed, Map<String, String> applicationArgs,
+                                           Path output, String name, ObjectMapper objectMapper) throws Exception {
+        ConfigurableApplicationContext application = new SpringApplicationBuilder(PaymentServiceApplication.class)
+                .run(applicationArgs.entrySet().stream()
+                        .map(arg -> "--" + arg.getKey() + "=" + arg.getValue())
+                        .toArray(String[]::new));
+        try {
+            int port = ((WebServerApplicationContext) application).getWebServer().getPort();
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(timeout)
+                    .build();
+            PaymentTraffic traffic = new PaymentTraffic(URI.create("http://localhost:" + port), client, objectMapper, timeout, randomSeed);
+
+            System.out.printf(Locale.ROOT, "Seeding %d payments%n", seed);
+            traffic.seed(seed);
+            OpenLoopRunner runner = new OpenLoopRunner(client, traffic, scenario, rate, randomSeed);
+            System.out.printf(Locale.ROOT, "Warming up: %s at %.0f req/s for %s%n", name, rate, warmup);
+            runner.run(warmup);
+            System.out.printf(Locale.ROOT, "Measuring: %s at %.0f req/s for %s%n", name, rate, duration);
+            Instant startedAt = Instant.now();
+            OpenLoopRunner.Result result = runner.run(duration);
+
+            Map<String, Object> report = report(scenario, rate, duration, warmup, seed, startedAt, result);
+            report.put("threads", threadMode(application));
+            Counter pinned = application.getBean(MeterRegistry.class).find(PINNED_METRIC).counter();
+            if (pinned != null) {
+                report.put("pinnedVirtualThreads", (long) pinned.count());
+            }
+            Path reportFile = output.resolve(name + ".json");
+            objectMapper.writeValue(reportFile.toFile(), report);
+            for (Map.Entry<Operation, OpenLoopRunner.Stats> operation : result.operations.entrySet()) {
+                Path distribution = output.resolve(name + "-" + operation.getKey().label() + ".hgrm");
+                try (PrintStream out = new PrintStream(Files.newOutputStream(distribution))) {
+                    // Microseconds, reported in milliseconds
+                    operation.getValue().latency.outputPercentileDistribution(out, 1000.0);
+                }
+            }
+            printSummary(result);
+            System.out.println("Report written to " + reportFile.toAbsolutePath());
+            return report;
+        } finally {
+            application.close();
+        }
+    }
+
+    /**
+     * The mode the application actually ran in: virtual threads are ignored on runtimes without them.
+     */
+    private static String threadMode(ConfigurableApplicationContext application) {
+        boolean enabled = application.getEnvironment().getProperty(VIRTUAL_THREADS_PROPERTY, Boolean.class, false);
+        return enabled && VirtualThreads.isSupported() ? VIRTUAL : PLATFORM;
+    }
+
+    /**
+     * Throughput, concurrency and tail latency per operation, side by side for each thread mode.
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> compare(Map<String, Map<String, Object>> reports) {
+        Map<String, Object> comparison = new LinkedHashMap<>();
+        Map<String, Object> totals = new LinkedHashMap<>();
+        Map<String, Object> operations = new LinkedHashMap<>();
+        reports.forEach((threadMode, report) -> {
+            Map<String, Object> total = new LinkedHashMap<>();
+            for (String key : Arrays.asList("threads", "throughput", "errors", "maxInFlight", "pinnedVirtualThreads")) {
+                if (report.containsKey(key)) {
+                    total.put(key, report.get(key));
+                }
+            }
+            totals.put(threadMode, total);
+            ((Map<String, Map<String, Object>>) report.get("operations")).forEach((operation, stats) -> {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("throughput", stats.get("throughput"));
+                row.put("errors", stats.get("errors"));
+                row.put("latencyMs", stats.get("latencyMs"));
+                ((Map<String, Object>) operations.computeIfAbsent(operation, o -> new LinkedHashMap<>())).put(threadMode, row);
+            });
+        });
+        comparison.put("scenario", reports.values().iterator().next().get("scenario"));
+        comparison.put("totals", totals);
+        comparison.put("operations", operations);
+        return comparison;
+    }
+
+    private static Map<String, Object> report(Scenario scenario, double rate, Duration duration, Duration warmup,
+                                              int seed, Instant startedAt, OpenLoopRunner.Result result) {
+        double seconds = result.elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        long requests = 0;
+        long errors = 0;
+        Map<String, Object> operations = new LinkedHashMap<>();
+        for (Map.Entry<Operation, OpenLoopRunner.Stats> entry : result.operations.entrySet()) {
+            OpenLoopRunner.Stats stats = entry.getValue();
+            long count = stats.latency.getTotalCount();
+            requests += count;
+            errors += stats.errors();
+            Map<String, Object> operation = new LinkedHashMap<>();
+            operation.put("requests", count);
+            operation.put("errors", stats.errors());
+            Map<String, Long> outcomes = new TreeMap<>();
+            stats.outcomes.forEach((outcome, total) -> outcomes.put(outcome, total.sum()));
+            operation.put("outcomes", outcomes);
+            operation.put("throughput", round(count / seconds));
+            operation.put("latencyMs", percentiles(stats.latency));
+            operation.put("serviceTimeMs", percentiles(stats.serviceTime));
+            operation.put("latencyHistogram", encode(stats.latency));
+            operations.put(entry.getKey().label(), operation);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("scenario", scenario.label());
+        report.put("startedAt", startedAt.toString());
+        report.put("javaVersion", System.getProperty("java.version"));
+        report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        report.put("targetRate", rate);
+        report.put("durationSeconds", duration.getSeconds());
+        report.put("warmupSeconds", warmup.getSeconds());
+        report.put("seededPayments", seed);
+        report.put("requests", requests);
+        report.put("errors", errors);
+        report.put("throughput", round(requests / seconds));
+        report.put("maxInFlight", result.maxInFlight);
+        report.put("dispatchLagMs", percentiles(result.dispatchLag));
+        report.put("operations", operations);
+        return report;
+    }
+
+    private static Map<String, Double> percentiles(Histogram histogram) {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        percentiles.put("p50", millis(histogram.getValueAtPercentile(50)));
+        percentiles.put("p90", millis(histogram.getValueAtPercentile(90)));
+        percentiles.put("p99", millis(histogram.getValueAtPercentile(99)));
+        percentiles.put("p99.9", millis(histogram.getValueAtPercentile(99.9)));
+        percentiles.put("max", millis(histogram.getMaxValue()));
+        percentiles.put("mean", round(histogram.getMean() / 1000.0));
+        return percentiles;
+    }
+
+    private static String encode(Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+    }
+
+    private static void printSummary(OpenLoopRunner.Result result) {
+        System.out.printf(Locale.ROOT, "%-8s %10s %8s %10s %10s %10s %10s%n",
+                "op", "requests", "errors", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        result.operations.forEach((operation, stats) -> System.out.printf(Locale.ROOT,
+                "%-8s %10d %8d %10.2f %10.2f %10.2f %10.2f%n",
+                operation.label(), stats.latency.getTotalCount(), stats.errors(),
+                millis(stats.latency.getValueAtPercentile(50)), millis(stats.latency.getValueAtPercentile(99)),
+                millis(stats.latency.getValueAtPercentile(99.9)), millis(stats.latency.getMaxValue())));
+    }
+
+    private static double millis(long micros) {
+        return round(micros / 1000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,123 @@
+package com.asma.paymentservice.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load: requests start at a constant rate whatever the response times, as production traffic does.
+ *
+ * Latency is measured from the time a request was scheduled to start, not from the time it was sent, so a stall
+ * of the client or of the server is charged to every request that should have started during it (coordinated
+ * omission correction). The service time, from sending to the response, is recorded separately.
+ */
+final class OpenLoopRunner {
+
+    private final HttpClient client;
+    private final PaymentTraffic traffic;
+    private final Scenario scenario;
+    private final double rate;
+    private final SplittableRandom random;
+
+    OpenLoopRunner(HttpClient client, PaymentTraffic traffic, Scenario scenario, double rate, long randomSeed) {
+        this.client = client;
+        this.traffic = traffic;
+        this.scenario = scenario;
+        this.rate = rate;
+        this.random = new SplittableRandom(randomSeed);
+    }
+
+    /**
+     * Sends requests for {@code duration}, then waits for the responses of those still in flight.
+     */
+    Result run(Duration duration) {
+        Result result = new Result();
+        List<CompletableFuture<?>> inFlight = new ArrayList<>();
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (long i = 0; ; i++) {
+            long scheduled = start + (long) (i * intervalNanos);
+            if (scheduled >= end) {
+                break;
+            }
+            long wait;
+            while ((wait = scheduled - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = traffic.resolve(scenario.next(random));
+            HttpRequest request = traffic.request(operation);
+            long sent = System.nanoTime();
+            result.dispatchLag.recordValue(TimeUnit.NANOSECONDS.toMicros(sent - scheduled));
+            Stats stats = result.stats(operation);
+            result.maxInFlight = Math.max(result.maxInFlight, result.inFlight.incrementAndGet());
+            inFlight.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                    .whenComplete((response, failure) -> {
+                        long completed = System.nanoTime();
+                        result.inFlight.decrementAndGet();
+                        stats.latency.recordValue(TimeUnit.NANOSECONDS.toMicros(completed - scheduled));
+                        stats.serviceTime.recordValue(TimeUnit.NANOSECONDS.toMicros(completed - sent));
+                        if (failure != null) {
+                            stats.outcome(failure.getClass().getSimpleName());
+                        } else {
+                            stats.outcome(String.valueOf(response.statusCode()));
+                            traffic.onResponse(operation, response);
+                        }
+                    }));
+        }
+        CompletableFuture.allOf(inFlight.toArray(new CompletableFuture<?>[0]))
+                .exceptionally(failure -> null)
+                .join();
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Histograms in microseconds, auto-resizing.
+     */
+    static final class Result {
+        final Map<Operation, Stats> operations = new EnumMap<>(Operation.class);
+        final Histogram dispatchLag = new Histogram(3);
+        /** Requests sent and not answered yet: the concurrency the server had to sustain */
+        final AtomicInteger inFlight = new AtomicInteger();
+        int maxInFlight;
+        long elapsedNanos;
+
+        private Stats stats(Operation operation) {
+            return operations.computeIfAbsent(operation, o -> new Stats());
+        }
+    }
+
+    static final class Stats {
+        final Histogram latency = new ConcurrentHistogram(3);
+        final Histogram serviceTime = new ConcurrentHistogram(3);
+        final ConcurrentMap<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+
+        private void outcome(String outcome) {
+            outcomes.computeIfAbsent(outcome, o -> new LongAdder()).increment();
+        }
+
+        long errors() {
+            return outcomes.entrySet().stream()
+                    .filter(outcome -> !outcome.getKey().startsWith("2"))
+                    .mapToLong(outcome -> outcome.getValue().sum())
+                    .sum();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.asma.paymentservice.loadtest;
+
+/**
+ * Request types of the load test, each with its own latency histograms in the report.
+ */
+enum Operation {
+
+    /** POST /payments */
+    CREATE("create"),
+    /** PATCH /payments/{id}/status to APPROVED, which schedules the invoice creation */
+    APPROVE("approve"),
+    /** GET /payments with one of a few filter combinations */
+    LIST("list"),
+    /** GET /payments/{id} */
+    GET("get");
+
+    private final String label;
+
+    Operation(String label) {
+        this.label = label;
+    }
+
+    String label() {
+        return label;
+    }
+}
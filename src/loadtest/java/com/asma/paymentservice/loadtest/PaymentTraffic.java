@@ -0,0 +1,155 @@
+package com.asma.paymentservice.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds the requests of each {@link Operation} against a running instance, and keeps the payments they act on:
+ * every known payment ID for GET, and a pool of PENDING payments for APPROVE, filled by the seed and by the
+ * creations of the test itself.
+ */
+final class PaymentTraffic {
+
+    private static final String[] CURRENCIES = {"USD", "EUR", "GBP"};
+    private static final String[] METHODS = {"CREDIT_CARD", "DEBIT_CARD", "PAYPAL", "BANK_TRANSFER"};
+    private static final int USERS = 1000;
+    private static final int SEED_BATCH = 100;
+
+    private final URI baseUri;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper;
+    private final Duration requestTimeout;
+    private final SplittableRandom random;
+
+    private final Queue<Long> pending = new ConcurrentLinkedQueue<>();
+    private final List<Long> known = new ArrayList<>();
+    private final AtomicLong orders = new AtomicLong();
+    /** Keeps order IDs unique across runs against a persistent database */
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    PaymentTraffic(URI baseUri, HttpClient client, ObjectMapper objectMapper, Duration requestTimeout, long randomSeed) {
+        this.baseUri = baseUri;
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.requestTimeout = requestTimeout;
+        this.random = new SplittableRandom(randomSeed);
+    }
+
+    /**
+     * Creates {@code count} PENDING payments through POST /payments:batch, before the measurement.
+     */
+    void seed(int count) throws IOException, InterruptedException {
+        for (int created = 0; created < count; created += SEED_BATCH) {
+            StringBuilder body = new StringBuilder("{\"items\":[");
+            int size = Math.min(SEED_BATCH, count - created);
+            for (int i = 0; i < size; i++) {
+                body.append(i > 0 ? "," : "").append(createBody());
+            }
+            body.append("]}");
+            HttpResponse<byte[]> response = client.send(post("/payments:batch", body.toString()), HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Seeding failed with status " + response.statusCode());
+            }
+            for (JsonNode result : objectMapper.readTree(response.body()).get("results")) {
+                long id = result.get("payment").get("id").asLong();
+                known.add(id);
+                pending.add(id);
+            }
+        }
+    }
+
+    /**
+     * The operation to send: an APPROVE falls back to a CREATE once every PENDING payment has been approved.
+     * Called from the dispatching thread only.
+     */
+    Operation resolve(Operation operation) {
+        return operation == Operation.APPROVE && pending.isEmpty() ? Operation.CREATE : operation;
+    }
+
+    HttpRequest request(Operation operation) {
+        switch (operation) {
+            case CREATE:
+                return post("/payments", createBody());
+            case APPROVE:
+                Long id = pending.poll();
+                return HttpRequest.newBuilder(baseUri.resolve("/payments/" + (id != null ? id : knownId()) + "/status"))
+                        .timeout(requestTimeout)
+                        .header("Content-Type", "application/json")
+                        .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"status\":\"APPROVED\"}"))
+                        .build();
+            case LIST:
+                return get("/payments?" + listQuery());
+            case GET:
+                return get("/payments/" + knownId());
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + operation);
+        }
+    }
+
+    /**
+     * Created payments can be approved later in the run. Called from the HTTP client threads.
+     */
+    void onResponse(Operation operation, HttpResponse<byte[]> response) {
+        if (operation == Operation.CREATE && response.statusCode() == 201) {
+            try {
+                pending.add(objectMapper.readTree(response.body()).get("id").asLong());
+            } catch (IOException e) {
+                throw new IllegalStateException("Unreadable payment creation response", e);
+            }
+        }
+    }
+
+    private String listQuery() {
+        switch (random.nextInt(4)) {
+            case 0:
+                return "status=PENDING&currency=" + pick(CURRENCIES) + "&size=20";
+            case 1:
+                return "userId=user-" + random.nextInt(USERS) + "&size=20";
+            case 2:
+                return "method=" + pick(METHODS) + "&minAmount=50&maxAmount=500&size=50&withTotal=false";
+            default:
+                return "status=APPROVED&page=" + random.nextInt(3) + "&size=20";
+        }
+    }
+
+    private String createBody() {
+        return String.format(Locale.ROOT,
+                "{\"amount\":%.2f,\"currency\":\"%s\",\"method\":\"%s\",\"userId\":\"user-%d\",\"orderId\":\"lt-%s-%d\"}",
+                1 + random.nextInt(99_900) / 100.0, pick(CURRENCIES), pick(METHODS), random.nextInt(USERS),
+                runId, orders.incrementAndGet());
+    }
+
+    private long knownId() {
+        return known.get(random.nextInt(known.size()));
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path)).timeout(requestTimeout).GET().build();
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
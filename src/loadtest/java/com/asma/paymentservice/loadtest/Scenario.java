@@ -0,0 +1,60 @@
+package com.asma.paymentservice.loadtest;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Request mixes, as weights per {@link Operation}.
+ */
+enum Scenario {
+
+    CREATE(90, 0, 0, 10),
+    /** Creations keep the pool of PENDING payments to approve filled */
+    APPROVE(30, 70, 0, 0),
+    LIST(0, 0, 85, 15),
+    MIXED(30, 20, 35, 15);
+
+    private final Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+    private final int totalWeight;
+
+    Scenario(int create, int approve, int list, int get) {
+        weights.put(Operation.CREATE, create);
+        weights.put(Operation.APPROVE, approve);
+        weights.put(Operation.LIST, list);
+        weights.put(Operation.GET, get);
+        this.totalWeight = create + approve + list + get;
+    }
+
+    static Scenario parse(String name) {
+        String normalized = name.toUpperCase(Locale.ROOT).replace("-HEAVY", "");
+        try {
+            return valueOf(normalized);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown scenario: " + name + " (create, approve, list or mixed)");
+        }
+    }
+
+    String label() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    Operation next(SplittableRandom random) {
+        int pick = random.nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> weight : weights.entrySet()) {
+            pick -= weight.getValue();
+            if (pick < 0) {
+                return weight.getKey();
+            }
+        }
+        throw new IllegalStateException("Weights of " + this + " do not add up");
+    }
+
+    /**
+     * Share of the requests that are of the given type.
+     */
+    double share(Operation operation) {
+        return (double) weights.get(operation) / totalWeight;
+    }
+}
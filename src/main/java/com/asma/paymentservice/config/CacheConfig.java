@@ -0,0 +1,60 @@
+package com.asma.paymentservice.config;
+
+import com.asma.paymentservice.dto.InvoiceResponse;
+import com.asma.paymentservice.dto.PaymentResponse;
+import com.asma.paymentservice.repository.InvoiceRepository;
+import com.asma.paymentservice.repository.PaymentRepository;
+import com.asma.paymentservice.service.MissingIdCache;
+import com.asma.paymentservice.service.ResponseCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Local caches of the GET /payments/{id} and GET /invoices/{id} responses (see {@link ResponseCache}), and of
+ * the IDs those endpoints and GET /invoices?paymentId= answer with 404 (see {@link MissingIdCache}).
+ */
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    public ResponseCache<PaymentResponse> paymentResponseCache(MeterRegistry meterRegistry,
+                                                               @Value("${paymentservice.cache.payments.maximum-size:10000}") long maximumSize,
+                                                               @Value("${paymentservice.cache.payments.ttl:PT5S}") Duration ttl) {
+        return new ResponseCache<>("payments", maximumSize, ttl, meterRegistry);
+    }
+
+    @Bean
+    public ResponseCache<InvoiceResponse> invoiceResponseCache(MeterRegistry meterRegistry,
+                                                               @Value("${paymentservice.cache.invoices.maximum-size:10000}") long maximumSize,
+                                                               @Value("${paymentservice.cache.invoices.ttl:PT30S}") Duration ttl) {
+        return new ResponseCache<>("invoices", maximumSize, ttl, meterRegistry);
+    }
+
+    @Bean
+    public MissingIdCache missingPayments(MeterRegistry meterRegistry, PaymentRepository paymentRepository,
+                                          @Value("${paymentservice.cache.missing.maximum-size:100000}") long maximumSize,
+                                          @Value("${paymentservice.cache.missing.ttl:PT2S}") Duration ttl) {
+        return new MissingIdCache("payments", maximumSize, ttl, paymentRepository::findMaxId, meterRegistry);
+    }
+
+    @Bean
+    public MissingIdCache missingInvoices(MeterRegistry meterRegistry, InvoiceRepository invoiceRepository,
+                                          @Value("${paymentservice.cache.missing.maximum-size:100000}") long maximumSize,
+                                          @Value("${paymentservice.cache.missing.ttl:PT2S}") Duration ttl) {
+        return new MissingIdCache("invoices", maximumSize, ttl, invoiceRepository::findMaxId, meterRegistry);
+    }
+
+    /**
+     * Keyed by payment ID: payments without an invoice. A payment ID above the largest payment ID has none.
+     */
+    @Bean
+    public MissingIdCache missingInvoicesByPayment(MeterRegistry meterRegistry, PaymentRepository paymentRepository,
+                                                   @Value("${paymentservice.cache.missing.maximum-size:100000}") long maximumSize,
+                                                   @Value("${paymentservice.cache.missing.ttl:PT2S}") Duration ttl) {
+        return new MissingIdCache("invoices_by_payment", maximumSize, ttl, paymentRepository::findMaxId, meterRegistry);
+    }
+}
@@ -0,0 +1,12 @@
+package com.asma.paymentservice.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables {@code @Scheduled} background jobs (e.g. purging expired idempotency records).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
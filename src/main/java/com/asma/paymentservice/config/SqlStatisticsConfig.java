@@ -0,0 +1,66 @@
+package com.asma.paymentservice.config;
+
+import com.asma.paymentservice.repository.SqlStatistics;
+import com.asma.paymentservice.repository.SqlTracingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Opt-in SQL statistics ({@code paymentservice.sql-stats.enabled}): wraps the data source in a
+ * {@link SqlTracingDataSource}, attributes its statements to the repository methods running them, and serves the
+ * statistics on {@code /actuator/sqlstats}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "paymentservice.sql-stats.enabled", havingValue = "true")
+public class SqlStatisticsConfig {
+
+    @Bean
+    public SqlStatistics sqlStatistics(MeterRegistry meterRegistry,
+                                       @Value("${paymentservice.sql-stats.slow-threshold:PT0.5S}") Duration slowThreshold,
+                                       @Value("${paymentservice.sql-stats.n-plus-one-threshold:10}") int nPlusOneThreshold) {
+        return new SqlStatistics(meterRegistry, slowThreshold, nPlusOneThreshold);
+    }
+
+    /**
+     * Static, like every post-processor bean; {@link SqlStatistics} is resolved lazily so that the meter registry is
+     * neither created before the other post-processors are registered nor while the data source is being created.
+     */
+    @Bean
+    public static BeanPostProcessor sqlStatisticsPostProcessor(ObjectProvider<SqlStatistics> sqlStatistics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) ->
+                                    proxyFactory.addAdvice(sqlStatistics.getObject()
+                                            .repositoryInterceptor(repositoryInformation.getRepositoryInterface()))));
+                }
+                return bean;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof SqlTracingDataSource)) {
+                    return new SqlTracingDataSource((DataSource) bean, sqlStatistics::getObject);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public SqlStatisticsEndpoint sqlStatisticsEndpoint(SqlStatistics sqlStatistics, EntityManagerFactory entityManagerFactory) {
+        return new SqlStatisticsEndpoint(sqlStatistics, entityManagerFactory);
+    }
+}
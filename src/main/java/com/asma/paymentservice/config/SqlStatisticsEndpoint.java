@@ -0,0 +1,61 @@
+package com.asma.paymentservice.config;
+
+import com.asma.paymentservice.repository.SqlStatistics;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code GET /actuator/sqlstats}: statement statistics per repository method (see {@link SqlStatistics}), and the
+ * Hibernate session factory statistics when {@code hibernate.generate_statistics} is set.
+ * {@code DELETE /actuator/sqlstats} starts a new measurement.
+ */
+@Endpoint(id = "sqlstats")
+@RequiredArgsConstructor
+public class SqlStatisticsEndpoint {
+
+    private final SqlStatistics sqlStatistics;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @ReadOperation
+    public Map<String, Object> sqlStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("slowThresholdMs", sqlStatistics.getSlowThreshold().toMillis());
+        result.put("nPlusOneThreshold", sqlStatistics.getNPlusOneThreshold());
+        result.put("methods", sqlStatistics.snapshot());
+        Statistics statistics = hibernateStatistics();
+        if (statistics.isStatisticsEnabled()) {
+            Map<String, Object> hibernate = new LinkedHashMap<>();
+            hibernate.put("transactions", statistics.getTransactionCount());
+            hibernate.put("flushes", statistics.getFlushCount());
+            hibernate.put("preparedStatements", statistics.getPrepareStatementCount());
+            hibernate.put("queryExecutions", statistics.getQueryExecutionCount());
+            hibernate.put("queryExecutionMaxMs", statistics.getQueryExecutionMaxTime());
+            hibernate.put("slowestQuery", statistics.getQueryExecutionMaxTimeQueryString());
+            hibernate.put("entityLoads", statistics.getEntityLoadCount());
+            hibernate.put("entityFetches", statistics.getEntityFetchCount());
+            hibernate.put("entityInserts", statistics.getEntityInsertCount());
+            hibernate.put("entityUpdates", statistics.getEntityUpdateCount());
+            hibernate.put("collectionFetches", statistics.getCollectionFetchCount());
+            result.put("hibernate", hibernate);
+        }
+        return result;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        sqlStatistics.reset();
+        hibernateStatistics().clear();
+    }
+
+    private Statistics hibernateStatistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
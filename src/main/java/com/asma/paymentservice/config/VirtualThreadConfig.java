@@ -0,0 +1,92 @@
+package com.asma.paymentservice.config;
+
+import com.asma.paymentservice.service.VirtualThreads;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Opt-in virtual threads ({@code paymentservice.virtual-threads.enabled}): Tomcat runs each request on a new
+ * virtual thread instead of its platform thread pool, and the outbox workers creating invoices are virtual too
+ * (see {@code OutboxDispatcher}). A thread blocked on JDBC then no longer holds a platform thread, so the number of
+ * requests in flight is no longer capped by {@code server.tomcat.threads.max}.
+ *
+ * The database pool becomes the bound instead: requests queue for a HikariCP connection rather than for a thread,
+ * so the pool keeps its size (it is sized for the database, not for the request concurrency) and waiting for a
+ * connection is capped at {@code paymentservice.virtual-threads.connection-timeout}, so that an overload is
+ * answered with errors rather than with thousands of parked requests. Pinned virtual threads are reported by a
+ * {@link VirtualThreadPinningMonitor}.
+ *
+ * The build targets Java 11: on a runtime without virtual threads the flag is logged and ignored.
+ */
+@Configuration
+@ConditionalOnProperty(name = "paymentservice.virtual-threads.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadConfig {
+
+    private ExecutorService requestExecutor;
+    private VirtualThreadPinningMonitor pinningMonitor;
+
+    public VirtualThreadConfig(MeterRegistry meterRegistry,
+                               @Value("${paymentservice.virtual-threads.pinned-threshold:PT0.02S}") Duration pinnedThreshold) {
+        if (!VirtualThreads.isSupported()) {
+            log.warn("paymentservice.virtual-threads.enabled is set but Java {} has no virtual threads (Java 21+): "
+                    + "using platform threads", System.getProperty("java.version"));
+            return;
+        }
+        try {
+            this.pinningMonitor = new VirtualThreadPinningMonitor(meterRegistry, pinnedThreshold);
+        } catch (ReflectiveOperationException e) {
+            log.warn("Cannot monitor pinned virtual threads: {}", e.toString());
+        }
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> VirtualThreads.newThreadPerTaskExecutor("http-vt-").ifPresent(executor -> {
+            requestExecutor = executor;
+            protocolHandler.setExecutor(executor);
+            log.info("Serving requests on virtual threads");
+        });
+    }
+
+    /**
+     * Static, like every post-processor bean.
+     */
+    @Bean
+    public static BeanPostProcessor virtualThreadDataSourcePostProcessor(
+            @Value("${paymentservice.virtual-threads.connection-timeout:PT2S}") Duration connectionTimeout) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource && VirtualThreads.isSupported()) {
+                    HikariDataSource dataSource = (HikariDataSource) bean;
+                    dataSource.setConnectionTimeout(connectionTimeout.toMillis());
+                    log.info("Database concurrency bounded by {} pooled connections, waiting at most {}",
+                            dataSource.getMaximumPoolSize(), connectionTimeout);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() throws Exception {
+        if (requestExecutor != null) {
+            requestExecutor.shutdown();
+        }
+        if (pinningMonitor != null) {
+            pinningMonitor.close();
+        }
+    }
+}
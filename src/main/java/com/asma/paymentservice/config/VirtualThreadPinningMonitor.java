@@ -0,0 +1,72 @@
+package com.asma.paymentservice.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.EventSettings;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reports virtual threads pinned to their carrier while blocking, typically on I/O inside a {@code synchronized}
+ * block: the carrier cannot run other virtual threads meanwhile, so a pinned hot path serializes on the
+ * (processor-sized) carrier pool. Listens to the JFR {@code jdk.VirtualThreadPinned} event through an in-process
+ * recording stream (Java 14+ API, looked up reflectively), counts the events in
+ * {@code paymentservice.virtual-threads.pinned} and logs the application frame that pinned the thread.
+ */
+@Slf4j
+class VirtualThreadPinningMonitor implements AutoCloseable {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APPLICATION_PACKAGE = "com.asma.paymentservice.";
+
+    private final Counter pinned;
+    private final AutoCloseable stream;
+
+    /**
+     * @param threshold pinned durations below it are ignored
+     */
+    VirtualThreadPinningMonitor(MeterRegistry meterRegistry, Duration threshold) throws ReflectiveOperationException {
+        this.pinned = Counter.builder("paymentservice.virtual-threads.pinned")
+                .description("Virtual threads pinned to their carrier thread for longer than the threshold")
+                .register(meterRegistry);
+        Class<?> recordingStream = Class.forName("jdk.jfr.consumer.RecordingStream");
+        Object stream = recordingStream.getConstructor().newInstance();
+        EventSettings settings = (EventSettings) recordingStream.getMethod("enable", String.class).invoke(stream, PINNED_EVENT);
+        settings.withThreshold(threshold).withStackTrace();
+        Consumer<RecordedEvent> handler = this::onPinned;
+        recordingStream.getMethod("onEvent", String.class, Consumer.class).invoke(stream, PINNED_EVENT, handler);
+        recordingStream.getMethod("startAsync").invoke(stream);
+        this.stream = (AutoCloseable) stream;
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinned.increment();
+        log.warn("Virtual thread {} pinned for {} ms at {}", event.getThread() != null ? event.getThread().getJavaName() : "?",
+                event.getDuration().toMillis(), pinningFrame(event));
+    }
+
+    /**
+     * Innermost application frame, where the lock was taken; the innermost frame when there is none.
+     */
+    private static String pinningFrame(RecordedEvent event) {
+        if (event.getStackTrace() == null || event.getStackTrace().getFrames().isEmpty()) {
+            return "(no stack trace)";
+        }
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        RecordedFrame frame = frames.stream()
+                .filter(candidate -> candidate.getMethod().getType().getName().startsWith(APPLICATION_PACKAGE))
+                .findFirst()
+                .orElse(frames.get(0));
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    @Override
+    public void close() throws Exception {
+        stream.close();
+    }
+}
@@ -0,0 +1,106 @@
+package com.asma.paymentservice.controller;
+
+import com.asma.paymentservice.exception.InvalidInvoiceRequestException;
+import com.asma.paymentservice.exception.InvalidPaymentRequestException;
+import com.asma.paymentservice.service.ExportFormat;
+import com.asma.paymentservice.service.InvoiceFilter;
+import com.asma.paymentservice.service.InvoiceService;
+import com.asma.paymentservice.service.PaymentFilter;
+import com.asma.paymentservice.service.PaymentService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+/**
+ * Full exports of payments and invoices, with the filters of the list endpoints but without pagination.
+ *
+ * The response is written by an MVC async thread while rows are read from the database cursor, so neither
+ * the servlet thread nor memory is held for the whole result. Filters are validated before the response
+ * starts, so that errors are still answered with an ErrorResponse. Not part of the generated interfaces,
+ * which cannot return a {@link StreamingResponseBody}.
+ */
+@RestController
+@RequiredArgsConstructor
+public class ExportController {
+
+    private final PaymentService paymentService;
+    private final InvoiceService invoiceService;
+
+    @GetMapping("/payments/export")
+    public ResponseEntity<StreamingResponseBody> exportPayments(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String orderId,
+            @RequestParam(required = false) String currency,
+            @RequestParam(required = false) String method,
+            @RequestParam(required = false) Double minAmount,
+            @RequestParam(required = false) Double maxAmount,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime createdTo,
+            @RequestParam(required = false) String format) {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.fromValue(format);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPaymentRequestException("Invalid export format: " + format);
+        }
+        PaymentFilter filter = PaymentFilter.builder()
+                .status(status)
+                .userId(userId)
+                .orderId(orderId)
+                .currency(currency)
+                .method(method)
+                .minAmount(minAmount)
+                .maxAmount(maxAmount)
+                .createdFrom(createdFrom)
+                .createdTo(createdTo)
+                .build();
+        paymentService.validateFilter(filter);
+
+        return attachment("payments", exportFormat, out -> paymentService.exportPayments(filter, exportFormat, out));
+    }
+
+    @GetMapping("/invoices/export")
+    public ResponseEntity<StreamingResponseBody> exportInvoices(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+            @RequestParam(required = false) String format) {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.fromValue(format);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidInvoiceRequestException("Invalid export format: " + format);
+        }
+        InvoiceFilter filter = InvoiceFilter.builder()
+                .status(status)
+                .userId(userId)
+                .fromDate(fromDate)
+                .toDate(toDate)
+                .build();
+        invoiceService.validateFilter(filter);
+
+        return attachment("invoices", exportFormat, out -> invoiceService.exportInvoices(filter, exportFormat, out));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> attachment(String name, ExportFormat format, StreamingResponseBody body) {
+        ContentDisposition disposition = ContentDisposition.attachment()
+                .filename(name + "." + format.getFileExtension())
+                .build();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+                .body(body);
+    }
+}
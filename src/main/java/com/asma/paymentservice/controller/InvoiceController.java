@@ -3,11 +3,15 @@ package com.asma.paymentservice.controller;
 import com.asma.paymentservice.api.InvoicesApi;
 import com.asma.paymentservice.dto.CreateInvoiceRequest;
 import com.asma.paymentservice.dto.InvoiceResponse;
+import com.asma.paymentservice.dto.InvoiceSummaryResponse;
 import com.asma.paymentservice.dto.ListInvoices200Response;
 import com.asma.paymentservice.dto.UpdateInvoiceStatusRequest;
 import com.asma.paymentservice.entity.Invoice;
 import com.asma.paymentservice.entity.InvoiceStatus;
+import com.asma.paymentservice.service.InvoiceFilter;
 import com.asma.paymentservice.service.InvoiceService;
+import com.asma.paymentservice.service.InvoiceSummaryService;
+import com.asma.paymentservice.service.ResponseMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -20,32 +24,51 @@ import java.time.LocalDate;
 public class InvoiceController implements InvoicesApi {
 
     private final InvoiceService invoiceService;
+    private final InvoiceSummaryService invoiceSummaryService;
 
     @Override
     public ResponseEntity<InvoiceResponse> createInvoice(CreateInvoiceRequest createInvoiceRequest) {
         Invoice invoice = invoiceService.createInvoiceManually(createInvoiceRequest.getPaymentId());
-        InvoiceResponse response = mapToResponse(invoice);
+        InvoiceResponse response = ResponseMapper.toInvoiceResponse(invoice);
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
     @Override
-    public ResponseEntity<ListInvoices200Response> listInvoices(Long paymentId, String status, String userId, LocalDate fromDate, LocalDate toDate, Integer page, Integer size) {
+    public ResponseEntity<ListInvoices200Response> listInvoices(Long paymentId, String status, String userId, LocalDate fromDate, LocalDate toDate, Integer page, Integer size, String cursor, Boolean withTotal) {
         // If paymentId is provided, return single invoice (backward compatibility)
         if (paymentId != null) {
             Invoice invoice = invoiceService.getInvoiceByPaymentId(paymentId);
-            InvoiceResponse response = mapToResponse(invoice);
+            InvoiceResponse response = ResponseMapper.toInvoiceResponse(invoice);
             return ResponseEntity.ok(response);
         }
         
-        // Otherwise, return paginated list with filters
-        com.asma.paymentservice.dto.InvoiceListResponse listResponse = invoiceService.listInvoices(status, userId, fromDate, toDate, page, size);
+        // Otherwise, return paginated list with filters (keyset pagination when a cursor is provided)
+        InvoiceFilter filter = InvoiceFilter.builder()
+                .status(status)
+                .userId(userId)
+                .fromDate(fromDate)
+                .toDate(toDate)
+                .build();
+        com.asma.paymentservice.dto.InvoiceListResponse listResponse;
+        if (cursor != null && !cursor.trim().isEmpty()) {
+            listResponse = invoiceService.listInvoicesAfterCursor(filter, cursor, size);
+        } else if (Boolean.FALSE.equals(withTotal)) {
+            listResponse = invoiceService.listInvoicesWithoutTotal(filter, page, size);
+        } else {
+            listResponse = invoiceService.listInvoices(filter, page, size);
+        }
         return ResponseEntity.ok(listResponse);
     }
 
+    @Override
+    public ResponseEntity<InvoiceSummaryResponse> getInvoiceSummary(LocalDate fromDate, LocalDate toDate, String userId) {
+        InvoiceSummaryResponse response = invoiceSummaryService.getSummary(fromDate, toDate, userId);
+        return ResponseEntity.ok(response);
+    }
+
     @Override
     public ResponseEntity<InvoiceResponse> getInvoiceById(Long id) {
-        Invoice invoice = invoiceService.getInvoiceById(id);
-        InvoiceResponse response = mapToResponse(invoice);
+        InvoiceResponse response = invoiceService.getInvoiceResponseById(id);
         return ResponseEntity.ok(response);
     }
 
@@ -54,36 +77,7 @@ public class InvoiceController implements InvoicesApi {
         // Convert DTO StatusEnum to entity InvoiceStatus
         InvoiceStatus newStatus = InvoiceStatus.valueOf(updateInvoiceStatusRequest.getStatus().getValue());
         Invoice invoice = invoiceService.updateInvoiceStatus(id, newStatus);
-        InvoiceResponse response = mapToResponse(invoice);
+        InvoiceResponse response = ResponseMapper.toInvoiceResponse(invoice);
         return ResponseEntity.ok(response);
     }
-
-    private InvoiceResponse mapToResponse(Invoice invoice) {
-        InvoiceResponse response = new InvoiceResponse();
-        response.setId(invoice.getId());
-        response.setInvoiceNumber(invoice.getInvoiceNumber());
-        response.setPaymentId(invoice.getPaymentId());
-        response.setUserId(invoice.getUserId());
-        response.setAmount(invoice.getAmount().doubleValue());
-        response.setCurrency(invoice.getCurrency());
-        response.setStatus(InvoiceResponse.StatusEnum.fromValue(invoice.getStatus().name()));
-        response.setIssueDate(invoice.getIssueDate());
-        if (invoice.getDueDate() != null) {
-            response.setDueDate(org.openapitools.jackson.nullable.JsonNullable.of(invoice.getDueDate()));
-        }
-        if (invoice.getSentAt() != null) {
-            response.setSentAt(org.openapitools.jackson.nullable.JsonNullable.of(invoice.getSentAt()));
-        }
-        if (invoice.getPaidAt() != null) {
-            response.setPaidAt(org.openapitools.jackson.nullable.JsonNullable.of(invoice.getPaidAt()));
-        }
-        if (invoice.getCancelledAt() != null) {
-            response.setCancelledAt(org.openapitools.jackson.nullable.JsonNullable.of(invoice.getCancelledAt()));
-        }
-        response.setOrderId(invoice.getOrderId() != null 
-                ? org.openapitools.jackson.nullable.JsonNullable.of(invoice.getOrderId()) 
-                : org.openapitools.jackson.nullable.JsonNullable.undefined());
-        return response;
-    }
 }
-
@@ -1,27 +1,59 @@
 package com.asma.paymentservice.controller;
 
 import com.asma.paymentservice.api.PaymentsApi;
+import com.asma.paymentservice.dto.CreatePaymentBatchRequest;
+import com.asma.paymentservice.dto.CreatePaymentBatchResponse;
 import com.asma.paymentservice.dto.CreatePaymentRequest;
 import com.asma.paymentservice.dto.PaymentListResponse;
 import com.asma.paymentservice.dto.PaymentResponse;
+import com.asma.paymentservice.dto.PaymentSummaryResponse;
+import com.asma.paymentservice.dto.UpdatePaymentStatusBatchRequest;
+import com.asma.paymentservice.dto.UpdatePaymentStatusBatchResponse;
 import com.asma.paymentservice.dto.UpdatePaymentStatusRequest;
 import com.asma.paymentservice.entity.PaymentStatus;
+import com.asma.paymentservice.service.IdempotencyService;
+import com.asma.paymentservice.service.PaymentFilter;
 import com.asma.paymentservice.service.PaymentService;
+import com.asma.paymentservice.service.PaymentSummaryService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
 @RestController
 @RequiredArgsConstructor
 public class PaymentController implements PaymentsApi {
 
+    static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final PaymentService paymentService;
+    private final IdempotencyService idempotencyService;
+    private final PaymentSummaryService paymentSummaryService;
+
+    @Override
+    public ResponseEntity<PaymentResponse> createPayment(CreatePaymentRequest createPaymentRequest, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            PaymentResponse response = paymentService.createPayment(createPaymentRequest);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        }
+
+        IdempotencyService.Result<PaymentResponse> result = idempotencyService.execute(
+                idempotencyKey, createPaymentRequest, PaymentResponse.class,
+                () -> paymentService.createPayment(createPaymentRequest));
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.CREATED);
+        if (result.isReplayed()) {
+            builder.header(IDEMPOTENT_REPLAYED_HEADER, "true");
+        }
+        return builder.body(result.getBody());
+    }
 
     @Override
-    public ResponseEntity<PaymentResponse> createPayment(CreatePaymentRequest createPaymentRequest) {
-        PaymentResponse response = paymentService.createPayment(createPaymentRequest);
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    public ResponseEntity<CreatePaymentBatchResponse> createPaymentsBatch(CreatePaymentBatchRequest createPaymentBatchRequest) {
+        CreatePaymentBatchResponse response = paymentService.createPayments(createPaymentBatchRequest.getItems());
+        return ResponseEntity.ok(response);
     }
 
     @Override
@@ -31,8 +63,36 @@ public class PaymentController implements PaymentsApi {
     }
 
     @Override
-    public ResponseEntity<PaymentListResponse> listPayments(String status, String userId, String orderId, Integer page, Integer size) {
-        PaymentListResponse response = paymentService.listPayments(status, userId, orderId, page, size);
+    public ResponseEntity<PaymentListResponse> listPayments(String status, String userId, String orderId, String currency, String method,
+                                                            Double minAmount, Double maxAmount, OffsetDateTime createdFrom, OffsetDateTime createdTo,
+                                                            Integer page, Integer size, String cursor, Boolean withTotal) {
+        PaymentFilter filter = PaymentFilter.builder()
+                .status(status)
+                .userId(userId)
+                .orderId(orderId)
+                .currency(currency)
+                .method(method)
+                .minAmount(minAmount)
+                .maxAmount(maxAmount)
+                .createdFrom(createdFrom)
+                .createdTo(createdTo)
+                .build();
+
+        PaymentListResponse response;
+        if (cursor != null && !cursor.trim().isEmpty()) {
+            // A cursor switches to keyset pagination (no OFFSET scan, no count query)
+            response = paymentService.listPaymentsAfterCursor(filter, cursor, size);
+        } else if (Boolean.FALSE.equals(withTotal)) {
+            response = paymentService.listPaymentsWithoutTotal(filter, page, size);
+        } else {
+            response = paymentService.listPayments(filter, page, size);
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    @Override
+    public ResponseEntity<PaymentSummaryResponse> getPaymentSummary(LocalDate fromDate, LocalDate toDate, String currency, String method) {
+        PaymentSummaryResponse response = paymentSummaryService.getSummary(fromDate, toDate, currency, method);
         return ResponseEntity.ok(response);
     }
 
@@ -43,5 +103,11 @@ public class PaymentController implements PaymentsApi {
         PaymentResponse response = paymentService.updatePaymentStatus(id, newStatus);
         return ResponseEntity.ok(response);
     }
+
+    @Override
+    public ResponseEntity<UpdatePaymentStatusBatchResponse> updatePaymentStatusesBatch(UpdatePaymentStatusBatchRequest updatePaymentStatusBatchRequest) {
+        UpdatePaymentStatusBatchResponse response = paymentService.updatePaymentStatuses(updatePaymentStatusBatchRequest.getItems());
+        return ResponseEntity.ok(response);
+    }
 }
 
@@ -0,0 +1,136 @@
+package com.asma.paymentservice.controller;
+
+import com.asma.paymentservice.dto.PaymentResponse;
+import com.asma.paymentservice.exception.InvalidPaymentRequestException;
+import com.asma.paymentservice.service.PaymentService;
+import com.asma.paymentservice.service.PaymentStatusHub;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Endpoints for clients waiting on a payment status change, e.g. a checkout page waiting for the approval,
+ * instead of polling GET /payments/{id}.
+ *
+ * Both are handled asynchronously: the servlet thread is released as soon as the watch is registered with
+ * {@link PaymentStatusHub}, and the response is written by a delivery thread of the hub. They are not
+ * part of the generated {@code PaymentsApi} because the generator has no return type for streamed or
+ * deferred responses.
+ */
+@RestController
+@Slf4j
+public class PaymentStatusWatchController {
+
+    static final String STATUS_EVENT = "status";
+
+    private static final Set<PaymentResponse.StatusEnum> FINAL_STATUSES = EnumSet.of(
+            PaymentResponse.StatusEnum.APPROVED, PaymentResponse.StatusEnum.FAILED, PaymentResponse.StatusEnum.CANCELED);
+
+    private final PaymentService paymentService;
+    private final Duration streamTimeout;
+    private final Duration maxWait;
+
+    public PaymentStatusWatchController(PaymentService paymentService,
+                                        @Value("${paymentservice.status-watch.stream-timeout:PT5M}") Duration streamTimeout,
+                                        @Value("${paymentservice.status-watch.max-wait:PT60S}") Duration maxWait) {
+        this.paymentService = paymentService;
+        this.streamTimeout = streamTimeout;
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * Server-sent events: a {@value #STATUS_EVENT} event with the payment now, then one per status change.
+     * The stream ends after a final status (APPROVED, FAILED or CANCELED) or when the stream timeout expires.
+     */
+    @GetMapping(value = "/payments/{id}/status/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPaymentStatus(@PathVariable Long id) {
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        // A lock rather than a monitor: a send to a slow client must not hold the carrier of a virtual thread
+        Lock sendLock = new ReentrantLock();
+        AtomicReference<PaymentResponse.StatusEnum> lastSent = new AtomicReference<>();
+
+        PaymentStatusHub.Subscription subscription = paymentService.watchPaymentStatus(id, payment -> {
+            sendLock.lock();
+            try {
+                // The same change may be delivered by the commit and by the poll of watched payments
+                if (payment.getStatus() == lastSent.get() || FINAL_STATUSES.contains(lastSent.get())) {
+                    return;
+                }
+                lastSent.set(payment.getStatus());
+                try {
+                    emitter.send(SseEmitter.event().name(STATUS_EVENT).data(payment, MediaType.APPLICATION_JSON));
+                    if (FINAL_STATUSES.contains(payment.getStatus())) {
+                        emitter.complete();
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // Client gone or stream already completed; the completion callback cancels the watch
+                    log.debug("Dropping status event for payment ID {}: {}", id, e.getMessage());
+                    emitter.complete();
+                }
+            } finally {
+                sendLock.unlock();
+            }
+        });
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscription.cancel());
+        return emitter;
+    }
+
+    /**
+     * Long poll: answers as soon as the status is one of {@code waitFor} (by default any final status), or
+     * after {@code timeout} seconds with the current payment, whatever its status.
+     */
+    @GetMapping(value = "/payments/{id}/status", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<PaymentResponse> waitForPaymentStatus(@PathVariable Long id,
+                                                                @RequestParam(required = false) List<String> waitFor,
+                                                                @RequestParam(defaultValue = "30") int timeout) {
+        // 0 would mean "no timeout" to the servlet container
+        if (timeout < 1 || timeout > maxWait.getSeconds()) {
+            throw new InvalidPaymentRequestException("Timeout must be between 1 and " + maxWait.getSeconds() + " seconds");
+        }
+        Set<PaymentResponse.StatusEnum> expected = parseStatuses(waitFor);
+        DeferredResult<PaymentResponse> result = new DeferredResult<>(Duration.ofSeconds(timeout).toMillis());
+        AtomicReference<PaymentResponse> latest = new AtomicReference<>();
+
+        PaymentStatusHub.Subscription subscription = paymentService.watchPaymentStatus(id, payment -> {
+            latest.set(payment);
+            if (expected.contains(payment.getStatus())) {
+                result.setResult(payment);
+            }
+        });
+        result.onCompletion(subscription::cancel);
+        result.onTimeout(() -> result.setResult(latest.get()));
+        return result;
+    }
+
+    private static Set<PaymentResponse.StatusEnum> parseStatuses(List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return FINAL_STATUSES;
+        }
+        Set<PaymentResponse.StatusEnum> statuses = EnumSet.noneOf(PaymentResponse.StatusEnum.class);
+        for (String value : values) {
+            try {
+                statuses.add(PaymentResponse.StatusEnum.fromValue(value.trim()));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidPaymentRequestException("Invalid payment status: " + value);
+            }
+        }
+        return statuses;
+    }
+}
@@ -0,0 +1,56 @@
+package com.asma.paymentservice.entity;
+
+import javax.persistence.*;
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stored outcome of a request made with an {@code Idempotency-Key} header.
+ * The key is the primary key, so concurrent first requests on different nodes cannot both
+ * record a result: the loser's transaction fails on the unique index and replays the winner's.
+ */
+@Entity
+@Table(name = "idempotency_record", indexes = {
+    @Index(name = "idx_idempotency_record_expires", columnList = "expiresAt")
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord implements Persistable<String> {
+
+    @Id
+    @Column(length = 255)
+    private String idempotencyKey;
+
+    /** SHA-256 of the request body, used to reject reuse of a key for a different request. */
+    @Column(nullable = false, length = 64)
+    private String requestHash;
+
+    /** Original response body (JSON), replayed verbatim. */
+    @Column(nullable = false, length = 4000)
+    private String responseBody;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Override
+    public String getId() {
+        return idempotencyKey;
+    }
+
+    /**
+     * Records are only ever inserted, never updated: report them as new so {@code save}
+     * issues a plain INSERT instead of a merge (SELECT then INSERT).
+     */
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
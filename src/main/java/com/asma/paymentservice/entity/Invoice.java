@@ -2,6 +2,9 @@ package com.asma.paymentservice.entity;
 
 import javax.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -9,6 +12,13 @@ import java.time.LocalDate;
 @Entity
 @Table(name = "invoice", uniqueConstraints = {
     @UniqueConstraint(columnNames = "invoiceNumber")
+}, indexes = {
+    // One invoice per payment, even for concurrent creations; also serves findByPaymentId and existsByPaymentId
+    @Index(name = "uk_invoice_payment", columnList = "paymentId", unique = true),
+    // Listing filters, each followed by the list order (issueDate, id descending)
+    @Index(name = "idx_invoice_user_issued", columnList = "userId, issueDate DESC, id DESC"),
+    @Index(name = "idx_invoice_status_issued", columnList = "status, issueDate DESC, id DESC"),
+    @Index(name = "idx_invoice_issued", columnList = "issueDate DESC, id DESC")
 })
 @Getter
 @Setter
@@ -18,7 +28,14 @@ import java.time.LocalDate;
 public class Invoice {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "invoice_seq")
+    @GenericGenerator(
+            name = "invoice_seq",
+            strategy = PooledSequenceGenerator.STRATEGY,
+            parameters = {
+                    @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "invoice_seq"),
+                    @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = PooledSequenceGenerator.DEFAULT_ALLOCATION_SIZE)
+            })
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -0,0 +1,29 @@
+package com.asma.paymentservice.entity;
+
+import javax.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+/**
+ * Number and total amount of the invoices in one {@link InvoiceRollupKey} bucket, maintained by deltas
+ * applied with each invoice change so that billing summaries never scan the invoice table.
+ */
+@Entity
+@Table(name = "invoice_monthly_rollup")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceMonthlyRollup {
+
+    @EmbeddedId
+    private InvoiceRollupKey key;
+
+    @Column(nullable = false)
+    private long invoiceCount;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+}
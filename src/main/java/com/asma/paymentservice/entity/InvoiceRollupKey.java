@@ -0,0 +1,57 @@
+package com.asma.paymentservice.entity;
+
+import javax.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Comparator;
+
+/**
+ * Bucket of the invoice rollup: issue month (stored as its first day), status and currency.
+ * Ordered so that transactions updating several buckets lock them in the same order.
+ */
+@Embeddable
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class InvoiceRollupKey implements Serializable, Comparable<InvoiceRollupKey> {
+
+    private static final Comparator<InvoiceRollupKey> ORDER = Comparator.comparing(InvoiceRollupKey::getMonth)
+            .thenComparing(InvoiceRollupKey::getStatus)
+            .thenComparing(InvoiceRollupKey::getCurrency);
+
+    // "month" is a keyword in H2
+    @Column(name = "rollup_month", nullable = false)
+    private LocalDate month;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private InvoiceStatus status;
+
+    @Column(nullable = false, length = 3)
+    private String currency;
+
+    public InvoiceRollupKey(YearMonth month, InvoiceStatus status, String currency) {
+        this(month.atDay(1), status, currency);
+    }
+
+    public static InvoiceRollupKey of(Invoice invoice, InvoiceStatus status) {
+        return new InvoiceRollupKey(YearMonth.from(invoice.getIssueDate()), status, invoice.getCurrency());
+    }
+
+    /**
+     * The same bucket for another status.
+     */
+    public InvoiceRollupKey withStatus(InvoiceStatus status) {
+        return new InvoiceRollupKey(month, status, currency);
+    }
+
+    @Override
+    public int compareTo(InvoiceRollupKey other) {
+        return ORDER.compare(this, other);
+    }
+}
@@ -0,0 +1,25 @@
+package com.asma.paymentservice.entity;
+
+import javax.persistence.*;
+import lombok.*;
+
+/**
+ * Named counter row used to reserve blocks of business numbers (e.g. invoice numbers).
+ * {@code nextValue} is the first value not yet handed out to any node.
+ */
+@Entity
+@Table(name = "number_sequence")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NumberSequence {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(nullable = false)
+    private Long nextValue;
+}
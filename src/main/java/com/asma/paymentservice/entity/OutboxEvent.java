@@ -0,0 +1,70 @@
+package com.asma.paymentservice.entity;
+
+import javax.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+import java.time.LocalDateTime;
+
+/**
+ * Work recorded in the same transaction as the change that triggers it, and carried out later by
+ * {@link com.asma.paymentservice.service.OutboxDispatcher}. An event is deleted once handled;
+ * a failed event stays in the table and becomes available again after a backoff.
+ */
+@Entity
+@Table(name = "outbox_event", indexes = {
+    // Batch claim: events available now, oldest first
+    @Index(name = "idx_outbox_event_available", columnList = "availableAt, id")
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_seq")
+    @GenericGenerator(
+            name = "outbox_event_seq",
+            strategy = PooledSequenceGenerator.STRATEGY,
+            parameters = {
+                    @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "outbox_event_seq"),
+                    @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = PooledSequenceGenerator.DEFAULT_ALLOCATION_SIZE)
+            })
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 50)
+    private OutboxEventType type;
+
+    /** ID of the entity the event is about (the payment for {@link OutboxEventType#PAYMENT_APPROVED}). */
+    @Column(nullable = false)
+    private Long aggregateId;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    /** The event is not claimed before this time; pushed back after each failed attempt. */
+    @Column(nullable = false)
+    private LocalDateTime availableAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    public static OutboxEvent of(OutboxEventType type, Long aggregateId) {
+        LocalDateTime now = LocalDateTime.now();
+        return OutboxEvent.builder()
+                .type(type)
+                .aggregateId(aggregateId)
+                .createdAt(now)
+                .availableAt(now)
+                .attempts(0)
+                .build();
+    }
+}
@@ -0,0 +1,6 @@
+package com.asma.paymentservice.entity;
+
+public enum OutboxEventType {
+    /** A payment transitioned to APPROVED; its invoice must be created. */
+    PAYMENT_APPROVED
+}
@@ -2,12 +2,22 @@ package com.asma.paymentservice.entity;
 
 import javax.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "payment")
+@Table(name = "payment", indexes = {
+    // Duplicate-payment lookup on create (findByOrderIdAndUserIdAndStatus)
+    @Index(name = "idx_payment_order_user_status", columnList = "orderId, userId, status"),
+    // Listing filters, each followed by the list order (createdAt, id descending)
+    @Index(name = "idx_payment_user_created", columnList = "userId, createdAt DESC, id DESC"),
+    @Index(name = "idx_payment_status_created", columnList = "status, createdAt DESC, id DESC"),
+    @Index(name = "idx_payment_created", columnList = "createdAt DESC, id DESC")
+})
 @Getter
 @Setter
 @Builder
@@ -16,7 +26,14 @@ import java.time.LocalDateTime;
 public class Payment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payment_seq")
+    @GenericGenerator(
+            name = "payment_seq",
+            strategy = PooledSequenceGenerator.STRATEGY,
+            parameters = {
+                    @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "payment_seq"),
+                    @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = PooledSequenceGenerator.DEFAULT_ALLOCATION_SIZE)
+            })
     private Long id;
 
     @Column(nullable = false, precision = 19, scale = 2)
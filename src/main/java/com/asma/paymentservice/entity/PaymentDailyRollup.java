@@ -0,0 +1,29 @@
+package com.asma.paymentservice.entity;
+
+import javax.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+/**
+ * Number and total amount of the payments in one {@link PaymentRollupKey} bucket, maintained by deltas
+ * applied with each payment change so that summaries never scan the payment table.
+ */
+@Entity
+@Table(name = "payment_daily_rollup")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentDailyRollup {
+
+    @EmbeddedId
+    private PaymentRollupKey key;
+
+    @Column(nullable = false)
+    private long paymentCount;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+}
@@ -0,0 +1,56 @@
+package com.asma.paymentservice.entity;
+
+import javax.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Comparator;
+
+/**
+ * Bucket of the payment rollup: UTC creation day, status, currency and method.
+ * Ordered so that transactions updating several buckets lock them in the same order.
+ */
+@Embeddable
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class PaymentRollupKey implements Serializable, Comparable<PaymentRollupKey> {
+
+    private static final Comparator<PaymentRollupKey> ORDER = Comparator.comparing(PaymentRollupKey::getDay)
+            .thenComparing(PaymentRollupKey::getStatus)
+            .thenComparing(PaymentRollupKey::getCurrency)
+            .thenComparing(PaymentRollupKey::getMethod);
+
+    // "day" is a keyword in H2
+    @Column(name = "rollup_day", nullable = false)
+    private LocalDate day;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PaymentStatus status;
+
+    @Column(nullable = false, length = 3)
+    private String currency;
+
+    @Column(nullable = false)
+    private String method;
+
+    public static PaymentRollupKey of(Payment payment, PaymentStatus status) {
+        return new PaymentRollupKey(payment.getCreatedAt().toLocalDate(), status, payment.getCurrency(), payment.getMethod());
+    }
+
+    /**
+     * The same bucket for another status.
+     */
+    public PaymentRollupKey withStatus(PaymentStatus status) {
+        return new PaymentRollupKey(day, status, currency, method);
+    }
+
+    @Override
+    public int compareTo(PaymentRollupKey other) {
+        return ORDER.compare(this, other);
+    }
+}
@@ -0,0 +1,41 @@
+package com.asma.paymentservice.entity;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * Sequence-based identifier generator using a pooled optimizer.
+ * Hibernate reserves a block of identifiers per sequence call, so entities get their ID
+ * without an immediate INSERT and writes can be grouped into JDBC batches.
+ *
+ * The block size defaults to the {@code increment_size} declared on the entity and can be
+ * overridden with the {@code paymentservice.id.allocation-size} Hibernate setting
+ * (e.g. {@code spring.jpa.properties.paymentservice.id.allocation-size=50}).
+ * The database sequence increment must match the allocation size.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String STRATEGY = "com.asma.paymentservice.entity.PooledSequenceGenerator";
+    public static final String ALLOCATION_SIZE_SETTING = "paymentservice.id.allocation-size";
+    public static final String DEFAULT_ALLOCATION_SIZE = "50";
+    public static final String DEFAULT_OPTIMIZER = "pooled-lo";
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Object allocationSize = serviceRegistry.getService(ConfigurationService.class)
+                .getSettings()
+                .get(ALLOCATION_SIZE_SETTING);
+        if (allocationSize != null && !allocationSize.toString().trim().isEmpty()) {
+            params.setProperty(INCREMENT_PARAM, allocationSize.toString().trim());
+        }
+        if (!params.containsKey(OPT_PARAM)) {
+            params.setProperty(OPT_PARAM, DEFAULT_OPTIMIZER);
+        }
+        super.configure(type, params, serviceRegistry);
+    }
+}
@@ -42,6 +42,15 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
     }
 
+    @ExceptionHandler(IdempotencyKeyReuseException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyKeyReuse(IdempotencyKeyReuseException ex) {
+        ErrorResponse error = new ErrorResponse();
+        error.setCode(422);
+        error.setMessage("Idempotency-Key reused");
+        error.setDetails(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(error);
+    }
+
     @ExceptionHandler(InvoiceNotFoundException.class)
     public ResponseEntity<ErrorResponse> handleInvoiceNotFound(InvoiceNotFoundException ex) {
         ErrorResponse error = new ErrorResponse();
@@ -55,9 +64,10 @@ public class GlobalExceptionHandler {
     public ResponseEntity<ErrorResponse> handleInvalidInvoiceRequest(InvalidInvoiceRequestException ex) {
         ErrorResponse error = new ErrorResponse();
         String message = ex.getMessage();
-        // Validation errors (pagination, date range) should return 400, conflicts return 409
+        // Validation errors (pagination, date range, summary period) should return 400, conflicts return 409
         if (message != null && (message.contains("Page number") || message.contains("Page size") || 
-            message.contains("fromDate") || message.contains("Invalid status value"))) {
+            message.contains("fromDate") || message.contains("Invalid status value") || message.contains("cursor") ||
+            message.contains("Summary period"))) {
             error.setCode(400);
             error.setMessage("Validation failed");
         } else {
@@ -2,17 +2,25 @@ package com.asma.paymentservice.repository;
 
 import com.asma.paymentservice.entity.Invoice;
 import com.asma.paymentservice.entity.InvoiceStatus;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+/**
+ * Listing queries are composed from {@link InvoiceSpecifications} and run through
+ * {@link JpaSpecificationExecutor} (paged with count) or {@link InvoiceRepositoryCustom} (slice).
+ */
 @Repository
-public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
+public interface InvoiceRepository extends JpaRepository<Invoice, Long>, JpaSpecificationExecutor<Invoice>, InvoiceRepositoryCustom {
     
     /**
      * Finds an invoice by payment ID.
@@ -31,52 +39,69 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
     boolean existsByPaymentId(Long paymentId);
 
     /**
-     * Finds invoices filtered by status with pagination.
-     * Results are ordered by issueDate descending (most recent first).
+     * Returns which of the given payment IDs already have an invoice, in a single query.
+     *
+     * @param paymentIds The payment identifiers
+     * @return the payment IDs among {@code paymentIds} that have an invoice
      */
-    Page<Invoice> findByStatusOrderByIssueDateDesc(InvoiceStatus status, Pageable pageable);
+    @Query("SELECT i.paymentId FROM Invoice i WHERE i.paymentId IN :paymentIds")
+    List<Long> findInvoicedPaymentIds(@Param("paymentIds") Collection<Long> paymentIds);
 
     /**
-     * Finds invoices filtered by userId with pagination.
-     * Results are ordered by issueDate descending (most recent first).
+     * Largest invoice ID, or 0 when there is none. Resolved from the end of the primary key index.
      */
-    Page<Invoice> findByUserIdOrderByIssueDateDesc(String userId, Pageable pageable);
+    @Query("SELECT COALESCE(MAX(i.id), 0) FROM Invoice i")
+    long findMaxId();
 
     /**
-     * Finds invoices filtered by status and userId with pagination.
-     * Results are ordered by issueDate descending (most recent first).
+     * Sets the status and status dates of an invoice only if it is still in {@code expected} status.
+     * Clears the persistence context so later reads see the new values.
+     *
+     * @return 1 if the invoice was updated, 0 if it no longer exists or its status changed meanwhile
      */
-    Page<Invoice> findByStatusAndUserIdOrderByIssueDateDesc(InvoiceStatus status, String userId, Pageable pageable);
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Invoice i SET i.status = :target, i.sentAt = :sentAt, i.paidAt = :paidAt, i.cancelledAt = :cancelledAt "
+            + "WHERE i.id = :id AND i.status = :expected")
+    int updateStatus(@Param("id") Long id,
+                     @Param("expected") InvoiceStatus expected,
+                     @Param("target") InvoiceStatus target,
+                     @Param("sentAt") LocalDate sentAt,
+                     @Param("paidAt") LocalDate paidAt,
+                     @Param("cancelledAt") LocalDate cancelledAt);
 
     /**
-     * Finds invoices filtered by issueDate range with pagination.
-     * Results are ordered by issueDate descending (most recent first).
+     * Number and total amount of the invoices issued in {@code [from, to]}, per issue day, status and currency.
+     * Resolved over the issueDate index; used by the billing summary rebuild and for periods the rollup
+     * cannot answer.
      */
-    Page<Invoice> findByIssueDateBetweenOrderByIssueDateDesc(LocalDate fromDate, LocalDate toDate, Pageable pageable);
+    @Query("SELECT i.issueDate AS issueDate, i.status AS status, i.currency AS currency, COUNT(i) AS invoiceCount, "
+            + "SUM(i.amount) AS amount FROM Invoice i WHERE i.issueDate >= :from AND i.issueDate <= :to "
+            + "GROUP BY i.issueDate, i.status, i.currency")
+    List<IssuedTotals> sumIssuedBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
 
     /**
-     * Finds invoices filtered by status and issueDate range with pagination.
-     * Results are ordered by issueDate descending (most recent first).
+     * Same as {@link #sumIssuedBetween} for the invoices of one user, over the (userId, issueDate) index.
      */
-    Page<Invoice> findByStatusAndIssueDateBetweenOrderByIssueDateDesc(InvoiceStatus status, LocalDate fromDate, LocalDate toDate, Pageable pageable);
+    @Query("SELECT i.issueDate AS issueDate, i.status AS status, i.currency AS currency, COUNT(i) AS invoiceCount, "
+            + "SUM(i.amount) AS amount FROM Invoice i WHERE i.userId = :userId AND i.issueDate >= :from AND i.issueDate <= :to "
+            + "GROUP BY i.issueDate, i.status, i.currency")
+    List<IssuedTotals> sumIssuedBetweenForUser(@Param("userId") String userId, @Param("from") LocalDate from, @Param("to") LocalDate to);
 
-    /**
-     * Finds invoices filtered by userId and issueDate range with pagination.
-     * Results are ordered by issueDate descending (most recent first).
-     */
-    Page<Invoice> findByUserIdAndIssueDateBetweenOrderByIssueDateDesc(String userId, LocalDate fromDate, LocalDate toDate, Pageable pageable);
+    @Query("SELECT MIN(i.issueDate) FROM Invoice i")
+    Optional<LocalDate> findMinIssueDate();
 
     /**
-     * Finds invoices filtered by status, userId, and issueDate range with pagination.
-     * Results are ordered by issueDate descending (most recent first).
+     * Projection of one group of {@link #sumIssuedBetween}.
      */
-    Page<Invoice> findByStatusAndUserIdAndIssueDateBetweenOrderByIssueDateDesc(InvoiceStatus status, String userId, LocalDate fromDate, LocalDate toDate, Pageable pageable);
+    interface IssuedTotals {
+        LocalDate getIssueDate();
 
-    /**
-     * Finds all invoices with pagination.
-     * Results are ordered by issueDate descending (most recent first).
-     */
-    @Query("SELECT i FROM Invoice i ORDER BY i.issueDate DESC")
-    Page<Invoice> findAllOrderByIssueDateDesc(Pageable pageable);
-}
+        InvoiceStatus getStatus();
+
+        String getCurrency();
 
+        Long getInvoiceCount();
+
+        BigDecimal getAmount();
+    }
+}
@@ -0,0 +1,33 @@
+package com.asma.paymentservice.repository;
+
+import com.asma.paymentservice.entity.Invoice;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.stream.Stream;
+
+public interface InvoiceRepositoryCustom {
+
+    /**
+     * Finds a slice of invoices matching the specification, without running a count query.
+     * Used for keyset (cursor) pagination and for listings that do not need totals.
+     *
+     * @param spec The filter specification (may be null)
+     * @param pageable The page offset, size and sort order
+     * @return the matching invoices in sort order, with a flag telling whether more rows exist
+     */
+    Slice<Invoice> findSlice(Specification<Invoice> spec, Pageable pageable);
+
+    /**
+     * Streams the invoices matching the specification in sort order, for exports. The invoices are detached
+     * copies built from a column projection read through a cursor ({@code paymentservice.export.fetch-size}
+     * rows per round trip): they never enter the persistence context and modifying them has no effect.
+     * Must be called inside a transaction, and the stream must be closed.
+     *
+     * @param spec The filter specification (may be null)
+     * @param sort The sort order
+     */
+    Stream<Invoice> streamDetached(Specification<Invoice> spec, Sort sort);
+}
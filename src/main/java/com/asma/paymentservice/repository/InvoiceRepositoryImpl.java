@@ -0,0 +1,54 @@
+package com.asma.paymentservice.repository;
+
+import com.asma.paymentservice.entity.Invoice;
+import com.asma.paymentservice.entity.InvoiceStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+class InvoiceRepositoryImpl implements InvoiceRepositoryCustom {
+
+    private static final List<String> EXPORT_ATTRIBUTES = List.of(
+            "id", "invoiceNumber", "paymentId", "userId", "amount", "currency", "status",
+            "issueDate", "dueDate", "sentAt", "paidAt", "cancelledAt", "orderId");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${paymentservice.export.fetch-size:1000}")
+    private int exportFetchSize;
+
+    @Override
+    public Slice<Invoice> findSlice(Specification<Invoice> spec, Pageable pageable) {
+        return WindowQuery.findSlice(entityManager, Invoice.class, spec, pageable);
+    }
+
+    @Override
+    public Stream<Invoice> streamDetached(Specification<Invoice> spec, Sort sort) {
+        return ProjectionStream.stream(entityManager, Invoice.class, spec, sort, EXPORT_ATTRIBUTES, exportFetchSize)
+                .map(row -> Invoice.builder()
+                        .id(row.get("id", Long.class))
+                        .invoiceNumber(row.get("invoiceNumber", String.class))
+                        .paymentId(row.get("paymentId", Long.class))
+                        .userId(row.get("userId", String.class))
+                        .amount(row.get("amount", BigDecimal.class))
+                        .currency(row.get("currency", String.class))
+                        .status(row.get("status", InvoiceStatus.class))
+                        .issueDate(row.get("issueDate", LocalDate.class))
+                        .dueDate(row.get("dueDate", LocalDate.class))
+                        .sentAt(row.get("sentAt", LocalDate.class))
+                        .paidAt(row.get("paidAt", LocalDate.class))
+                        .cancelledAt(row.get("cancelledAt", LocalDate.class))
+                        .orderId(row.get("orderId", String.class))
+                        .build());
+    }
+}
@@ -0,0 +1,15 @@
+package com.asma.paymentservice.repository;
+
+import com.asma.paymentservice.entity.InvoiceMonthlyRollup;
+import com.asma.paymentservice.entity.InvoiceRollupKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface InvoiceRollupRepository extends JpaRepository<InvoiceMonthlyRollup, InvoiceRollupKey> {
+
+    List<InvoiceMonthlyRollup> findByKeyMonthBetween(LocalDate from, LocalDate to);
+}
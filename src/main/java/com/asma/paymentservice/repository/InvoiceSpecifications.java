@@ -0,0 +1,59 @@
+package com.asma.paymentservice.repository;
+
+import com.asma.paymentservice.entity.Invoice;
+import com.asma.paymentservice.entity.InvoiceStatus;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+
+/**
+ * Query building blocks for {@link Invoice}.
+ * Each method returns null when its filter value is absent, so specifications can be
+ * combined with {@link Specification#where(Specification)} / {@code and(...)} without branching.
+ */
+public final class InvoiceSpecifications {
+
+    /** Keyset order: most recent issue date first, ID as tie-breaker. */
+    public static final Sort KEYSET_SORT = Sort.by(Sort.Order.desc("issueDate"), Sort.Order.desc("id"));
+
+    private InvoiceSpecifications() {
+    }
+
+    public static Specification<Invoice> hasStatus(InvoiceStatus status) {
+        return status == null ? null : (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    public static Specification<Invoice> hasUserId(String userId) {
+        return isBlank(userId) ? null : (root, query, cb) -> cb.equal(root.get("userId"), userId);
+    }
+
+    /**
+     * Inclusive issueDate range; either bound may be omitted.
+     */
+    public static Specification<Invoice> issuedBetween(LocalDate fromDate, LocalDate toDate) {
+        if (fromDate == null && toDate == null) {
+            return null;
+        }
+        if (toDate == null) {
+            return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("issueDate"), fromDate);
+        }
+        if (fromDate == null) {
+            return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("issueDate"), toDate);
+        }
+        return (root, query, cb) -> cb.between(root.get("issueDate"), fromDate, toDate);
+    }
+
+    /**
+     * Seek predicate for keyset pagination: rows strictly after (issueDate, id) in {@link #KEYSET_SORT} order.
+     */
+    public static Specification<Invoice> after(LocalDate issueDate, Long id) {
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("issueDate"), issueDate),
+                cb.and(cb.equal(root.get("issueDate"), issueDate), cb.lessThan(root.get("id"), id)));
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
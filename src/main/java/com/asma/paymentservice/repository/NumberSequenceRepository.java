@@ -0,0 +1,45 @@
+package com.asma.paymentservice.repository;
+
+import com.asma.paymentservice.entity.NumberSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface NumberSequenceRepository extends JpaRepository<NumberSequence, String> {
+
+    /**
+     * Atomically advances a counter by the given block size.
+     * The row stays locked until the surrounding transaction commits.
+     *
+     * @param name The counter name
+     * @param blockSize The number of values to reserve
+     * @return the number of updated rows (0 if the counter does not exist yet)
+     */
+    @Modifying
+    @Query("UPDATE NumberSequence s SET s.nextValue = s.nextValue + :blockSize WHERE s.name = :name")
+    int advance(@Param("name") String name, @Param("blockSize") long blockSize);
+
+    /**
+     * Reads the current value of a counter directly from the database.
+     *
+     * @param name The counter name
+     * @return the first value not yet reserved
+     */
+    @Query("SELECT s.nextValue FROM NumberSequence s WHERE s.name = :name")
+    Long currentValue(@Param("name") String name);
+
+    /**
+     * Creates a counter row. Fails with a constraint violation if the counter already exists,
+     * which makes concurrent initialisation from several nodes safe.
+     *
+     * @param name The counter name
+     * @param nextValue The initial value
+     * @return the number of inserted rows
+     */
+    @Modifying
+    @Query(value = "INSERT INTO number_sequence (name, next_value) VALUES (:name, :nextValue)", nativeQuery = true)
+    int create(@Param("name") String name, @Param("nextValue") long nextValue);
+}
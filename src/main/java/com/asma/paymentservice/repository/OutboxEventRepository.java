@@ -0,0 +1,51 @@
+package com.asma.paymentservice.repository;
+
+import com.asma.paymentservice.entity.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /** {@code org.hibernate.LockOptions.SKIP_LOCKED} as a lock timeout hint value. */
+    String SKIP_LOCKED = "-2";
+
+    /**
+     * Locks up to {@code pageable.getPageSize()} events available at {@code now}, oldest first.
+     * Rows locked by another worker are skipped ({@code FOR UPDATE SKIP LOCKED} on PostgreSQL), so
+     * concurrent workers claim disjoint batches. Must run inside the transaction that handles the events.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = SKIP_LOCKED))
+    @Query("SELECT e FROM OutboxEvent e WHERE e.availableAt <= :now ORDER BY e.id")
+    List<OutboxEvent> claimBatch(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Locks a single event, unless it was deleted or is locked by another worker.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = SKIP_LOCKED))
+    @Query("SELECT e FROM OutboxEvent e WHERE e.id = :id")
+    Optional<OutboxEvent> claim(@Param("id") Long id);
+
+    /**
+     * Records a failed attempt and makes the event available again at {@code availableAt}.
+     *
+     * @return number of updated events (0 if the event was handled meanwhile)
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.attempts = e.attempts + 1, e.availableAt = :availableAt, e.lastError = :error WHERE e.id = :id")
+    int recordFailure(@Param("id") Long id, @Param("availableAt") LocalDateTime availableAt, @Param("error") String error);
+}
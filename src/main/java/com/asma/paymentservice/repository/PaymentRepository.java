@@ -2,17 +2,30 @@ package com.asma.paymentservice.repository;
 
 import com.asma.paymentservice.entity.Payment;
 import com.asma.paymentservice.entity.PaymentStatus;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+/**
+ * Listing queries are composed from {@link PaymentSpecifications} and run through
+ * {@link JpaSpecificationExecutor} (paged with count) or {@link PaymentRepositoryCustom} (slice).
+ */
 @Repository
-public interface PaymentRepository extends JpaRepository<Payment, Long> {
+public interface PaymentRepository extends JpaRepository<Payment, Long>, JpaSpecificationExecutor<Payment>, PaymentRepositoryCustom {
     
     /**
      * Finds an existing PENDING payment with the given orderId and userId.
@@ -26,52 +39,117 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     Optional<Payment> findByOrderIdAndUserIdAndStatus(String orderId, String userId, PaymentStatus status);
 
     /**
-     * Finds payments filtered by status with pagination.
-     * Results are ordered by createdAt descending (most recent first).
+     * Finds payments in the given status whose orderId and userId are among the given values.
+     * Used to resolve the duplicate check of a whole batch in one query; the result is a superset of the
+     * exact (orderId, userId) pairs and must be narrowed by the caller.
      */
-    Page<Payment> findByStatusOrderByCreatedAtDesc(PaymentStatus status, Pageable pageable);
+    List<Payment> findByStatusAndOrderIdInAndUserIdIn(PaymentStatus status, Collection<String> orderIds, Collection<String> userIds);
 
     /**
-     * Finds payments filtered by userId with pagination.
-     * Results are ordered by createdAt descending (most recent first).
+     * Streams the (orderId, userId) pairs of payments in the given status that carry an orderId.
+     * Must be consumed inside a transaction.
      */
-    Page<Payment> findByUserIdOrderByCreatedAtDesc(String userId, Pageable pageable);
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT p.orderId AS orderId, p.userId AS userId FROM Payment p WHERE p.status = :status AND p.orderId IS NOT NULL")
+    Stream<OrderKey> streamOrderKeysByStatus(@Param("status") PaymentStatus status);
 
     /**
-     * Finds payments filtered by orderId with pagination.
-     * Results are ordered by createdAt descending (most recent first).
+     * Streams the (orderId, userId) pairs of payments created at or after {@code since} that carry an orderId.
+     * Must be consumed inside a transaction.
      */
-    Page<Payment> findByOrderIdOrderByCreatedAtDesc(String orderId, Pageable pageable);
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT p.orderId AS orderId, p.userId AS userId FROM Payment p WHERE p.createdAt >= :since AND p.orderId IS NOT NULL")
+    Stream<OrderKey> streamOrderKeysCreatedSince(@Param("since") LocalDateTime since);
 
     /**
-     * Finds payments filtered by status and userId with pagination.
-     * Results are ordered by createdAt descending (most recent first).
+     * Moves the payments among {@code ids} that are still in {@code expected} status to {@code target}, in a
+     * single statement. Payments in any other status are left untouched, so concurrent transitions cannot both
+     * succeed. Clears the persistence context so later reads see the new values.
+     *
+     * @return number of payments updated
      */
-    Page<Payment> findByStatusAndUserIdOrderByCreatedAtDesc(PaymentStatus status, String userId, Pageable pageable);
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Payment p SET p.status = :target, p.updatedAt = :updatedAt WHERE p.id IN :ids AND p.status = :expected")
+    int updateStatus(@Param("ids") Collection<Long> ids,
+                     @Param("expected") PaymentStatus expected,
+                     @Param("target") PaymentStatus target,
+                     @Param("updatedAt") LocalDateTime updatedAt);
+
+    @Query("SELECT p.id AS id, p.status AS status, p.updatedAt AS updatedAt FROM Payment p WHERE p.id IN :ids")
+    List<StatusView> findStatusesByIdIn(@Param("ids") Collection<Long> ids);
 
     /**
-     * Finds payments filtered by status and orderId with pagination.
-     * Results are ordered by createdAt descending (most recent first).
+     * Largest payment ID, or 0 when there is none. Resolved from the end of the primary key index.
      */
-    Page<Payment> findByStatusAndOrderIdOrderByCreatedAtDesc(PaymentStatus status, String orderId, Pageable pageable);
+    @Query("SELECT COALESCE(MAX(p.id), 0) FROM Payment p")
+    long findMaxId();
 
     /**
-     * Finds payments filtered by userId and orderId with pagination.
-     * Results are ordered by createdAt descending (most recent first).
+     * Rollup bucket attributes of the given payments, for the summary deltas of a bulk status update.
      */
-    Page<Payment> findByUserIdAndOrderIdOrderByCreatedAtDesc(String userId, String orderId, Pageable pageable);
+    @Query("SELECT p.id AS id, p.amount AS amount, p.currency AS currency, p.method AS method, p.createdAt AS createdAt "
+            + "FROM Payment p WHERE p.id IN :ids")
+    List<RollupView> findRollupViewsByIdIn(@Param("ids") Collection<Long> ids);
 
     /**
-     * Finds payments filtered by status, userId, and orderId with pagination.
-     * Results are ordered by createdAt descending (most recent first).
+     * Number and total amount of the payments created in {@code [from, to)}, per status, currency and method.
+     * Used to reconcile the summary rollup one day at a time, over the createdAt index.
      */
-    Page<Payment> findByStatusAndUserIdAndOrderIdOrderByCreatedAtDesc(PaymentStatus status, String userId, String orderId, Pageable pageable);
+    @Query("SELECT p.status AS status, p.currency AS currency, p.method AS method, COUNT(p) AS paymentCount, "
+            + "SUM(p.amount) AS amount FROM Payment p WHERE p.createdAt >= :from AND p.createdAt < :to "
+            + "GROUP BY p.status, p.currency, p.method")
+    List<RollupTotals> sumCreatedBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT MIN(p.createdAt) FROM Payment p")
+    Optional<LocalDateTime> findMinCreatedAt();
 
     /**
-     * Finds all payments with pagination.
-     * Results are ordered by createdAt descending (most recent first).
+     * Projection of the columns used by the duplicate check in payment creation.
      */
-    @Query("SELECT p FROM Payment p ORDER BY p.createdAt DESC")
-    Page<Payment> findAllOrderByCreatedAtDesc(Pageable pageable);
-}
+    interface OrderKey {
+        String getOrderId();
+
+        String getUserId();
+    }
+
+    /**
+     * Projection of the columns used to report the outcome of a bulk status update.
+     */
+    interface StatusView {
+        Long getId();
+
+        PaymentStatus getStatus();
+
+        LocalDateTime getUpdatedAt();
+    }
+
+    /**
+     * Projection of the attributes deciding the rollup bucket of a payment.
+     */
+    interface RollupView {
+        Long getId();
+
+        BigDecimal getAmount();
+
+        String getCurrency();
+
+        String getMethod();
+
+        LocalDateTime getCreatedAt();
+    }
+
+    /**
+     * Projection of one group of {@link #sumCreatedBetween}.
+     */
+    interface RollupTotals {
+        PaymentStatus getStatus();
+
+        String getCurrency();
 
+        String getMethod();
+
+        Long getPaymentCount();
+
+        BigDecimal getAmount();
+    }
+}
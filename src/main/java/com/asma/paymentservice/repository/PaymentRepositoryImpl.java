@@ -0,0 +1,49 @@
+package com.asma.paymentservice.repository;
+
+import com.asma.paymentservice.entity.Payment;
+import com.asma.paymentservice.entity.PaymentStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+class PaymentRepositoryImpl implements PaymentRepositoryCustom {
+
+    private static final List<String> EXPORT_ATTRIBUTES = List.of(
+            "id", "amount", "currency", "method", "status", "userId", "orderId", "createdAt", "updatedAt");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${paymentservice.export.fetch-size:1000}")
+    private int exportFetchSize;
+
+    @Override
+    public Slice<Payment> findSlice(Specification<Payment> spec, Pageable pageable) {
+        return WindowQuery.findSlice(entityManager, Payment.class, spec, pageable);
+    }
+
+    @Override
+    public Stream<Payment> streamDetached(Specification<Payment> spec, Sort sort) {
+        return ProjectionStream.stream(entityManager, Payment.class, spec, sort, EXPORT_ATTRIBUTES, exportFetchSize)
+                .map(row -> Payment.builder()
+                        .id(row.get("id", Long.class))
+                        .amount(row.get("amount", BigDecimal.class))
+                        .currency(row.get("currency", String.class))
+                        .method(row.get("method", String.class))
+                        .status(row.get("status", PaymentStatus.class))
+                        .userId(row.get("userId", String.class))
+                        .orderId(row.get("orderId", String.class))
+                        .createdAt(row.get("createdAt", LocalDateTime.class))
+                        .updatedAt(row.get("updatedAt", LocalDateTime.class))
+                        .build());
+    }
+}
@@ -0,0 +1,15 @@
+package com.asma.paymentservice.repository;
+
+import com.asma.paymentservice.entity.PaymentDailyRollup;
+import com.asma.paymentservice.entity.PaymentRollupKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface PaymentRollupRepository extends JpaRepository<PaymentDailyRollup, PaymentRollupKey> {
+
+    List<PaymentDailyRollup> findByKeyDayBetween(LocalDate from, LocalDate to);
+}
@@ -0,0 +1,88 @@
+package com.asma.paymentservice.repository;
+
+import com.asma.paymentservice.entity.Payment;
+import com.asma.paymentservice.entity.PaymentStatus;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Query building blocks for {@link Payment}.
+ * Each method returns null when its filter value is absent, so specifications can be
+ * combined with {@link Specification#where(Specification)} / {@code and(...)} without branching.
+ */
+public final class PaymentSpecifications {
+
+    /** Keyset order: most recent first, ID as tie-breaker. */
+    public static final Sort KEYSET_SORT = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+
+    private PaymentSpecifications() {
+    }
+
+    public static Specification<Payment> hasStatus(PaymentStatus status) {
+        return status == null ? null : (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    public static Specification<Payment> hasUserId(String userId) {
+        return isBlank(userId) ? null : (root, query, cb) -> cb.equal(root.get("userId"), userId);
+    }
+
+    public static Specification<Payment> hasOrderId(String orderId) {
+        return isBlank(orderId) ? null : (root, query, cb) -> cb.equal(root.get("orderId"), orderId);
+    }
+
+    public static Specification<Payment> hasCurrency(String currency) {
+        return isBlank(currency) ? null : (root, query, cb) -> cb.equal(root.get("currency"), currency);
+    }
+
+    public static Specification<Payment> hasMethod(String method) {
+        return isBlank(method) ? null : (root, query, cb) -> cb.equal(root.get("method"), method);
+    }
+
+    /**
+     * Inclusive amount range; either bound may be omitted.
+     */
+    public static Specification<Payment> amountBetween(BigDecimal minAmount, BigDecimal maxAmount) {
+        if (minAmount == null && maxAmount == null) {
+            return null;
+        }
+        if (maxAmount == null) {
+            return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("amount"), minAmount);
+        }
+        if (minAmount == null) {
+            return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("amount"), maxAmount);
+        }
+        return (root, query, cb) -> cb.between(root.get("amount"), minAmount, maxAmount);
+    }
+
+    /**
+     * Inclusive createdAt range; either bound may be omitted.
+     */
+    public static Specification<Payment> createdBetween(LocalDateTime from, LocalDateTime to) {
+        if (from == null && to == null) {
+            return null;
+        }
+        if (to == null) {
+            return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("createdAt"), from);
+        }
+        if (from == null) {
+            return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("createdAt"), to);
+        }
+        return (root, query, cb) -> cb.between(root.get("createdAt"), from, to);
+    }
+
+    /**
+     * Seek predicate for keyset pagination: rows strictly after (createdAt, id) in {@link #KEYSET_SORT} order.
+     */
+    public static Specification<Payment> after(LocalDateTime createdAt, Long id) {
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("createdAt"), createdAt),
+                cb.and(cb.equal(root.get("createdAt"), createdAt), cb.lessThan(root.get("id"), id)));
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
@@ -0,0 +1,52 @@
+package com.asma.paymentservice.repository;
+
+import org.hibernate.annotations.QueryHints;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Streams a specification-based query as tuples of the given attributes, each aliased by its name.
+ * Rows are read through a forward-only cursor, {@code fetchSize} at a time, and no entity is loaded into the
+ * persistence context, so memory does not grow with the number of rows. The stream must be consumed inside
+ * a transaction (PostgreSQL only uses a cursor when auto-commit is off) and closed.
+ */
+final class ProjectionStream {
+
+    private ProjectionStream() {
+    }
+
+    static <T> Stream<Tuple> stream(EntityManager entityManager, Class<T> domainType, Specification<T> spec,
+                                    Sort sort, List<String> attributes, int fetchSize) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(domainType);
+
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        query.multiselect(attributes.stream()
+                .map(attribute -> root.get(attribute).alias(attribute))
+                .collect(Collectors.toList()));
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        }
+
+        return entityManager.createQuery(query)
+                .setHint(QueryHints.FETCH_SIZE, fetchSize)
+                .getResultStream();
+    }
+}
@@ -0,0 +1,262 @@
+package com.asma.paymentservice.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Statistics of the SQL statements executed through {@link SqlTracingDataSource}, per repository method.
+ *
+ * Statements are attributed to the repository method running on the current thread; statements run outside any
+ * repository method (mostly inserts and updates flushed when a transaction commits) are attributed to
+ * {@value #OUTSIDE_REPOSITORY}. Statements slower than the slow threshold are logged with their bind parameters,
+ * and a statement executed more than the N+1 threshold times within one transaction is reported once per
+ * transaction as a likely N+1 pattern.
+ */
+@Slf4j
+public class SqlStatistics {
+
+    public static final String OUTSIDE_REPOSITORY = "(outside repository)";
+
+    private static final int MAX_PARAMETER_LENGTH = 100;
+
+    private final MeterRegistry meterRegistry;
+    @Getter
+    private final Duration slowThreshold;
+    @Getter
+    private final int nPlusOneThreshold;
+    private final long slowThresholdNanos;
+
+    private final ThreadLocal<String> currentMethod = new ThreadLocal<>();
+    private final ConcurrentMap<String, MethodStatistics> methods = new ConcurrentHashMap<>();
+
+    public SqlStatistics(MeterRegistry meterRegistry, Duration slowThreshold, int nPlusOneThreshold) {
+        if (nPlusOneThreshold < 1) {
+            throw new IllegalArgumentException("N+1 threshold must be >= 1");
+        }
+        this.meterRegistry = meterRegistry;
+        this.slowThreshold = slowThreshold;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+    }
+
+    /**
+     * Interceptor of the methods of a repository proxy: attributes the statements they run to
+     * {@code Repository.method}.
+     */
+    public MethodInterceptor repositoryInterceptor(Class<?> repositoryInterface) {
+        String repository = repositoryInterface.getSimpleName();
+        return invocation -> {
+            String method = repository + "." + invocation.getMethod().getName();
+            methodStatistics(method).invocations.increment();
+            String previous = currentMethod.get();
+            currentMethod.set(method);
+            try {
+                return invocation.proceed();
+            } finally {
+                if (previous != null) {
+                    currentMethod.set(previous);
+                } else {
+                    currentMethod.remove();
+                }
+            }
+        };
+    }
+
+    /**
+     * Records an executed statement.
+     *
+     * @param parameters bind parameters by index (of the last batch entry for a batch)
+     * @param batchSize  number of batched parameter sets, 0 for a single execution
+     * @return the statistics the rows read from its result set are counted in
+     */
+    MethodStatistics recordStatement(String sql, Map<Integer, Object> parameters, int batchSize, long nanos) {
+        String method = currentMethod.get();
+        MethodStatistics statistics = methodStatistics(method != null ? method : OUTSIDE_REPOSITORY);
+        statistics.statements.record(nanos, TimeUnit.NANOSECONDS);
+        statistics.maxNanos.accumulate(nanos);
+        if (nanos >= slowThresholdNanos) {
+            statistics.slowStatements.increment();
+            log.warn("Slow SQL ({} ms) in {}: {} {}{}", TimeUnit.NANOSECONDS.toMillis(nanos), statistics.method,
+                    singleLine(sql), formatParameters(parameters), batchSize > 0 ? " (last of a batch of " + batchSize + ")" : "");
+        }
+        if (sql != null) {
+            detectRepetition(sql, statistics);
+        }
+        return statistics;
+    }
+
+    /**
+     * Per repository method statistics, the most expensive methods first.
+     */
+    public List<Map<String, Object>> snapshot() {
+        List<MethodStatistics> sorted = new ArrayList<>(methods.values());
+        sorted.sort(Comparator.comparingDouble((MethodStatistics statistics) ->
+                statistics.statements.totalTime(TimeUnit.NANOSECONDS)).reversed());
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (MethodStatistics statistics : sorted) {
+            result.add(statistics.snapshot());
+        }
+        return result;
+    }
+
+    /**
+     * Clears the statistics and removes their meters.
+     */
+    public void reset() {
+        methods.values().forEach(MethodStatistics::remove);
+        methods.clear();
+    }
+
+    private MethodStatistics methodStatistics(String method) {
+        return methods.computeIfAbsent(method, MethodStatistics::new);
+    }
+
+    /**
+     * Counts the executions of each statement in the current transaction, released when it completes. A transaction
+     * started while it is suspended counts its own executions, like the rollup deltas of the summary services.
+     */
+    private void detectRepetition(String sql, MethodStatistics statistics) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Integer> executions = (Map<String, Integer>) TransactionSynchronizationManager.getResource(this);
+        if (executions == null) {
+            Map<String, Integer> counts = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, counts);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void suspend() {
+                    TransactionSynchronizationManager.unbindResource(SqlStatistics.this);
+                }
+
+                @Override
+                public void resume() {
+                    TransactionSynchronizationManager.bindResource(SqlStatistics.this, counts);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(SqlStatistics.this);
+                }
+            });
+            executions = counts;
+        }
+        if (executions.merge(sql, 1, Integer::sum) == nPlusOneThreshold + 1) {
+            statistics.nPlusOneSuspects.increment();
+            log.warn("Possible N+1 queries in {}: statement executed more than {} times in one transaction: {}",
+                    statistics.method, nPlusOneThreshold, singleLine(sql));
+        }
+    }
+
+    private static String singleLine(String sql) {
+        return sql != null ? sql.replaceAll("\\s+", " ").trim() : "(unknown statement)";
+    }
+
+    private static String formatParameters(Map<Integer, Object> parameters) {
+        if (parameters.isEmpty()) {
+            return "";
+        }
+        StringBuilder formatted = new StringBuilder("[");
+        parameters.forEach((index, value) -> {
+            if (formatted.length() > 1) {
+                formatted.append(", ");
+            }
+            String text = String.valueOf(value);
+            formatted.append(index).append('=')
+                    .append(text.length() > MAX_PARAMETER_LENGTH ? text.substring(0, MAX_PARAMETER_LENGTH) + "..." : text);
+        });
+        return formatted.append(']').toString();
+    }
+
+    /**
+     * Meters of one repository method. The timer publishes a percentile histogram for Prometheus and client-side
+     * percentiles for the actuator endpoint.
+     */
+    final class MethodStatistics {
+        private final String method;
+        private final Counter invocations;
+        private final Timer statements;
+        private final Counter rows;
+        private final Counter slowStatements;
+        private final Counter nPlusOneSuspects;
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private MethodStatistics(String method) {
+            this.method = method;
+            this.invocations = Counter.builder("paymentservice.sql.repository.invocations")
+                    .description("Repository method invocations")
+                    .tag("method", method)
+                    .register(meterRegistry);
+            this.statements = Timer.builder("paymentservice.sql.statements")
+                    .description("SQL statements executed, by repository method")
+                    .tag("method", method)
+                    .publishPercentileHistogram()
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+            this.rows = Counter.builder("paymentservice.sql.rows")
+                    .description("Rows read from SQL result sets, by repository method")
+                    .tag("method", method)
+                    .register(meterRegistry);
+            this.slowStatements = Counter.builder("paymentservice.sql.slow")
+                    .description("SQL statements slower than the slow threshold, by repository method")
+                    .tag("method", method)
+                    .register(meterRegistry);
+            this.nPlusOneSuspects = Counter.builder("paymentservice.sql.n-plus-one")
+                    .description("Transactions repeating a statement more than the N+1 threshold, by repository method")
+                    .tag("method", method)
+                    .register(meterRegistry);
+        }
+
+        void recordRow() {
+            rows.increment();
+        }
+
+        private Map<String, Object> snapshot() {
+            long count = statements.count();
+            long invocationCount = (long) invocations.count();
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("method", method);
+            snapshot.put("invocations", invocationCount);
+            snapshot.put("statements", count);
+            snapshot.put("statementsPerInvocation", invocationCount > 0 ? (double) count / invocationCount : null);
+            snapshot.put("rows", (long) rows.count());
+            snapshot.put("totalMs", statements.totalTime(TimeUnit.MILLISECONDS));
+            snapshot.put("meanMs", statements.mean(TimeUnit.MILLISECONDS));
+            snapshot.put("maxMs", TimeUnit.NANOSECONDS.toMicros(maxNanos.get()) / 1000.0);
+            for (ValueAtPercentile percentile : statements.takeSnapshot().percentileValues()) {
+                snapshot.put("p" + Math.round(percentile.percentile() * 100) + "Ms", percentile.value(TimeUnit.MILLISECONDS));
+            }
+            snapshot.put("slowStatements", (long) slowStatements.count());
+            snapshot.put("nPlusOneSuspects", (long) nPlusOneSuspects.count());
+            return snapshot;
+        }
+
+        private void remove() {
+            meterRegistry.remove(invocations);
+            meterRegistry.remove(statements);
+            meterRegistry.remove(rows);
+            meterRegistry.remove(slowStatements);
+            meterRegistry.remove(nPlusOneSuspects);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.asma.paymentservice.repository;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Data source recording the statements executed on its connections in {@link SqlStatistics}: their duration,
+ * the rows read from their result sets, and their bind parameters for the slow statement log.
+ *
+ * Connections, statements and result sets are wrapped in JDK proxies, so every JDBC call goes through
+ * reflection; the data source is only wrapped when {@code paymentservice.sql-stats.enabled} is set.
+ */
+public class SqlTracingDataSource extends DelegatingDataSource {
+
+    private final Supplier<SqlStatistics> statisticsSupplier;
+    private volatile SqlStatistics statistics;
+
+    /**
+     * @param statistics resolved on the first connection: the meter registry behind it binds the connection pool
+     *                   metrics, so it cannot be created before the data source
+     */
+    public SqlTracingDataSource(DataSource target, Supplier<SqlStatistics> statistics) {
+        super(target);
+        this.statisticsSupplier = statistics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connection(super.getConnection(username, password));
+    }
+
+    private SqlStatistics statistics() {
+        SqlStatistics resolved = statistics;
+        if (resolved == null) {
+            resolved = statisticsSupplier.get();
+            statistics = resolved;
+        }
+        return resolved;
+    }
+
+    private Connection connection(Connection target) {
+        SqlStatistics statistics = statistics();
+        return proxy(Connection.class, (proxy, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (result instanceof Statement) {
+                // createStatement(), prepareStatement(sql, ...) or prepareCall(sql, ...)
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                return proxy(method.getReturnType(), new StatementHandler(statistics, (Statement) result, sql));
+            }
+            return result;
+        });
+    }
+
+    private static ResultSet resultSet(ResultSet target, SqlStatistics.MethodStatistics statistics) {
+        return proxy(ResultSet.class, (proxy, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+                statistics.recordRow();
+            }
+            return result;
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(SqlTracingDataSource.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+        private final SqlStatistics statistics;
+        private final Statement target;
+        private final String sql;
+        private final Map<Integer, Object> parameters = new TreeMap<>();
+        private int batched;
+        private SqlStatistics.MethodStatistics lastStatistics;
+
+        private StatementHandler(SqlStatistics statistics, Statement target, String sql) {
+            this.statistics = statistics;
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(method, args);
+            }
+            if (name.equals("getResultSet")) {
+                ResultSet result = (ResultSet) SqlTracingDataSource.invoke(target, method, args);
+                return result != null && lastStatistics != null ? resultSet(result, lastStatistics) : result;
+            }
+            if (target instanceof PreparedStatement && name.startsWith("set")
+                    && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                // setString(index, value), setObject(index, value, type), setNull(index, sqlType)...
+                parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameters.clear();
+            } else if (name.equals("addBatch")) {
+                batched++;
+            }
+            return SqlTracingDataSource.invoke(target, method, args);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            // Statement.execute*(sql, ...) carries its SQL, PreparedStatement.execute*() uses the prepared one
+            String executed = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+            boolean batch = method.getName().endsWith("Batch");
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = SqlTracingDataSource.invoke(target, method, args);
+            } finally {
+                lastStatistics = statistics.recordStatement(executed, parameters, batch ? batched : 0, System.nanoTime() - start);
+                if (batch) {
+                    batched = 0;
+                }
+            }
+            return result instanceof ResultSet ? resultSet((ResultSet) result, lastStatistics) : result;
+        }
+    }
+}
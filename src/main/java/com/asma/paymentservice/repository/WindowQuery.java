@@ -0,0 +1,57 @@
+package com.asma.paymentservice.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.List;
+
+/**
+ * Runs a specification-based query for a window of rows (offset + limit) without
+ * the count query Spring Data issues for {@code Page} results.
+ * Slices are detected by fetching one extra row.
+ */
+final class WindowQuery {
+
+    private WindowQuery() {
+    }
+
+    static <T> Slice<T> findSlice(EntityManager entityManager, Class<T> domainType, Specification<T> spec,
+                                  Pageable pageable) {
+        int pageSize = pageable.getPageSize();
+        List<T> rows = find(entityManager, domainType, spec, pageable.getSort(), pageable.getOffset(), pageSize + 1);
+        boolean hasNext = rows.size() > pageSize;
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageSize) : rows, pageable, hasNext);
+    }
+
+    static <T> List<T> find(EntityManager entityManager, Class<T> domainType, Specification<T> spec,
+                            Sort sort, long offset, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(domainType);
+        Root<T> root = query.from(domainType);
+
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        query.select(root);
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        }
+
+        return entityManager.createQuery(query)
+                .setFirstResult(Math.toIntExact(offset))
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
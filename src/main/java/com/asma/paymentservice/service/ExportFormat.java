@@ -0,0 +1,42 @@
+package com.asma.paymentservice.service;
+
+import java.util.Locale;
+
+/**
+ * Output formats of the streaming exports.
+ */
+public enum ExportFormat {
+
+    /** One JSON object per line, in the shape of the API responses. */
+    NDJSON("application/x-ndjson", "ndjson"),
+    /** RFC 4180 CSV with a header line. */
+    CSV("text/csv", "csv");
+
+    private final String mediaType;
+    private final String fileExtension;
+
+    ExportFormat(String mediaType, String fileExtension) {
+        this.mediaType = mediaType;
+        this.fileExtension = fileExtension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    /**
+     * Parses a format name, case-insensitively; {@code null} or blank means NDJSON.
+     *
+     * @throws IllegalArgumentException if the name is not a known format
+     */
+    public static ExportFormat fromValue(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return NDJSON;
+        }
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
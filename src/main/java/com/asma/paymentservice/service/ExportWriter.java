@@ -0,0 +1,134 @@
+package com.asma.paymentservice.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Writes export rows to an output stream one at a time, through a buffer, so that the memory used does not
+ * depend on the number of rows. Output is flushed by the buffer as it fills, not per row.
+ */
+abstract class ExportWriter<T> {
+
+    /**
+     * @param view maps a row to the object written as one JSON line, normally the API response
+     */
+    static <T> ExportWriter<T> ndjson(OutputStream out, ObjectMapper objectMapper, Function<T, ?> view) throws IOException {
+        return new NdjsonWriter<>(out, objectMapper, view);
+    }
+
+    /**
+     * @param columns header name and value of each column, in order
+     */
+    static <T> ExportWriter<T> csv(OutputStream out, LinkedHashMap<String, Function<T, Object>> columns) throws IOException {
+        return new CsvWriter<>(out, columns);
+    }
+
+    abstract void write(T row) throws IOException;
+
+    /**
+     * Flushes buffered output; does not close the underlying stream.
+     */
+    abstract void finish() throws IOException;
+
+    private static final class NdjsonWriter<T> extends ExportWriter<T> {
+        private final JsonGenerator generator;
+        private final ObjectWriter writer;
+        private final Function<T, ?> view;
+
+        private NdjsonWriter(OutputStream out, ObjectMapper objectMapper, Function<T, ?> view) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Lines are separated by the newline written after each row, not by the default space
+            this.generator.setRootValueSeparator(null);
+            this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            this.view = view;
+        }
+
+        @Override
+        void write(T row) throws IOException {
+            writer.writeValue(generator, view.apply(row));
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        void finish() throws IOException {
+            generator.flush();
+        }
+    }
+
+    private static final class CsvWriter<T> extends ExportWriter<T> {
+        private final Writer writer;
+        private final List<Function<T, Object>> values;
+
+        private CsvWriter(OutputStream out, LinkedHashMap<String, Function<T, Object>> columns) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            this.values = new ArrayList<>(columns.values());
+            writeLine(new ArrayList<>(columns.keySet()));
+        }
+
+        @Override
+        void write(T row) throws IOException {
+            List<Object> fields = new ArrayList<>(values.size());
+            for (Function<T, Object> value : values) {
+                fields.add(value.apply(row));
+            }
+            writeLine(fields);
+        }
+
+        @Override
+        void finish() throws IOException {
+            writer.flush();
+        }
+
+        private void writeLine(List<?> fields) throws IOException {
+            for (int i = 0; i < fields.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeField(format(fields.get(i)));
+            }
+            writer.write("\r\n");
+        }
+
+        private void writeField(String field) throws IOException {
+            boolean quoted = field.indexOf(',') >= 0 || field.indexOf('"') >= 0
+                    || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0;
+            if (!quoted) {
+                writer.write(field);
+                return;
+            }
+            writer.write('"');
+            writer.write(field.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        private static String format(Object value) {
+            if (value == null) {
+                return "";
+            }
+            if (value instanceof BigDecimal) {
+                return ((BigDecimal) value).toPlainString();
+            }
+            if (value instanceof OffsetDateTime) {
+                return DateTimeFormatter.ISO_OFFSET_DATE_TIME.format((OffsetDateTime) value);
+            }
+            return value.toString();
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.asma.paymentservice.service;
+
+import com.asma.paymentservice.entity.IdempotencyRecord;
+import com.asma.paymentservice.exception.IdempotencyKeyReuseException;
+import com.asma.paymentservice.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs requests carrying an {@code Idempotency-Key} at most once and replays the original response
+ * to retries.
+ *
+ * Lookups go through three tiers:
+ * <ol>
+ *   <li>a bounded in-memory cache (TTL and size eviction) that answers hot retries without touching the database;</li>
+ *   <li>in-flight coalescing: duplicates arriving while the first request is still running on this node wait
+ *       for its result instead of running it again;</li>
+ *   <li>the {@code idempotency_record} table, shared by all nodes, whose primary key lets only one request win.</li>
+ * </ol>
+ * The response is recorded in the same transaction as the work itself, so a key is never visible without
+ * its result, and a request losing the race on another node rolls back and replays the winner's response.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration waitTimeout;
+    private final ServiceMetrics serviceMetrics;
+
+    private final Cache<String, StoredResponse> cache;
+    private final ConcurrentMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              PlatformTransactionManager transactionManager,
+                              ObjectMapper objectMapper,
+                              @Value("${paymentservice.idempotency.ttl:PT24H}") Duration ttl,
+                              @Value("${paymentservice.idempotency.cache-size:10000}") long cacheSize,
+                              @Value("${paymentservice.idempotency.wait-timeout:PT10S}") Duration waitTimeout,
+                              ServiceMetrics serviceMetrics) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.waitTimeout = waitTimeout;
+        this.serviceMetrics = serviceMetrics;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Runs {@code action} unless a response was already recorded for {@code idempotencyKey},
+     * in which case that response is returned instead.
+     *
+     * @param idempotencyKey client supplied key
+     * @param request request body; a retry must send an identical body
+     * @param responseType type of the response, used to replay stored responses
+     * @param action the work to perform; it runs in the transaction that records the key
+     * @throws IdempotencyKeyReuseException if the key was already used for a different request
+     */
+    public <T> Result<T> execute(String idempotencyKey, Object request, Class<T> responseType, Supplier<T> action) {
+        String requestHash = hash(request);
+
+        StoredResponse cached = cache.getIfPresent(idempotencyKey);
+        if (cached != null) {
+            return replay(idempotencyKey, requestHash, cached, responseType);
+        }
+
+        InFlight mine = new InFlight(requestHash);
+        InFlight running = inFlight.putIfAbsent(idempotencyKey, mine);
+        if (running != null) {
+            // Same key is being processed on this node: share its outcome
+            if (!running.getRequestHash().equals(requestHash)) {
+                throw new IdempotencyKeyReuseException(idempotencyKey);
+            }
+            log.debug("Coalescing concurrent request with Idempotency-Key {}", idempotencyKey);
+            return replay(idempotencyKey, requestHash, await(idempotencyKey, running), responseType);
+        }
+
+        try {
+            Optional<StoredResponse> previous = findStored(idempotencyKey);
+            if (previous.isPresent()) {
+                cache.put(idempotencyKey, previous.get());
+                mine.getFuture().complete(previous.get());
+                return replay(idempotencyKey, requestHash, previous.get(), responseType);
+            }
+
+            StoredResponse stored;
+            boolean replayed = false;
+            try {
+                stored = transactionTemplate.execute(status -> {
+                    T response = action.get();
+                    String responseBody = write(response);
+                    LocalDateTime now = LocalDateTime.now();
+                    idempotencyRecordRepository.saveAndFlush(IdempotencyRecord.builder()
+                            .idempotencyKey(idempotencyKey)
+                            .requestHash(requestHash)
+                            .responseBody(responseBody)
+                            .createdAt(now)
+                            .expiresAt(now.plus(ttl))
+                            .build());
+                    return new StoredResponse(requestHash, responseBody);
+                });
+            } catch (DataIntegrityViolationException e) {
+                // Another node recorded this key first; our transaction (and its work) was rolled back
+                stored = idempotencyRecordRepository.findById(idempotencyKey)
+                        .map(this::toStoredResponse)
+                        .orElseThrow(() -> e);
+                replayed = true;
+                log.info("Idempotency-Key {} was recorded concurrently by another request, replaying", idempotencyKey);
+            }
+
+            cache.put(idempotencyKey, stored);
+            mine.getFuture().complete(stored);
+            return replayed
+                    ? replay(idempotencyKey, requestHash, stored, responseType)
+                    : new Result<>(read(stored, responseType), false);
+        } catch (RuntimeException e) {
+            mine.getFuture().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(idempotencyKey, mine);
+        }
+    }
+
+    /**
+     * Removes records whose retention period has ended.
+     */
+    @Scheduled(fixedDelayString = "${paymentservice.idempotency.purge-interval:PT1H}",
+            initialDelayString = "${paymentservice.idempotency.purge-interval:PT1H}")
+    public void purgeExpired() {
+        Integer deleted = transactionTemplate.execute(status -> idempotencyRecordRepository.deleteExpired(LocalDateTime.now()));
+        if (deleted != null && deleted > 0) {
+            log.info("Purged {} expired idempotency records", deleted);
+        }
+    }
+
+    private Optional<StoredResponse> findStored(String idempotencyKey) {
+        Optional<IdempotencyRecord> record = idempotencyRecordRepository.findById(idempotencyKey);
+        if (record.isPresent() && record.get().getExpiresAt().isBefore(LocalDateTime.now())) {
+            // Expired but not purged yet: the key may be used again
+            transactionTemplate.executeWithoutResult(status -> idempotencyRecordRepository.deleteById(idempotencyKey));
+            return Optional.empty();
+        }
+        return record.map(this::toStoredResponse);
+    }
+
+    private StoredResponse await(String idempotencyKey, InFlight running) {
+        try {
+            return running.getFuture().get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out waiting for in-flight request with Idempotency-Key " + idempotencyKey);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for in-flight request with Idempotency-Key " + idempotencyKey);
+        }
+    }
+
+    private <T> Result<T> replay(String idempotencyKey, String requestHash, StoredResponse stored, Class<T> responseType) {
+        if (!stored.getRequestHash().equals(requestHash)) {
+            throw new IdempotencyKeyReuseException(idempotencyKey);
+        }
+        log.info("Replaying stored response for Idempotency-Key {}", idempotencyKey);
+        serviceMetrics.getIdempotencyKeyReplays().increment();
+        return new Result<>(read(stored, responseType), true);
+    }
+
+    private StoredResponse toStoredResponse(IdempotencyRecord record) {
+        return new StoredResponse(record.getRequestHash(), record.getResponseBody());
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return String.format("%064x", new BigInteger(1, digest));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not hash request", e);
+        }
+    }
+
+    private String write(Object response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize response", e);
+        }
+    }
+
+    private <T> T read(StoredResponse stored, Class<T> responseType) {
+        try {
+            return objectMapper.readValue(stored.getResponseBody().getBytes(StandardCharsets.UTF_8), responseType);
+        } catch (java.io.IOException e) {
+            throw new IllegalStateException("Could not read stored response", e);
+        }
+    }
+
+    /**
+     * Outcome of {@link #execute}: the response body and whether it was replayed from an earlier request.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Result<T> {
+        private final T body;
+        private final boolean replayed;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class StoredResponse {
+        private final String requestHash;
+        private final String responseBody;
+    }
+
+    @Getter
+    private static class InFlight {
+        private final String requestHash;
+        private final CompletableFuture<StoredResponse> future = new CompletableFuture<>();
+
+        InFlight(String requestHash) {
+            this.requestHash = requestHash;
+        }
+    }
+}
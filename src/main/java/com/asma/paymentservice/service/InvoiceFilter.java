@@ -0,0 +1,24 @@
+package com.asma.paymentservice.service;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/**
+ * Invoice listing filters as received from the API. Every field is optional;
+ * absent fields add no predicate to the query.
+ */
+@Value
+@Builder
+public class InvoiceFilter {
+
+    String status;
+    String userId;
+    LocalDate fromDate;
+    LocalDate toDate;
+
+    public static InvoiceFilter none() {
+        return InvoiceFilter.builder().build();
+    }
+}
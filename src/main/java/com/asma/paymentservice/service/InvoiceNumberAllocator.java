@@ -0,0 +1,117 @@
+package com.asma.paymentservice.service;
+
+import com.asma.paymentservice.repository.NumberSequenceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cluster-safe allocator for invoice sequence numbers.
+ *
+ * Each node reserves a block of numbers from the {@code number_sequence} counter table in a
+ * short, separate transaction, then hands numbers out from its local block without any
+ * database round trip. Blocks never overlap between nodes, so numbers are collision-free;
+ * numbers left in a block when a node stops are simply skipped (gap-tolerant).
+ */
+@Component
+@Slf4j
+public class InvoiceNumberAllocator {
+
+    static final String SEQUENCE_NAME = "invoice_number";
+
+    private final NumberSequenceRepository numberSequenceRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long blockSize;
+
+    private final ReentrantLock refillLock = new ReentrantLock();
+    private volatile Block currentBlock = Block.EMPTY;
+
+    public InvoiceNumberAllocator(NumberSequenceRepository numberSequenceRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${paymentservice.invoice-number.block-size:100}") long blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Invoice number block size must be >= 1");
+        }
+        this.numberSequenceRepository = numberSequenceRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Returns the next invoice sequence number.
+     * Lock-free while the local block has numbers left; only refilling takes a lock.
+     */
+    public long next() {
+        while (true) {
+            Block block = currentBlock;
+            long value = block.cursor.getAndIncrement();
+            if (value < block.end) {
+                return value;
+            }
+            refill(block);
+        }
+    }
+
+    private void refill(Block exhausted) {
+        refillLock.lock();
+        try {
+            // Another thread may already have installed a fresh block
+            if (currentBlock == exhausted) {
+                currentBlock = reserveBlock();
+            }
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    private Block reserveBlock() {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Long end = transactionTemplate.execute(status -> {
+                if (numberSequenceRepository.advance(SEQUENCE_NAME, blockSize) == 0) {
+                    return null;
+                }
+                return numberSequenceRepository.currentValue(SEQUENCE_NAME);
+            });
+            if (end != null) {
+                Block block = new Block(end - blockSize, end);
+                log.info("Reserved invoice number block [{}, {})", block.start, block.end);
+                return block;
+            }
+            initializeSequence();
+        }
+        throw new IllegalStateException("Could not reserve an invoice number block from sequence: " + SEQUENCE_NAME);
+    }
+
+    private void initializeSequence() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> numberSequenceRepository.create(SEQUENCE_NAME, 1L));
+            log.info("Initialized number sequence: {}", SEQUENCE_NAME);
+        } catch (DataIntegrityViolationException e) {
+            // Another node created the counter concurrently
+            log.debug("Number sequence {} already initialized by another node", SEQUENCE_NAME);
+        }
+    }
+
+    private static final class Block {
+
+        static final Block EMPTY = new Block(0, 0);
+
+        final long start;
+        final long end;
+        final AtomicLong cursor;
+
+        Block(long start, long end) {
+            this.start = start;
+            this.end = end;
+            this.cursor = new AtomicLong(start);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.asma.paymentservice.service;
 
 import com.asma.paymentservice.entity.Invoice;
+import com.asma.paymentservice.entity.InvoiceRollupKey;
 import com.asma.paymentservice.entity.InvoiceStatus;
 import com.asma.paymentservice.entity.Payment;
 import com.asma.paymentservice.entity.PaymentStatus;
@@ -9,21 +10,32 @@ import com.asma.paymentservice.exception.InvoiceNotFoundException;
 import com.asma.paymentservice.exception.InvalidStatusTransitionException;
 import com.asma.paymentservice.exception.PaymentNotFoundException;
 import com.asma.paymentservice.repository.InvoiceRepository;
+import com.asma.paymentservice.repository.InvoiceSpecifications;
 import com.asma.paymentservice.repository.PaymentRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -32,13 +44,40 @@ public class InvoiceService {
 
     private final InvoiceRepository invoiceRepository;
     private final PaymentRepository paymentRepository;
-    
-    // Simple sequence counter for invoice numbers (in production, use database sequence)
-    private static final AtomicInteger sequenceCounter = new AtomicInteger(0);
-    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private final InvoiceNumberAllocator invoiceNumberAllocator;
+    private final ResponseCache<com.asma.paymentservice.dto.InvoiceResponse> invoiceResponseCache;
+    private final MissingIdCache missingInvoices;
+    private final MissingIdCache missingInvoicesByPayment;
+    private final InvoiceSummaryService invoiceSummaryService;
+    private final ServiceMetrics serviceMetrics;
+    private final ObjectMapper objectMapper;
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final LinkedHashMap<String, Function<Invoice, Object>> EXPORT_COLUMNS = new LinkedHashMap<>();
+
+    static {
+        EXPORT_COLUMNS.put("id", Invoice::getId);
+        EXPORT_COLUMNS.put("invoiceNumber", Invoice::getInvoiceNumber);
+        EXPORT_COLUMNS.put("paymentId", Invoice::getPaymentId);
+        EXPORT_COLUMNS.put("userId", Invoice::getUserId);
+        EXPORT_COLUMNS.put("amount", Invoice::getAmount);
+        EXPORT_COLUMNS.put("currency", Invoice::getCurrency);
+        EXPORT_COLUMNS.put("status", Invoice::getStatus);
+        EXPORT_COLUMNS.put("issueDate", Invoice::getIssueDate);
+        EXPORT_COLUMNS.put("dueDate", Invoice::getDueDate);
+        EXPORT_COLUMNS.put("sentAt", Invoice::getSentAt);
+        EXPORT_COLUMNS.put("paidAt", Invoice::getPaidAt);
+        EXPORT_COLUMNS.put("cancelledAt", Invoice::getCancelledAt);
+        EXPORT_COLUMNS.put("orderId", Invoice::getOrderId);
+    }
 
     @Transactional
     public Invoice createInvoiceFromPayment(Payment payment) {
+        return serviceMetrics.getInvoiceCreate().record(() -> createFromPayment(payment));
+    }
+
+    private Invoice createFromPayment(Payment payment) {
         // Check if invoice already exists for this payment (prevent duplicates)
         if (invoiceRepository.existsByPaymentId(payment.getId())) {
             log.warn("Invoice already exists for payment ID: {}. Skipping invoice creation.", payment.getId());
@@ -46,41 +85,105 @@ public class InvoiceService {
                     .orElseThrow(() -> new IllegalStateException("Invoice exists but could not be retrieved for payment ID: " + payment.getId()));
         }
 
-        // Generate unique invoice number
-        String invoiceNumber = generateInvoiceNumber();
-
-        // Create invoice entity with status CREATED
-        Invoice invoice = Invoice.builder()
-                .invoiceNumber(invoiceNumber)
-                .paymentId(payment.getId())
-                .userId(payment.getUserId())
-                .amount(payment.getAmount())
-                .currency(payment.getCurrency())
-                .status(InvoiceStatus.CREATED)
-                .issueDate(LocalDate.now())
-                .dueDate(null) // Optional, can be set later
-                .orderId(payment.getOrderId())
-                .build();
-
-        // Save invoice to database
-        Invoice savedInvoice = invoiceRepository.save(invoice);
+        // Flushed here so that a concurrent creation for the same payment fails on the unique payment ID now
+        Invoice savedInvoice;
+        try {
+            savedInvoice = invoiceRepository.saveAndFlush(newInvoice(payment));
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Invoice created concurrently for payment ID: {}", payment.getId());
+            throw new InvalidInvoiceRequestException("Invoice already exists for payment ID: " + payment.getId());
+        }
+        recordCreated(savedInvoice);
         log.info("Invoice created with ID: {}, invoiceNumber: {}, for payment ID: {}", 
                 savedInvoice.getId(), savedInvoice.getInvoiceNumber(), payment.getId());
 
         return savedInvoice;
     }
 
+    /**
+     * Creates the invoices of several approved payments at once: one query finds the payments that
+     * are already invoiced, one loads the payments, and the new invoices are inserted as a JDBC batch.
+     * Payments that already have an invoice, no longer exist or are not APPROVED are skipped, so
+     * calling this again for the same payments is harmless. A payment invoiced by a concurrent transaction
+     * after the check fails the whole call with a {@link DataIntegrityViolationException} (one invoice per
+     * payment); calling it again then skips that payment.
+     *
+     * @param paymentIds IDs of approved payments
+     * @return the invoices created by this call
+     */
+    @Transactional
+    public List<Invoice> createInvoicesFromPayments(Collection<Long> paymentIds) {
+        return serviceMetrics.getInvoiceCreateBatch().record(() -> createFromPayments(paymentIds));
+    }
+
+    private List<Invoice> createFromPayments(Collection<Long> paymentIds) {
+        if (paymentIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<Long> invoiced = new HashSet<>(invoiceRepository.findInvoicedPaymentIds(paymentIds));
+        List<Invoice> invoices = new ArrayList<>();
+        for (Payment payment : paymentRepository.findAllById(paymentIds)) {
+            if (invoiced.contains(payment.getId())) {
+                log.debug("Invoice already exists for payment ID: {}. Skipping invoice creation.", payment.getId());
+            } else if (payment.getStatus() != PaymentStatus.APPROVED) {
+                log.warn("Payment ID {} has status {}, not creating an invoice", payment.getId(), payment.getStatus());
+            } else {
+                invoices.add(newInvoice(payment));
+                invoiced.add(payment.getId());
+            }
+        }
+
+        List<Invoice> savedInvoices = invoiceRepository.saveAll(invoices);
+        invoiceRepository.flush();
+        savedInvoices.forEach(this::recordCreated);
+        log.info("Created {} invoices for {} payments", savedInvoices.size(), paymentIds.size());
+        return savedInvoices;
+    }
+
+    /**
+     * Makes a new invoice visible to the local caches (by ID and by payment ID) and to the billing summary.
+     */
+    private void recordCreated(Invoice invoice) {
+        invoiceResponseCache.evictAfterCommit(invoice.getId());
+        missingInvoices.recordCreated(invoice.getId());
+        missingInvoicesByPayment.recordCreated(invoice.getPaymentId());
+        invoiceSummaryService.recordCreated(invoice);
+    }
+
+    /**
+     * Mapped invoice, served from {@link ResponseCache} when possible.
+     */
+    public com.asma.paymentservice.dto.InvoiceResponse getInvoiceResponseById(Long id) {
+        return invoiceResponseCache.get(id, invoiceId -> ResponseMapper.toInvoiceResponse(getInvoiceById(invoiceId)));
+    }
+
+    /**
+     * IDs known not to exist (see {@link MissingIdCache}) are rejected without a lookup.
+     */
     public Invoice getInvoiceById(Long id) {
+        if (missingInvoices.isKnownMissing(id)) {
+            log.debug("Invoice not found with ID: {} (known missing)", id);
+            throw new InvoiceNotFoundException(id);
+        }
         return invoiceRepository.findById(id)
                 .orElseThrow(() -> {
+                    missingInvoices.recordMissing(id);
                     log.warn("Invoice not found with ID: {}", id);
                     return new InvoiceNotFoundException(id);
                 });
     }
 
+    /**
+     * Payments known to have no invoice (see {@link MissingIdCache}) are rejected without a lookup.
+     */
     public Invoice getInvoiceByPaymentId(Long paymentId) {
+        if (missingInvoicesByPayment.isKnownMissing(paymentId)) {
+            log.debug("Invoice not found for payment ID: {} (known missing)", paymentId);
+            throw new InvoiceNotFoundException("Invoice not found for payment ID: " + paymentId);
+        }
         return invoiceRepository.findByPaymentId(paymentId)
                 .orElseThrow(() -> {
+                    missingInvoicesByPayment.recordMissing(paymentId);
                     log.warn("Invoice not found for payment ID: {}", paymentId);
                     return new InvoiceNotFoundException("Invoice not found for payment ID: " + paymentId);
                 });
@@ -112,6 +215,11 @@ public class InvoiceService {
         return createInvoiceFromPayment(payment);
     }
 
+    /**
+     * Changes the status of an invoice with a compare-and-set: the new status and dates are written by a
+     * conditional UPDATE matching the status that was validated, so of two concurrent transitions only one
+     * can succeed and the other is rejected like any invalid transition.
+     */
     @Transactional
     public Invoice updateInvoiceStatus(Long id, InvoiceStatus newStatus) {
         // Fetch invoice and validate existence
@@ -122,26 +230,36 @@ public class InvoiceService {
                 });
 
         // Validate status transition using centralized validation
-        validateStatusTransition(id, invoice.getStatus(), newStatus);
-
-        // Update invoice status
-        invoice.setStatus(newStatus);
+        InvoiceStatus currentStatus = invoice.getStatus();
+        validateStatusTransition(id, currentStatus, newStatus);
 
         // Set appropriate date fields when status changes
         LocalDate now = LocalDate.now();
-        if (newStatus == InvoiceStatus.SENT && invoice.getSentAt() == null) {
-            invoice.setSentAt(now);
-        } else if (newStatus == InvoiceStatus.PAID && invoice.getPaidAt() == null) {
-            invoice.setPaidAt(now);
-        } else if (newStatus == InvoiceStatus.CANCELLED && invoice.getCancelledAt() == null) {
-            invoice.setCancelledAt(now);
+        LocalDate sentAt = newStatus == InvoiceStatus.SENT && invoice.getSentAt() == null ? now : invoice.getSentAt();
+        LocalDate paidAt = newStatus == InvoiceStatus.PAID && invoice.getPaidAt() == null ? now : invoice.getPaidAt();
+        LocalDate cancelledAt = newStatus == InvoiceStatus.CANCELLED && invoice.getCancelledAt() == null ? now : invoice.getCancelledAt();
+
+        // Apply it only if the status is still the one validated above; the dates only change with the status.
+        // The entity is left untouched until then, otherwise the flush preceding the update would write it first.
+        if (invoiceRepository.updateStatus(id, currentStatus, newStatus, sentAt, paidAt, cancelledAt) == 0) {
+            // A concurrent transaction changed (or deleted) the invoice: report against the status that won
+            InvoiceStatus winner = invoiceRepository.findById(id)
+                    .map(Invoice::getStatus)
+                    .orElseThrow(() -> new InvoiceNotFoundException(id));
+            log.warn("Concurrent status update for invoice ID {}: expected {}, found {}", id, currentStatus, winner);
+            validateStatusTransition(id, winner, newStatus);
+            throw rejectedTransition(winner, newStatus, String.format(
+                    "Invoice %d was modified concurrently and is now %s", id, winner));
         }
+        invoiceSummaryService.recordStatusChange(InvoiceRollupKey.of(invoice, currentStatus), newStatus, invoice.getAmount());
+        invoice.setStatus(newStatus);
+        invoice.setSentAt(sentAt);
+        invoice.setPaidAt(paidAt);
+        invoice.setCancelledAt(cancelledAt);
+        invoiceResponseCache.evictAfterCommit(id);
+        log.info("Invoice status updated for ID {}: {} -> {}", id, currentStatus, newStatus);
 
-        // Save updated invoice
-        Invoice savedInvoice = invoiceRepository.save(invoice);
-        log.info("Invoice status updated for ID {}: {} -> {}", id, invoice.getStatus(), newStatus);
-
-        return savedInvoice;
+        return invoice;
     }
 
     /**
@@ -161,7 +279,7 @@ public class InvoiceService {
             String message = "Target status cannot be null";
             log.warn("Invalid status transition for invoice ID {}: {} -> null. Reason: {}", 
                     invoiceId, currentStatus, message);
-            throw new InvalidStatusTransitionException(message);
+            throw rejectedTransition(currentStatus, targetStatus, message);
         }
 
         // Reject same-status transitions
@@ -169,7 +287,7 @@ public class InvoiceService {
             String message = String.format("Cannot transition from %s to %s (same status)", currentStatus, targetStatus);
             log.warn("Invalid status transition for invoice ID {}: {} -> {}. Reason: {}", 
                     invoiceId, currentStatus, targetStatus, message);
-            throw new InvalidStatusTransitionException(message);
+            throw rejectedTransition(currentStatus, targetStatus, message);
         }
 
         // Terminal states cannot be changed
@@ -178,7 +296,7 @@ public class InvoiceService {
                     currentStatus, targetStatus, currentStatus);
             log.warn("Invalid status transition for invoice ID {}: {} -> {}. Reason: {}", 
                     invoiceId, currentStatus, targetStatus, message);
-            throw new InvalidStatusTransitionException(message);
+            throw rejectedTransition(currentStatus, targetStatus, message);
         }
 
         // Validate allowed transitions based on current status
@@ -191,7 +309,7 @@ public class InvoiceService {
                         targetStatus);
                 log.warn("Invalid status transition for invoice ID {}: {} -> {}. Reason: {}", 
                         invoiceId, currentStatus, targetStatus, message);
-                throw new InvalidStatusTransitionException(message);
+                throw rejectedTransition(currentStatus, targetStatus, message);
             }
         } else if (currentStatus == InvoiceStatus.SENT) {
             // SENT can only transition to PAID (not backward to CREATED)
@@ -200,12 +318,21 @@ public class InvoiceService {
                         targetStatus);
                 log.warn("Invalid status transition for invoice ID {}: {} -> {}. Reason: {}", 
                         invoiceId, currentStatus, targetStatus, message);
-                throw new InvalidStatusTransitionException(message);
+                throw rejectedTransition(currentStatus, targetStatus, message);
             }
         }
     }
 
-    public com.asma.paymentservice.dto.InvoiceListResponse listInvoices(String status, String userId, LocalDate fromDate, LocalDate toDate, Integer page, Integer size) {
+    private InvalidStatusTransitionException rejectedTransition(InvoiceStatus current, InvoiceStatus target, String message) {
+        serviceMetrics.transitionRejected("invoice", current, target);
+        return new InvalidStatusTransitionException(message);
+    }
+
+    public com.asma.paymentservice.dto.InvoiceListResponse listInvoices(InvoiceFilter filter, Integer page, Integer size) {
+        return serviceMetrics.getInvoiceListPage().record(() -> listPage(filter, page, size));
+    }
+
+    private com.asma.paymentservice.dto.InvoiceListResponse listPage(InvoiceFilter filter, Integer page, Integer size) {
         // Validate and set default pagination parameters
         int pageNumber = (page != null && page >= 0) ? page : 0;
         int pageSize = (size != null && size >= 1 && size <= 100) ? size : 20;
@@ -217,114 +344,191 @@ public class InvoiceService {
             throw new InvalidInvoiceRequestException("Page size must be between 1 and 100");
         }
 
-        // Validate date range
-        if (fromDate != null && toDate != null && fromDate.isAfter(toDate)) {
-            throw new InvalidInvoiceRequestException("fromDate must be <= toDate");
+        Specification<Invoice> spec = toSpecification(filter);
+        Page<Invoice> invoicePage = invoiceRepository.findAll(spec, PageRequest.of(pageNumber, pageSize, InvoiceSpecifications.KEYSET_SORT));
+        log.info("Listing invoices with filters: {}, page={}, size={}", filter, pageNumber, pageSize);
+
+        return mapToInvoiceListResponse(invoicePage);
+    }
+
+    /**
+     * Lists invoices like {@link #listInvoices} but without the count query: the response carries
+     * {@code hasNext} instead of totalElements/totalPages.
+     */
+    public com.asma.paymentservice.dto.InvoiceListResponse listInvoicesWithoutTotal(InvoiceFilter filter, Integer page, Integer size) {
+        return serviceMetrics.getInvoiceListSlice().record(() -> listSlice(filter, page, size));
+    }
+
+    private com.asma.paymentservice.dto.InvoiceListResponse listSlice(InvoiceFilter filter, Integer page, Integer size) {
+        if (page != null && page < 0) {
+            throw new InvalidInvoiceRequestException("Page number must be >= 0");
+        }
+        if (size != null && (size < 1 || size > 100)) {
+            throw new InvalidInvoiceRequestException("Page size must be between 1 and 100");
         }
+        int pageNumber = page != null ? page : 0;
+        int pageSize = size != null ? size : 20;
+
+        Specification<Invoice> spec = toSpecification(filter);
+        Slice<Invoice> invoiceSlice = invoiceRepository.findSlice(spec, PageRequest.of(pageNumber, pageSize, InvoiceSpecifications.KEYSET_SORT));
+        log.info("Listing invoices without total with filters: {}, page={}, size={}", filter, pageNumber, pageSize);
+
+        com.asma.paymentservice.dto.InvoiceListResponse response = mapToInvoiceListResponse(invoiceSlice);
+        response.setPage(pageNumber);
+        return response;
+    }
 
-        Pageable pageable = PageRequest.of(pageNumber, pageSize);
-        Page<Invoice> invoicePage;
+    /**
+     * Lists invoices using keyset pagination: continues after the position encoded in the cursor,
+     * ordered by issueDate then ID descending. No count query is executed, so totals are not returned.
+     */
+    public com.asma.paymentservice.dto.InvoiceListResponse listInvoicesAfterCursor(InvoiceFilter filter, String cursor, Integer size) {
+        return serviceMetrics.getInvoiceListCursor().record(() -> listAfterCursor(filter, cursor, size));
+    }
 
-        // Convert status string to enum if provided
-        InvoiceStatus statusEnum = null;
-        if (status != null && !status.trim().isEmpty()) {
-            try {
-                statusEnum = InvoiceStatus.valueOf(status.toUpperCase());
-            } catch (IllegalArgumentException e) {
-                throw new InvalidInvoiceRequestException("Invalid status value: " + status);
+    private com.asma.paymentservice.dto.InvoiceListResponse listAfterCursor(InvoiceFilter filter, String cursor, Integer size) {
+        if (size != null && (size < 1 || size > 100)) {
+            throw new InvalidInvoiceRequestException("Page size must be between 1 and 100");
+        }
+        int pageSize = size != null ? size : 20;
+
+        Specification<Invoice> spec = toSpecification(filter);
+
+        PageCursor pageCursor;
+        LocalDate issueDate;
+        try {
+            pageCursor = PageCursor.decode(cursor);
+            issueDate = pageCursor.sortKeyAsDate();
+        } catch (IllegalArgumentException e) {
+            throw new InvalidInvoiceRequestException("Invalid cursor value");
+        }
+
+        spec = spec.and(InvoiceSpecifications.after(issueDate, pageCursor.getId()));
+        Slice<Invoice> invoiceSlice = invoiceRepository.findSlice(spec, PageRequest.of(0, pageSize, InvoiceSpecifications.KEYSET_SORT));
+        log.info("Listing invoices after cursor with filters: {}, size={}", filter, pageSize);
+
+        return mapToInvoiceListResponse(invoiceSlice);
+    }
+
+    /**
+     * Validates an export filter up front, so that a bad request can be answered before the export
+     * response is committed.
+     */
+    public void validateFilter(InvoiceFilter filter) {
+        toSpecification(filter);
+    }
+
+    /**
+     * Writes all invoices matching the filter to {@code out}, in the order of {@link #listInvoices},
+     * streaming them from a database cursor in a read-only transaction. {@code out} is flushed but not closed.
+     *
+     * @return number of invoices written
+     */
+    @Transactional(readOnly = true)
+    public long exportInvoices(InvoiceFilter filter, ExportFormat format, OutputStream out) throws IOException {
+        Specification<Invoice> spec = toSpecification(filter);
+        ExportWriter<Invoice> writer = format == ExportFormat.CSV
+                ? ExportWriter.csv(out, EXPORT_COLUMNS)
+                : ExportWriter.ndjson(out, objectMapper, ResponseMapper::toInvoiceResponse);
+        long count = 0;
+        try (Stream<Invoice> invoices = invoiceRepository.streamDetached(spec, InvoiceSpecifications.KEYSET_SORT)) {
+            for (Invoice invoice : (Iterable<Invoice>) invoices::iterator) {
+                writer.write(invoice);
+                count++;
             }
         }
+        writer.finish();
+        log.info("Exported {} invoices as {} with filters: {}", count, format, filter);
+        return count;
+    }
 
-        // Select appropriate repository method based on provided filters
-        if (statusEnum != null && userId != null && !userId.trim().isEmpty() && fromDate != null && toDate != null) {
-            // All three filters: status, userId, date range
-            invoicePage = invoiceRepository.findByStatusAndUserIdAndIssueDateBetweenOrderByIssueDateDesc(statusEnum, userId, fromDate, toDate, pageable);
-            log.info("Listing invoices with filters: status={}, userId={}, fromDate={}, toDate={}, page={}, size={}", statusEnum, userId, fromDate, toDate, pageNumber, pageSize);
-        } else if (statusEnum != null && userId != null && !userId.trim().isEmpty()) {
-            // Status and userId
-            invoicePage = invoiceRepository.findByStatusAndUserIdOrderByIssueDateDesc(statusEnum, userId, pageable);
-            log.info("Listing invoices with filters: status={}, userId={}, page={}, size={}", statusEnum, userId, pageNumber, pageSize);
-        } else if (statusEnum != null && fromDate != null && toDate != null) {
-            // Status and date range
-            invoicePage = invoiceRepository.findByStatusAndIssueDateBetweenOrderByIssueDateDesc(statusEnum, fromDate, toDate, pageable);
-            log.info("Listing invoices with filters: status={}, fromDate={}, toDate={}, page={}, size={}", statusEnum, fromDate, toDate, pageNumber, pageSize);
-        } else if (userId != null && !userId.trim().isEmpty() && fromDate != null && toDate != null) {
-            // userId and date range
-            invoicePage = invoiceRepository.findByUserIdAndIssueDateBetweenOrderByIssueDateDesc(userId, fromDate, toDate, pageable);
-            log.info("Listing invoices with filters: userId={}, fromDate={}, toDate={}, page={}, size={}", userId, fromDate, toDate, pageNumber, pageSize);
-        } else if (statusEnum != null) {
-            // Only status
-            invoicePage = invoiceRepository.findByStatusOrderByIssueDateDesc(statusEnum, pageable);
-            log.info("Listing invoices with filters: status={}, page={}, size={}", statusEnum, pageNumber, pageSize);
-        } else if (userId != null && !userId.trim().isEmpty()) {
-            // Only userId
-            invoicePage = invoiceRepository.findByUserIdOrderByIssueDateDesc(userId, pageable);
-            log.info("Listing invoices with filters: userId={}, page={}, size={}", userId, pageNumber, pageSize);
-        } else if (fromDate != null && toDate != null) {
-            // Only date range
-            invoicePage = invoiceRepository.findByIssueDateBetweenOrderByIssueDateDesc(fromDate, toDate, pageable);
-            log.info("Listing invoices with filters: fromDate={}, toDate={}, page={}, size={}", fromDate, toDate, pageNumber, pageSize);
-        } else {
-            // No filters
-            invoicePage = invoiceRepository.findAllOrderByIssueDateDesc(pageable);
-            log.info("Listing all invoices, page={}, size={}", pageNumber, pageSize);
+    /**
+     * Validates the filter and builds a specification holding only the predicates for the filters
+     * actually provided, so each combination of filters maps to a single query plan.
+     */
+    private Specification<Invoice> toSpecification(InvoiceFilter filter) {
+        InvoiceStatus statusEnum = parseStatus(filter.getStatus());
+
+        // Validate date range
+        if (filter.getFromDate() != null && filter.getToDate() != null && filter.getFromDate().isAfter(filter.getToDate())) {
+            throw new InvalidInvoiceRequestException("fromDate must be <= toDate");
         }
 
-        return mapToInvoiceListResponse(invoicePage);
+        return Specification.where(InvoiceSpecifications.hasStatus(statusEnum))
+                .and(InvoiceSpecifications.hasUserId(filter.getUserId()))
+                .and(InvoiceSpecifications.issuedBetween(filter.getFromDate(), filter.getToDate()));
+    }
+
+    private InvoiceStatus parseStatus(String status) {
+        if (status == null || status.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return InvoiceStatus.valueOf(status.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidInvoiceRequestException("Invalid status value: " + status);
+        }
     }
 
     private com.asma.paymentservice.dto.InvoiceListResponse mapToInvoiceListResponse(Page<Invoice> invoicePage) {
         com.asma.paymentservice.dto.InvoiceListResponse response = new com.asma.paymentservice.dto.InvoiceListResponse();
         
-        List<com.asma.paymentservice.dto.InvoiceResponse> content = invoicePage.getContent().stream()
-                .map(this::mapToInvoiceResponse)
-                .collect(Collectors.toList());
-        response.setContent(content);
+        response.setContent(ResponseMapper.toInvoiceResponses(invoicePage.getContent()));
         
         response.setTotalElements(invoicePage.getTotalElements());
         response.setTotalPages(invoicePage.getTotalPages());
         response.setPage(invoicePage.getNumber());
         response.setSize(invoicePage.getSize());
+        response.setHasNext(invoicePage.hasNext());
+        if (invoicePage.hasNext() && invoicePage.hasContent()) {
+            response.setNextCursor(nextCursor(invoicePage.getContent()));
+        }
         
         return response;
     }
 
-    private com.asma.paymentservice.dto.InvoiceResponse mapToInvoiceResponse(Invoice invoice) {
-        com.asma.paymentservice.dto.InvoiceResponse response = new com.asma.paymentservice.dto.InvoiceResponse();
-        response.setId(invoice.getId());
-        response.setInvoiceNumber(invoice.getInvoiceNumber());
-        response.setPaymentId(invoice.getPaymentId());
-        response.setUserId(invoice.getUserId());
-        response.setAmount(invoice.getAmount().doubleValue());
-        response.setCurrency(invoice.getCurrency());
-        response.setStatus(com.asma.paymentservice.dto.InvoiceResponse.StatusEnum.fromValue(invoice.getStatus().name()));
-        response.setIssueDate(invoice.getIssueDate());
-        if (invoice.getDueDate() != null) {
-            response.setDueDate(org.openapitools.jackson.nullable.JsonNullable.of(invoice.getDueDate()));
-        }
-        if (invoice.getSentAt() != null) {
-            response.setSentAt(org.openapitools.jackson.nullable.JsonNullable.of(invoice.getSentAt()));
-        }
-        if (invoice.getPaidAt() != null) {
-            response.setPaidAt(org.openapitools.jackson.nullable.JsonNullable.of(invoice.getPaidAt()));
-        }
-        if (invoice.getCancelledAt() != null) {
-            response.setCancelledAt(org.openapitools.jackson.nullable.JsonNullable.of(invoice.getCancelledAt()));
+    private com.asma.paymentservice.dto.InvoiceListResponse mapToInvoiceListResponse(Slice<Invoice> invoiceSlice) {
+        com.asma.paymentservice.dto.InvoiceListResponse response = new com.asma.paymentservice.dto.InvoiceListResponse();
+        response.setContent(ResponseMapper.toInvoiceResponses(invoiceSlice.getContent()));
+        response.setSize(invoiceSlice.getSize());
+        response.setHasNext(invoiceSlice.hasNext());
+        if (invoiceSlice.hasNext() && invoiceSlice.hasContent()) {
+            response.setNextCursor(nextCursor(invoiceSlice.getContent()));
         }
-        response.setOrderId(invoice.getOrderId() != null 
-                ? org.openapitools.jackson.nullable.JsonNullable.of(invoice.getOrderId()) 
-                : org.openapitools.jackson.nullable.JsonNullable.undefined());
         return response;
     }
 
+    private String nextCursor(List<Invoice> invoices) {
+        Invoice last = invoices.get(invoices.size() - 1);
+        return PageCursor.encode(last.getIssueDate(), last.getId());
+    }
+
+    /**
+     * Builds a CREATED invoice carrying the payment's details, with a freshly generated invoice number.
+     */
+    private Invoice newInvoice(Payment payment) {
+        return Invoice.builder()
+                .invoiceNumber(generateInvoiceNumber())
+                .paymentId(payment.getId())
+                .userId(payment.getUserId())
+                .amount(payment.getAmount())
+                .currency(payment.getCurrency())
+                .status(InvoiceStatus.CREATED)
+                .issueDate(LocalDate.now())
+                .dueDate(null) // Optional, can be set later
+                .orderId(payment.getOrderId())
+                .build();
+    }
+
     /**
-     * Generates a unique invoice number using timestamp and sequence.
-     * Format: INV-YYYYMMDD-HHMMSS-{sequence}
+     * Generates a unique invoice number from the cluster-wide invoice sequence.
+     * Format: INV-YYYYMMDD-{sequence} (sequence zero-padded to 8 digits)
      */
-    private String generateInvoiceNumber() {
-        String timestamp = LocalDateTime.now().format(DATE_TIME_FORMATTER);
-        int sequence = sequenceCounter.incrementAndGet() % 10000; // Limit to 4 digits
-        return String.format("INV-%s-%04d", timestamp, sequence);
+    String generateInvoiceNumber() {
+        return serviceMetrics.getInvoiceNumber().record(() -> {
+            String date = LocalDate.now().format(DATE_FORMATTER);
+            return String.format("INV-%s-%08d", date, invoiceNumberAllocator.next());
+        });
     }
 }
 
@@ -0,0 +1,245 @@
+package com.asma.paymentservice.service;
+
+import com.asma.paymentservice.dto.CurrencyAmount;
+import com.asma.paymentservice.dto.InvoiceMonthlySummary;
+import com.asma.paymentservice.dto.InvoiceStatusSummary;
+import com.asma.paymentservice.dto.InvoiceSummaryResponse;
+import com.asma.paymentservice.entity.Invoice;
+import com.asma.paymentservice.entity.InvoiceMonthlyRollup;
+import com.asma.paymentservice.entity.InvoiceRollupKey;
+import com.asma.paymentservice.entity.InvoiceStatus;
+import com.asma.paymentservice.exception.InvalidInvoiceRequestException;
+import com.asma.paymentservice.repository.InvoiceRepository;
+import com.asma.paymentservice.repository.InvoiceRollupRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Billing summary: invoice totals per status, currency and issue month, served from the
+ * {@code invoice_monthly_rollup} table for whole months and from aggregate queries otherwise.
+ *
+ * Every invoice change records deltas for its buckets, applied when its transaction commits (see
+ * {@link RollupUpdater}). The rollup cannot answer a userId filter or a period starting or ending within a
+ * month; those requests are aggregated from the invoices over the issueDate or (userId, issueDate) index.
+ *
+ * A background job recomputes recent months from the invoice table and corrects any drift; while the rollup
+ * is empty it rebuilds every month since the first invoice.
+ */
+@Service
+@Slf4j
+public class InvoiceSummaryService {
+
+    static final int MAX_MONTHS = 24;
+    private static final int DEFAULT_MONTHS = 12;
+    private static final Set<InvoiceStatus> OUTSTANDING = EnumSet.of(InvoiceStatus.CREATED, InvoiceStatus.SENT);
+
+    private final InvoiceRollupRepository rollupRepository;
+    private final InvoiceRepository invoiceRepository;
+    private final RollupUpdater<InvoiceRollupKey> rollupUpdater;
+    private final int reconcileMonths;
+    private final Counter driftCorrections;
+
+    public InvoiceSummaryService(InvoiceRollupRepository rollupRepository,
+                                 InvoiceRepository invoiceRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 JdbcTemplate jdbcTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${paymentservice.invoice-summary.reconcile-months:2}") int reconcileMonths) {
+        if (reconcileMonths < 1) {
+            throw new IllegalArgumentException("Invoice summary reconcile months must be >= 1");
+        }
+        this.rollupRepository = rollupRepository;
+        this.invoiceRepository = invoiceRepository;
+        RollupUpdater.Store<InvoiceRollupKey> store = new RollupUpdater.JdbcStore<>(jdbcTemplate, "invoice_monthly_rollup",
+                List.of("rollup_month", "status", "currency"), "invoice_count",
+                key -> new Object[]{key.getMonth(), key.getStatus().name(), key.getCurrency()});
+        this.rollupUpdater = new RollupUpdater<>("Invoice", store, transactionManager);
+        this.reconcileMonths = reconcileMonths;
+        this.driftCorrections = Counter.builder("paymentservice.invoice-summary.drift")
+                .description("Invoice rollup buckets corrected by the reconciler")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Counts a new invoice in the bucket of its current status.
+     */
+    public void recordCreated(Invoice invoice) {
+        rollupUpdater.add(InvoiceRollupKey.of(invoice, invoice.getStatus()), 1, invoice.getAmount());
+    }
+
+    /**
+     * Moves an invoice of {@code amount} from the bucket {@code from} to the same bucket with status {@code to}.
+     */
+    public void recordStatusChange(InvoiceRollupKey from, InvoiceStatus to, BigDecimal amount) {
+        rollupUpdater.add(from, -1, amount.negate());
+        rollupUpdater.add(from.withStatus(to), 1, amount);
+    }
+
+    @Transactional(readOnly = true)
+    public InvoiceSummaryResponse getSummary(LocalDate fromDate, LocalDate toDate, String userId) {
+        LocalDate to = toDate != null ? toDate : LocalDate.now();
+        LocalDate from = fromDate != null ? fromDate : YearMonth.from(to).minusMonths(DEFAULT_MONTHS - 1).atDay(1);
+        if (from.isAfter(to)) {
+            throw new InvalidInvoiceRequestException("fromDate must not be after toDate");
+        }
+        if (ChronoUnit.MONTHS.between(YearMonth.from(from), YearMonth.from(to)) >= MAX_MONTHS) {
+            throw new InvalidInvoiceRequestException("Summary period must not exceed " + MAX_MONTHS + " months");
+        }
+        String user = userId != null && !userId.trim().isEmpty() ? userId : null;
+
+        Map<InvoiceRollupKey, RollupUpdater.Totals> buckets = servedByRollup(from, to, user)
+                ? rollupTotals(YearMonth.from(from), YearMonth.from(to))
+                : invoiceTotals(user != null
+                        ? invoiceRepository.sumIssuedBetweenForUser(user, from, to)
+                        : invoiceRepository.sumIssuedBetween(from, to));
+
+        Map<InvoiceStatus, Long> counts = new EnumMap<>(InvoiceStatus.class);
+        Map<InvoiceStatus, Map<String, BigDecimal>> amounts = new EnumMap<>(InvoiceStatus.class);
+        Map<String, BigDecimal> outstanding = new TreeMap<>();
+        long totalCount = 0;
+        List<InvoiceMonthlySummary> months = new ArrayList<>();
+        for (Map.Entry<InvoiceRollupKey, RollupUpdater.Totals> bucket : new TreeMap<>(buckets).entrySet()) {
+            InvoiceRollupKey key = bucket.getKey();
+            RollupUpdater.Totals totals = bucket.getValue();
+            if (totals.getCount() == 0) {
+                continue;
+            }
+            totalCount += totals.getCount();
+            counts.merge(key.getStatus(), totals.getCount(), Long::sum);
+            amounts.computeIfAbsent(key.getStatus(), status -> new TreeMap<>())
+                    .merge(key.getCurrency(), totals.getAmount(), BigDecimal::add);
+            if (OUTSTANDING.contains(key.getStatus())) {
+                outstanding.merge(key.getCurrency(), totals.getAmount(), BigDecimal::add);
+            }
+
+            InvoiceMonthlySummary month = new InvoiceMonthlySummary();
+            month.setMonth(YearMonth.from(key.getMonth()).toString());
+            month.setStatus(InvoiceMonthlySummary.StatusEnum.fromValue(key.getStatus().name()));
+            month.setCurrency(key.getCurrency());
+            month.setCount(totals.getCount());
+            month.setAmount(totals.getAmount().doubleValue());
+            months.add(month);
+        }
+
+        InvoiceSummaryResponse response = new InvoiceSummaryResponse();
+        response.setFromDate(from);
+        response.setToDate(to);
+        response.setUserId(user);
+        response.setTotalCount(totalCount);
+        response.setOutstanding(currencyAmounts(outstanding));
+        response.setByStatus(new ArrayList<>());
+        for (InvoiceStatus status : InvoiceStatus.values()) {
+            InvoiceStatusSummary summary = new InvoiceStatusSummary();
+            summary.setStatus(InvoiceStatusSummary.StatusEnum.fromValue(status.name()));
+            summary.setCount(counts.getOrDefault(status, 0L));
+            summary.setAmounts(currencyAmounts(amounts.getOrDefault(status, Map.of())));
+            response.addByStatusItem(summary);
+        }
+        response.setMonths(months);
+        return response;
+    }
+
+    /**
+     * Reconciles the last {@code paymentservice.invoice-summary.reconcile-months} months, or rebuilds every
+     * month since the first invoice while the rollup is empty (first start on an existing database).
+     */
+    @Scheduled(fixedDelayString = "${paymentservice.invoice-summary.reconcile-interval:PT1H}",
+            initialDelayString = "${paymentservice.invoice-summary.reconcile-initial-delay:PT1M}")
+    public void reconcileRecentMonths() {
+        try {
+            YearMonth current = YearMonth.now();
+            YearMonth from = current.minusMonths(reconcileMonths - 1);
+            if (rollupRepository.count() == 0) {
+                from = invoiceRepository.findMinIssueDate().map(YearMonth::from).orElse(current);
+                log.info("Invoice rollup is empty, rebuilding from {}", from);
+            }
+            reconcile(from, current);
+        } catch (RuntimeException e) {
+            log.error("Invoice rollup reconciliation failed", e);
+        }
+    }
+
+    /**
+     * Recomputes the buckets of the given months from the invoices and corrects those that differ.
+     *
+     * @return the number of corrected buckets
+     */
+    public int reconcile(YearMonth from, YearMonth to) {
+        int corrected = 0;
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            YearMonth reconciled = month;
+            try {
+                corrected += rollupUpdater.reconcile(
+                        () -> invoiceTotals(invoiceRepository.sumIssuedBetween(reconciled.atDay(1), reconciled.atEndOfMonth())),
+                        () -> rollupTotals(reconciled, reconciled));
+            } catch (ConcurrencyFailureException e) {
+                // Invoices of that month changed while it was being reconciled; the next run catches up
+                log.info("Invoice rollup reconciliation of {} skipped: {}", month, e.getMessage());
+            }
+        }
+        if (corrected > 0) {
+            driftCorrections.increment(corrected);
+            log.warn("Invoice rollup reconciliation corrected {} buckets between {} and {}", corrected, from, to);
+        }
+        return corrected;
+    }
+
+    /**
+     * Whether the rollup holds exactly the invoices of the period: whole months, all users. A period ending
+     * today or later covers its last month as far as invoices exist.
+     */
+    private static boolean servedByRollup(LocalDate from, LocalDate to, String userId) {
+        return userId == null
+                && from.getDayOfMonth() == 1
+                && (to.equals(YearMonth.from(to).atEndOfMonth()) || !to.isBefore(LocalDate.now()));
+    }
+
+    private Map<InvoiceRollupKey, RollupUpdater.Totals> rollupTotals(YearMonth from, YearMonth to) {
+        Map<InvoiceRollupKey, RollupUpdater.Totals> totals = new HashMap<>();
+        for (InvoiceMonthlyRollup rollup : rollupRepository.findByKeyMonthBetween(from.atDay(1), to.atDay(1))) {
+            totals.put(rollup.getKey(), new RollupUpdater.Totals().add(rollup.getInvoiceCount(), rollup.getAmount()));
+        }
+        return totals;
+    }
+
+    private static Map<InvoiceRollupKey, RollupUpdater.Totals> invoiceTotals(List<InvoiceRepository.IssuedTotals> days) {
+        Map<InvoiceRollupKey, RollupUpdater.Totals> totals = new HashMap<>();
+        for (InvoiceRepository.IssuedTotals day : days) {
+            InvoiceRollupKey key = new InvoiceRollupKey(YearMonth.from(day.getIssueDate()), day.getStatus(), day.getCurrency());
+            totals.computeIfAbsent(key, k -> new RollupUpdater.Totals()).add(day.getInvoiceCount(), day.getAmount());
+        }
+        return totals;
+    }
+
+    private static List<CurrencyAmount> currencyAmounts(Map<String, BigDecimal> amounts) {
+        List<CurrencyAmount> result = new ArrayList<>();
+        amounts.forEach((currency, amount) -> {
+            CurrencyAmount currencyAmount = new CurrencyAmount();
+            currencyAmount.setCurrency(currency);
+            currencyAmount.setAmount(amount.doubleValue());
+            result.add(currencyAmount);
+        });
+        return result;
+    }
+}
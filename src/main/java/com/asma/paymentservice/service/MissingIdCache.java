@@ -0,0 +1,145 @@
+package com.asma.paymentservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Answers "this ID does not exist" without a full lookup, for the 404 paths hammered by scrapers and
+ * misbehaving clients.
+ *
+ * Two checks are made, in order:
+ * <ol>
+ *   <li>a short-TTL negative cache of IDs recently found missing;</li>
+ *   <li>a high-water mark, the largest ID known to exist. IDs are allocated in increasing order, so an ID
+ *       above it may only exist if it was created since the mark was read. Before reporting such an ID as
+ *       missing the mark is re-read ({@code SELECT MAX(id)}, an index-only lookup) unless it was read less than
+ *       the negative TTL ago, and the ID is then cached as missing like any other. Concurrent callers share the
+ *       re-read: while one runs, the others queue and reuse its result.</li>
+ * </ol>
+ * An ID created by another node may thus be reported missing for up to the negative TTL, whether it was cached
+ * as missing or is above a mark read before its creation; creations on this node call {@link #recordCreated},
+ * which raises the mark and evicts the ID at once. A stream of unknown IDs above the mark costs at most one
+ * {@code SELECT MAX(id)} per TTL.
+ */
+public class MissingIdCache {
+
+    private static final String METRIC = "paymentservice.missing.lookups";
+
+    private final Cache<Long, Boolean> missing;
+    private final LongSupplier maxId;
+    private final long markMaxAgeNanos;
+    private final AtomicLong highWaterMark = new AtomicLong(-1);
+    /** Held during SELECT MAX(id); not a monitor, so that a virtual thread holding it can unmount */
+    private final Lock refreshLock = new ReentrantLock();
+    private volatile boolean refreshed;
+    private volatile long lastRefreshStartedAt;
+
+    private final Counter cachedHits;
+    private final Counter aboveMarkHits;
+
+    /**
+     * @param name cache name, used as the {@code cache} tag of the metrics
+     * @param ttl how long an ID is cached as missing, and how long a high-water mark read from the database is reused
+     * @param maxId returns the largest existing ID, or 0 when there is none
+     */
+    public MissingIdCache(String name, long maximumSize, Duration ttl, LongSupplier maxId, MeterRegistry meterRegistry) {
+        this.missing = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.maxId = maxId;
+        this.markMaxAgeNanos = ttl.toNanos();
+        this.cachedHits = Counter.builder(METRIC).tag("cache", name).tag("outcome", "cached")
+                .description("Lookups answered as missing from the negative cache")
+                .register(meterRegistry);
+        this.aboveMarkHits = Counter.builder(METRIC).tag("cache", name).tag("outcome", "above_high_water_mark")
+                .description("Lookups answered as missing because the ID is above the largest existing ID")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns true if {@code id} is known not to exist, in which case the caller may skip the lookup.
+     */
+    public boolean isKnownMissing(Long id) {
+        if (missing.getIfPresent(id) != null) {
+            cachedHits.increment();
+            return true;
+        }
+        if (id <= highWaterMark.get()) {
+            return false;
+        }
+        if (id <= refreshedHighWaterMark(System.nanoTime())) {
+            return false;
+        }
+        missing.put(id, Boolean.TRUE);
+        aboveMarkHits.increment();
+        return true;
+    }
+
+    /**
+     * Records that a lookup of {@code id} found nothing.
+     */
+    public void recordMissing(Long id) {
+        missing.put(id, Boolean.TRUE);
+    }
+
+    /**
+     * Records an ID created on this node: raises the high-water mark and forgets that the ID was missing,
+     * now and again once the current transaction commits (a lookup in between sees the uncommitted state).
+     */
+    public void recordCreated(Long id) {
+        highWaterMark.accumulateAndGet(id, Math::max);
+        missing.invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    missing.invalidate(id);
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        missing.invalidateAll();
+    }
+
+    /**
+     * High-water mark read from the database by a refresh that started less than the TTL before {@code arrivedAt},
+     * or after it.
+     */
+    private long refreshedHighWaterMark(long arrivedAt) {
+        if (isRecentRefresh(arrivedAt)) {
+            return highWaterMark.get();
+        }
+        refreshLock.lock();
+        try {
+            // Another caller refreshed while we were waiting: its result is recent enough
+            if (isRecentRefresh(arrivedAt)) {
+                return highWaterMark.get();
+            }
+            long startedAt = System.nanoTime();
+            long max = highWaterMark.accumulateAndGet(maxId.getAsLong(), Math::max);
+            // Only a successful read counts as a refresh; the time is written first, read unlocked after the flag
+            lastRefreshStartedAt = startedAt;
+            refreshed = true;
+            return max;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private boolean isRecentRefresh(long arrivedAt) {
+        return refreshed && arrivedAt - lastRefreshStartedAt < markMaxAgeNanos;
+    }
+}
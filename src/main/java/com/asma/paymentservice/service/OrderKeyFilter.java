@@ -0,0 +1,228 @@
+package com.asma.paymentservice.service;
+
+import com.asma.paymentservice.entity.PaymentStatus;
+import com.asma.paymentservice.repository.PaymentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * In-memory Bloom filter over the (orderId, userId) pairs of PENDING payments, consulted before the
+ * duplicate lookup in payment creation: most requests carry a new orderId and can skip the query.
+ *
+ * The filter is built from the database at startup and rebuilt periodically, which drops pairs whose
+ * payments have left PENDING. Between rebuilds, pairs created on this node are added as they are created
+ * and pairs created by other nodes are picked up by a short incremental refresh. Until the first build
+ * completes, when no build or refresh has succeeded for {@code max-staleness} (the database is unreachable,
+ * the scheduler is stuck), or when disabled, every pair is reported as possibly present, so the lookup always
+ * runs.
+ *
+ * A pair created by another node is only known here from the next refresh, so a request for the same pair
+ * arriving on this node within one refresh interval skips the lookup and creates a second PENDING payment.
+ * That window is accepted: it needs the same order submitted to two nodes within seconds, which the client
+ * {@code Idempotency-Key} already covers, while a unique constraint on PENDING pairs is not portable.
+ */
+@Component
+@Slf4j
+public class OrderKeyFilter {
+
+    private static final String LOOKUPS_METRIC = "paymentservice.order.filter.lookups";
+
+    private final PaymentRepository paymentRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final Duration refreshOverlap;
+    private final long maxStalenessNanos;
+
+    private final Counter skipped;
+    private final Counter stale;
+    private final Counter found;
+    private final Counter notFound;
+
+    private volatile BloomFilter filter;
+    private volatile BloomFilter rebuilding;
+    private volatile LocalDateTime refreshedUpTo;
+    /** {@link System#nanoTime} at the start of the last successful build or refresh */
+    private volatile long loadedAt;
+
+    public OrderKeyFilter(PaymentRepository paymentRepository,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry,
+                          @Value("${paymentservice.order-filter.enabled:true}") boolean enabled,
+                          @Value("${paymentservice.order-filter.expected-insertions:1000000}") long expectedInsertions,
+                          @Value("${paymentservice.order-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                          @Value("${paymentservice.order-filter.refresh-overlap:PT1M}") Duration refreshOverlap,
+                          @Value("${paymentservice.order-filter.max-staleness:PT30S}") Duration maxStaleness) {
+        this.paymentRepository = paymentRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.refreshOverlap = refreshOverlap;
+        this.maxStalenessNanos = maxStaleness.toNanos();
+
+        this.skipped = Counter.builder(LOOKUPS_METRIC).tag("outcome", "skipped")
+                .description("Duplicate lookups avoided because the filter ruled the pair out")
+                .register(meterRegistry);
+        this.stale = Counter.builder(LOOKUPS_METRIC).tag("outcome", "stale")
+                .description("Duplicate lookups run because the filter has not been refreshed within max-staleness")
+                .register(meterRegistry);
+        this.found = Counter.builder(LOOKUPS_METRIC).tag("outcome", "found")
+                .description("Duplicate lookups that found a PENDING payment")
+                .register(meterRegistry);
+        this.notFound = Counter.builder(LOOKUPS_METRIC).tag("outcome", "not_found")
+                .description("Duplicate lookups run on a filter false positive or a payment no longer PENDING")
+                .register(meterRegistry);
+        Gauge.builder("paymentservice.order.filter.insertions", this, f -> f.filter == null ? 0 : f.filter.insertions())
+                .description("Pairs added to the filter since the last rebuild")
+                .register(meterRegistry);
+        Gauge.builder("paymentservice.order.filter.expected.fpp", this, f -> f.filter == null ? 1 : f.filter.expectedFalsePositiveRate())
+                .description("False positive rate implied by the current filter occupancy")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns false only if no PENDING payment existed for the pair at the last refresh and none was created on
+     * this node since, in which case the caller may skip the database lookup.
+     */
+    public boolean mightContain(String orderId, String userId) {
+        BloomFilter current = filter;
+        if (!enabled || current == null) {
+            return true;
+        }
+        if (System.nanoTime() - loadedAt > maxStalenessNanos) {
+            stale.increment();
+            return true;
+        }
+        if (current.mightContain(key(orderId, userId))) {
+            return true;
+        }
+        skipped.increment();
+        return false;
+    }
+
+    /**
+     * Records the result of a lookup that {@link #mightContain} did not rule out.
+     */
+    public void recordLookup(boolean paymentFound) {
+        if (enabled && filter != null) {
+            (paymentFound ? found : notFound).increment();
+        }
+    }
+
+    /**
+     * Adds a pair for a payment created on this node.
+     */
+    public void put(String orderId, String userId) {
+        if (!enabled) {
+            return;
+        }
+        String key = key(orderId, userId);
+        // Read the filter being built first: if it has been swapped in meanwhile, it is also the current one
+        BloomFilter next = rebuilding;
+        BloomFilter current = filter;
+        if (next != null) {
+            next.put(key);
+        }
+        if (current != null && current != next) {
+            current.put(key);
+        }
+    }
+
+    /**
+     * Builds the filter when the application starts.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        rebuild();
+    }
+
+    /**
+     * Replaces the filter with one built from the currently PENDING payments.
+     */
+    @Scheduled(fixedDelayString = "${paymentservice.order-filter.rebuild-interval:PT1H}",
+            initialDelayString = "${paymentservice.order-filter.rebuild-interval:PT1H}")
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+        long startedNanos = System.nanoTime();
+        BloomFilter next = BloomFilter.create(expectedInsertions, falsePositiveRate);
+        rebuilding = next;
+        try {
+            long loaded = load(next, () -> paymentRepository.streamOrderKeysByStatus(PaymentStatus.PENDING));
+            loadedAt = startedNanos;
+            refreshedUpTo = startedAt;
+            filter = next;
+            if (loaded > expectedInsertions) {
+                log.warn("Order filter holds {} pairs, more than the {} it is sized for; false positive rate will exceed {}",
+                        loaded, expectedInsertions, falsePositiveRate);
+            }
+            log.info("Order filter rebuilt with {} pending pairs ({} bits, {} hashes)", loaded, next.bitCount(), next.hashCount());
+        } catch (RuntimeException e) {
+            log.error("Order filter rebuild failed, keeping the previous filter", e);
+        } finally {
+            rebuilding = null;
+        }
+    }
+
+    /**
+     * Adds pairs created since the last refresh, including those created by other nodes.
+     */
+    @Scheduled(fixedDelayString = "${paymentservice.order-filter.refresh-interval:PT5S}",
+            initialDelayString = "${paymentservice.order-filter.refresh-interval:PT5S}")
+    public synchronized void refresh() {
+        BloomFilter current = filter;
+        if (!enabled || current == null) {
+            return;
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+        long startedNanos = System.nanoTime();
+        // Overlap covers clock skew between nodes and transactions that committed late
+        LocalDateTime since = refreshedUpTo.minus(refreshOverlap);
+        try {
+            long loaded = load(current, () -> paymentRepository.streamOrderKeysCreatedSince(since));
+            refreshedUpTo = startedAt;
+            loadedAt = startedNanos;
+            log.debug("Order filter refreshed with {} pairs created since {}", loaded, since);
+        } catch (RuntimeException e) {
+            log.warn("Order filter refresh failed, will retry", e);
+        }
+    }
+
+    private long load(BloomFilter target, Supplier<Stream<PaymentRepository.OrderKey>> query) {
+        Long loaded = readOnlyTransaction.execute(status -> {
+            AtomicLong count = new AtomicLong();
+            try (Stream<PaymentRepository.OrderKey> keys = query.get()) {
+                keys.forEach(orderKey -> {
+                    target.put(key(orderKey.getOrderId(), orderKey.getUserId()));
+                    count.incrementAndGet();
+                });
+            }
+            return count.get();
+        });
+        return loaded != null ? loaded : 0;
+    }
+
+    private static String key(String orderId, String userId) {
+        return orderId + '\u0000' + userId;
+    }
+}
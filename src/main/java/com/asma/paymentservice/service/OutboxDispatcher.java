@@ -0,0 +1,198 @@
+package com.asma.paymentservice.service;
+
+import com.asma.paymentservice.entity.OutboxEvent;
+import com.asma.paymentservice.entity.OutboxEventType;
+import com.asma.paymentservice.repository.OutboxEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Background workers handling {@link OutboxEvent}s, currently the invoice creation for approved payments.
+ *
+ * Each worker claims a batch of available events with {@code SELECT ... FOR UPDATE SKIP LOCKED}, so workers
+ * on this and other nodes never handle the same event concurrently, then creates the invoices and deletes the
+ * events in the same transaction. Delivery is at-least-once; invoice creation skips payments that already
+ * have an invoice, so handling an event twice is harmless. When a batch fails, its events are retried one
+ * by one so that a single bad event cannot block the others; failing events are pushed back with an
+ * exponential backoff.
+ */
+@Component
+@Slf4j
+public class OutboxDispatcher {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final InvoiceService invoiceService;
+    private final TransactionTemplate transactionTemplate;
+    private final ServiceMetrics serviceMetrics;
+    private final int workers;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration maxBackoff;
+    private final boolean virtualThreads;
+
+    private ScheduledExecutorService executor;
+
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository,
+                            InvoiceService invoiceService,
+                            PlatformTransactionManager transactionManager,
+                            ServiceMetrics serviceMetrics,
+                            @Value("${paymentservice.outbox.workers:2}") int workers,
+                            @Value("${paymentservice.outbox.batch-size:100}") int batchSize,
+                            @Value("${paymentservice.outbox.poll-interval:PT1S}") Duration pollInterval,
+                            @Value("${paymentservice.outbox.max-backoff:PT1H}") Duration maxBackoff,
+                            @Value("${paymentservice.virtual-threads.enabled:false}") boolean virtualThreads) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Outbox batch size must be >= 1");
+        }
+        this.outboxEventRepository = outboxEventRepository;
+        this.invoiceService = invoiceService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.serviceMetrics = serviceMetrics;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.maxBackoff = maxBackoff;
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Starts the workers once the application is ready; {@code workers=0} disables dispatching on this node.
+     * With {@code paymentservice.virtual-threads.enabled} the workers are virtual threads when the runtime has them.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (workers < 1 || executor != null) {
+            return;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory platformThreads = runnable -> {
+            Thread thread = new Thread(runnable, "outbox-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadFactory threadFactory = virtualThreads
+                ? VirtualThreads.factory("outbox-worker-vt-").orElse(platformThreads)
+                : platformThreads;
+        executor = Executors.newScheduledThreadPool(workers, threadFactory);
+        for (int i = 0; i < workers; i++) {
+            executor.scheduleWithFixedDelay(this::drain, pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        log.info("Started {} outbox workers (batch size {}, poll interval {})", workers, batchSize, pollInterval);
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+            executor = null;
+        }
+    }
+
+    /**
+     * Handles batches until fewer than a full batch of events is available.
+     */
+    public void drain() {
+        try {
+            while (dispatchBatch() == batchSize && !Thread.currentThread().isInterrupted()) {
+                // keep going while the backlog fills whole batches
+            }
+        } catch (RuntimeException e) {
+            // Never let an exception cancel the scheduled worker
+            log.error("Outbox worker failed", e);
+        }
+    }
+
+    /**
+     * Claims and handles one batch of available events.
+     *
+     * @return number of events claimed
+     */
+    public int dispatchBatch() {
+        List<OutboxEvent> claimed = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                claimed.addAll(outboxEventRepository.claimBatch(LocalDateTime.now(), PageRequest.of(0, batchSize)));
+                if (!claimed.isEmpty()) {
+                    handle(claimed);
+                }
+            });
+        } catch (RuntimeException e) {
+            // The whole batch was rolled back: isolate the failing events
+            log.warn("Outbox batch of {} events failed, retrying them one by one: {}", claimed.size(), e.getMessage());
+            serviceMetrics.getInvoiceBatchFailures().increment();
+            claimed.forEach(this::dispatchSingle);
+        }
+        return claimed.size();
+    }
+
+    private void dispatchSingle(OutboxEvent event) {
+        try {
+            try {
+                handleSingle(event);
+            } catch (DataIntegrityViolationException e) {
+                // Its payment was invoiced by a concurrent transaction (one invoice per payment): the retry skips it
+                log.info("Outbox event {} for {} raced with another invoice creation, retrying", event.getId(), event.getAggregateId());
+                handleSingle(event);
+            }
+        } catch (RuntimeException e) {
+            LocalDateTime availableAt = LocalDateTime.now().plus(backoff(event.getAttempts() + 1));
+            serviceMetrics.getInvoiceEventFailures().increment();
+            log.error("Outbox event {} ({} for {}) failed on attempt {}, next attempt at {}",
+                    event.getId(), event.getType(), event.getAggregateId(), event.getAttempts() + 1, availableAt, e);
+            transactionTemplate.executeWithoutResult(status ->
+                    outboxEventRepository.recordFailure(event.getId(), availableAt, truncate(String.valueOf(e.getMessage()))));
+        }
+    }
+
+    private void handleSingle(OutboxEvent event) {
+        transactionTemplate.executeWithoutResult(status -> {
+            // Re-claim: another worker may have handled or locked it since the batch rolled back
+            outboxEventRepository.claim(event.getId())
+                    .ifPresent(claimed -> handle(Collections.singletonList(claimed)));
+        });
+    }
+
+    private void handle(List<OutboxEvent> events) {
+        List<Long> approvedPaymentIds = events.stream()
+                .filter(event -> event.getType() == OutboxEventType.PAYMENT_APPROVED)
+                .map(OutboxEvent::getAggregateId)
+                .collect(Collectors.toList());
+        invoiceService.createInvoicesFromPayments(approvedPaymentIds);
+        outboxEventRepository.deleteAllByIdInBatch(events.stream().map(OutboxEvent::getId).collect(Collectors.toList()));
+    }
+
+    /**
+     * 2^attempts seconds, capped at the configured maximum.
+     */
+    Duration backoff(int attempts) {
+        Duration backoff = Duration.ofSeconds(1L << Math.min(attempts, 20));
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= MAX_ERROR_LENGTH ? message : message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,29 @@
+package com.asma.paymentservice.service;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Payment listing filters as received from the API. Every field is optional;
+ * absent fields add no predicate to the query.
+ */
+@Value
+@Builder
+public class PaymentFilter {
+
+    String status;
+    String userId;
+    String orderId;
+    String currency;
+    String method;
+    Double minAmount;
+    Double maxAmount;
+    OffsetDateTime createdFrom;
+    OffsetDateTime createdTo;
+
+    public static PaymentFilter none() {
+        return PaymentFilter.builder().build();
+    }
+}
@@ -1,86 +1,241 @@
 package com.asma.paymentservice.service;
 
+import com.asma.paymentservice.dto.CreatePaymentBatchResponse;
 import com.asma.paymentservice.dto.CreatePaymentRequest;
+import com.asma.paymentservice.dto.ErrorResponse;
+import com.asma.paymentservice.dto.PaymentBatchItemResult;
 import com.asma.paymentservice.dto.PaymentListResponse;
 import com.asma.paymentservice.dto.PaymentResponse;
+import com.asma.paymentservice.dto.PaymentStatusUpdate;
+import com.asma.paymentservice.dto.PaymentStatusUpdateResult;
+import com.asma.paymentservice.dto.UpdatePaymentStatusBatchResponse;
+import com.asma.paymentservice.entity.OutboxEvent;
+import com.asma.paymentservice.entity.OutboxEventType;
 import com.asma.paymentservice.entity.Payment;
+import com.asma.paymentservice.entity.PaymentRollupKey;
 import com.asma.paymentservice.entity.PaymentStatus;
 import com.asma.paymentservice.exception.InvalidPaymentRequestException;
 import com.asma.paymentservice.exception.InvalidStatusTransitionException;
 import com.asma.paymentservice.exception.PaymentNotFoundException;
+import com.asma.paymentservice.repository.OutboxEventRepository;
 import com.asma.paymentservice.repository.PaymentRepository;
+import com.asma.paymentservice.repository.PaymentSpecifications;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.openapitools.jackson.nullable.JsonNullable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class PaymentService {
 
+    private static final int WATCH_POLL_CHUNK = 500;
+
+    private static final LinkedHashMap<String, Function<Payment, Object>> EXPORT_COLUMNS = new LinkedHashMap<>();
+
+    static {
+        EXPORT_COLUMNS.put("id", Payment::getId);
+        EXPORT_COLUMNS.put("amount", Payment::getAmount);
+        EXPORT_COLUMNS.put("currency", Payment::getCurrency);
+        EXPORT_COLUMNS.put("method", Payment::getMethod);
+        EXPORT_COLUMNS.put("status", Payment::getStatus);
+        EXPORT_COLUMNS.put("userId", Payment::getUserId);
+        EXPORT_COLUMNS.put("orderId", Payment::getOrderId);
+        EXPORT_COLUMNS.put("createdAt", payment -> payment.getCreatedAt().atOffset(ZoneOffset.UTC));
+        EXPORT_COLUMNS.put("updatedAt", payment -> payment.getUpdatedAt().atOffset(ZoneOffset.UTC));
+    }
+
     private final PaymentRepository paymentRepository;
-    private final InvoiceService invoiceService;
+    private final OutboxEventRepository outboxEventRepository;
+    private final OrderKeyFilter orderKeyFilter;
+    private final ResponseCache<PaymentResponse> paymentResponseCache;
+    private final MissingIdCache missingPayments;
+    private final PaymentStatusHub paymentStatusHub;
+    private final PaymentSummaryService paymentSummaryService;
+    private final ServiceMetrics serviceMetrics;
+    private final ObjectMapper objectMapper;
 
     @Transactional
     public PaymentResponse createPayment(CreatePaymentRequest request) {
+        return serviceMetrics.getPaymentCreate().record(() -> create(request));
+    }
+
+    private PaymentResponse create(CreatePaymentRequest request) {
         validatePaymentRequest(request);
 
         // Check for existing PENDING payment with same orderId + userId (idempotency check)
-        String orderId = request.getOrderId() != null && request.getOrderId().isPresent() 
-                ? request.getOrderId().get() : null;
+        String orderId = orderIdOf(request);
         
-        if (orderId != null) {
+        // Most orderIds are new: the filter rules them out without querying the database
+        if (orderId != null && orderKeyFilter.mightContain(orderId, request.getUserId())) {
             Optional<Payment> existingPayment = paymentRepository.findByOrderIdAndUserIdAndStatus(
                     orderId, request.getUserId(), PaymentStatus.PENDING);
-            
+            orderKeyFilter.recordLookup(existingPayment.isPresent());
+
             if (existingPayment.isPresent()) {
                 log.info("Duplicate payment creation detected for orderId: {} and userId: {}. Returning existing payment with ID: {}", 
                         orderId, request.getUserId(), existingPayment.get().getId());
-                return mapToResponse(existingPayment.get());
+                serviceMetrics.getDuplicateOrderHits().increment();
+                return ResponseMapper.toPaymentResponse(existingPayment.get());
             }
         }
 
-        Payment payment = Payment.builder()
-                .amount(BigDecimal.valueOf(request.getAmount()))
-                .currency(request.getCurrency())
-                .method(request.getMethod().getValue())
-                .status(PaymentStatus.PENDING)
-                .userId(request.getUserId())
-                .orderId(orderId)
-                .createdAt(LocalDateTime.now())
-                .updatedAt(LocalDateTime.now())
-                .build();
-
-        Payment savedPayment = paymentRepository.save(payment);
+        Payment savedPayment = paymentRepository.save(newPayment(request, orderId, creationTime()));
+        missingPayments.recordCreated(savedPayment.getId());
+        paymentSummaryService.recordCreated(savedPayment);
+        if (orderId != null) {
+            orderKeyFilter.put(orderId, request.getUserId());
+        }
         log.info("Payment created with ID: {}", savedPayment.getId());
 
-        return mapToResponse(savedPayment);
+        return ResponseMapper.toPaymentResponse(savedPayment);
+    }
+
+    /**
+     * Creates several payments in one transaction.
+     *
+     * Items failing validation get an ERROR result and are not created. Items matching a PENDING payment with
+     * the same orderId and userId, or an earlier item of the batch, get an EXISTING result. Existing payments are
+     * resolved with a single query for the whole batch, and new payments are inserted with {@code saveAll}, which
+     * Hibernate groups into JDBC batches.
+     */
+    @Transactional
+    public CreatePaymentBatchResponse createPayments(List<CreatePaymentRequest> requests) {
+        int count = requests.size();
+        PaymentBatchItemResult.OutcomeEnum[] outcomes = new PaymentBatchItemResult.OutcomeEnum[count];
+        Payment[] payments = new Payment[count];
+        String[] errors = new String[count];
+
+        List<Integer> valid = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            try {
+                validatePaymentRequest(requests.get(i));
+                valid.add(i);
+            } catch (InvalidPaymentRequestException e) {
+                outcomes[i] = PaymentBatchItemResult.OutcomeEnum.ERROR;
+                errors[i] = e.getMessage();
+            }
+        }
+
+        Map<String, Payment> pending = findPendingByOrderKey(valid.stream().map(requests::get).collect(Collectors.toList()));
+        LocalDateTime now = creationTime();
+        List<Payment> newPayments = new ArrayList<>();
+        for (int i : valid) {
+            CreatePaymentRequest request = requests.get(i);
+            String orderId = orderIdOf(request);
+            String key = orderId != null ? orderKey(orderId, request.getUserId()) : null;
+            Payment existing = key != null ? pending.get(key) : null;
+            if (existing != null) {
+                outcomes[i] = PaymentBatchItemResult.OutcomeEnum.EXISTING;
+                payments[i] = existing;
+                serviceMetrics.getDuplicateOrderHits().increment();
+                continue;
+            }
+            Payment payment = newPayment(request, orderId, now);
+            newPayments.add(payment);
+            if (key != null) {
+                // A later item with the same orderId and userId resolves to this one
+                pending.put(key, payment);
+            }
+            outcomes[i] = PaymentBatchItemResult.OutcomeEnum.CREATED;
+            payments[i] = payment;
+        }
+
+        paymentRepository.saveAll(newPayments);
+        newPayments.forEach(payment -> {
+            missingPayments.recordCreated(payment.getId());
+            paymentSummaryService.recordCreated(payment);
+        });
+        newPayments.stream()
+                .filter(payment -> payment.getOrderId() != null)
+                .forEach(payment -> orderKeyFilter.put(payment.getOrderId(), payment.getUserId()));
+
+        CreatePaymentBatchResponse response = new CreatePaymentBatchResponse();
+        int created = 0;
+        int existing = 0;
+        int failed = 0;
+        for (int i = 0; i < count; i++) {
+            PaymentBatchItemResult result = new PaymentBatchItemResult();
+            result.setIndex(i);
+            result.setOutcome(outcomes[i]);
+            if (outcomes[i] == PaymentBatchItemResult.OutcomeEnum.ERROR) {
+                result.setError(error(400, "Validation failed", errors[i]));
+                failed++;
+            } else {
+                result.setPayment(ResponseMapper.toPaymentResponse(payments[i]));
+                if (outcomes[i] == PaymentBatchItemResult.OutcomeEnum.CREATED) {
+                    created++;
+                } else {
+                    existing++;
+                }
+            }
+            response.addResultsItem(result);
+        }
+        response.setCreated(created);
+        response.setExisting(existing);
+        response.setFailed(failed);
+        log.info("Payment batch processed: {} created, {} existing, {} failed", created, existing, failed);
+        return response;
     }
 
+    /**
+     * Served from {@link ResponseCache} when possible: clients poll this endpoint for status changes.
+     * IDs known not to exist (see {@link MissingIdCache}) are rejected without a lookup.
+     */
     public PaymentResponse getPaymentById(Long id) {
+        if (missingPayments.isKnownMissing(id)) {
+            log.debug("Payment not found with ID: {} (known missing)", id);
+            throw new PaymentNotFoundException(id);
+        }
+        return paymentResponseCache.get(id, this::loadPayment);
+    }
+
+    private PaymentResponse loadPayment(Long id) {
         Payment payment = paymentRepository.findById(id)
                 .orElseThrow(() -> {
+                    missingPayments.recordMissing(id);
                     log.warn("Payment not found with ID: {}", id);
                     return new PaymentNotFoundException(id);
                 });
         
         log.info("Payment retrieved with ID: {}", id);
-        return mapToResponse(payment);
+        return ResponseMapper.toPaymentResponse(payment);
     }
 
-    public PaymentListResponse listPayments(String status, String userId, String orderId, Integer page, Integer size) {
+    public PaymentListResponse listPayments(PaymentFilter filter, Integer page, Integer size) {
+        return serviceMetrics.getPaymentListPage().record(() -> listPage(filter, page, size));
+    }
+
+    private PaymentListResponse listPage(PaymentFilter filter, Integer page, Integer size) {
         // Validate and set default pagination parameters
         int pageNumber = (page != null && page >= 0) ? page : 0;
         int pageSize = (size != null && size >= 1 && size <= 100) ? size : 20;
@@ -92,59 +247,148 @@ public class PaymentService {
             throw new InvalidPaymentRequestException("Page size must be between 1 and 100");
         }
 
-        Pageable pageable = PageRequest.of(pageNumber, pageSize);
-        Page<Payment> paymentPage;
+        Specification<Payment> spec = toSpecification(filter);
+        Page<Payment> paymentPage = paymentRepository.findAll(spec, PageRequest.of(pageNumber, pageSize, PaymentSpecifications.KEYSET_SORT));
+        log.info("Listing payments with filters: {}, page={}, size={}", filter, pageNumber, pageSize);
 
-        // Convert status string to enum if provided
-        PaymentStatus statusEnum = null;
-        if (status != null && !status.trim().isEmpty()) {
-            try {
-                statusEnum = PaymentStatus.valueOf(status.toUpperCase());
-            } catch (IllegalArgumentException e) {
-                throw new InvalidPaymentRequestException("Invalid status value: " + status);
+        return mapToPaymentListResponse(paymentPage);
+    }
+
+    /**
+     * Lists payments like {@link #listPayments} but without the count query: the response carries
+     * {@code hasNext} instead of totalElements/totalPages.
+     */
+    public PaymentListResponse listPaymentsWithoutTotal(PaymentFilter filter, Integer page, Integer size) {
+        return serviceMetrics.getPaymentListSlice().record(() -> listSlice(filter, page, size));
+    }
+
+    private PaymentListResponse listSlice(PaymentFilter filter, Integer page, Integer size) {
+        if (page != null && page < 0) {
+            throw new InvalidPaymentRequestException("Page number must be >= 0");
+        }
+        if (size != null && (size < 1 || size > 100)) {
+            throw new InvalidPaymentRequestException("Page size must be between 1 and 100");
+        }
+        int pageNumber = page != null ? page : 0;
+        int pageSize = size != null ? size : 20;
+
+        Specification<Payment> spec = toSpecification(filter);
+        Slice<Payment> paymentSlice = paymentRepository.findSlice(spec, PageRequest.of(pageNumber, pageSize, PaymentSpecifications.KEYSET_SORT));
+        log.info("Listing payments without total with filters: {}, page={}, size={}", filter, pageNumber, pageSize);
+
+        PaymentListResponse response = mapToPaymentListResponse(paymentSlice);
+        response.setPage(pageNumber);
+        return response;
+    }
+
+    /**
+     * Lists payments using keyset pagination: continues after the position encoded in the cursor,
+     * ordered by createdAt then ID descending. No count query is executed, so totals are not returned.
+     */
+    public PaymentListResponse listPaymentsAfterCursor(PaymentFilter filter, String cursor, Integer size) {
+        return serviceMetrics.getPaymentListCursor().record(() -> listAfterCursor(filter, cursor, size));
+    }
+
+    private PaymentListResponse listAfterCursor(PaymentFilter filter, String cursor, Integer size) {
+        if (size != null && (size < 1 || size > 100)) {
+            throw new InvalidPaymentRequestException("Page size must be between 1 and 100");
+        }
+        int pageSize = size != null ? size : 20;
+
+        PageCursor pageCursor;
+        LocalDateTime createdAt;
+        try {
+            pageCursor = PageCursor.decode(cursor);
+            createdAt = pageCursor.sortKeyAsDateTime();
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPaymentRequestException("Invalid cursor value");
+        }
+
+        Specification<Payment> spec = toSpecification(filter)
+                .and(PaymentSpecifications.after(createdAt, pageCursor.getId()));
+        Slice<Payment> paymentSlice = paymentRepository.findSlice(spec, PageRequest.of(0, pageSize, PaymentSpecifications.KEYSET_SORT));
+        log.info("Listing payments after cursor with filters: {}, size={}", filter, pageSize);
+
+        return mapToPaymentListResponse(paymentSlice);
+    }
+
+    /**
+     * Validates an export filter up front, so that a bad request can be answered before the export
+     * response is committed.
+     */
+    public void validateFilter(PaymentFilter filter) {
+        toSpecification(filter);
+    }
+
+    /**
+     * Writes all payments matching the filter to {@code out}, in the order of {@link #listPayments},
+     * streaming them from a database cursor in a read-only transaction: memory use does not depend on the
+     * number of payments. {@code out} is flushed but not closed.
+     *
+     * @return number of payments written
+     */
+    @Transactional(readOnly = true)
+    public long exportPayments(PaymentFilter filter, ExportFormat format, OutputStream out) throws IOException {
+        Specification<Payment> spec = toSpecification(filter);
+        ExportWriter<Payment> writer = format == ExportFormat.CSV
+                ? ExportWriter.csv(out, EXPORT_COLUMNS)
+                : ExportWriter.ndjson(out, objectMapper, ResponseMapper::toPaymentResponse);
+        long count = 0;
+        try (Stream<Payment> payments = paymentRepository.streamDetached(spec, PaymentSpecifications.KEYSET_SORT)) {
+            for (Payment payment : (Iterable<Payment>) payments::iterator) {
+                writer.write(payment);
+                count++;
             }
         }
+        writer.finish();
+        log.info("Exported {} payments as {} with filters: {}", count, format, filter);
+        return count;
+    }
 
-        // Select appropriate repository method based on provided filters
-        if (statusEnum != null && userId != null && !userId.trim().isEmpty() && orderId != null && !orderId.trim().isEmpty()) {
-            // All three filters
-            paymentPage = paymentRepository.findByStatusAndUserIdAndOrderIdOrderByCreatedAtDesc(statusEnum, userId, orderId, pageable);
-            log.info("Listing payments with filters: status={}, userId={}, orderId={}, page={}, size={}", statusEnum, userId, orderId, pageNumber, pageSize);
-        } else if (statusEnum != null && userId != null && !userId.trim().isEmpty()) {
-            // Status and userId
-            paymentPage = paymentRepository.findByStatusAndUserIdOrderByCreatedAtDesc(statusEnum, userId, pageable);
-            log.info("Listing payments with filters: status={}, userId={}, page={}, size={}", statusEnum, userId, pageNumber, pageSize);
-        } else if (statusEnum != null && orderId != null && !orderId.trim().isEmpty()) {
-            // Status and orderId
-            paymentPage = paymentRepository.findByStatusAndOrderIdOrderByCreatedAtDesc(statusEnum, orderId, pageable);
-            log.info("Listing payments with filters: status={}, orderId={}, page={}, size={}", statusEnum, orderId, pageNumber, pageSize);
-        } else if (userId != null && !userId.trim().isEmpty() && orderId != null && !orderId.trim().isEmpty()) {
-            // userId and orderId
-            paymentPage = paymentRepository.findByUserIdAndOrderIdOrderByCreatedAtDesc(userId, orderId, pageable);
-            log.info("Listing payments with filters: userId={}, orderId={}, page={}, size={}", userId, orderId, pageNumber, pageSize);
-        } else if (statusEnum != null) {
-            // Only status
-            paymentPage = paymentRepository.findByStatusOrderByCreatedAtDesc(statusEnum, pageable);
-            log.info("Listing payments with filters: status={}, page={}, size={}", statusEnum, pageNumber, pageSize);
-        } else if (userId != null && !userId.trim().isEmpty()) {
-            // Only userId
-            paymentPage = paymentRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
-            log.info("Listing payments with filters: userId={}, page={}, size={}", userId, pageNumber, pageSize);
-        } else if (orderId != null && !orderId.trim().isEmpty()) {
-            // Only orderId
-            paymentPage = paymentRepository.findByOrderIdOrderByCreatedAtDesc(orderId, pageable);
-            log.info("Listing payments with filters: orderId={}, page={}, size={}", orderId, pageNumber, pageSize);
-        } else {
-            // No filters
-            paymentPage = paymentRepository.findAllOrderByCreatedAtDesc(pageable);
-            log.info("Listing all payments, page={}, size={}", pageNumber, pageSize);
+    /**
+     * Validates the filter and builds a specification holding only the predicates for the filters
+     * actually provided. Values are always bound as parameters, so each combination of filters maps
+     * to a single query plan regardless of the values.
+     */
+    private Specification<Payment> toSpecification(PaymentFilter filter) {
+        PaymentStatus statusEnum = parseStatus(filter.getStatus());
+
+        BigDecimal minAmount = filter.getMinAmount() != null ? BigDecimal.valueOf(filter.getMinAmount()) : null;
+        BigDecimal maxAmount = filter.getMaxAmount() != null ? BigDecimal.valueOf(filter.getMaxAmount()) : null;
+        if (minAmount != null && maxAmount != null && minAmount.compareTo(maxAmount) > 0) {
+            throw new InvalidPaymentRequestException("minAmount must be <= maxAmount");
         }
 
-        return mapToPaymentListResponse(paymentPage);
+        // createdAt is stored as UTC local time (see ResponseMapper)
+        LocalDateTime createdFrom = filter.getCreatedFrom() != null
+                ? filter.getCreatedFrom().withOffsetSameInstant(ZoneOffset.UTC).toLocalDateTime() : null;
+        LocalDateTime createdTo = filter.getCreatedTo() != null
+                ? filter.getCreatedTo().withOffsetSameInstant(ZoneOffset.UTC).toLocalDateTime() : null;
+        if (createdFrom != null && createdTo != null && createdFrom.isAfter(createdTo)) {
+            throw new InvalidPaymentRequestException("createdFrom must be <= createdTo");
+        }
+
+        return Specification.where(PaymentSpecifications.hasStatus(statusEnum))
+                .and(PaymentSpecifications.hasUserId(filter.getUserId()))
+                .and(PaymentSpecifications.hasOrderId(filter.getOrderId()))
+                .and(PaymentSpecifications.hasCurrency(filter.getCurrency()))
+                .and(PaymentSpecifications.hasMethod(filter.getMethod()))
+                .and(PaymentSpecifications.amountBetween(minAmount, maxAmount))
+                .and(PaymentSpecifications.createdBetween(createdFrom, createdTo));
     }
 
+    /**
+     * Changes the status of a payment with a compare-and-set: the new status is written by a conditional
+     * UPDATE matching the status that was validated, so of two concurrent transitions only one can succeed
+     * and the other is rejected like any invalid transition, without holding a row lock between the read and
+     * the write.
+     */
     @Transactional
     public PaymentResponse updatePaymentStatus(Long id, PaymentStatus newStatus) {
+        return serviceMetrics.getPaymentStatusUpdate().record(() -> updateStatus(id, newStatus));
+    }
+
+    private PaymentResponse updateStatus(Long id, PaymentStatus newStatus) {
         // Fetch payment and validate existence
         Payment payment = paymentRepository.findById(id)
                 .orElseThrow(() -> {
@@ -153,28 +397,282 @@ public class PaymentService {
                 });
 
         // Validate status transition using centralized validation
-        validateStatusTransition(id, payment.getStatus(), newStatus);
+        PaymentStatus currentStatus = payment.getStatus();
+        validateStatusTransition(id, currentStatus, newStatus);
 
-        // Update payment status and timestamp
+        // Apply it only if the status is still the one validated above
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        if (paymentRepository.updateStatus(List.of(id), currentStatus, newStatus, now) == 0) {
+            rejectLostTransition(id, currentStatus, newStatus);
+        }
+        paymentSummaryService.recordStatusChange(PaymentRollupKey.of(payment, currentStatus), newStatus, payment.getAmount());
         payment.setStatus(newStatus);
-        payment.setUpdatedAt(LocalDateTime.now());
+        payment.setUpdatedAt(now);
+        paymentResponseCache.evictAfterCommit(id);
+        log.info("Payment status updated for ID {}: {} -> {}", id, currentStatus, newStatus);
 
-        // Save updated payment
-        Payment savedPayment = paymentRepository.save(payment);
-        log.info("Payment status updated for ID {}: {} -> {}", id, payment.getStatus(), newStatus);
-
-        // Automatically create invoice when payment transitions to APPROVED
+        // The invoice is created asynchronously by OutboxDispatcher; the event commits with the status change
         if (newStatus == PaymentStatus.APPROVED) {
-            try {
-                invoiceService.createInvoiceFromPayment(savedPayment);
-                log.info("Invoice automatically created for approved payment ID: {}", id);
-            } catch (Exception e) {
-                // Log error but don't fail payment update (as per design decision)
-                log.error("Failed to create invoice for approved payment ID: {}. Error: {}", id, e.getMessage(), e);
+            outboxEventRepository.save(OutboxEvent.of(OutboxEventType.PAYMENT_APPROVED, id));
+            log.info("Invoice creation scheduled for approved payment ID: {}", id);
+        }
+
+        PaymentResponse response = ResponseMapper.toPaymentResponse(payment);
+        afterCommit(() -> paymentStatusHub.publish(response));
+        return response;
+    }
+
+    /**
+     * Applies several status transitions in one transaction.
+     *
+     * Instead of loading and saving each payment, every target status is applied with one conditional
+     * {@code UPDATE ... WHERE id IN (...) AND status = 'PENDING'}, so a payment that is no longer PENDING is
+     * never overwritten. The outcome of each item is then read back with one query: a payment carrying the
+     * target status and this batch's update time was updated by it; a missing payment is NOT_FOUND; anything
+     * else is INVALID_TRANSITION, with the same message as the single-payment endpoint. When an id appears
+     * several times, only its first item is applied. Invoice creation for the approved payments is scheduled
+     * with one outbox event per payment, saved in a single batch.
+     */
+    @Transactional
+    public UpdatePaymentStatusBatchResponse updatePaymentStatuses(List<PaymentStatusUpdate> updates) {
+        // First item per id, grouped by target status
+        Map<PaymentStatus, List<Long>> idsByTarget = new LinkedHashMap<>();
+        Set<Long> ids = new HashSet<>();
+        for (PaymentStatusUpdate update : updates) {
+            if (ids.add(update.getId())) {
+                idsByTarget.computeIfAbsent(targetStatus(update), target -> new ArrayList<>()).add(update.getId());
+            }
+        }
+
+        // Same precision as the column, so the read-back below can recognise this batch's updates
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        idsByTarget.forEach((target, targetIds) ->
+                paymentRepository.updateStatus(targetIds, PaymentStatus.PENDING, target, now));
+
+        Map<Long, PaymentRepository.StatusView> statuses = paymentRepository.findStatusesByIdIn(ids).stream()
+                .collect(Collectors.toMap(PaymentRepository.StatusView::getId, view -> view));
+
+        UpdatePaymentStatusBatchResponse response = new UpdatePaymentStatusBatchResponse();
+        List<OutboxEvent> events = new ArrayList<>();
+        Set<Long> applied = new HashSet<>();
+        int updated = 0;
+        for (PaymentStatusUpdate update : updates) {
+            Long id = update.getId();
+            PaymentStatus target = targetStatus(update);
+            PaymentRepository.StatusView view = statuses.get(id);
+            PaymentStatusUpdateResult result = new PaymentStatusUpdateResult();
+            result.setId(id);
+            if (view == null) {
+                result.setOutcome(PaymentStatusUpdateResult.OutcomeEnum.NOT_FOUND);
+                result.setError(error(404, "Payment not found", new PaymentNotFoundException(id).getMessage()));
+            } else {
+                result.setStatus(PaymentStatusUpdateResult.StatusEnum.fromValue(view.getStatus().name()));
+                if (view.getStatus() == target && now.equals(view.getUpdatedAt()) && applied.add(id)) {
+                    result.setOutcome(PaymentStatusUpdateResult.OutcomeEnum.UPDATED);
+                    updated++;
+                    if (target == PaymentStatus.APPROVED) {
+                        events.add(OutboxEvent.of(OutboxEventType.PAYMENT_APPROVED, id));
+                    }
+                } else {
+                    result.setOutcome(PaymentStatusUpdateResult.OutcomeEnum.INVALID_TRANSITION);
+                    result.setError(error(409, "Invalid status transition", transitionError(id, view.getStatus(), target)));
+                }
+            }
+            response.addResultsItem(result);
+        }
+
+        // The invoices are created asynchronously by OutboxDispatcher; the events commit with the status changes
+        outboxEventRepository.saveAll(events);
+        if (!applied.isEmpty()) {
+            for (PaymentRepository.RollupView view : paymentRepository.findRollupViewsByIdIn(applied)) {
+                PaymentRollupKey from = new PaymentRollupKey(view.getCreatedAt().toLocalDate(), PaymentStatus.PENDING,
+                        view.getCurrency(), view.getMethod());
+                paymentSummaryService.recordStatusChange(from, statuses.get(view.getId()).getStatus(), view.getAmount());
+            }
+        }
+        paymentResponseCache.evictAfterCommit(applied);
+        List<Long> updatedIds = new ArrayList<>(applied);
+        afterCommit(() -> notifyWatchers(updatedIds));
+        response.setUpdated(updated);
+        response.setFailed(updates.size() - updated);
+        log.info("Payment status batch processed: {} updated, {} failed, {} invoices scheduled",
+                updated, updates.size() - updated, events.size());
+        return response;
+    }
+
+    /**
+     * Registers {@code listener} for the status changes of a payment, then delivers the current state to it.
+     * Changes made on this node are delivered when they commit, changes made by other nodes by
+     * {@link #pollWatchedPayments}. A listener may receive the same state more than once.
+     *
+     * @throws PaymentNotFoundException if the payment does not exist
+     */
+    public PaymentStatusHub.Subscription watchPaymentStatus(Long id, Consumer<PaymentResponse> listener) {
+        PaymentResponse current = getPaymentById(id);
+        PaymentStatusHub.Subscription subscription = paymentStatusHub.subscribe(id, current.getStatus(), listener);
+        listener.accept(current);
+        return subscription;
+    }
+
+    /**
+     * Picks up status changes of watched payments made by other nodes: one status query per
+     * {@value #WATCH_POLL_CHUNK} watched payments, then the changed payments are loaded and published.
+     */
+    @Scheduled(fixedDelayString = "${paymentservice.status-watch.poll-interval:PT1S}",
+            initialDelayString = "${paymentservice.status-watch.poll-interval:PT1S}")
+    public void pollWatchedPayments() {
+        Map<Long, PaymentResponse.StatusEnum> watched = paymentStatusHub.watchedStatuses();
+        if (watched.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(watched.keySet());
+        List<Long> changed = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += WATCH_POLL_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(from + WATCH_POLL_CHUNK, ids.size()));
+            for (PaymentRepository.StatusView view : paymentRepository.findStatusesByIdIn(chunk)) {
+                if (watched.get(view.getId()) != PaymentResponse.StatusEnum.fromValue(view.getStatus().name())) {
+                    changed.add(view.getId());
+                }
+            }
+        }
+        if (!changed.isEmpty()) {
+            // The cached responses predate the change
+            paymentResponseCache.evictAfterCommit(changed);
+            notifyWatchers(changed);
+        }
+    }
+
+    private void notifyWatchers(Collection<Long> ids) {
+        List<Long> watched = ids.stream().filter(paymentStatusHub::isWatched).collect(Collectors.toList());
+        if (watched.isEmpty()) {
+            return;
+        }
+        paymentRepository.findAllById(watched).forEach(payment -> paymentStatusHub.publish(ResponseMapper.toPaymentResponse(payment)));
+    }
+
+    /**
+     * Runs {@code action} once the current transaction commits, or now outside a transaction.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * PENDING payments matching the (orderId, userId) pairs of the given requests, keyed by {@link #orderKey}.
+     * Pairs ruled out by the order filter are not queried; the others are resolved with one query whose
+     * result (a superset: orderId IN and userId IN) is narrowed to the exact pairs.
+     */
+    private Map<String, Payment> findPendingByOrderKey(List<CreatePaymentRequest> requests) {
+        Set<String> candidates = new HashSet<>();
+        Set<String> orderIds = new HashSet<>();
+        Set<String> userIds = new HashSet<>();
+        for (CreatePaymentRequest request : requests) {
+            String orderId = orderIdOf(request);
+            if (orderId != null && orderKeyFilter.mightContain(orderId, request.getUserId())) {
+                candidates.add(orderKey(orderId, request.getUserId()));
+                orderIds.add(orderId);
+                userIds.add(request.getUserId());
             }
         }
 
-        return mapToResponse(savedPayment);
+        Map<String, Payment> pending = new HashMap<>();
+        if (candidates.isEmpty()) {
+            return pending;
+        }
+        for (Payment payment : paymentRepository.findByStatusAndOrderIdInAndUserIdIn(PaymentStatus.PENDING, orderIds, userIds)) {
+            String key = orderKey(payment.getOrderId(), payment.getUserId());
+            if (candidates.contains(key)) {
+                pending.putIfAbsent(key, payment);
+            }
+        }
+        candidates.forEach(key -> orderKeyFilter.recordLookup(pending.containsKey(key)));
+        return pending;
+    }
+
+    /**
+     * A concurrent transaction changed (or deleted) the payment between our read and our conditional update:
+     * reports the transition against the status that won.
+     */
+    private void rejectLostTransition(Long id, PaymentStatus expected, PaymentStatus target) {
+        PaymentStatus winner = paymentRepository.findById(id)
+                .map(Payment::getStatus)
+                .orElseThrow(() -> new PaymentNotFoundException(id));
+        log.warn("Concurrent status update for payment ID {}: expected {}, found {}", id, expected, winner);
+        throw new InvalidStatusTransitionException(transitionError(id, winner, target));
+    }
+
+    private static PaymentStatus targetStatus(PaymentStatusUpdate update) {
+        return PaymentStatus.valueOf(update.getStatus().getValue());
+    }
+
+    /**
+     * Reason why {@code current -> target} was not applied, as reported by {@link #validateStatusTransition}.
+     */
+    private String transitionError(Long id, PaymentStatus current, PaymentStatus target) {
+        try {
+            validateStatusTransition(id, current, target);
+        } catch (InvalidStatusTransitionException e) {
+            return e.getMessage();
+        }
+        // Valid transition that lost to a concurrent update, or a repeated id within the batch
+        serviceMetrics.transitionRejected("payment", current, target);
+        return String.format("Payment %d was modified concurrently and is now %s", id, current);
+    }
+
+    private static ErrorResponse error(int code, String message, String details) {
+        ErrorResponse error = new ErrorResponse();
+        error.setCode(code);
+        error.setMessage(message);
+        error.setDetails(details);
+        return error;
+    }
+
+    private static String orderKey(String orderId, String userId) {
+        return orderId + '\u0000' + userId;
+    }
+
+    private static String orderIdOf(CreatePaymentRequest request) {
+        return request.getOrderId() != null && request.getOrderId().isPresent() ? request.getOrderId().get() : null;
+    }
+
+    /**
+     * Keeps createdAt at the column's (microsecond) precision so keyset cursors match stored values.
+     */
+    private static LocalDateTime creationTime() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    private Payment newPayment(CreatePaymentRequest request, String orderId, LocalDateTime now) {
+        return Payment.builder()
+                .amount(BigDecimal.valueOf(request.getAmount()))
+                .currency(request.getCurrency())
+                .method(request.getMethod().getValue())
+                .status(PaymentStatus.PENDING)
+                .userId(request.getUserId())
+                .orderId(orderId)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+
+    private PaymentStatus parseStatus(String status) {
+        if (status == null || status.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return PaymentStatus.valueOf(status.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPaymentRequestException("Invalid status value: " + status);
+        }
     }
 
     private void validatePaymentRequest(CreatePaymentRequest request) {
@@ -211,7 +709,7 @@ public class PaymentService {
             String message = "Target status cannot be null";
             log.warn("Invalid status transition for payment ID {}: {} -> null. Reason: {}", 
                     paymentId, currentStatus, message);
-            throw new InvalidStatusTransitionException(message);
+            throw rejectedTransition(currentStatus, targetStatus, message);
         }
 
         // Reject same-status transitions
@@ -219,7 +717,7 @@ public class PaymentService {
             String message = String.format("Cannot transition from %s to %s (same status)", currentStatus, targetStatus);
             log.warn("Invalid status transition for payment ID {}: {} -> {}. Reason: {}", 
                     paymentId, currentStatus, targetStatus, message);
-            throw new InvalidStatusTransitionException(message);
+            throw rejectedTransition(currentStatus, targetStatus, message);
         }
 
         // Terminal states cannot be changed
@@ -230,7 +728,7 @@ public class PaymentService {
                     currentStatus, targetStatus, currentStatus);
             log.warn("Invalid status transition for payment ID {}: {} -> {}. Reason: {}", 
                     paymentId, currentStatus, targetStatus, message);
-            throw new InvalidStatusTransitionException(message);
+            throw rejectedTransition(currentStatus, targetStatus, message);
         }
 
         // Only PENDING can transition, and only to APPROVED, FAILED, or CANCELED
@@ -242,39 +740,47 @@ public class PaymentService {
                         targetStatus);
                 log.warn("Invalid status transition for payment ID {}: {} -> {}. Reason: {}", 
                         paymentId, currentStatus, targetStatus, message);
-                throw new InvalidStatusTransitionException(message);
+                throw rejectedTransition(currentStatus, targetStatus, message);
             }
         }
     }
 
-    private PaymentResponse mapToResponse(Payment payment) {
-        PaymentResponse response = new PaymentResponse();
-        response.setId(payment.getId());
-        response.setAmount(payment.getAmount().doubleValue());
-        response.setCurrency(payment.getCurrency());
-        response.setMethod(payment.getMethod());
-        response.setStatus(PaymentResponse.StatusEnum.fromValue(payment.getStatus().name()));
-        response.setUserId(payment.getUserId());
-        response.setOrderId(payment.getOrderId() != null ? JsonNullable.of(payment.getOrderId()) : JsonNullable.undefined());
-        response.setCreatedAt(payment.getCreatedAt().atOffset(ZoneOffset.UTC));
-        response.setUpdatedAt(payment.getUpdatedAt().atOffset(ZoneOffset.UTC));
-        return response;
+    private InvalidStatusTransitionException rejectedTransition(PaymentStatus current, PaymentStatus target, String message) {
+        serviceMetrics.transitionRejected("payment", current, target);
+        return new InvalidStatusTransitionException(message);
     }
 
     private PaymentListResponse mapToPaymentListResponse(Page<Payment> paymentPage) {
         PaymentListResponse response = new PaymentListResponse();
         
-        List<PaymentResponse> content = paymentPage.getContent().stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
-        response.setContent(content);
+        response.setContent(ResponseMapper.toPaymentResponses(paymentPage.getContent()));
         
         response.setTotalElements(paymentPage.getTotalElements());
         response.setTotalPages(paymentPage.getTotalPages());
         response.setPage(paymentPage.getNumber());
         response.setSize(paymentPage.getSize());
+        response.setHasNext(paymentPage.hasNext());
+        if (paymentPage.hasNext() && paymentPage.hasContent()) {
+            response.setNextCursor(nextCursor(paymentPage.getContent()));
+        }
         
         return response;
     }
+
+    private PaymentListResponse mapToPaymentListResponse(Slice<Payment> paymentSlice) {
+        PaymentListResponse response = new PaymentListResponse();
+        response.setContent(ResponseMapper.toPaymentResponses(paymentSlice.getContent()));
+        response.setSize(paymentSlice.getSize());
+        response.setHasNext(paymentSlice.hasNext());
+        if (paymentSlice.hasNext() && paymentSlice.hasContent()) {
+            response.setNextCursor(nextCursor(paymentSlice.getContent()));
+        }
+        return response;
+    }
+
+    private String nextCursor(List<Payment> payments) {
+        Payment last = payments.get(payments.size() - 1);
+        return PageCursor.encode(last.getCreatedAt(), last.getId());
+    }
 }
 
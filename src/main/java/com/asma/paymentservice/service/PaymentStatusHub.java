@@ -0,0 +1,187 @@
+package com.asma.paymentservice.service;
+
+import com.asma.paymentservice.dto.PaymentResponse;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * In-process registry of clients waiting for payment status changes (server-sent events and long polls).
+ *
+ * Listeners are plain callbacks run by a small pool of delivery threads
+ * ({@code paymentservice.status-watch.delivery-threads}), never by the publisher: writing an event to a slow
+ * client blocks, and must not hold up the committing request or the poll of watched payments. The changes of
+ * one payment are delivered in publication order, one at a time. The hub remembers the last status seen for
+ * each watched payment, so that {@link PaymentService#pollWatchedPayments} can detect changes made by other nodes.
+ */
+@Component
+@Slf4j
+public class PaymentStatusHub {
+
+    private final ConcurrentHashMap<Long, Watch> watches = new ConcurrentHashMap<>();
+    private final AtomicInteger listenerCount = new AtomicInteger();
+    private final Executor delivery;
+    private final ExecutorService ownedDelivery;
+
+    @Autowired
+    public PaymentStatusHub(MeterRegistry meterRegistry,
+                            @Value("${paymentservice.status-watch.delivery-threads:2}") int deliveryThreads) {
+        this(meterRegistry, newDeliveryExecutor(deliveryThreads));
+    }
+
+    /**
+     * @param delivery runs the deliveries; shut down with the hub if it is an {@link ExecutorService}
+     */
+    PaymentStatusHub(MeterRegistry meterRegistry, Executor delivery) {
+        this.delivery = delivery;
+        this.ownedDelivery = delivery instanceof ExecutorService ? (ExecutorService) delivery : null;
+        Gauge.builder("paymentservice.status.watchers", listenerCount, AtomicInteger::get)
+                .description("Clients waiting for a payment status change")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registers {@code listener} for the changes of a payment whose status was {@code current} when read.
+     */
+    public Subscription subscribe(Long paymentId, PaymentResponse.StatusEnum current, Consumer<PaymentResponse> listener) {
+        watches.compute(paymentId, (id, watch) -> {
+            Watch target = watch != null ? watch : new Watch(current);
+            target.listeners.add(listener);
+            return target;
+        });
+        listenerCount.incrementAndGet();
+        return new Subscription(paymentId, listener);
+    }
+
+    public boolean isWatched(Long paymentId) {
+        return watches.containsKey(paymentId);
+    }
+
+    /**
+     * Last status seen for each watched payment.
+     */
+    public Map<Long, PaymentResponse.StatusEnum> watchedStatuses() {
+        Map<Long, PaymentResponse.StatusEnum> statuses = new HashMap<>();
+        watches.forEach((id, watch) -> statuses.put(id, watch.lastStatus));
+        return statuses;
+    }
+
+    /**
+     * Queues the new state of a payment for delivery to its listeners, and returns without waiting for it.
+     */
+    public void publish(PaymentResponse payment) {
+        Watch watch = watches.get(payment.getId());
+        if (watch == null) {
+            return;
+        }
+        watch.lastStatus = payment.getStatus();
+        watch.pending.add(payment);
+        scheduleDelivery(watch);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (ownedDelivery != null) {
+            ownedDelivery.shutdownNow();
+        }
+    }
+
+    private void scheduleDelivery(Watch watch) {
+        // At most one delivery per payment at a time, which keeps its changes in order
+        if (!watch.delivering.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            delivery.execute(() -> deliver(watch));
+        } catch (RejectedExecutionException e) {
+            watch.delivering.set(false);
+            log.debug("Payment status delivery rejected, shutting down");
+        }
+    }
+
+    private void deliver(Watch watch) {
+        PaymentResponse payment;
+        while ((payment = watch.pending.poll()) != null) {
+            for (Consumer<PaymentResponse> listener : watch.listeners) {
+                try {
+                    listener.accept(payment);
+                } catch (RuntimeException e) {
+                    log.warn("Payment status listener for payment ID {} failed: {}", payment.getId(), e.getMessage());
+                }
+            }
+        }
+        watch.delivering.set(false);
+        // A change published after the last poll found the delivery running and left it to us
+        if (!watch.pending.isEmpty()) {
+            scheduleDelivery(watch);
+        }
+    }
+
+    private static ExecutorService newDeliveryExecutor(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Payment status delivery threads must be >= 1");
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "status-delivery-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private void unsubscribe(Long paymentId, Consumer<PaymentResponse> listener) {
+        watches.computeIfPresent(paymentId, (id, watch) -> {
+            if (watch.listeners.remove(listener)) {
+                listenerCount.decrementAndGet();
+            }
+            return watch.listeners.isEmpty() ? null : watch;
+        });
+    }
+
+    private static final class Watch {
+        private final Set<Consumer<PaymentResponse>> listeners = new CopyOnWriteArraySet<>();
+        private final Queue<PaymentResponse> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean delivering = new AtomicBoolean();
+        private volatile PaymentResponse.StatusEnum lastStatus;
+
+        private Watch(PaymentResponse.StatusEnum lastStatus) {
+            this.lastStatus = lastStatus;
+        }
+    }
+
+    /**
+     * Handle returned by {@link #subscribe}; {@link #cancel} is idempotent.
+     */
+    public final class Subscription {
+        private final Long paymentId;
+        private final Consumer<PaymentResponse> listener;
+
+        private Subscription(Long paymentId, Consumer<PaymentResponse> listener) {
+            this.paymentId = paymentId;
+            this.listener = listener;
+        }
+
+        public void cancel() {
+            unsubscribe(paymentId, listener);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.asma.paymentservice.service;
+
+import com.asma.paymentservice.dto.CurrencyAmount;
+import com.asma.paymentservice.dto.PaymentDailySummary;
+import com.asma.paymentservice.dto.PaymentStatusSummary;
+import com.asma.paymentservice.dto.PaymentSummaryResponse;
+import com.asma.paymentservice.entity.Payment;
+import com.asma.paymentservice.entity.PaymentDailyRollup;
+import com.asma.paymentservice.entity.PaymentRollupKey;
+import com.asma.paymentservice.entity.PaymentStatus;
+import com.asma.paymentservice.exception.InvalidPaymentRequestException;
+import com.asma.paymentservice.repository.PaymentRepository;
+import com.asma.paymentservice.repository.PaymentRollupRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Payment summary served from the {@code payment_daily_rollup} table instead of aggregating the payments.
+ *
+ * Every payment change records deltas for its buckets, applied when its transaction commits (see
+ * {@link RollupUpdater}): +1 and the amount for a new payment, and a move from the old status to the new one
+ * for a transition.
+ *
+ * A background reconciler recomputes recent days from the payment table and corrects any drift (payments
+ * changed outside this service, or before the rollup existed); while the rollup is empty it backfills all days.
+ */
+@Service
+@Slf4j
+public class PaymentSummaryService {
+
+    static final int MAX_DAYS = 366;
+    private static final int DEFAULT_DAYS = 30;
+
+    private final PaymentRollupRepository rollupRepository;
+    private final PaymentRepository paymentRepository;
+    private final RollupUpdater<PaymentRollupKey> rollupUpdater;
+    private final int reconcileDays;
+    private final Counter driftCorrections;
+
+    public PaymentSummaryService(PaymentRollupRepository rollupRepository,
+                                 PaymentRepository paymentRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 JdbcTemplate jdbcTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${paymentservice.summary.reconcile-days:3}") int reconcileDays) {
+        if (reconcileDays < 1) {
+            throw new IllegalArgumentException("Summary reconcile days must be >= 1");
+        }
+        this.rollupRepository = rollupRepository;
+        this.paymentRepository = paymentRepository;
+        RollupUpdater.Store<PaymentRollupKey> store = new RollupUpdater.JdbcStore<>(jdbcTemplate, "payment_daily_rollup",
+                List.of("rollup_day", "status", "currency", "method"), "payment_count",
+                key -> new Object[]{key.getDay(), key.getStatus().name(), key.getCurrency(), key.getMethod()});
+        this.rollupUpdater = new RollupUpdater<>("Payment", store, transactionManager);
+        this.reconcileDays = reconcileDays;
+        this.driftCorrections = Counter.builder("paymentservice.summary.drift")
+                .description("Payment rollup buckets corrected by the reconciler")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Counts a new payment in the bucket of its current status.
+     */
+    public void recordCreated(Payment payment) {
+        rollupUpdater.add(PaymentRollupKey.of(payment, payment.getStatus()), 1, payment.getAmount());
+    }
+
+    /**
+     * Moves a payment of {@code amount} from the bucket {@code from} to the same bucket with status {@code to}.
+     */
+    public void recordStatusChange(PaymentRollupKey from, PaymentStatus to, BigDecimal amount) {
+        rollupUpdater.add(from, -1, amount.negate());
+        rollupUpdater.add(from.withStatus(to), 1, amount);
+    }
+
+    @Transactional(readOnly = true)
+    public PaymentSummaryResponse getSummary(LocalDate fromDate, LocalDate toDate, String currency, String method) {
+        LocalDate to = toDate != null ? toDate : LocalDate.now();
+        LocalDate from = fromDate != null ? fromDate : to.minusDays(DEFAULT_DAYS - 1);
+        if (from.isAfter(to)) {
+            throw new InvalidPaymentRequestException("fromDate must not be after toDate");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_DAYS) {
+            throw new InvalidPaymentRequestException("Summary period must not exceed " + MAX_DAYS + " days");
+        }
+
+        Map<PaymentStatus, Long> counts = new EnumMap<>(PaymentStatus.class);
+        Map<PaymentStatus, Map<String, BigDecimal>> amounts = new EnumMap<>(PaymentStatus.class);
+        // (day, status, currency) -> count and amount, merged over the methods by keying them with a blank method
+        Map<PaymentRollupKey, RollupUpdater.Totals> days = new TreeMap<>();
+        long totalCount = 0;
+        for (PaymentDailyRollup rollup : rollupRepository.findByKeyDayBetween(from, to)) {
+            PaymentRollupKey key = rollup.getKey();
+            if (rollup.getPaymentCount() == 0
+                    || (currency != null && !currency.equals(key.getCurrency()))
+                    || (method != null && !method.equals(key.getMethod()))) {
+                continue;
+            }
+            totalCount += rollup.getPaymentCount();
+            counts.merge(key.getStatus(), rollup.getPaymentCount(), Long::sum);
+            amounts.computeIfAbsent(key.getStatus(), status -> new TreeMap<>())
+                    .merge(key.getCurrency(), rollup.getAmount(), BigDecimal::add);
+            days.computeIfAbsent(new PaymentRollupKey(key.getDay(), key.getStatus(), key.getCurrency(), ""), k -> new RollupUpdater.Totals())
+                    .add(rollup.getPaymentCount(), rollup.getAmount());
+        }
+
+        PaymentSummaryResponse response = new PaymentSummaryResponse();
+        response.setFromDate(from);
+        response.setToDate(to);
+        response.setTotalCount(totalCount);
+        for (PaymentStatus status : PaymentStatus.values()) {
+            PaymentStatusSummary summary = new PaymentStatusSummary();
+            summary.setStatus(PaymentStatusSummary.StatusEnum.fromValue(status.name()));
+            summary.setCount(counts.getOrDefault(status, 0L));
+            summary.setAmounts(new ArrayList<>());
+            amounts.getOrDefault(status, Map.of()).forEach((code, amount) -> {
+                CurrencyAmount currencyAmount = new CurrencyAmount();
+                currencyAmount.setCurrency(code);
+                currencyAmount.setAmount(amount.doubleValue());
+                summary.addAmountsItem(currencyAmount);
+            });
+            response.addByStatusItem(summary);
+        }
+        response.setDays(new ArrayList<>());
+        days.forEach((key, total) -> {
+            PaymentDailySummary day = new PaymentDailySummary();
+            day.setDay(key.getDay());
+            day.setStatus(PaymentDailySummary.StatusEnum.fromValue(key.getStatus().name()));
+            day.setCurrency(key.getCurrency());
+            day.setCount(total.getCount());
+            day.setAmount(total.getAmount().doubleValue());
+            response.addDaysItem(day);
+        });
+        return response;
+    }
+
+    /**
+     * Reconciles the last {@code paymentservice.summary.reconcile-days} days, or every day since the first
+     * payment while the rollup is empty (first start on an existing database).
+     */
+    @Scheduled(fixedDelayString = "${paymentservice.summary.reconcile-interval:PT15M}",
+            initialDelayString = "${paymentservice.summary.reconcile-initial-delay:PT1M}")
+    public void reconcileRecentDays() {
+        try {
+            LocalDate today = LocalDate.now();
+            LocalDate from = today.minusDays(reconcileDays - 1);
+            if (rollupRepository.count() == 0) {
+                from = paymentRepository.findMinCreatedAt().map(LocalDateTime::toLocalDate).orElse(today);
+                log.info("Payment rollup is empty, backfilling from {}", from);
+            }
+            reconcile(from, today);
+        } catch (RuntimeException e) {
+            log.error("Payment rollup reconciliation failed", e);
+        }
+    }
+
+    /**
+     * Recomputes the buckets of the given days from the payments and corrects those that differ.
+     *
+     * @return the number of corrected buckets
+     */
+    public int reconcile(LocalDate from, LocalDate to) {
+        int corrected = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            try {
+                corrected += reconcileDay(day);
+            } catch (ConcurrencyFailureException e) {
+                // Payments of that day changed while it was being reconciled; the next run catches up
+                log.info("Payment rollup reconciliation of {} skipped: {}", day, e.getMessage());
+            }
+        }
+        if (corrected > 0) {
+            driftCorrections.increment(corrected);
+            log.warn("Payment rollup reconciliation corrected {} buckets between {} and {}", corrected, from, to);
+        }
+        return corrected;
+    }
+
+    private int reconcileDay(LocalDate day) {
+        LocalDateTime start = day.atStartOfDay();
+        LocalDateTime end = day.plusDays(1).atStartOfDay();
+        return rollupUpdater.reconcile(
+                () -> {
+                    Map<PaymentRollupKey, RollupUpdater.Totals> expected = new HashMap<>();
+                    for (PaymentRepository.RollupTotals totals : paymentRepository.sumCreatedBetween(start, end)) {
+                        expected.put(new PaymentRollupKey(day, totals.getStatus(), totals.getCurrency(), totals.getMethod()),
+                                new RollupUpdater.Totals().add(totals.getPaymentCount(), totals.getAmount()));
+                    }
+                    return expected;
+                },
+                () -> {
+                    Map<PaymentRollupKey, RollupUpdater.Totals> stored = new HashMap<>();
+                    for (PaymentDailyRollup rollup : rollupRepository.findByKeyDayBetween(day, day)) {
+                        stored.put(rollup.getKey(), new RollupUpdater.Totals().add(rollup.getPaymentCount(), rollup.getAmount()));
+                    }
+                    return stored;
+                });
+    }
+}
@@ -0,0 +1,76 @@
+package com.asma.paymentservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Bounded local cache of mapped API responses by entity ID, in front of the single-entity GET endpoints.
+ *
+ * Entries expire after a configurable TTL and the least recently used are evicted beyond the maximum size.
+ * Concurrent misses for the same ID share one load, so a burst of polls costs at most one query. Writers
+ * call {@link #evictAfterCommit} so that this node never serves a response older than a committed change;
+ * other nodes do not see the eviction and may serve the previous response until it expires, so the TTL is the
+ * bound on cross-node staleness. Hits, misses, loads and evictions are published as Micrometer
+ * {@code cache.*} metrics tagged with the cache name.
+ *
+ * Cached responses are shared between callers and must not be modified.
+ */
+public class ResponseCache<V> {
+
+    private final Cache<Long, V> cache;
+
+    public ResponseCache(String name, long maximumSize, Duration ttl, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+    }
+
+    /**
+     * Returns the cached response for {@code id}, loading it with {@code loader} on a miss.
+     * Exceptions thrown by the loader (e.g. not found) are propagated and nothing is cached.
+     */
+    public V get(Long id, Function<Long, V> loader) {
+        return cache.get(id, loader);
+    }
+
+    public void evictAfterCommit(Long id) {
+        evictAfterCommit(Collections.singletonList(id));
+    }
+
+    /**
+     * Evicts the given IDs now and, when called inside a transaction, again once it commits: a read on
+     * another thread between the two may have cached the state that was current before the commit.
+     */
+    public void evictAfterCommit(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Long> evicted = List.copyOf(ids);
+        cache.invalidateAll(evicted);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidateAll(evicted);
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,85 @@
+package com.asma.paymentservice.service;
+
+import com.asma.paymentservice.dto.InvoiceResponse;
+import com.asma.paymentservice.dto.PaymentResponse;
+import com.asma.paymentservice.entity.Invoice;
+import com.asma.paymentservice.entity.Payment;
+import org.openapitools.jackson.nullable.JsonNullable;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entity to response mapping for every endpoint returning payments or invoices, run once per row of a list or
+ * export, so it allocates only what the response holds.
+ *
+ * Absent optional fields are left at the DTO default, the shared {@link JsonNullable#undefined()} instance, and
+ * lists are built into an {@link ArrayList} of the final size rather than collected from a stream. Timestamps are
+ * stored as UTC local times and returned with an explicit offset.
+ */
+public final class ResponseMapper {
+
+    private ResponseMapper() {
+    }
+
+    public static PaymentResponse toPaymentResponse(Payment payment) {
+        PaymentResponse response = new PaymentResponse();
+        response.setId(payment.getId());
+        response.setAmount(payment.getAmount().doubleValue());
+        response.setCurrency(payment.getCurrency());
+        response.setMethod(payment.getMethod());
+        response.setStatus(PaymentResponse.StatusEnum.fromValue(payment.getStatus().name()));
+        response.setUserId(payment.getUserId());
+        if (payment.getOrderId() != null) {
+            response.setOrderId(JsonNullable.of(payment.getOrderId()));
+        }
+        response.setCreatedAt(payment.getCreatedAt().atOffset(ZoneOffset.UTC));
+        response.setUpdatedAt(payment.getUpdatedAt().atOffset(ZoneOffset.UTC));
+        return response;
+    }
+
+    public static InvoiceResponse toInvoiceResponse(Invoice invoice) {
+        InvoiceResponse response = new InvoiceResponse();
+        response.setId(invoice.getId());
+        response.setInvoiceNumber(invoice.getInvoiceNumber());
+        response.setPaymentId(invoice.getPaymentId());
+        response.setUserId(invoice.getUserId());
+        response.setAmount(invoice.getAmount().doubleValue());
+        response.setCurrency(invoice.getCurrency());
+        response.setStatus(InvoiceResponse.StatusEnum.fromValue(invoice.getStatus().name()));
+        response.setIssueDate(invoice.getIssueDate());
+        if (invoice.getDueDate() != null) {
+            response.setDueDate(JsonNullable.of(invoice.getDueDate()));
+        }
+        if (invoice.getSentAt() != null) {
+            response.setSentAt(JsonNullable.of(invoice.getSentAt()));
+        }
+        if (invoice.getPaidAt() != null) {
+            response.setPaidAt(JsonNullable.of(invoice.getPaidAt()));
+        }
+        if (invoice.getCancelledAt() != null) {
+            response.setCancelledAt(JsonNullable.of(invoice.getCancelledAt()));
+        }
+        if (invoice.getOrderId() != null) {
+            response.setOrderId(JsonNullable.of(invoice.getOrderId()));
+        }
+        return response;
+    }
+
+    public static List<PaymentResponse> toPaymentResponses(List<Payment> payments) {
+        List<PaymentResponse> responses = new ArrayList<>(payments.size());
+        for (Payment payment : payments) {
+            responses.add(toPaymentResponse(payment));
+        }
+        return responses;
+    }
+
+    public static List<InvoiceResponse> toInvoiceResponses(List<Invoice> invoices) {
+        List<InvoiceResponse> responses = new ArrayList<>(invoices.size());
+        for (Invoice invoice : invoices) {
+            responses.add(toInvoiceResponse(invoice));
+        }
+        return responses;
+    }
+}
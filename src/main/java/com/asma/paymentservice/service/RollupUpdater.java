@@ -0,0 +1,263 @@
+package com.asma.paymentservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.DatabaseMetaData;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains a rollup table of (count, amount) rows keyed by {@code K}, for the summary services.
+ *
+ * Deltas recorded in a transaction are merged per key and applied just before it commits, in key order, so the
+ * rollup commits atomically with the rows it summarizes, its rows are locked only while committing, and two
+ * transactions never wait on each other's rows in opposite orders. Each delta is a single upsert in that
+ * transaction, so the first change of a new bucket (every bucket of a new day, at midnight) needs no second
+ * connection from the pool.
+ */
+@Slf4j
+final class RollupUpdater<K extends Comparable<K>> {
+
+    /**
+     * Data access of one rollup table.
+     */
+    interface Store<K> {
+
+        /**
+         * Adds a delta to the row of {@code key} in the current transaction, inserting the row if it does not exist.
+         */
+        void upsert(K key, long count, BigDecimal amount);
+    }
+
+    private final String name;
+    private final Store<K> store;
+    private final TransactionTemplate createTemplate;
+    private final TransactionTemplate reconcileTemplate;
+
+    RollupUpdater(String name, Store<K> store, PlatformTransactionManager transactionManager) {
+        this.name = name;
+        this.store = store;
+        this.createTemplate = new TransactionTemplate(transactionManager);
+        this.createTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // One consistent snapshot of the source rows and of the rollup per reconciled period
+        this.reconcileTemplate = new TransactionTemplate(transactionManager);
+        this.reconcileTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.reconcileTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * Records a delta, applied when the current transaction commits.
+     */
+    void add(K key, long count, BigDecimal amount) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Deltas to the " + name + " rollup must be recorded inside a transaction");
+        }
+        @SuppressWarnings("unchecked")
+        Map<K, Totals> deltas = (Map<K, Totals>) TransactionSynchronizationManager.getResource(this);
+        if (deltas == null) {
+            Map<K, Totals> pending = new TreeMap<>();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    apply(pending);
+                }
+
+                // A transaction started while this one is suspended records its own deltas
+                @Override
+                public void suspend() {
+                    TransactionSynchronizationManager.unbindResource(RollupUpdater.this);
+                }
+
+                @Override
+                public void resume() {
+                    TransactionSynchronizationManager.bindResource(RollupUpdater.this, pending);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(RollupUpdater.this);
+                }
+            });
+            deltas = pending;
+        }
+        deltas.computeIfAbsent(key, k -> new Totals()).add(count, amount);
+    }
+
+    /**
+     * Compares the rollup with totals recomputed from the source rows and corrects the rows that differ.
+     * Rows missing from the rollup are created empty first, each in its own transaction, outside the snapshot,
+     * which would not see them.
+     *
+     * @param expected totals recomputed from the source rows of the period
+     * @param stored   rollup rows of the period
+     * @return the number of corrected rows
+     */
+    int reconcile(Supplier<Map<K, Totals>> expected, Supplier<Map<K, Totals>> stored) {
+        Map<K, Totals> existing = stored.get();
+        expected.get().keySet().stream()
+                .filter(key -> !existing.containsKey(key))
+                .forEach(this::create);
+
+        Integer corrected = reconcileTemplate.execute(status -> {
+            Map<K, Totals> actual = expected.get();
+            Map<K, Totals> rollup = stored.get();
+            TreeSet<K> keys = new TreeSet<>(actual.keySet());
+            keys.addAll(rollup.keySet());
+            int count = 0;
+            for (K key : keys) {
+                Totals current = rollup.get(key);
+                if (current == null) {
+                    // Created after the first pass; left to the next run
+                    continue;
+                }
+                Totals target = actual.getOrDefault(key, new Totals());
+                long countDelta = target.count - current.count;
+                BigDecimal amountDelta = target.amount.subtract(current.amount);
+                if (countDelta != 0 || amountDelta.signum() != 0) {
+                    log.warn("{} rollup drift in {}: count {} -> {}, amount {} -> {}",
+                            name, key, current.count, target.count, current.amount, target.amount);
+                    store.upsert(key, countDelta, amountDelta);
+                    count++;
+                }
+            }
+            return count;
+        });
+        return Objects.requireNonNull(corrected);
+    }
+
+    private void apply(Map<K, Totals> deltas) {
+        // In key order, so concurrent transactions lock their common rows in the same order
+        deltas.forEach((key, delta) -> {
+            if (!delta.isZero()) {
+                store.upsert(key, delta.count, delta.amount);
+            }
+        });
+    }
+
+    private void create(K key) {
+        createTemplate.executeWithoutResult(status -> store.upsert(key, 0, BigDecimal.ZERO));
+    }
+
+    /**
+     * {@link Store} of a rollup table with a count and an {@code amount} column, keyed by {@code keyColumns}.
+     *
+     * On PostgreSQL the upsert is an {@code INSERT ... ON CONFLICT DO UPDATE}, which waits for a concurrent
+     * insert of the same row and then updates it. Elsewhere (H2) it is a standard {@code MERGE}, which fails
+     * instead; the row then exists and the statement is run again. Statements run through JDBC on the
+     * connection of the current transaction: a failed statement does not mark it rollback-only.
+     */
+    static final class JdbcStore<K> implements Store<K> {
+
+        private final JdbcTemplate jdbcTemplate;
+        private final Function<K, Object[]> keyValues;
+        private final boolean merge;
+        private final String sql;
+
+        /**
+         * @param keyValues values of {@code keyColumns} for a key, in the same order
+         */
+        JdbcStore(JdbcTemplate jdbcTemplate, String table, List<String> keyColumns, String countColumn,
+                  Function<K, Object[]> keyValues) {
+            this.jdbcTemplate = jdbcTemplate;
+            this.keyValues = keyValues;
+            this.merge = !"PostgreSQL".equals(databaseName(jdbcTemplate));
+            List<String> columns = new ArrayList<>(keyColumns);
+            columns.add(countColumn);
+            columns.add("amount");
+            String placeholders = columns.stream().map(column -> "?").collect(Collectors.joining(", "));
+            if (merge) {
+                this.sql = "MERGE INTO " + table + " t USING (VALUES (1)) AS d(x) ON "
+                        + keyColumns.stream().map(column -> "t." + column + " = ?").collect(Collectors.joining(" AND "))
+                        + " WHEN MATCHED THEN UPDATE SET " + countColumn + " = t." + countColumn + " + ?, amount = t.amount + ?"
+                        + " WHEN NOT MATCHED THEN INSERT (" + String.join(", ", columns) + ") VALUES (" + placeholders + ")";
+            } else {
+                this.sql = "INSERT INTO " + table + " AS t (" + String.join(", ", columns) + ") VALUES (" + placeholders + ")"
+                        + " ON CONFLICT (" + String.join(", ", keyColumns) + ") DO UPDATE SET "
+                        + countColumn + " = t." + countColumn + " + EXCLUDED." + countColumn
+                        + ", amount = t.amount + EXCLUDED.amount";
+            }
+        }
+
+        @Override
+        public void upsert(K key, long count, BigDecimal amount) {
+            Object[] args = arguments(keyValues.apply(key), count, amount);
+            if (!merge) {
+                jdbcTemplate.update(sql, args);
+                return;
+            }
+            try {
+                jdbcTemplate.update(sql, args);
+            } catch (DuplicateKeyException e) {
+                // Inserted by a concurrent transaction, which has since committed
+                jdbcTemplate.update(sql, args);
+            }
+        }
+
+        private Object[] arguments(Object[] key, long count, BigDecimal amount) {
+            List<Object> args = new ArrayList<>();
+            if (merge) {
+                // ON key, UPDATE count and amount, INSERT key, count and amount
+                args.addAll(List.of(key));
+                args.add(count);
+                args.add(amount);
+            }
+            args.addAll(List.of(key));
+            args.add(count);
+            args.add(amount);
+            return args.toArray();
+        }
+
+        private static String databaseName(JdbcTemplate jdbcTemplate) {
+            try {
+                return JdbcUtils.commonDatabaseName(JdbcUtils.extractDatabaseMetaData(
+                        jdbcTemplate.getDataSource(), DatabaseMetaData::getDatabaseProductName));
+            } catch (MetaDataAccessException e) {
+                throw new IllegalStateException("Cannot read the database product name", e);
+            }
+        }
+    }
+
+    /**
+     * A count and an amount: a delta, or the totals of a rollup row.
+     */
+    static final class Totals {
+        private long count;
+        private BigDecimal amount = BigDecimal.ZERO;
+
+        Totals add(long count, BigDecimal amount) {
+            this.count += count;
+            this.amount = this.amount.add(amount);
+            return this;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        BigDecimal getAmount() {
+            return amount;
+        }
+
+        boolean isZero() {
+            return count == 0 && amount.signum() == 0;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.asma.paymentservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Meters of the service hot paths, exported on {@code /actuator/prometheus}.
+ *
+ * Timers publish percentile histograms, so p95/p99 can be aggregated across instances from the Prometheus
+ * buckets. Meters with fixed tags are registered once here, so recording them on a hot path costs no
+ * registry lookup; counters tagged with request values (status transitions) are looked up when incremented,
+ * which only happens on the rejection path.
+ */
+@Component
+@Getter
+public class ServiceMetrics {
+
+    @Getter(AccessLevel.NONE)
+    private final MeterRegistry registry;
+
+    private final Timer paymentCreate;
+    private final Timer paymentStatusUpdate;
+    private final Timer paymentListPage;
+    private final Timer paymentListSlice;
+    private final Timer paymentListCursor;
+
+    private final Timer invoiceCreate;
+    private final Timer invoiceCreateBatch;
+    private final Timer invoiceListPage;
+    private final Timer invoiceListSlice;
+    private final Timer invoiceListCursor;
+    private final Timer invoiceNumber;
+
+    private final Counter idempotencyKeyReplays;
+    private final Counter duplicateOrderHits;
+    private final Counter invoiceBatchFailures;
+    private final Counter invoiceEventFailures;
+
+    public ServiceMetrics(MeterRegistry registry) {
+        this.registry = registry;
+
+        this.paymentCreate = timer("paymentservice.payments.create", "Payment creation (POST /payments)");
+        this.paymentStatusUpdate = timer("paymentservice.payments.status.update", "Payment status change");
+        this.paymentListPage = listTimer("paymentservice.payments.list", "page", "Payment listing");
+        this.paymentListSlice = listTimer("paymentservice.payments.list", "slice", "Payment listing");
+        this.paymentListCursor = listTimer("paymentservice.payments.list", "cursor", "Payment listing");
+
+        this.invoiceCreate = timer("paymentservice.invoices.create", "Invoice creation for one payment");
+        this.invoiceCreateBatch = timer("paymentservice.invoices.create.batch", "Invoice creation for a batch of payments");
+        this.invoiceListPage = listTimer("paymentservice.invoices.list", "page", "Invoice listing");
+        this.invoiceListSlice = listTimer("paymentservice.invoices.list", "slice", "Invoice listing");
+        this.invoiceListCursor = listTimer("paymentservice.invoices.list", "cursor", "Invoice listing");
+        this.invoiceNumber = timer("paymentservice.invoices.number", "Invoice number generation");
+
+        this.idempotencyKeyReplays = Counter.builder("paymentservice.payments.idempotent.hits")
+                .description("Payment creations answered with an earlier result instead of creating a payment")
+                .tag("source", "idempotency-key")
+                .register(registry);
+        this.duplicateOrderHits = Counter.builder("paymentservice.payments.idempotent.hits")
+                .description("Payment creations answered with an earlier result instead of creating a payment")
+                .tag("source", "order-id")
+                .register(registry);
+        this.invoiceBatchFailures = Counter.builder("paymentservice.invoices.creation.failures")
+                .description("Invoice creations that failed in the background and were retried later")
+                .tag("scope", "batch")
+                .register(registry);
+        this.invoiceEventFailures = Counter.builder("paymentservice.invoices.creation.failures")
+                .description("Invoice creations that failed in the background and were retried later")
+                .tag("scope", "event")
+                .register(registry);
+    }
+
+    /**
+     * Counts a status transition rejected as invalid (including transitions lost to a concurrent change).
+     */
+    public void transitionRejected(String entity, Enum<?> from, Enum<?> to) {
+        Counter.builder("paymentservice.status.transitions.rejected")
+                .description("Status transitions rejected as invalid")
+                .tag("entity", entity)
+                .tag("from", from != null ? from.name() : "none")
+                .tag("to", to != null ? to.name() : "none")
+                .register(registry)
+                .increment();
+    }
+
+    private Timer timer(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private Timer listTimer(String name, String mode, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .tag("mode", mode)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
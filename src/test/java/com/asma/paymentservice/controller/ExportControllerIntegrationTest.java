@@ -0,0 +1,168 @@
+package com.asma.paymentservice.controller;
+
+import com.asma.paymentservice.entity.Invoice;
+import com.asma.paymentservice.entity.InvoiceStatus;
+import com.asma.paymentservice.entity.Payment;
+import com.asma.paymentservice.entity.PaymentStatus;
+import com.asma.paymentservice.repository.InvoiceRepository;
+import com.asma.paymentservice.repository.PaymentRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Exports are written by an MVC async thread in its own transaction, so the data must be committed: the test
+ * is not transactional and uses its own database so that other test contexts cannot see its rows.
+ */
+@SpringBootTest(properties = {
+        "paymentservice.outbox.workers=0",
+        "paymentservice.export.fetch-size=2",
+        "spring.datasource.url=jdbc:h2:mem:export_test"
+})
+@AutoConfigureMockMvc
+class ExportControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @AfterEach
+    void tearDown() {
+        invoiceRepository.deleteAll();
+        paymentRepository.deleteAll();
+    }
+
+    @Test
+    void exportPayments_AsNdjson_ShouldStreamAllMatchingPaymentsNewestFirst() throws Exception {
+        // Given - more payments than the fetch size, one filtered out
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 5; i++) {
+            paymentRepository.save(payment("user-export", PaymentStatus.PENDING, now.minusMinutes(i)));
+        }
+        paymentRepository.save(payment("user-export", PaymentStatus.APPROVED, now));
+
+        // When
+        String body = export(get("/payments/export").param("status", "PENDING").param("userId", "user-export"),
+                "application/x-ndjson", "payments.ndjson");
+
+        // Then
+        String[] lines = body.split("\n");
+        assertEquals(5, lines.length);
+        String previous = null;
+        for (String line : lines) {
+            JsonNode payment = objectMapper.readTree(line);
+            assertEquals("PENDING", payment.get("status").asText());
+            assertEquals("user-export", payment.get("userId").asText());
+            String createdAt = payment.get("createdAt").asText();
+            assertTrue(previous == null || createdAt.compareTo(previous) < 0, body);
+            previous = createdAt;
+        }
+    }
+
+    @Test
+    void exportPayments_AsCsv_ShouldWriteHeaderAndOneLinePerPayment() throws Exception {
+        // Given
+        Payment payment = paymentRepository.save(payment("user,with\"quote", PaymentStatus.PENDING, LocalDateTime.now()));
+
+        // When
+        String body = export(get("/payments/export").param("format", "csv"), "text/csv", "payments.csv");
+
+        // Then
+        String[] lines = body.split("\r\n");
+        assertEquals(2, lines.length);
+        assertEquals("id,amount,currency,method,status,userId,orderId,createdAt,updatedAt", lines[0]);
+        assertTrue(lines[1].startsWith(payment.getId() + ",42.00,USD,CREDIT_CARD,PENDING,\"user,with\"\"quote\",,"), lines[1]);
+    }
+
+    @Test
+    void exportInvoices_AsCsv_ShouldApplyFilters() throws Exception {
+        // Given
+        invoiceRepository.save(invoice("INV-EXPORT-1", 1L, InvoiceStatus.PAID, LocalDate.of(2025, 3, 1)));
+        invoiceRepository.save(invoice("INV-EXPORT-2", 2L, InvoiceStatus.CREATED, LocalDate.of(2025, 3, 2)));
+        invoiceRepository.save(invoice("INV-EXPORT-3", 3L, InvoiceStatus.PAID, LocalDate.of(2024, 3, 1)));
+
+        // When
+        String body = export(get("/invoices/export").param("format", "CSV").param("status", "PAID")
+                .param("fromDate", "2025-01-01"), "text/csv", "invoices.csv");
+
+        // Then
+        String[] lines = body.split("\r\n");
+        assertEquals(2, lines.length, body);
+        assertTrue(lines[0].startsWith("id,invoiceNumber,paymentId"));
+        assertTrue(lines[1].contains(",INV-EXPORT-1,"), lines[1]);
+        assertTrue(lines[1].contains(",PAID,2025-03-01,"), lines[1]);
+    }
+
+    @Test
+    void export_WithInvalidFormatOrFilter_ShouldReturn400BeforeStreaming() throws Exception {
+        mockMvc.perform(get("/payments/export").param("format", "xml"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details").value("Invalid export format: xml"));
+        mockMvc.perform(get("/payments/export").param("minAmount", "10").param("maxAmount", "1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details").value("minAmount must be <= maxAmount"));
+        mockMvc.perform(get("/invoices/export").param("status", "UNKNOWN"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private String export(RequestBuilder request, String contentType, String filename) throws Exception {
+        MvcResult result = mockMvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, contentType))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\""));
+        return result.getResponse().getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    private static Payment payment(String userId, PaymentStatus status, LocalDateTime createdAt) {
+        return Payment.builder()
+                .amount(new BigDecimal("42.00"))
+                .currency("USD")
+                .method("CREDIT_CARD")
+                .status(status)
+                .userId(userId)
+                .createdAt(createdAt)
+                .updatedAt(createdAt)
+                .build();
+    }
+
+    private static Invoice invoice(String invoiceNumber, Long paymentId, InvoiceStatus status, LocalDate issueDate) {
+        return Invoice.builder()
+                .invoiceNumber(invoiceNumber)
+                .paymentId(paymentId)
+                .userId("user-export")
+                .amount(new BigDecimal("42.00"))
+                .currency("USD")
+                .status(status)
+                .issueDate(issueDate)
+                .build();
+    }
+}
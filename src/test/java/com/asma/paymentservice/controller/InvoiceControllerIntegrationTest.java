@@ -26,7 +26,11 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@SpringBootTest
+/**
+ * Rows are saved through the repositories, as another node would, so IDs are not answered as missing from a
+ * cached largest ID.
+ */
+@SpringBootTest(properties = "paymentservice.cache.missing.ttl=PT0S")
 @AutoConfigureMockMvc
 @Transactional
 class InvoiceControllerIntegrationTest {
@@ -527,5 +531,74 @@ class InvoiceControllerIntegrationTest {
                 .andExpect(jsonPath("$.content").doesNotExist()) // Not a list response
                 .andExpect(jsonPath("$.totalElements").doesNotExist()); // Not a list response
     }
-}
 
+    @Test
+    void listInvoices_WithCursor_ShouldReturnNextPageWithoutTotals() throws Exception {
+        // Given - Invoices sharing issue dates, so the ID tie-breaker matters
+        for (int i = 0; i < 5; i++) {
+            Payment payment = createApprovedPayment();
+            Invoice invoice = createInvoice(payment, InvoiceStatus.CREATED);
+            invoice.setIssueDate(LocalDate.now().minusDays(i / 2));
+            invoiceRepository.save(invoice);
+        }
+
+        // When - First page (offset mode) exposes a cursor to the next page
+        String firstPage = mockMvc.perform(get("/invoices").param("size", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(3))
+                .andExpect(jsonPath("$.nextCursor").isString())
+                .andReturn().getResponse().getContentAsString();
+        String cursor = com.jayway.jsonpath.JsonPath.read(firstPage, "$.nextCursor");
+
+        // Then - Cursor page returns the remaining invoices, without totals or further cursor
+        mockMvc.perform(get("/invoices")
+                        .param("size", "3")
+                        .param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.totalElements").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void listInvoices_WithInvalidCursor_ShouldReturn400() throws Exception {
+        // When/Then
+        mockMvc.perform(get("/invoices").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(400));
+    }
+
+    @Test
+    void listInvoices_WithoutTotal_ShouldReturnHasNextInsteadOfTotals() throws Exception {
+        // Given
+        for (int i = 0; i < 3; i++) {
+            createInvoice(createApprovedPayment(), InvoiceStatus.CREATED);
+        }
+
+        // When/Then
+        mockMvc.perform(get("/invoices")
+                        .param("size", "2")
+                        .param("withTotal", "false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.page").value(0))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    @Test
+    void listInvoices_WithFromDateOnly_ShouldReturnInvoicesIssuedSince() throws Exception {
+        // Given
+        Invoice recent = createInvoice(createApprovedPayment(), InvoiceStatus.CREATED);
+        Invoice old = createInvoice(createApprovedPayment(), InvoiceStatus.CREATED);
+        old.setIssueDate(LocalDate.now().minusDays(30));
+        invoiceRepository.save(old);
+
+        // When/Then
+        mockMvc.perform(get("/invoices")
+                        .param("fromDate", LocalDate.now().minusDays(7).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andExpect(jsonPath("$.content[0].id").value(recent.getId()));
+    }
+}
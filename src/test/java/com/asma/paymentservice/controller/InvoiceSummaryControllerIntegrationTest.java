@@ -0,0 +1,185 @@
+package com.asma.paymentservice.controller;
+
+import com.asma.paymentservice.entity.Invoice;
+import com.asma.paymentservice.entity.InvoiceStatus;
+import com.asma.paymentservice.entity.Payment;
+import com.asma.paymentservice.entity.PaymentStatus;
+import com.asma.paymentservice.repository.InvoiceRepository;
+import com.asma.paymentservice.repository.InvoiceRollupRepository;
+import com.asma.paymentservice.repository.PaymentRepository;
+import com.asma.paymentservice.service.InvoiceService;
+import com.asma.paymentservice.service.InvoiceSummaryService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * The rollup is written when transactions commit, so this test cannot run in a rolled-back test transaction.
+ * It uses its own database so that invoices of other test contexts are not counted, and a long initial delay
+ * so that the test drives the reconciler itself.
+ */
+@SpringBootTest(properties = {
+        "paymentservice.outbox.workers=0",
+        "paymentservice.invoice-summary.reconcile-initial-delay=PT1H",
+        "spring.datasource.url=jdbc:h2:mem:invoice_summary_test"
+})
+@AutoConfigureMockMvc
+class InvoiceSummaryControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceSummaryService invoiceSummaryService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private InvoiceRollupRepository invoiceRollupRepository;
+
+    @AfterEach
+    void tearDown() {
+        invoiceRepository.deleteAll();
+        paymentRepository.deleteAll();
+        invoiceRollupRepository.deleteAll();
+    }
+
+    @Test
+    void getInvoiceSummary_ShouldReflectCreatedAndUpdatedInvoices() throws Exception {
+        // Given
+        List<Payment> payments = paymentRepository.saveAll(List.of(
+                approvedPayment("user-a", 100.00, "USD"),
+                approvedPayment("user-a", 50.00, "USD"),
+                approvedPayment("user-b", 30.00, "EUR")));
+        List<Invoice> invoices = invoiceService.createInvoicesFromPayments(
+                payments.stream().map(Payment::getId).collect(Collectors.toList()));
+
+        // When
+        invoiceService.updateInvoiceStatus(invoiceFor(invoices, payments.get(0)).getId(), InvoiceStatus.PAID);
+        invoiceService.updateInvoiceStatus(invoiceFor(invoices, payments.get(2)).getId(), InvoiceStatus.CANCELLED);
+
+        // Then
+        String month = YearMonth.now().toString();
+        mockMvc.perform(get("/invoices/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalCount").value(3))
+                .andExpect(jsonPath("$.outstanding.length()").value(1))
+                .andExpect(jsonPath("$.outstanding[0].currency").value("USD"))
+                .andExpect(jsonPath("$.outstanding[0].amount").value(50.00))
+                .andExpect(jsonPath("$.byStatus.length()").value(4))
+                .andExpect(jsonPath("$.byStatus[?(@.status == 'PAID')].amounts[0].amount").value(100.00))
+                .andExpect(jsonPath("$.byStatus[?(@.status == 'CANCELLED')].amounts[0].currency").value("EUR"))
+                .andExpect(jsonPath("$.byStatus[?(@.status == 'SENT')].count").value(0))
+                .andExpect(jsonPath("$.months.length()").value(3))
+                .andExpect(jsonPath("$.months[0].month").value(month));
+        mockMvc.perform(get("/invoices/summary").param("userId", "user-a"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.userId").value("user-a"))
+                .andExpect(jsonPath("$.totalCount").value(2))
+                .andExpect(jsonPath("$.byStatus[?(@.status == 'CREATED')].count").value(1));
+        assertEquals(0, invoiceSummaryService.reconcile(YearMonth.now(), YearMonth.now()));
+    }
+
+    @Test
+    void reconcileRecentMonths_WithEmptyRollup_ShouldRebuildFromFirstInvoice() throws Exception {
+        // Given - an invoice written directly, bypassing the rollup deltas
+        LocalDate issueDate = YearMonth.now().minusMonths(3).atDay(10);
+        invoiceRepository.save(invoice("INV-SUMMARY-1", issueDate, InvoiceStatus.SENT));
+
+        // When
+        invoiceSummaryService.reconcileRecentMonths();
+
+        // Then - whole months are served by the rollup, partial ones by the aggregate query
+        YearMonth month = YearMonth.from(issueDate);
+        mockMvc.perform(get("/invoices/summary")
+                        .param("fromDate", month.atDay(1).toString())
+                        .param("toDate", month.atEndOfMonth().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalCount").value(1))
+                .andExpect(jsonPath("$.outstanding[0].amount").value(80.00));
+        mockMvc.perform(get("/invoices/summary")
+                        .param("fromDate", issueDate.toString())
+                        .param("toDate", issueDate.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalCount").value(1))
+                .andExpect(jsonPath("$.months[0].month").value(month.toString()));
+        assertEquals(0, invoiceSummaryService.reconcile(month, YearMonth.now()));
+    }
+
+    @Test
+    void reconcile_ShouldCorrectDriftedBuckets() {
+        // Given - the rollup knows the invoice, which then changes behind its back
+        invoiceRepository.save(invoice("INV-SUMMARY-2", LocalDate.now(), InvoiceStatus.CREATED));
+        invoiceSummaryService.reconcile(YearMonth.now(), YearMonth.now());
+        Invoice invoice = invoiceRepository.findAll().get(0);
+        invoice.setStatus(InvoiceStatus.PAID);
+        invoiceRepository.save(invoice);
+
+        // When
+        int corrected = invoiceSummaryService.reconcile(YearMonth.now(), YearMonth.now());
+
+        // Then - the CREATED bucket is emptied and the PAID one filled
+        assertEquals(2, corrected);
+    }
+
+    @Test
+    void getInvoiceSummary_WithInvalidPeriod_ShouldReturn400() throws Exception {
+        mockMvc.perform(get("/invoices/summary").param("fromDate", "2024-02-01").param("toDate", "2024-01-01"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details").value("fromDate must not be after toDate"));
+        mockMvc.perform(get("/invoices/summary").param("fromDate", "2022-01-01").param("toDate", "2024-01-01"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static Invoice invoiceFor(List<Invoice> invoices, Payment payment) {
+        return invoices.stream()
+                .filter(invoice -> invoice.getPaymentId().equals(payment.getId()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static Payment approvedPayment(String userId, double amount, String currency) {
+        return Payment.builder()
+                .amount(BigDecimal.valueOf(amount))
+                .currency(currency)
+                .method("CREDIT_CARD")
+                .status(PaymentStatus.APPROVED)
+                .userId(userId)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static Invoice invoice(String invoiceNumber, LocalDate issueDate, InvoiceStatus status) {
+        return Invoice.builder()
+                .invoiceNumber(invoiceNumber)
+                .paymentId(1L)
+                .userId("user-c")
+                .amount(BigDecimal.valueOf(80.00))
+                .currency("USD")
+                .status(status)
+                .issueDate(issueDate)
+                .build();
+    }
+}
@@ -0,0 +1,51 @@
+package com.asma.paymentservice.controller;
+
+import com.asma.paymentservice.dto.CreatePaymentRequest;
+import com.asma.paymentservice.service.PaymentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Metrics export is disabled in Spring Boot tests unless requested with {@link AutoConfigureMetrics}.
+ */
+@SpringBootTest(properties = {
+        "paymentservice.outbox.workers=0",
+        "spring.datasource.url=jdbc:h2:mem:metrics_test"
+})
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+class MetricsEndpointIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Test
+    void prometheus_ShouldExposeServiceTimersAndConnectionPoolGauges() throws Exception {
+        // Given
+        CreatePaymentRequest request = new CreatePaymentRequest();
+        request.setAmount(15.00);
+        request.setCurrency("USD");
+        request.setMethod(CreatePaymentRequest.MethodEnum.CREDIT_CARD);
+        request.setUserId("user-metrics");
+        paymentService.createPayment(request);
+
+        // When & Then
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("paymentservice_payments_create_seconds_count{application=\"PaymentService\",} 1.0")))
+                .andExpect(content().string(containsString("paymentservice_payments_create_seconds_bucket")))
+                .andExpect(content().string(containsString("paymentservice_payments_idempotent_hits_total")))
+                .andExpect(content().string(containsString("hikaricp_connections_active")));
+    }
+}
@@ -1,7 +1,11 @@
 package com.asma.paymentservice.controller;
 
+import com.asma.paymentservice.dto.CreatePaymentBatchRequest;
 import com.asma.paymentservice.dto.CreatePaymentRequest;
+import com.asma.paymentservice.dto.PaymentStatusUpdate;
+import com.asma.paymentservice.dto.UpdatePaymentStatusBatchRequest;
 import com.asma.paymentservice.dto.UpdatePaymentStatusRequest;
+import com.asma.paymentservice.repository.OutboxEventRepository;
 import com.asma.paymentservice.repository.PaymentRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.openapitools.jackson.nullable.JsonNullable;
@@ -39,6 +43,9 @@ class PaymentControllerIntegrationTest {
     @Autowired
     private PaymentRepository paymentRepository;
 
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
     @BeforeEach
     void setUp() {
         paymentRepository.deleteAll();
@@ -755,5 +762,343 @@ class PaymentControllerIntegrationTest {
                 .andExpect(jsonPath("$.totalElements").value(0))
                 .andExpect(jsonPath("$.totalPages").value(0));
     }
-}
 
+    @Test
+    void listPayments_WithCursor_ShouldReturnNextPageWithoutTotals() throws Exception {
+        // Given - Create multiple payments
+        for (int i = 0; i < 15; i++) {
+            CreatePaymentRequest request = new CreatePaymentRequest();
+            request.setAmount(10.0 + i);
+            request.setCurrency("USD");
+            request.setMethod(CreatePaymentRequest.MethodEnum.CREDIT_CARD);
+            request.setUserId("cursorUser");
+            mockMvc.perform(post("/payments")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isCreated());
+        }
+
+        // When - First page (offset mode) exposes a cursor to the next page
+        String firstPage = mockMvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get("/payments?userId=cursorUser&size=10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(10))
+                .andExpect(jsonPath("$.nextCursor").isString())
+                .andReturn().getResponse().getContentAsString();
+        String cursor = com.jayway.jsonpath.JsonPath.read(firstPage, "$.nextCursor");
+        java.util.List<Integer> firstPageIds = com.jayway.jsonpath.JsonPath.read(firstPage, "$.content[*].id");
+
+        // Then - Cursor page returns the remaining payments, without totals or further cursor
+        String secondPage = mockMvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get("/payments")
+                        .param("userId", "cursorUser")
+                        .param("size", "10")
+                        .param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(5))
+                .andExpect(jsonPath("$.size").value(10))
+                .andExpect(jsonPath("$.totalElements").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").doesNotExist())
+                .andReturn().getResponse().getContentAsString();
+        java.util.List<Integer> secondPageIds = com.jayway.jsonpath.JsonPath.read(secondPage, "$.content[*].id");
+        secondPageIds.forEach(id -> assertEquals(false, firstPageIds.contains(id)));
+    }
+
+    @Test
+    void listPayments_WithInvalidCursor_ShouldReturn400() throws Exception {
+        // When/Then
+        mockMvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get("/payments?cursor=not-a-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(400))
+                .andExpect(jsonPath("$.details").value("Invalid cursor value"));
+    }
+
+    @Test
+    void listPayments_WithoutTotal_ShouldReturnHasNextInsteadOfTotals() throws Exception {
+        // Given - Create multiple payments
+        for (int i = 0; i < 3; i++) {
+            CreatePaymentRequest request = new CreatePaymentRequest();
+            request.setAmount(10.0 + i);
+            request.setCurrency("USD");
+            request.setMethod(CreatePaymentRequest.MethodEnum.CREDIT_CARD);
+            request.setUserId("sliceUser");
+            mockMvc.perform(post("/payments")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isCreated());
+        }
+
+        // When/Then - First slice has more results
+        mockMvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get("/payments?userId=sliceUser&size=2&withTotal=false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.page").value(0))
+                .andExpect(jsonPath("$.size").value(2))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andExpect(jsonPath("$.totalElements").doesNotExist())
+                .andExpect(jsonPath("$.totalPages").doesNotExist());
+
+        // When/Then - Last slice
+        mockMvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get("/payments?userId=sliceUser&page=1&size=2&withTotal=false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.page").value(1))
+                .andExpect(jsonPath("$.hasNext").value(false));
+    }
+
+    @Test
+    void listPayments_WithCurrencyMethodAndAmountRange_ShouldReturnMatchingPayments() throws Exception {
+        // Given - Payments differing in currency, method and amount
+        Object[][] payments = {
+                {25.0, "EUR", CreatePaymentRequest.MethodEnum.PAYPAL},
+                {75.0, "EUR", CreatePaymentRequest.MethodEnum.PAYPAL},
+                {75.0, "USD", CreatePaymentRequest.MethodEnum.PAYPAL},
+                {75.0, "EUR", CreatePaymentRequest.MethodEnum.CREDIT_CARD},
+                {500.0, "EUR", CreatePaymentRequest.MethodEnum.PAYPAL}
+        };
+        for (Object[] payment : payments) {
+            CreatePaymentRequest request = new CreatePaymentRequest();
+            request.setAmount((Double) payment[0]);
+            request.setCurrency((String) payment[1]);
+            request.setMethod((CreatePaymentRequest.MethodEnum) payment[2]);
+            request.setUserId("filterUser");
+            mockMvc.perform(post("/payments")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isCreated());
+        }
+
+        // When/Then
+        mockMvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get("/payments")
+                        .param("userId", "filterUser")
+                        .param("currency", "EUR")
+                        .param("method", "PAYPAL")
+                        .param("minAmount", "50")
+                        .param("maxAmount", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andExpect(jsonPath("$.content[0].amount").value(75.0))
+                .andExpect(jsonPath("$.content[0].currency").value("EUR"))
+                .andExpect(jsonPath("$.content[0].method").value("PAYPAL"));
+    }
+
+    @Test
+    void listPayments_WithCreatedAtRange_ShouldReturnPaymentsInRange() throws Exception {
+        // Given
+        CreatePaymentRequest request = new CreatePaymentRequest();
+        request.setAmount(42.0);
+        request.setCurrency("USD");
+        request.setMethod(CreatePaymentRequest.MethodEnum.CREDIT_CARD);
+        request.setUserId("rangeUser");
+        mockMvc.perform(post("/payments")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated());
+        java.time.OffsetDateTime now = java.time.OffsetDateTime.now(java.time.ZoneOffset.UTC);
+
+        // When/Then - Range around now includes the payment
+        mockMvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get("/payments")
+                        .param("userId", "rangeUser")
+                        .param("createdFrom", now.minusHours(1).toString())
+                        .param("createdTo", now.plusHours(1).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(1));
+
+        // When/Then - Range starting in the future excludes it
+        mockMvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get("/payments")
+                        .param("userId", "rangeUser")
+                        .param("createdFrom", now.plusHours(1).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(0));
+    }
+
+    @Test
+    void listPayments_WithInvalidAmountRange_ShouldReturn400() throws Exception {
+        // When/Then
+        mockMvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get("/payments")
+                        .param("minAmount", "100")
+                        .param("maxAmount", "10"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details").value("minAmount must be <= maxAmount"));
+    }
+
+    @Test
+    void createPayment_WithRepeatedIdempotencyKey_ShouldReplayOriginalResponse() throws Exception {
+        // Given
+        String idempotencyKey = java.util.UUID.randomUUID().toString();
+        CreatePaymentRequest request = new CreatePaymentRequest();
+        request.setAmount(49.99);
+        request.setCurrency("USD");
+        request.setMethod(CreatePaymentRequest.MethodEnum.CREDIT_CARD);
+        request.setUserId("retryUser");
+
+        // When - First request creates the payment
+        String first = mockMvc.perform(post("/payments")
+                        .header("Idempotency-Key", idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"))
+                .andReturn().getResponse().getContentAsString();
+        Integer paymentId = com.jayway.jsonpath.JsonPath.read(first, "$.id");
+
+        // Then - Retry replays the same payment instead of creating another one
+        mockMvc.perform(post("/payments")
+                        .header("Idempotency-Key", idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(jsonPath("$.id").value(paymentId));
+        mockMvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get("/payments?userId=retryUser"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(1));
+    }
+
+    @Test
+    void createPayment_WithIdempotencyKeyReusedForDifferentRequest_ShouldReturn422() throws Exception {
+        // Given
+        String idempotencyKey = java.util.UUID.randomUUID().toString();
+        CreatePaymentRequest request = new CreatePaymentRequest();
+        request.setAmount(10.0);
+        request.setCurrency("USD");
+        request.setMethod(CreatePaymentRequest.MethodEnum.CREDIT_CARD);
+        request.setUserId("reuseUser");
+        mockMvc.perform(post("/payments")
+                        .header("Idempotency-Key", idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated());
+
+        // When/Then
+        request.setAmount(20.0);
+        mockMvc.perform(post("/payments")
+                        .header("Idempotency-Key", idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.code").value(422));
+    }
+
+    @Test
+    void createPaymentsBatch_ShouldReturnPerItemResults() throws Exception {
+        // Given - an existing PENDING payment for order-b1, and order-b2 twice in the batch
+        mockMvc.perform(post("/payments")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batchItem("order-b1", "USD"))))
+                .andExpect(status().isCreated());
+        CreatePaymentBatchRequest request = new CreatePaymentBatchRequest();
+        request.addItemsItem(batchItem("order-b1", "USD"));
+        request.addItemsItem(batchItem("order-b2", "USD"));
+        request.addItemsItem(batchItem("order-b2", "USD"));
+        request.addItemsItem(batchItem("order-b3", "   "));
+        request.addItemsItem(batchItem(null, "EUR"));
+
+        // When/Then
+        mockMvc.perform(post("/payments:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.existing").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[0].outcome").value("EXISTING"))
+                .andExpect(jsonPath("$.results[1].outcome").value("CREATED"))
+                .andExpect(jsonPath("$.results[2].outcome").value("EXISTING"))
+                .andExpect(jsonPath("$.results[3].outcome").value("ERROR"))
+                .andExpect(jsonPath("$.results[3].error.details").value("Currency must not be empty"))
+                .andExpect(jsonPath("$.results[4].outcome").value("CREATED"))
+                .andExpect(jsonPath("$.results[4].payment.currency").value("EUR"));
+        assertEquals(3, paymentRepository.count());
+    }
+
+    @Test
+    void createPaymentsBatch_WithSchemaViolations_ShouldReturn400() throws Exception {
+        // Given
+        CreatePaymentRequest invalid = batchItem("order-b4", "USD");
+        invalid.setAmount(-1.0);
+        CreatePaymentBatchRequest request = new CreatePaymentBatchRequest();
+        request.addItemsItem(batchItem("order-b5", "USD"));
+        request.addItemsItem(invalid);
+
+        // When/Then
+        mockMvc.perform(post("/payments:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details").value(org.hamcrest.Matchers.containsString("items[1].amount")));
+        assertEquals(0, paymentRepository.count());
+    }
+
+    @Test
+    void updatePaymentStatusesBatch_ShouldReturnPerItemResults() throws Exception {
+        // Given - two PENDING payments and one already APPROVED
+        Long first = paymentRepository.save(paymentWithStatus(PaymentStatus.PENDING)).getId();
+        Long second = paymentRepository.save(paymentWithStatus(PaymentStatus.PENDING)).getId();
+        Long approved = paymentRepository.save(paymentWithStatus(PaymentStatus.APPROVED)).getId();
+        long eventsBefore = outboxEventRepository.count();
+        UpdatePaymentStatusBatchRequest request = new UpdatePaymentStatusBatchRequest();
+        request.addItemsItem(statusUpdate(first, PaymentStatusUpdate.StatusEnum.APPROVED));
+        request.addItemsItem(statusUpdate(second, PaymentStatusUpdate.StatusEnum.CANCELED));
+        request.addItemsItem(statusUpdate(approved, PaymentStatusUpdate.StatusEnum.FAILED));
+        request.addItemsItem(statusUpdate(999999L, PaymentStatusUpdate.StatusEnum.FAILED));
+
+        // When/Then
+        mockMvc.perform(patch("/payments/status:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(2))
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.results[0].outcome").value("UPDATED"))
+                .andExpect(jsonPath("$.results[0].status").value("APPROVED"))
+                .andExpect(jsonPath("$.results[1].outcome").value("UPDATED"))
+                .andExpect(jsonPath("$.results[1].status").value("CANCELED"))
+                .andExpect(jsonPath("$.results[2].outcome").value("INVALID_TRANSITION"))
+                .andExpect(jsonPath("$.results[2].status").value("APPROVED"))
+                .andExpect(jsonPath("$.results[2].error.code").value(409))
+                .andExpect(jsonPath("$.results[3].outcome").value("NOT_FOUND"))
+                .andExpect(jsonPath("$.results[3].error.code").value(404));
+        assertEquals(PaymentStatus.APPROVED, paymentRepository.findById(first).orElseThrow().getStatus());
+        assertEquals(PaymentStatus.CANCELED, paymentRepository.findById(second).orElseThrow().getStatus());
+        assertEquals(eventsBefore + 1, outboxEventRepository.count());
+    }
+
+    @Test
+    void updatePaymentStatusesBatch_WithPendingTarget_ShouldReturn400() throws Exception {
+        // When/Then - PENDING is not a valid target in the schema
+        mockMvc.perform(patch("/payments/status:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"items\":[{\"id\":1,\"status\":\"PENDING\"}]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private Payment paymentWithStatus(PaymentStatus status) {
+        return Payment.builder()
+                .amount(BigDecimal.valueOf(15.00))
+                .currency("USD")
+                .method("CREDIT_CARD")
+                .status(status)
+                .userId("statusBatchUser")
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private PaymentStatusUpdate statusUpdate(Long id, PaymentStatusUpdate.StatusEnum status) {
+        PaymentStatusUpdate update = new PaymentStatusUpdate();
+        update.setId(id);
+        update.setStatus(status);
+        return update;
+    }
+
+    private CreatePaymentRequest batchItem(String orderId, String currency) {
+        CreatePaymentRequest item = new CreatePaymentRequest();
+        item.setAmount(25.0);
+        item.setCurrency(currency);
+        item.setMethod(CreatePaymentRequest.MethodEnum.PAYPAL);
+        item.setUserId("batchUser");
+        if (orderId != null) {
+            item.setOrderId(JsonNullable.of(orderId));
+        }
+        return item;
+    }
+}
@@ -0,0 +1,211 @@
+package com.asma.paymentservice.controller;
+
+import com.asma.paymentservice.dto.UpdatePaymentStatusRequest;
+import com.asma.paymentservice.entity.Payment;
+import com.asma.paymentservice.entity.PaymentStatus;
+import com.asma.paymentservice.repository.OutboxEventRepository;
+import com.asma.paymentservice.repository.PaymentRepository;
+import com.asma.paymentservice.service.PaymentService;
+import com.asma.paymentservice.service.PaymentStatusHub;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Holds requests open while status changes are committed, so it cannot run in a rolled-back test transaction.
+ * It uses its own database so that other test contexts cannot see its payments, and a long poll interval so
+ * that the test drives {@link PaymentService#pollWatchedPayments} itself. Payments are saved through the
+ * repository, as another node would, so IDs are not answered as missing from a cached largest ID.
+ */
+@SpringBootTest(properties = {
+        "paymentservice.outbox.workers=0",
+        "paymentservice.cache.missing.ttl=PT0S",
+        "paymentservice.status-watch.poll-interval=PT1H",
+        "spring.datasource.url=jdbc:h2:mem:payment_status_watch_test"
+})
+@AutoConfigureMockMvc
+class PaymentStatusWatchControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentStatusHub paymentStatusHub;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @AfterEach
+    void tearDown() {
+        outboxEventRepository.deleteAll();
+        paymentRepository.deleteAll();
+    }
+
+    @Test
+    void waitForPaymentStatus_WithStatusAlreadyReached_ShouldReturnImmediately() throws Exception {
+        // Given
+        Payment payment = paymentRepository.save(payment(PaymentStatus.APPROVED));
+
+        // When
+        MvcResult result = mockMvc.perform(get("/payments/{id}/status", payment.getId()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(payment.getId()))
+                .andExpect(jsonPath("$.status").value("APPROVED"));
+    }
+
+    @Test
+    void waitForPaymentStatus_ShouldReturnOnceStatusIsUpdated() throws Exception {
+        // Given
+        Payment payment = paymentRepository.save(payment(PaymentStatus.PENDING));
+        MvcResult result = mockMvc.perform(get("/payments/{id}/status", payment.getId())
+                        .param("waitFor", "APPROVED,FAILED"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertTrue(paymentStatusHub.isWatched(payment.getId()));
+
+        // When
+        mockMvc.perform(patch("/payments/{id}/status", payment.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(statusRequest(UpdatePaymentStatusRequest.StatusEnum.FAILED))))
+                .andExpect(status().isOk());
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("FAILED"));
+        assertFalse(paymentStatusHub.isWatched(payment.getId()));
+    }
+
+    @Test
+    void waitForPaymentStatus_WithChangeCommittedElsewhere_ShouldReturnAfterPoll() throws Exception {
+        // Given
+        Payment payment = paymentRepository.save(payment(PaymentStatus.PENDING));
+        MvcResult result = mockMvc.perform(get("/payments/{id}/status", payment.getId()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // When - another node cancels the payment, bypassing this node's hub
+        payment.setStatus(PaymentStatus.CANCELED);
+        paymentRepository.save(payment);
+        paymentService.pollWatchedPayments();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CANCELED"));
+    }
+
+    @Test
+    void waitForPaymentStatus_WhenTimeoutExpires_ShouldReturnCurrentPayment() throws Exception {
+        // Given
+        Payment payment = paymentRepository.save(payment(PaymentStatus.PENDING));
+        MvcResult result = mockMvc.perform(get("/payments/{id}/status", payment.getId()).param("timeout", "1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // When
+        MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("PENDING"));
+    }
+
+    @Test
+    void waitForPaymentStatus_WithInvalidParameters_ShouldReturn400() throws Exception {
+        Payment payment = paymentRepository.save(payment(PaymentStatus.PENDING));
+
+        mockMvc.perform(get("/payments/{id}/status", payment.getId()).param("waitFor", "REFUNDED"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details").value("Invalid payment status: REFUNDED"));
+        mockMvc.perform(get("/payments/{id}/status", payment.getId()).param("timeout", "61"))
+                .andExpect(status().isBadRequest());
+        assertFalse(paymentStatusHub.isWatched(payment.getId()));
+    }
+
+    @Test
+    void waitForPaymentStatus_WithNonExistentPayment_ShouldReturn404() throws Exception {
+        mockMvc.perform(get("/payments/{id}/status", 999999L))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void streamPaymentStatus_ShouldSendCurrentAndUpdatedStatusThenComplete() throws Exception {
+        // Given
+        Payment payment = paymentRepository.save(payment(PaymentStatus.PENDING));
+        MvcResult result = mockMvc.perform(get("/payments/{id}/status/stream", payment.getId())
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // When
+        mockMvc.perform(patch("/payments/{id}/status", payment.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(statusRequest(UpdatePaymentStatusRequest.StatusEnum.APPROVED))))
+                .andExpect(status().isOk());
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+        String body = result.getResponse().getContentAsString();
+        int pending = body.indexOf("\"status\":\"PENDING\"");
+        int approved = body.indexOf("\"status\":\"APPROVED\"");
+        assertTrue(pending >= 0 && approved > pending, body);
+        assertEquals(2, body.split("event:status").length - 1, body);
+        assertFalse(paymentStatusHub.isWatched(payment.getId()));
+    }
+
+    private static Payment payment(PaymentStatus status) {
+        return Payment.builder()
+                .amount(BigDecimal.valueOf(42.00))
+                .currency("USD")
+                .method("CREDIT_CARD")
+                .status(status)
+                .userId("user-watch")
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static UpdatePaymentStatusRequest statusRequest(UpdatePaymentStatusRequest.StatusEnum status) {
+        UpdatePaymentStatusRequest request = new UpdatePaymentStatusRequest();
+        request.setStatus(status);
+        return request;
+    }
+}
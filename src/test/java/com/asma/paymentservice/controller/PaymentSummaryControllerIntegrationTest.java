@@ -0,0 +1,246 @@
+package com.asma.paymentservice.controller;
+
+import com.asma.paymentservice.dto.CreatePaymentRequest;
+import com.asma.paymentservice.dto.PaymentResponse;
+import com.asma.paymentservice.dto.PaymentStatusUpdate;
+import com.asma.paymentservice.entity.Payment;
+import com.asma.paymentservice.entity.PaymentDailyRollup;
+import com.asma.paymentservice.entity.PaymentRollupKey;
+import com.asma.paymentservice.entity.PaymentStatus;
+import com.asma.paymentservice.repository.OutboxEventRepository;
+import com.asma.paymentservice.repository.PaymentRepository;
+import com.asma.paymentservice.repository.PaymentRollupRepository;
+import com.asma.paymentservice.service.PaymentService;
+import com.asma.paymentservice.service.PaymentSummaryService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * The rollup is written when transactions commit, so this test cannot run in a rolled-back test transaction.
+ * It uses its own database so that payments of other test contexts are not counted, and a long initial delay
+ * so that the test drives the reconciler itself.
+ */
+@SpringBootTest(properties = {
+        "paymentservice.outbox.workers=0",
+        "paymentservice.summary.reconcile-initial-delay=PT1H",
+        "spring.datasource.url=jdbc:h2:mem:payment_summary_test"
+})
+@AutoConfigureMockMvc
+class PaymentSummaryControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentSummaryService paymentSummaryService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentRollupRepository paymentRollupRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        outboxEventRepository.deleteAll();
+        paymentRepository.deleteAll();
+        paymentRollupRepository.deleteAll();
+    }
+
+    @Test
+    void getPaymentSummary_ShouldReflectCreatedAndUpdatedPayments() throws Exception {
+        // Given
+        PaymentResponse approved = paymentService.createPayment(request(10.50, "USD", CreatePaymentRequest.MethodEnum.CREDIT_CARD));
+        paymentService.createPayment(request(4.50, "USD", CreatePaymentRequest.MethodEnum.CREDIT_CARD));
+        PaymentResponse failed = paymentService.createPayment(request(7.00, "EUR", CreatePaymentRequest.MethodEnum.PAYPAL));
+
+        // When
+        paymentService.updatePaymentStatus(approved.getId(), PaymentStatus.APPROVED);
+        paymentService.updatePaymentStatuses(List.of(statusUpdate(failed.getId(), PaymentStatusUpdate.StatusEnum.FAILED)));
+
+        // Then
+        String today = LocalDate.now().toString();
+        mockMvc.perform(get("/payments/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.toDate").value(today))
+                .andExpect(jsonPath("$.totalCount").value(3))
+                .andExpect(jsonPath("$.byStatus.length()").value(4))
+                .andExpect(jsonPath("$.byStatus[?(@.status == 'PENDING')].count").value(1))
+                .andExpect(jsonPath("$.byStatus[?(@.status == 'PENDING')].amounts[0].amount").value(4.50))
+                .andExpect(jsonPath("$.byStatus[?(@.status == 'APPROVED')].amounts[0].currency").value("USD"))
+                .andExpect(jsonPath("$.byStatus[?(@.status == 'FAILED')].amounts[0].amount").value(7.00))
+                .andExpect(jsonPath("$.byStatus[?(@.status == 'CANCELED')].count").value(0))
+                .andExpect(jsonPath("$.days.length()").value(3))
+                .andExpect(jsonPath("$.days[0].day").value(today));
+        mockMvc.perform(get("/payments/summary").param("currency", "EUR").param("method", "PAYPAL"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalCount").value(1))
+                .andExpect(jsonPath("$.days[0].status").value("FAILED"));
+        assertEquals(0, paymentSummaryService.reconcile(LocalDate.now(), LocalDate.now()));
+    }
+
+    @Test
+    void reconcile_ShouldCorrectPaymentsChangedOutsideTheService() throws Exception {
+        // Given - payments written directly, bypassing the rollup deltas
+        paymentService.createPayment(request(20.00, "USD", CreatePaymentRequest.MethodEnum.DEBIT_CARD));
+        Payment other = paymentRepository.save(payment(PaymentStatus.CANCELED, LocalDateTime.now().minusDays(1)));
+        paymentRepository.save(payment(PaymentStatus.APPROVED, LocalDateTime.now()));
+
+        // When
+        int corrected = paymentSummaryService.reconcile(other.getCreatedAt().toLocalDate(), LocalDate.now());
+
+        // Then
+        assertEquals(2, corrected);
+        mockMvc.perform(get("/payments/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalCount").value(3))
+                .andExpect(jsonPath("$.byStatus[?(@.status == 'CANCELED')].count").value(1))
+                .andExpect(jsonPath("$.byStatus[?(@.status == 'APPROVED')].count").value(1));
+        assertEquals(0, paymentSummaryService.reconcile(other.getCreatedAt().toLocalDate(), LocalDate.now()));
+    }
+
+    @Test
+    void reconcileRecentDays_WithEmptyRollup_ShouldBackfillFromFirstPayment() throws Exception {
+        // Given
+        LocalDateTime createdAt = LocalDateTime.now().minusDays(40);
+        paymentRepository.save(payment(PaymentStatus.APPROVED, createdAt));
+
+        // When
+        paymentSummaryService.reconcileRecentDays();
+
+        // Then
+        mockMvc.perform(get("/payments/summary")
+                        .param("fromDate", createdAt.toLocalDate().toString())
+                        .param("toDate", createdAt.toLocalDate().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalCount").value(1))
+                .andExpect(jsonPath("$.days[0].count").value(1));
+        mockMvc.perform(get("/payments/summary"))
+                .andExpect(jsonPath("$.totalCount").value(0));
+    }
+
+    @Test
+    void recordCreated_WithConcurrentFirstChangesToNewBucket_ShouldCountBoth() throws Exception {
+        // Given - a transaction that inserted a new bucket and has not committed yet
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Payment payment = payment(PaymentStatus.PENDING, LocalDateTime.now().minusDays(2));
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> first = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                paymentSummaryService.recordCreated(payment);
+                // Runs after the rollup update, which is registered first
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void beforeCommit(boolean readOnly) {
+                        inserted.countDown();
+                        await(release);
+                    }
+                });
+            }));
+            assertTrue(inserted.await(5, TimeUnit.SECONDS));
+
+            // When - another transaction changes the same bucket, and the first one commits meanwhile
+            CompletableFuture.runAsync(() -> {
+                sleep(200);
+                release.countDown();
+            });
+            transactionTemplate.executeWithoutResult(status -> paymentSummaryService.recordCreated(payment));
+            first.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then
+        PaymentDailyRollup rollup = paymentRollupRepository.findById(PaymentRollupKey.of(payment, PaymentStatus.PENDING))
+                .orElseThrow();
+        assertEquals(2, rollup.getPaymentCount());
+        assertEquals(0, new BigDecimal("24.00").compareTo(rollup.getAmount()));
+    }
+
+    @Test
+    void getPaymentSummary_WithInvalidPeriod_ShouldReturn400() throws Exception {
+        mockMvc.perform(get("/payments/summary").param("fromDate", "2024-02-01").param("toDate", "2024-01-01"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details").value("fromDate must not be after toDate"));
+        mockMvc.perform(get("/payments/summary").param("fromDate", "2023-01-01").param("toDate", "2024-01-02"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static CreatePaymentRequest request(double amount, String currency, CreatePaymentRequest.MethodEnum method) {
+        CreatePaymentRequest request = new CreatePaymentRequest();
+        request.setAmount(amount);
+        request.setCurrency(currency);
+        request.setMethod(method);
+        request.setUserId("user-summary");
+        return request;
+    }
+
+    private static Payment payment(PaymentStatus status, LocalDateTime createdAt) {
+        return Payment.builder()
+                .amount(BigDecimal.valueOf(12.00))
+                .currency("USD")
+                .method("CREDIT_CARD")
+                .status(status)
+                .userId("user-summary")
+                .createdAt(createdAt)
+                .updatedAt(createdAt)
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static PaymentStatusUpdate statusUpdate(Long id, PaymentStatusUpdate.StatusEnum status) {
+        PaymentStatusUpdate update = new PaymentStatusUpdate();
+        update.setId(id);
+        update.setStatus(status);
+        return update;
+    }
+}
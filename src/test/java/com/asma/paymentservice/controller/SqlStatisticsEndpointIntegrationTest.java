@@ -0,0 +1,90 @@
+package com.asma.paymentservice.controller;
+
+import com.asma.paymentservice.entity.Payment;
+import com.asma.paymentservice.entity.PaymentStatus;
+import com.asma.paymentservice.repository.PaymentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "paymentservice.outbox.workers=0",
+        "paymentservice.sql-stats.enabled=true",
+        "paymentservice.sql-stats.slow-threshold=PT0S",
+        "paymentservice.sql-stats.n-plus-one-threshold=10",
+        "spring.datasource.url=jdbc:h2:mem:sql_stats_test"
+})
+@AutoConfigureMockMvc
+class SqlStatisticsEndpointIntegrationTest {
+
+    private static final String FIND_BY_ID = "$.methods[?(@.method == 'PaymentRepository.findById')]";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void tearDown() {
+        paymentRepository.deleteAll();
+    }
+
+    @Test
+    void sqlStats_ShouldAttributeStatementsToRepositoryMethodsAndFlagRepeatedStatements() throws Exception {
+        // Given
+        List<Long> ids = paymentRepository.saveAll(IntStream.range(0, 12).mapToObj(i -> payment()).collect(Collectors.toList()))
+                .stream().map(Payment::getId).collect(Collectors.toList());
+        mockMvc.perform(delete("/actuator/sqlstats")).andExpect(status().isNoContent());
+
+        // When - one lookup per payment in a single transaction
+        transactionTemplate.executeWithoutResult(status -> ids.forEach(paymentRepository::findById));
+
+        // Then
+        mockMvc.perform(get("/actuator/sqlstats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nPlusOneThreshold").value(10))
+                .andExpect(jsonPath(FIND_BY_ID + ".invocations").value(hasItem(12)))
+                .andExpect(jsonPath(FIND_BY_ID + ".statements").value(hasItem(12)))
+                .andExpect(jsonPath(FIND_BY_ID + ".rows").value(hasItem(12)))
+                .andExpect(jsonPath(FIND_BY_ID + ".slowStatements").value(hasItem(12)))
+                .andExpect(jsonPath(FIND_BY_ID + ".nPlusOneSuspects").value(hasItem(1)))
+                .andExpect(jsonPath("$.hibernate.entityLoads").value(12));
+
+        mockMvc.perform(delete("/actuator/sqlstats")).andExpect(status().isNoContent());
+        mockMvc.perform(get("/actuator/sqlstats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(FIND_BY_ID).value(empty()));
+    }
+
+    private static Payment payment() {
+        return Payment.builder()
+                .amount(BigDecimal.valueOf(25.00))
+                .currency("USD")
+                .method("CREDIT_CARD")
+                .status(PaymentStatus.PENDING)
+                .userId("user-sql")
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+}
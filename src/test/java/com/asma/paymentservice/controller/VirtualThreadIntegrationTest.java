@@ -0,0 +1,57 @@
+package com.asma.paymentservice.controller;
+
+import com.asma.paymentservice.config.VirtualThreadConfig;
+import com.asma.paymentservice.service.VirtualThreads;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs on a real Tomcat, whose executor is the one replaced. On runtimes without virtual threads the flag must be
+ * ignored: the application starts and serves requests on platform threads with the default pool settings.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "paymentservice.outbox.workers=0",
+        "paymentservice.virtual-threads.enabled=true",
+        "paymentservice.virtual-threads.connection-timeout=PT3S",
+        "spring.datasource.url=jdbc:h2:mem:virtual_threads_test"
+})
+class VirtualThreadIntegrationTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void requests_ShouldBeServedWithVirtualThreadsEnabled() {
+        // When
+        ResponseEntity<String> response = restTemplate.getForEntity("/payments?size=5", String.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(applicationContext.getBean(VirtualThreadConfig.class));
+    }
+
+    @Test
+    void connectionTimeout_ShouldBeCappedOnlyWhenVirtualThreadsRun() {
+        // When
+        long connectionTimeout = ((HikariDataSource) dataSource).getConnectionTimeout();
+
+        // Then
+        assertEquals(VirtualThreads.isSupported() ? 3000 : 30000, connectionTimeout);
+    }
+}
@@ -0,0 +1,76 @@
+package com.asma.paymentservice.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the H2 query planner picks the composite indexes declared on
+ * {@link com.asma.paymentservice.entity.Payment} and {@link com.asma.paymentservice.entity.Invoice}
+ * for the SQL shapes generated by the repository methods.
+ */
+@SpringBootTest
+class QueryPlanIndexTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void findByOrderIdAndUserIdAndStatus_ShouldUseOrderUserStatusIndex() {
+        assertPlanUses("idx_payment_order_user_status",
+                "SELECT * FROM payment WHERE order_id = 'o1' AND user_id = 'u1' AND status = 'PENDING'");
+    }
+
+    @Test
+    void listPaymentsByUserId_ShouldUseUserCreatedIndex() {
+        assertPlanUses("idx_payment_user_created",
+                "SELECT * FROM payment WHERE user_id = 'u1' ORDER BY created_at DESC, id DESC LIMIT 20");
+    }
+
+    @Test
+    void listPaymentsByStatus_ShouldUseStatusCreatedIndex() {
+        assertPlanUses("idx_payment_status_created",
+                "SELECT * FROM payment WHERE status = 'APPROVED' ORDER BY created_at DESC, id DESC LIMIT 20");
+    }
+
+    @Test
+    void listAllPayments_ShouldUseCreatedIndex() {
+        assertPlanUses("idx_payment_created",
+                "SELECT * FROM payment ORDER BY created_at DESC, id DESC LIMIT 20");
+    }
+
+    @Test
+    void findInvoiceByPaymentId_ShouldUsePaymentIndex() {
+        assertPlanUses("uk_invoice_payment",
+                "SELECT * FROM invoice WHERE payment_id = 1");
+    }
+
+    @Test
+    void listInvoicesByUserId_ShouldUseUserIssuedIndex() {
+        assertPlanUses("idx_invoice_user_issued",
+                "SELECT * FROM invoice WHERE user_id = 'u1' ORDER BY issue_date DESC, id DESC LIMIT 20");
+    }
+
+    @Test
+    void listInvoicesByStatus_ShouldUseStatusIssuedIndex() {
+        assertPlanUses("idx_invoice_status_issued",
+                "SELECT * FROM invoice WHERE status = 'CREATED' ORDER BY issue_date DESC, id DESC LIMIT 20");
+    }
+
+    @Test
+    void listAllInvoices_ShouldUseIssuedIndex() {
+        assertPlanUses("idx_invoice_issued",
+                "SELECT * FROM invoice ORDER BY issue_date DESC, id DESC LIMIT 20");
+    }
+
+    private void assertPlanUses(String indexName, String sql) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+        assertTrue(plan != null && plan.toLowerCase(Locale.ROOT).contains(indexName),
+                () -> "Expected plan to use " + indexName + " but was:\n" + plan);
+    }
+}
@@ -0,0 +1,61 @@
+package com.asma.paymentservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void mightContain_InsertedValues_ShouldAlwaysReturnTrue() {
+        // Given
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("order-" + i);
+        }
+
+        // Then - no false negatives
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("order-" + i));
+        }
+        assertEquals(10_000, filter.insertions());
+    }
+
+    @Test
+    void mightContain_UnseenValues_ShouldStayNearConfiguredFalsePositiveRate() {
+        // Given
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("order-" + i);
+        }
+
+        // When
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        // Then
+        assertTrue(falsePositives < 2_000, "Too many false positives: " + falsePositives);
+        assertTrue(filter.expectedFalsePositiveRate() < 0.02);
+    }
+
+    @Test
+    void create_ShouldSizeFromExpectedInsertionsAndRate() {
+        // When
+        BloomFilter filter = BloomFilter.create(1_000_000, 0.01);
+
+        // Then - about 9.6 bits and 7 hashes per value
+        assertTrue(filter.bitCount() >= 9_585_059L && filter.bitCount() < 9_585_059L + 64);
+        assertEquals(7, filter.hashCount());
+    }
+
+    @Test
+    void create_WithInvalidFalsePositiveRate_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> BloomFilter.create(100, 0));
+        assertThrows(IllegalArgumentException.class, () -> BloomFilter.create(100, 1));
+        assertThrows(IllegalArgumentException.class, () -> BloomFilter.create(0, 0.01));
+    }
+}
@@ -0,0 +1,57 @@
+package com.asma.paymentservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExportWriterTest {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    @Test
+    void csv_ShouldWriteHeaderAndQuoteFieldsThatNeedIt() throws Exception {
+        // Given
+        LinkedHashMap<String, Function<List<Object>, Object>> columns = new LinkedHashMap<>();
+        columns.put("amount", row -> row.get(0));
+        columns.put("userId", row -> row.get(1));
+        columns.put("createdAt", row -> row.get(2));
+        ExportWriter<List<Object>> writer = ExportWriter.csv(out, columns);
+
+        // When
+        writer.write(List.of(new BigDecimal("1E+7"), "plain", OffsetDateTime.of(2025, 1, 2, 3, 4, 0, 0, ZoneOffset.UTC)));
+        writer.write(Arrays.asList(BigDecimal.ONE, "a,\"b\"", null));
+        writer.finish();
+
+        // Then
+        assertEquals("amount,userId,createdAt\r\n"
+                        + "10000000,plain,2025-01-02T03:04:00Z\r\n"
+                        + "1,\"a,\"\"b\"\"\",\r\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void ndjson_ShouldWriteOneJsonObjectPerLine() throws Exception {
+        // Given
+        ExportWriter<Integer> writer = ExportWriter.ndjson(out, new ObjectMapper(), id -> Map.of("id", id));
+
+        // When
+        writer.write(1);
+        writer.write(2);
+        writer.finish();
+
+        // Then
+        assertEquals("{\"id\":1}\n{\"id\":2}\n", out.toString(StandardCharsets.UTF_8));
+    }
+}
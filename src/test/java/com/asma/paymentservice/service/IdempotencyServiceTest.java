@@ -0,0 +1,253 @@
+package com.asma.paymentservice.service;
+
+import com.asma.paymentservice.config.JacksonConfig;
+import com.asma.paymentservice.dto.CreatePaymentRequest;
+import com.asma.paymentservice.dto.PaymentResponse;
+import com.asma.paymentservice.entity.IdempotencyRecord;
+import com.asma.paymentservice.exception.IdempotencyKeyReuseException;
+import com.asma.paymentservice.exception.InvalidPaymentRequestException;
+import com.asma.paymentservice.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    private static final String KEY = "key-123";
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new JacksonConfig().objectMapper(Jackson2ObjectMapperBuilder.json());
+    private final AtomicInteger executions = new AtomicInteger();
+    private final ServiceMetrics serviceMetrics = new ServiceMetrics(new SimpleMeterRegistry());
+
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = newService();
+    }
+
+    @Test
+    void execute_FirstRequest_ShouldRunActionAndRecordKey() {
+        // Given
+        when(idempotencyRecordRepository.findById(KEY)).thenReturn(Optional.empty());
+
+        // When
+        IdempotencyService.Result<PaymentResponse> result = execute(request(10.0), 1L);
+
+        // Then
+        assertFalse(result.isReplayed());
+        assertEquals(1L, result.getBody().getId());
+        assertEquals(1, executions.get());
+        ArgumentCaptor<IdempotencyRecord> captor = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(idempotencyRecordRepository).saveAndFlush(captor.capture());
+        assertEquals(KEY, captor.getValue().getIdempotencyKey());
+        assertEquals(64, captor.getValue().getRequestHash().length());
+        assertTrue(captor.getValue().getExpiresAt().isAfter(LocalDateTime.now().plusHours(23)));
+    }
+
+    @Test
+    void execute_RepeatedRequest_ShouldReplayFromMemoryWithoutDatabase() {
+        // Given
+        when(idempotencyRecordRepository.findById(KEY)).thenReturn(Optional.empty());
+        execute(request(10.0), 1L);
+
+        // When
+        IdempotencyService.Result<PaymentResponse> result = execute(request(10.0), 2L);
+
+        // Then
+        assertTrue(result.isReplayed());
+        assertEquals(1L, result.getBody().getId());
+        assertEquals(1, executions.get());
+        assertEquals(1, serviceMetrics.getIdempotencyKeyReplays().count());
+        verify(idempotencyRecordRepository, times(1)).findById(KEY);
+        verify(idempotencyRecordRepository, times(1)).saveAndFlush(any());
+    }
+
+    @Test
+    void execute_KeyRecordedByEarlierInstance_ShouldReplayStoredResponse() {
+        // Given - Record written by another node (or before a restart)
+        when(idempotencyRecordRepository.findById(KEY)).thenReturn(Optional.empty());
+        execute(request(10.0), 1L);
+        ArgumentCaptor<IdempotencyRecord> captor = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(idempotencyRecordRepository).saveAndFlush(captor.capture());
+        when(idempotencyRecordRepository.findById(KEY)).thenReturn(Optional.of(captor.getValue()));
+        IdempotencyService restarted = newService();
+
+        // When
+        IdempotencyService.Result<PaymentResponse> result = restarted.execute(KEY, request(10.0), PaymentResponse.class, () -> created(2L));
+
+        // Then
+        assertTrue(result.isReplayed());
+        assertEquals(1L, result.getBody().getId());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_SameKeyWithDifferentRequest_ShouldThrowException() {
+        // Given
+        when(idempotencyRecordRepository.findById(KEY)).thenReturn(Optional.empty());
+        execute(request(10.0), 1L);
+
+        // When/Then
+        assertThrows(IdempotencyKeyReuseException.class, () -> execute(request(99.0), 2L));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_ConcurrentDuplicates_ShouldRunActionOnce() throws Exception {
+        // Given - The first request blocks until all duplicates are waiting
+        when(idempotencyRecordRepository.findById(KEY)).thenReturn(Optional.empty());
+        int callers = 8;
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        List<Callable<IdempotencyService.Result<PaymentResponse>>> tasks = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            long id = i + 1;
+            tasks.add(() -> idempotencyService.execute(KEY, request(10.0), PaymentResponse.class, () -> {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return created(id);
+            }));
+        }
+
+        // When
+        List<Future<IdempotencyService.Result<PaymentResponse>>> futures = new ArrayList<>();
+        try {
+            for (Callable<IdempotencyService.Result<PaymentResponse>> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            Thread.sleep(200);
+            release.countDown();
+
+            // Then
+            Long firstId = null;
+            int replayed = 0;
+            for (Future<IdempotencyService.Result<PaymentResponse>> future : futures) {
+                IdempotencyService.Result<PaymentResponse> result = future.get(5, TimeUnit.SECONDS);
+                firstId = firstId == null ? result.getBody().getId() : firstId;
+                assertEquals(firstId, result.getBody().getId());
+                replayed += result.isReplayed() ? 1 : 0;
+            }
+            assertEquals(1, executions.get());
+            assertEquals(callers - 1, replayed);
+            verify(idempotencyRecordRepository, times(1)).saveAndFlush(any());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void execute_KeyRecordedConcurrentlyByAnotherNode_ShouldReplayWinner() {
+        // Given - Our insert hits the primary key of a record committed by another node
+        IdempotencyRecord[] winner = new IdempotencyRecord[1];
+        when(idempotencyRecordRepository.findById(KEY))
+                .thenReturn(Optional.empty())
+                .thenAnswer(invocation -> Optional.of(winner[0]));
+        when(idempotencyRecordRepository.saveAndFlush(any())).thenAnswer(invocation -> {
+            IdempotencyRecord ours = invocation.getArgument(0);
+            winner[0] = IdempotencyRecord.builder()
+                    .idempotencyKey(KEY)
+                    .requestHash(ours.getRequestHash())
+                    .responseBody(objectMapper.writeValueAsString(created(7L)))
+                    .createdAt(ours.getCreatedAt())
+                    .expiresAt(ours.getExpiresAt())
+                    .build();
+            throw new DataIntegrityViolationException("duplicate key");
+        });
+
+        // When
+        IdempotencyService.Result<PaymentResponse> result = execute(request(10.0), 1L);
+
+        // Then
+        assertTrue(result.isReplayed());
+        assertEquals(7L, result.getBody().getId());
+    }
+
+    @Test
+    void execute_ActionFails_ShouldNotRecordKey() {
+        // Given
+        when(idempotencyRecordRepository.findById(KEY)).thenReturn(Optional.empty());
+
+        // When
+        assertThrows(InvalidPaymentRequestException.class, () -> idempotencyService.execute(KEY, request(10.0), PaymentResponse.class, () -> {
+            throw new InvalidPaymentRequestException("Amount must be greater than 0");
+        }));
+        IdempotencyService.Result<PaymentResponse> retry = execute(request(10.0), 1L);
+
+        // Then - The retry runs the action again
+        assertFalse(retry.isReplayed());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void purgeExpired_ShouldDeleteExpiredRecords() {
+        // When
+        idempotencyService.purgeExpired();
+
+        // Then
+        verify(idempotencyRecordRepository).deleteExpired(any(LocalDateTime.class));
+    }
+
+    private IdempotencyService newService() {
+        return new IdempotencyService(idempotencyRecordRepository, transactionManager, objectMapper,
+                Duration.ofHours(24), 100, Duration.ofSeconds(5), serviceMetrics);
+    }
+
+    private IdempotencyService.Result<PaymentResponse> execute(CreatePaymentRequest request, long id) {
+        return idempotencyService.execute(KEY, request, PaymentResponse.class, () -> created(id));
+    }
+
+    private PaymentResponse created(long id) {
+        executions.incrementAndGet();
+        PaymentResponse response = new PaymentResponse();
+        response.setId(id);
+        response.setAmount(10.0);
+        response.setCurrency("USD");
+        response.setStatus(PaymentResponse.StatusEnum.PENDING);
+        return response;
+    }
+
+    private CreatePaymentRequest request(double amount) {
+        CreatePaymentRequest request = new CreatePaymentRequest();
+        request.setAmount(amount);
+        request.setCurrency("USD");
+        request.setMethod(CreatePaymentRequest.MethodEnum.CREDIT_CARD);
+        request.setUserId("user123");
+        return request;
+    }
+}
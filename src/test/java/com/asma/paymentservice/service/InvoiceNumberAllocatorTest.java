@@ -0,0 +1,156 @@
+package com.asma.paymentservice.service;
+
+import com.asma.paymentservice.repository.NumberSequenceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InvoiceNumberAllocatorTest {
+
+    private static final String SEQUENCE = InvoiceNumberAllocator.SEQUENCE_NAME;
+
+    @Mock
+    private NumberSequenceRepository numberSequenceRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicLong counter = new AtomicLong(1);
+
+    @BeforeEach
+    void setUp() {
+        // Simulate the counter row: advance() adds the block size, currentValue() reads it back
+        lenient().when(numberSequenceRepository.advance(eq(SEQUENCE), anyLong()))
+                .thenAnswer(invocation -> {
+                    counter.addAndGet(invocation.getArgument(1));
+                    return 1;
+                });
+        lenient().when(numberSequenceRepository.currentValue(SEQUENCE)).thenAnswer(invocation -> counter.get());
+    }
+
+    @Test
+    void next_ShouldHandOutConsecutiveNumbersFromOneBlock() {
+        // Given
+        InvoiceNumberAllocator allocator = new InvoiceNumberAllocator(numberSequenceRepository, transactionManager, 10);
+
+        // When
+        List<Long> numbers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            numbers.add(allocator.next());
+        }
+
+        // Then
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L), numbers);
+        verify(numberSequenceRepository, times(1)).advance(SEQUENCE, 10L);
+    }
+
+    @Test
+    void next_WhenBlockExhausted_ShouldReserveNextBlock() {
+        // Given
+        InvoiceNumberAllocator allocator = new InvoiceNumberAllocator(numberSequenceRepository, transactionManager, 5);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            allocator.next();
+        }
+        long sixth = allocator.next();
+
+        // Then
+        assertEquals(6L, sixth);
+        verify(numberSequenceRepository, times(2)).advance(SEQUENCE, 5L);
+    }
+
+    @Test
+    void next_WhenSequenceMissing_ShouldInitializeCounter() {
+        // Given
+        doReturn(0)
+                .doAnswer(invocation -> {
+                    counter.addAndGet(10L);
+                    return 1;
+                })
+                .when(numberSequenceRepository).advance(SEQUENCE, 10L);
+        InvoiceNumberAllocator allocator = new InvoiceNumberAllocator(numberSequenceRepository, transactionManager, 10);
+
+        // When
+        long first = allocator.next();
+
+        // Then
+        assertEquals(1L, first);
+        verify(numberSequenceRepository, times(1)).create(SEQUENCE, 1L);
+    }
+
+    @Test
+    void next_WhenSequenceCreatedConcurrently_ShouldRetryAdvance() {
+        // Given
+        doReturn(0)
+                .doAnswer(invocation -> {
+                    counter.addAndGet(10L);
+                    return 1;
+                })
+                .when(numberSequenceRepository).advance(SEQUENCE, 10L);
+        when(numberSequenceRepository.create(SEQUENCE, 1L)).thenThrow(new DataIntegrityViolationException("duplicate"));
+        InvoiceNumberAllocator allocator = new InvoiceNumberAllocator(numberSequenceRepository, transactionManager, 10);
+
+        // When
+        long first = allocator.next();
+
+        // Then
+        assertEquals(1L, first);
+    }
+
+    @Test
+    void next_WithConcurrentCallers_ShouldNeverReturnDuplicates() throws Exception {
+        // Given
+        InvoiceNumberAllocator allocator = new InvoiceNumberAllocator(numberSequenceRepository, transactionManager, 7);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Callable<List<Long>>> tasks = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            tasks.add(() -> {
+                List<Long> numbers = new ArrayList<>();
+                for (int i = 0; i < 500; i++) {
+                    numbers.add(allocator.next());
+                }
+                return numbers;
+            });
+        }
+
+        // When
+        Set<Long> all = new HashSet<>();
+        try {
+            for (Future<List<Long>> future : executor.invokeAll(tasks)) {
+                all.addAll(future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then
+        assertEquals(8 * 500, all.size());
+    }
+
+    @Test
+    void constructor_WithInvalidBlockSize_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new InvoiceNumberAllocator(numberSequenceRepository, transactionManager, 0));
+    }
+}
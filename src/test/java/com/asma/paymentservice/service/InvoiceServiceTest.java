@@ -1,6 +1,8 @@
 package com.asma.paymentservice.service;
 
+import com.asma.paymentservice.dto.InvoiceResponse;
 import com.asma.paymentservice.entity.Invoice;
+import com.asma.paymentservice.entity.InvoiceRollupKey;
 import com.asma.paymentservice.entity.InvoiceStatus;
 import com.asma.paymentservice.entity.Payment;
 import com.asma.paymentservice.entity.PaymentStatus;
@@ -9,19 +11,26 @@ import com.asma.paymentservice.exception.InvalidStatusTransitionException;
 import com.asma.paymentservice.exception.InvoiceNotFoundException;
 import com.asma.paymentservice.exception.PaymentNotFoundException;
 import com.asma.paymentservice.repository.InvoiceRepository;
+import com.asma.paymentservice.repository.InvoiceSpecifications;
 import com.asma.paymentservice.repository.PaymentRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -29,6 +38,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,7 +50,24 @@ class InvoiceServiceTest {
     @Mock
     private PaymentRepository paymentRepository;
 
-    @InjectMocks
+    @Mock
+    private InvoiceNumberAllocator invoiceNumberAllocator;
+
+    @Spy
+    private ResponseCache<InvoiceResponse> invoiceResponseCache =
+            new ResponseCache<>("invoices", 100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+    @Mock
+    private MissingIdCache missingInvoices;
+
+    @Mock
+    private MissingIdCache missingInvoicesByPayment;
+
+    @Mock
+    private InvoiceSummaryService invoiceSummaryService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     private InvoiceService invoiceService;
 
     private Payment approvedPayment;
@@ -48,6 +75,11 @@ class InvoiceServiceTest {
 
     @BeforeEach
     void setUp() {
+        // Explicit wiring: the two MissingIdCache mocks have the same type
+        invoiceService = new InvoiceService(invoiceRepository, paymentRepository, invoiceNumberAllocator,
+                invoiceResponseCache, missingInvoices, missingInvoicesByPayment, invoiceSummaryService,
+                new ServiceMetrics(meterRegistry), new ObjectMapper());
+
         approvedPayment = Payment.builder()
                 .id(1L)
                 .amount(BigDecimal.valueOf(99.99))
@@ -77,7 +109,7 @@ class InvoiceServiceTest {
     void createInvoiceFromPayment_WithValidPayment_ShouldCreateInvoice() {
         // Given
         when(invoiceRepository.existsByPaymentId(1L)).thenReturn(false);
-        when(invoiceRepository.save(any(Invoice.class))).thenAnswer(invocation -> {
+        when(invoiceRepository.saveAndFlush(any(Invoice.class))).thenAnswer(invocation -> {
             Invoice invoice = invocation.getArgument(0);
             invoice.setId(1L);
             return invoice;
@@ -100,7 +132,50 @@ class InvoiceServiceTest {
         assertTrue(invoice.getInvoiceNumber().startsWith("INV-"));
 
         verify(invoiceRepository, times(1)).existsByPaymentId(1L);
-        verify(invoiceRepository, times(1)).save(any(Invoice.class));
+        verify(invoiceRepository, times(1)).saveAndFlush(any(Invoice.class));
+        verify(invoiceSummaryService).recordCreated(invoice);
+    }
+
+    @Test
+    void createInvoicesFromPayments_ShouldSkipInvoicedAndNonApprovedPayments() {
+        // Given - payment 3 is already invoiced, payment 2 is PENDING
+        Payment invoicedPayment = Payment.builder()
+                .id(3L)
+                .amount(BigDecimal.TEN)
+                .currency("USD")
+                .method("CREDIT_CARD")
+                .status(PaymentStatus.APPROVED)
+                .userId("user789")
+                .build();
+        List<Long> paymentIds = List.of(1L, 2L, 3L);
+        when(invoiceRepository.findInvoicedPaymentIds(paymentIds)).thenReturn(List.of(3L));
+        when(paymentRepository.findAllById(paymentIds)).thenReturn(List.of(approvedPayment, pendingPayment, invoicedPayment));
+        when(invoiceRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Invoice> saved = invocation.getArgument(0);
+            saved.forEach(invoice -> invoice.setId(10L + invoice.getPaymentId()));
+            return saved;
+        });
+
+        // When
+        List<Invoice> invoices = invoiceService.createInvoicesFromPayments(paymentIds);
+
+        // Then
+        assertEquals(1, invoices.size());
+        assertEquals(1L, invoices.get(0).getPaymentId());
+        assertEquals(InvoiceStatus.CREATED, invoices.get(0).getStatus());
+        assertTrue(invoices.get(0).getInvoiceNumber().startsWith("INV-"));
+        verify(invoiceRepository, never()).existsByPaymentId(any());
+        verify(invoiceRepository, never()).saveAndFlush(any(Invoice.class));
+    }
+
+    @Test
+    void createInvoicesFromPayments_WithNoPayments_ShouldNotQuery() {
+        // When
+        List<Invoice> invoices = invoiceService.createInvoicesFromPayments(List.of());
+
+        // Then
+        assertTrue(invoices.isEmpty());
+        verifyNoInteractions(invoiceRepository, paymentRepository);
     }
 
     @Test
@@ -129,7 +204,7 @@ class InvoiceServiceTest {
         assertEquals(1L, invoice.getId());
         assertEquals("INV-EXISTING", invoice.getInvoiceNumber());
         verify(invoiceRepository, times(1)).existsByPaymentId(1L);
-        verify(invoiceRepository, never()).save(any(Invoice.class));
+        verify(invoiceRepository, never()).saveAndFlush(any(Invoice.class));
     }
 
     @Test
@@ -158,6 +233,65 @@ class InvoiceServiceTest {
         verify(invoiceRepository, times(1)).findById(1L);
     }
 
+    @Test
+    void getInvoiceResponseById_CalledRepeatedly_ShouldQueryDatabaseOnceUntilStatusChanges() {
+        // Given
+        Invoice invoice = Invoice.builder()
+                .id(1L)
+                .invoiceNumber("INV-001")
+                .paymentId(1L)
+                .userId("user123")
+                .amount(BigDecimal.valueOf(99.99))
+                .currency("USD")
+                .status(InvoiceStatus.CREATED)
+                .issueDate(LocalDate.now())
+                .build();
+        when(invoiceRepository.findById(1L)).thenReturn(Optional.of(invoice));
+        when(invoiceRepository.updateStatus(eq(1L), any(), any(), any(), any(), any())).thenReturn(1);
+
+        // When
+        InvoiceResponse first = invoiceService.getInvoiceResponseById(1L);
+        InvoiceResponse second = invoiceService.getInvoiceResponseById(1L);
+        invoiceService.updateInvoiceStatus(1L, InvoiceStatus.SENT);
+        InvoiceResponse afterUpdate = invoiceService.getInvoiceResponseById(1L);
+
+        // Then
+        assertSame(first, second);
+        assertEquals(InvoiceResponse.StatusEnum.SENT, afterUpdate.getStatus());
+        // Two cache loads and the read in updateInvoiceStatus
+        verify(invoiceRepository, times(3)).findById(1L);
+    }
+
+    @Test
+    void getInvoiceByPaymentId_WithPaymentKnownToHaveNoInvoice_ShouldNotQueryDatabase() {
+        // Given
+        when(missingInvoicesByPayment.isKnownMissing(5L)).thenReturn(true);
+
+        // When & Then
+        assertThrows(InvoiceNotFoundException.class, () -> invoiceService.getInvoiceByPaymentId(5L));
+        verify(invoiceRepository, never()).findByPaymentId(any());
+        verify(missingInvoices, never()).isKnownMissing(any());
+    }
+
+    @Test
+    void createInvoiceFromPayment_ShouldForgetMissingInvoiceForPayment() {
+        // Given
+        when(invoiceRepository.existsByPaymentId(1L)).thenReturn(false);
+        when(invoiceNumberAllocator.next()).thenReturn(1L);
+        when(invoiceRepository.saveAndFlush(any(Invoice.class))).thenAnswer(invocation -> {
+            Invoice saved = invocation.getArgument(0);
+            saved.setId(7L);
+            return saved;
+        });
+
+        // When
+        invoiceService.createInvoiceFromPayment(approvedPayment);
+
+        // Then
+        verify(missingInvoices).recordCreated(7L);
+        verify(missingInvoicesByPayment).recordCreated(1L);
+    }
+
     @Test
     void getInvoiceById_WithNonExistingId_ShouldThrowException() {
         // Given
@@ -166,6 +300,7 @@ class InvoiceServiceTest {
         // When & Then
         assertThrows(InvoiceNotFoundException.class, () -> invoiceService.getInvoiceById(1L));
         verify(invoiceRepository, times(1)).findById(1L);
+        verify(missingInvoices).recordMissing(1L);
     }
 
     @Test
@@ -209,7 +344,7 @@ class InvoiceServiceTest {
         // Given
         when(paymentRepository.findById(1L)).thenReturn(Optional.of(approvedPayment));
         when(invoiceRepository.existsByPaymentId(1L)).thenReturn(false);
-        when(invoiceRepository.save(any(Invoice.class))).thenAnswer(invocation -> {
+        when(invoiceRepository.saveAndFlush(any(Invoice.class))).thenAnswer(invocation -> {
             Invoice invoice = invocation.getArgument(0);
             invoice.setId(1L);
             return invoice;
@@ -224,7 +359,7 @@ class InvoiceServiceTest {
         assertEquals(1L, invoice.getPaymentId());
         verify(paymentRepository, times(1)).findById(1L);
         verify(invoiceRepository, times(1)).existsByPaymentId(1L);
-        verify(invoiceRepository, times(1)).save(any(Invoice.class));
+        verify(invoiceRepository, times(1)).saveAndFlush(any(Invoice.class));
     }
 
     @Test
@@ -235,7 +370,7 @@ class InvoiceServiceTest {
         // When & Then
         assertThrows(InvalidInvoiceRequestException.class, () -> invoiceService.createInvoiceManually(2L));
         verify(paymentRepository, times(1)).findById(2L);
-        verify(invoiceRepository, never()).save(any(Invoice.class));
+        verify(invoiceRepository, never()).saveAndFlush(any(Invoice.class));
     }
 
     @Test
@@ -246,7 +381,7 @@ class InvoiceServiceTest {
         // When & Then
         assertThrows(PaymentNotFoundException.class, () -> invoiceService.createInvoiceManually(999L));
         verify(paymentRepository, times(1)).findById(999L);
-        verify(invoiceRepository, never()).save(any(Invoice.class));
+        verify(invoiceRepository, never()).saveAndFlush(any(Invoice.class));
     }
 
     @Test
@@ -259,7 +394,7 @@ class InvoiceServiceTest {
         assertThrows(InvalidInvoiceRequestException.class, () -> invoiceService.createInvoiceManually(1L));
         verify(paymentRepository, times(1)).findById(1L);
         verify(invoiceRepository, times(1)).existsByPaymentId(1L);
-            verify(invoiceRepository, never()).save(any(Invoice.class));
+            verify(invoiceRepository, never()).saveAndFlush(any(Invoice.class));
     }
 
     @Test
@@ -277,7 +412,7 @@ class InvoiceServiceTest {
                 .build();
 
         when(invoiceRepository.findById(1L)).thenReturn(Optional.of(invoice));
-        when(invoiceRepository.save(any(Invoice.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(invoiceRepository.updateStatus(eq(1L), any(), any(), any(), any(), any())).thenReturn(1);
 
         // When
         Invoice updated = invoiceService.updateInvoiceStatus(1L, InvoiceStatus.SENT);
@@ -288,7 +423,9 @@ class InvoiceServiceTest {
         assertNotNull(updated.getSentAt());
         assertEquals(LocalDate.now(), updated.getSentAt());
         verify(invoiceRepository, times(1)).findById(1L);
-        verify(invoiceRepository, times(1)).save(any(Invoice.class));
+        verify(invoiceRepository, times(1)).updateStatus(eq(1L), eq(InvoiceStatus.CREATED), eq(InvoiceStatus.SENT), eq(LocalDate.now()), isNull(), isNull());
+        verify(invoiceSummaryService).recordStatusChange(
+                InvoiceRollupKey.of(invoice, InvoiceStatus.CREATED), InvoiceStatus.SENT, BigDecimal.valueOf(99.99));
     }
 
     @Test
@@ -306,7 +443,7 @@ class InvoiceServiceTest {
                 .build();
 
         when(invoiceRepository.findById(1L)).thenReturn(Optional.of(invoice));
-        when(invoiceRepository.save(any(Invoice.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(invoiceRepository.updateStatus(eq(1L), any(), any(), any(), any(), any())).thenReturn(1);
 
         // When
         Invoice updated = invoiceService.updateInvoiceStatus(1L, InvoiceStatus.PAID);
@@ -317,7 +454,7 @@ class InvoiceServiceTest {
         assertNotNull(updated.getPaidAt());
         assertEquals(LocalDate.now(), updated.getPaidAt());
         verify(invoiceRepository, times(1)).findById(1L);
-        verify(invoiceRepository, times(1)).save(any(Invoice.class));
+        verify(invoiceRepository, times(1)).updateStatus(eq(1L), eq(InvoiceStatus.CREATED), eq(InvoiceStatus.PAID), isNull(), eq(LocalDate.now()), isNull());
     }
 
     @Test
@@ -335,7 +472,7 @@ class InvoiceServiceTest {
                 .build();
 
         when(invoiceRepository.findById(1L)).thenReturn(Optional.of(invoice));
-        when(invoiceRepository.save(any(Invoice.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(invoiceRepository.updateStatus(eq(1L), any(), any(), any(), any(), any())).thenReturn(1);
 
         // When
         Invoice updated = invoiceService.updateInvoiceStatus(1L, InvoiceStatus.CANCELLED);
@@ -346,7 +483,7 @@ class InvoiceServiceTest {
         assertNotNull(updated.getCancelledAt());
         assertEquals(LocalDate.now(), updated.getCancelledAt());
         verify(invoiceRepository, times(1)).findById(1L);
-        verify(invoiceRepository, times(1)).save(any(Invoice.class));
+        verify(invoiceRepository, times(1)).updateStatus(eq(1L), eq(InvoiceStatus.CREATED), eq(InvoiceStatus.CANCELLED), isNull(), isNull(), eq(LocalDate.now()));
     }
 
     @Test
@@ -365,7 +502,7 @@ class InvoiceServiceTest {
                 .build();
 
         when(invoiceRepository.findById(1L)).thenReturn(Optional.of(invoice));
-        when(invoiceRepository.save(any(Invoice.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(invoiceRepository.updateStatus(eq(1L), any(), any(), any(), any(), any())).thenReturn(1);
 
         // When
         Invoice updated = invoiceService.updateInvoiceStatus(1L, InvoiceStatus.PAID);
@@ -376,7 +513,7 @@ class InvoiceServiceTest {
         assertNotNull(updated.getPaidAt());
         assertEquals(LocalDate.now(), updated.getPaidAt());
         verify(invoiceRepository, times(1)).findById(1L);
-        verify(invoiceRepository, times(1)).save(any(Invoice.class));
+        verify(invoiceRepository, times(1)).updateStatus(eq(1L), eq(InvoiceStatus.SENT), eq(InvoiceStatus.PAID), eq(LocalDate.now().minusDays(1)), eq(LocalDate.now()), isNull());
     }
 
     @Test
@@ -387,7 +524,35 @@ class InvoiceServiceTest {
         // When & Then
         assertThrows(InvoiceNotFoundException.class, () -> invoiceService.updateInvoiceStatus(1L, InvoiceStatus.SENT));
         verify(invoiceRepository, times(1)).findById(1L);
-        verify(invoiceRepository, never()).save(any(Invoice.class));
+        verify(invoiceRepository, never()).updateStatus(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void updateInvoiceStatus_WhenChangedConcurrently_ShouldThrowException() {
+        // Given - the invoice is read as CREATED but another request marks it PAID before our update
+        Invoice invoice = Invoice.builder()
+                .id(1L)
+                .invoiceNumber("INV-001")
+                .paymentId(1L)
+                .userId("user123")
+                .amount(BigDecimal.valueOf(99.99))
+                .currency("USD")
+                .status(InvoiceStatus.CREATED)
+                .issueDate(LocalDate.now())
+                .build();
+        Invoice paid = Invoice.builder()
+                .id(1L)
+                .status(InvoiceStatus.PAID)
+                .paidAt(LocalDate.now())
+                .build();
+
+        when(invoiceRepository.findById(1L)).thenReturn(Optional.of(invoice), Optional.of(paid));
+        when(invoiceRepository.updateStatus(eq(1L), eq(InvoiceStatus.CREATED), eq(InvoiceStatus.CANCELLED), any(), any(), any())).thenReturn(0);
+
+        // When & Then
+        InvalidStatusTransitionException exception = assertThrows(InvalidStatusTransitionException.class,
+                () -> invoiceService.updateInvoiceStatus(1L, InvoiceStatus.CANCELLED));
+        assertTrue(exception.getMessage().contains("Cannot transition from terminal state PAID"));
     }
 
     @Test
@@ -419,6 +584,9 @@ class InvoiceServiceTest {
         // When & Then
         assertThrows(InvalidStatusTransitionException.class, 
                 () -> invoiceService.validateStatusTransition(1L, InvoiceStatus.SENT, InvoiceStatus.CREATED));
+        assertEquals(1, meterRegistry.get("paymentservice.status.transitions.rejected")
+                .tags("entity", "invoice", "from", "SENT", "to", "CREATED")
+                .counter().count());
     }
 
     @Test
@@ -464,7 +632,7 @@ class InvoiceServiceTest {
     @Test
     void listInvoices_WithNoFilters_ShouldReturnAllInvoices() {
         // Given
-        Pageable pageable = PageRequest.of(0, 20);
+        Pageable pageable = PageRequest.of(0, 20, InvoiceSpecifications.KEYSET_SORT);
         Invoice invoice1 = Invoice.builder()
                 .id(1L)
                 .invoiceNumber("INV-001")
@@ -487,10 +655,10 @@ class InvoiceServiceTest {
                 .build();
         Page<Invoice> invoicePage = new PageImpl<>(List.of(invoice1, invoice2), pageable, 2);
 
-        when(invoiceRepository.findAllOrderByIssueDateDesc(pageable)).thenReturn(invoicePage);
+        when(invoiceRepository.findAll(any(Specification.class), eq(pageable))).thenReturn(invoicePage);
 
         // When
-        com.asma.paymentservice.dto.InvoiceListResponse response = invoiceService.listInvoices(null, null, null, null, null, null);
+        com.asma.paymentservice.dto.InvoiceListResponse response = invoiceService.listInvoices(InvoiceFilter.none(), null, null);
 
         // Then
         assertNotNull(response);
@@ -499,13 +667,13 @@ class InvoiceServiceTest {
         assertEquals(1, response.getTotalPages());
         assertEquals(0, response.getPage());
         assertEquals(20, response.getSize());
-        verify(invoiceRepository, times(1)).findAllOrderByIssueDateDesc(pageable);
+        verify(invoiceRepository, times(1)).findAll(any(Specification.class), eq(pageable));
     }
 
     @Test
     void listInvoices_WithStatusFilter_ShouldReturnFilteredInvoices() {
         // Given
-        Pageable pageable = PageRequest.of(0, 20);
+        Pageable pageable = PageRequest.of(0, 20, InvoiceSpecifications.KEYSET_SORT);
         Invoice invoice = Invoice.builder()
                 .id(1L)
                 .invoiceNumber("INV-001")
@@ -518,23 +686,23 @@ class InvoiceServiceTest {
                 .build();
         Page<Invoice> invoicePage = new PageImpl<>(List.of(invoice), pageable, 1);
 
-        when(invoiceRepository.findByStatusOrderByIssueDateDesc(InvoiceStatus.CREATED, pageable)).thenReturn(invoicePage);
+        when(invoiceRepository.findAll(any(Specification.class), eq(pageable))).thenReturn(invoicePage);
 
         // When
-        com.asma.paymentservice.dto.InvoiceListResponse response = invoiceService.listInvoices("CREATED", null, null, null, null, null);
+        com.asma.paymentservice.dto.InvoiceListResponse response = invoiceService.listInvoices(InvoiceFilter.builder().status("CREATED").build(), null, null);
 
         // Then
         assertNotNull(response);
         assertEquals(1, response.getContent().size());
         assertEquals(1, response.getTotalElements());
         assertEquals(com.asma.paymentservice.dto.InvoiceResponse.StatusEnum.CREATED, response.getContent().get(0).getStatus());
-        verify(invoiceRepository, times(1)).findByStatusOrderByIssueDateDesc(InvoiceStatus.CREATED, pageable);
+        verify(invoiceRepository, times(1)).findAll(any(Specification.class), eq(pageable));
     }
 
     @Test
     void listInvoices_WithUserIdFilter_ShouldReturnFilteredInvoices() {
         // Given
-        Pageable pageable = PageRequest.of(0, 20);
+        Pageable pageable = PageRequest.of(0, 20, InvoiceSpecifications.KEYSET_SORT);
         Invoice invoice = Invoice.builder()
                 .id(1L)
                 .invoiceNumber("INV-001")
@@ -547,22 +715,22 @@ class InvoiceServiceTest {
                 .build();
         Page<Invoice> invoicePage = new PageImpl<>(List.of(invoice), pageable, 1);
 
-        when(invoiceRepository.findByUserIdOrderByIssueDateDesc("user123", pageable)).thenReturn(invoicePage);
+        when(invoiceRepository.findAll(any(Specification.class), eq(pageable))).thenReturn(invoicePage);
 
         // When
-        com.asma.paymentservice.dto.InvoiceListResponse response = invoiceService.listInvoices(null, "user123", null, null, null, null);
+        com.asma.paymentservice.dto.InvoiceListResponse response = invoiceService.listInvoices(InvoiceFilter.builder().userId("user123").build(), null, null);
 
         // Then
         assertNotNull(response);
         assertEquals(1, response.getContent().size());
         assertEquals("user123", response.getContent().get(0).getUserId());
-        verify(invoiceRepository, times(1)).findByUserIdOrderByIssueDateDesc("user123", pageable);
+        verify(invoiceRepository, times(1)).findAll(any(Specification.class), eq(pageable));
     }
 
     @Test
     void listInvoices_WithDateRangeFilter_ShouldReturnFilteredInvoices() {
         // Given
-        Pageable pageable = PageRequest.of(0, 20);
+        Pageable pageable = PageRequest.of(0, 20, InvoiceSpecifications.KEYSET_SORT);
         LocalDate fromDate = LocalDate.now().minusDays(7);
         LocalDate toDate = LocalDate.now();
         Invoice invoice = Invoice.builder()
@@ -577,21 +745,21 @@ class InvoiceServiceTest {
                 .build();
         Page<Invoice> invoicePage = new PageImpl<>(List.of(invoice), pageable, 1);
 
-        when(invoiceRepository.findByIssueDateBetweenOrderByIssueDateDesc(fromDate, toDate, pageable)).thenReturn(invoicePage);
+        when(invoiceRepository.findAll(any(Specification.class), eq(pageable))).thenReturn(invoicePage);
 
         // When
-        com.asma.paymentservice.dto.InvoiceListResponse response = invoiceService.listInvoices(null, null, fromDate, toDate, null, null);
+        com.asma.paymentservice.dto.InvoiceListResponse response = invoiceService.listInvoices(InvoiceFilter.builder().fromDate(fromDate).toDate(toDate).build(), null, null);
 
         // Then
         assertNotNull(response);
         assertEquals(1, response.getContent().size());
-        verify(invoiceRepository, times(1)).findByIssueDateBetweenOrderByIssueDateDesc(fromDate, toDate, pageable);
+        verify(invoiceRepository, times(1)).findAll(any(Specification.class), eq(pageable));
     }
 
     @Test
     void listInvoices_WithMultipleFilters_ShouldReturnFilteredInvoices() {
         // Given
-        Pageable pageable = PageRequest.of(0, 20);
+        Pageable pageable = PageRequest.of(0, 20, InvoiceSpecifications.KEYSET_SORT);
         Invoice invoice = Invoice.builder()
                 .id(1L)
                 .invoiceNumber("INV-001")
@@ -604,23 +772,23 @@ class InvoiceServiceTest {
                 .build();
         Page<Invoice> invoicePage = new PageImpl<>(List.of(invoice), pageable, 1);
 
-        when(invoiceRepository.findByStatusAndUserIdOrderByIssueDateDesc(InvoiceStatus.CREATED, "user123", pageable)).thenReturn(invoicePage);
+        when(invoiceRepository.findAll(any(Specification.class), eq(pageable))).thenReturn(invoicePage);
 
         // When
-        com.asma.paymentservice.dto.InvoiceListResponse response = invoiceService.listInvoices("CREATED", "user123", null, null, null, null);
+        com.asma.paymentservice.dto.InvoiceListResponse response = invoiceService.listInvoices(InvoiceFilter.builder().status("CREATED").userId("user123").build(), null, null);
 
         // Then
         assertNotNull(response);
         assertEquals(1, response.getContent().size());
         assertEquals(com.asma.paymentservice.dto.InvoiceResponse.StatusEnum.CREATED, response.getContent().get(0).getStatus());
         assertEquals("user123", response.getContent().get(0).getUserId());
-        verify(invoiceRepository, times(1)).findByStatusAndUserIdOrderByIssueDateDesc(InvoiceStatus.CREATED, "user123", pageable);
+        verify(invoiceRepository, times(1)).findAll(any(Specification.class), eq(pageable));
     }
 
     @Test
     void listInvoices_WithPagination_ShouldReturnPaginatedResults() {
         // Given
-        Pageable pageable = PageRequest.of(1, 5);
+        Pageable pageable = PageRequest.of(1, 5, InvoiceSpecifications.KEYSET_SORT);
         List<Invoice> invoices = List.of(
                 Invoice.builder().id(6L).invoiceNumber("INV-006").paymentId(6L).userId("user1")
                         .amount(BigDecimal.valueOf(10.0)).currency("USD").status(InvoiceStatus.CREATED)
@@ -631,10 +799,10 @@ class InvoiceServiceTest {
         );
         Page<Invoice> invoicePage = new PageImpl<>(invoices, pageable, 10);
 
-        when(invoiceRepository.findAllOrderByIssueDateDesc(pageable)).thenReturn(invoicePage);
+        when(invoiceRepository.findAll(any(Specification.class), eq(pageable))).thenReturn(invoicePage);
 
         // When
-        com.asma.paymentservice.dto.InvoiceListResponse response = invoiceService.listInvoices(null, null, null, null, 1, 5);
+        com.asma.paymentservice.dto.InvoiceListResponse response = invoiceService.listInvoices(InvoiceFilter.none(), 1, 5);
 
         // Then
         assertNotNull(response);
@@ -643,7 +811,7 @@ class InvoiceServiceTest {
         assertEquals(2, response.getTotalPages());
         assertEquals(1, response.getPage());
         assertEquals(5, response.getSize());
-        verify(invoiceRepository, times(1)).findAllOrderByIssueDateDesc(pageable);
+        verify(invoiceRepository, times(1)).findAll(any(Specification.class), eq(pageable));
     }
 
     @Test
@@ -651,7 +819,7 @@ class InvoiceServiceTest {
         // When/Then
         InvalidInvoiceRequestException exception = assertThrows(
                 InvalidInvoiceRequestException.class,
-                () -> invoiceService.listInvoices(null, null, null, null, -1, null)
+                () -> invoiceService.listInvoices(InvoiceFilter.none(), -1, null)
         );
 
         assertEquals("Page number must be >= 0", exception.getMessage());
@@ -662,7 +830,7 @@ class InvoiceServiceTest {
         // When/Then
         InvalidInvoiceRequestException exception = assertThrows(
                 InvalidInvoiceRequestException.class,
-                () -> invoiceService.listInvoices(null, null, null, null, null, 200)
+                () -> invoiceService.listInvoices(InvoiceFilter.none(), null, 200)
         );
 
         assertEquals("Page size must be between 1 and 100", exception.getMessage());
@@ -677,7 +845,7 @@ class InvoiceServiceTest {
         // When/Then
         InvalidInvoiceRequestException exception = assertThrows(
                 InvalidInvoiceRequestException.class,
-                () -> invoiceService.listInvoices(null, null, fromDate, toDate, null, null)
+                () -> invoiceService.listInvoices(InvoiceFilter.builder().fromDate(fromDate).toDate(toDate).build(), null, null)
         );
 
         assertEquals("fromDate must be <= toDate", exception.getMessage());
@@ -688,7 +856,7 @@ class InvoiceServiceTest {
         // When/Then
         InvalidInvoiceRequestException exception = assertThrows(
                 InvalidInvoiceRequestException.class,
-                () -> invoiceService.listInvoices("INVALID", null, null, null, null, null)
+                () -> invoiceService.listInvoices(InvoiceFilter.builder().status("INVALID").build(), null, null)
         );
 
         assertTrue(exception.getMessage().contains("Invalid status value"));
@@ -697,20 +865,46 @@ class InvoiceServiceTest {
     @Test
     void listInvoices_WithEmptyResultSet_ShouldReturnEmptyList() {
         // Given
-        Pageable pageable = PageRequest.of(0, 20);
+        Pageable pageable = PageRequest.of(0, 20, InvoiceSpecifications.KEYSET_SORT);
         Page<Invoice> emptyPage = new PageImpl<>(List.of(), pageable, 0);
 
-        when(invoiceRepository.findAllOrderByIssueDateDesc(pageable)).thenReturn(emptyPage);
+        when(invoiceRepository.findAll(any(Specification.class), eq(pageable))).thenReturn(emptyPage);
 
         // When
-        com.asma.paymentservice.dto.InvoiceListResponse response = invoiceService.listInvoices(null, null, null, null, null, null);
+        com.asma.paymentservice.dto.InvoiceListResponse response = invoiceService.listInvoices(InvoiceFilter.none(), null, null);
 
         // Then
         assertNotNull(response);
         assertEquals(0, response.getContent().size());
         assertEquals(0, response.getTotalElements());
         assertEquals(0, response.getTotalPages());
-        verify(invoiceRepository, times(1)).findAllOrderByIssueDateDesc(pageable);
+        verify(invoiceRepository, times(1)).findAll(any(Specification.class), eq(pageable));
+    }
+
+    @Test
+    void listInvoicesAfterCursor_WithMoreResults_ShouldReturnNextCursor() {
+        // Given
+        LocalDate today = LocalDate.now();
+        List<Invoice> invoices = List.of(
+                Invoice.builder().id(5L).invoiceNumber("INV-5").paymentId(5L).userId("user123")
+                        .amount(BigDecimal.TEN).currency("USD").status(InvoiceStatus.CREATED).issueDate(today).build());
+        when(invoiceRepository.findSlice(any(), eq(PageRequest.of(0, 1, InvoiceSpecifications.KEYSET_SORT))))
+                .thenReturn(new SliceImpl<>(invoices, PageRequest.of(0, 1), true));
+
+        // When
+        com.asma.paymentservice.dto.InvoiceListResponse response = invoiceService.listInvoicesAfterCursor(InvoiceFilter.none(), PageCursor.encode(today, 6L), 1);
+
+        // Then
+        assertEquals(1, response.getContent().size());
+        assertNull(response.getTotalElements());
+        assertEquals(PageCursor.encode(today, 5L), response.getNextCursor());
     }
-}
 
+    @Test
+    void listInvoicesAfterCursor_WithInvalidCursor_ShouldThrowException() {
+        // When & Then
+        InvalidInvoiceRequestException exception = assertThrows(InvalidInvoiceRequestException.class,
+                () -> invoiceService.listInvoicesAfterCursor(InvoiceFilter.none(), "bad", null));
+        assertEquals("Invalid cursor value", exception.getMessage());
+    }
+}
@@ -0,0 +1,128 @@
+package com.asma.paymentservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MissingIdCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong maxId = new AtomicLong(10);
+    private final AtomicInteger maxIdQueries = new AtomicInteger();
+
+    private final MissingIdCache cache = new MissingIdCache("payments", 100, Duration.ofMinutes(1), () -> {
+        maxIdQueries.incrementAndGet();
+        return maxId.get();
+    }, meterRegistry);
+
+    @Test
+    void isKnownMissing_WithRecordedMissingId_ShouldReturnTrueUntilCreated() {
+        // Given
+        cache.recordMissing(5L);
+
+        // When/Then
+        assertTrue(cache.isKnownMissing(5L));
+        cache.recordCreated(5L);
+        assertFalse(cache.isKnownMissing(5L));
+        assertEquals(1.0, meterRegistry.get("paymentservice.missing.lookups").tag("outcome", "cached").counter().count());
+    }
+
+    @Test
+    void isKnownMissing_WithIdAboveLargestId_ShouldReturnTrue() {
+        // When/Then
+        assertTrue(cache.isKnownMissing(11L));
+        assertFalse(cache.isKnownMissing(10L));
+        assertEquals(1.0, meterRegistry.get("paymentservice.missing.lookups").tag("outcome", "above_high_water_mark").counter().count());
+    }
+
+    @Test
+    void isKnownMissing_WithRepeatedLookupsAboveMark_ShouldReadLargestIdOnce() {
+        // When
+        for (int i = 0; i < 5; i++) {
+            assertTrue(cache.isKnownMissing(11L));
+            assertTrue(cache.isKnownMissing(12L + i));
+        }
+
+        // Then - the first miss is cached and the mark is reused for the TTL
+        assertEquals(1, maxIdQueries.get());
+        assertEquals(6.0, meterRegistry.get("paymentservice.missing.lookups").tag("outcome", "above_high_water_mark").counter().count());
+        assertEquals(4.0, meterRegistry.get("paymentservice.missing.lookups").tag("outcome", "cached").counter().count());
+    }
+
+    @Test
+    void isKnownMissing_WithIdCreatedElsewhereSinceLastRead_ShouldRereadLargestIdAfterTtl() throws Exception {
+        // Given - the mark was read when the largest ID was 10
+        MissingIdCache shortCache = new MissingIdCache("payments", 100, Duration.ofMillis(50), () -> {
+            maxIdQueries.incrementAndGet();
+            return maxId.get();
+        }, meterRegistry);
+        assertTrue(shortCache.isKnownMissing(11L));
+
+        // When - another node creates 11
+        maxId.set(11);
+
+        // Then - reported missing until the TTL expires, then re-read
+        assertTrue(shortCache.isKnownMissing(11L));
+        Thread.sleep(100);
+        assertFalse(shortCache.isKnownMissing(11L));
+        assertEquals(2, maxIdQueries.get());
+    }
+
+    @Test
+    void isKnownMissing_WithIdBelowMark_ShouldNotQueryLargestId() {
+        // Given
+        cache.recordCreated(50L);
+
+        // When/Then - unknown IDs below the mark need a real lookup
+        assertFalse(cache.isKnownMissing(20L));
+        assertEquals(0, maxIdQueries.get());
+    }
+
+    @Test
+    void isKnownMissing_ConcurrentCallersAboveMark_ShouldShareLargestIdReads() throws Exception {
+        // Given - the first read blocks until all callers are waiting
+        CountDownLatch release = new CountDownLatch(1);
+        MissingIdCache slowCache = new MissingIdCache("payments", 100, Duration.ofMinutes(1), () -> {
+            maxIdQueries.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return maxId.get();
+        }, meterRegistry);
+        int callers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+
+        // When
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                long id = 100 + i;
+                results.add(executor.submit(() -> slowCache.isKnownMissing(id)));
+            }
+            Thread.sleep(200);
+            release.countDown();
+
+            // Then - the callers queued behind the first read share a single second read
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get(5, TimeUnit.SECONDS));
+            }
+            assertTrue(maxIdQueries.get() <= 2, "Expected at most 2 reads but was " + maxIdQueries.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.asma.paymentservice.service;
+
+import com.asma.paymentservice.entity.PaymentStatus;
+import com.asma.paymentservice.repository.PaymentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderKeyFilterTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private OrderKeyFilter orderKeyFilter;
+
+    @BeforeEach
+    void setUp() {
+        orderKeyFilter = newFilter(true);
+    }
+
+    @Test
+    void mightContain_BeforeFirstBuild_ShouldReturnTrue() {
+        assertTrue(orderKeyFilter.mightContain("order1", "user1"));
+    }
+
+    @Test
+    void rebuild_ShouldLoadPendingPairs() {
+        // Given
+        when(paymentRepository.streamOrderKeysByStatus(PaymentStatus.PENDING))
+                .thenReturn(Stream.of(orderKey("order1", "user1")));
+
+        // When
+        orderKeyFilter.rebuild();
+
+        // Then
+        assertTrue(orderKeyFilter.mightContain("order1", "user1"));
+        assertFalse(orderKeyFilter.mightContain("order2", "user1"));
+        assertFalse(orderKeyFilter.mightContain("order1", "user2"));
+        assertEquals(2.0, lookups("skipped"));
+    }
+
+    @Test
+    void put_ShouldMakePairVisible() {
+        // Given
+        when(paymentRepository.streamOrderKeysByStatus(PaymentStatus.PENDING)).thenReturn(Stream.empty());
+        orderKeyFilter.rebuild();
+
+        // When
+        orderKeyFilter.put("order1", "user1");
+
+        // Then
+        assertTrue(orderKeyFilter.mightContain("order1", "user1"));
+    }
+
+    @Test
+    void refresh_ShouldAddPairsCreatedByOtherNodes() {
+        // Given
+        when(paymentRepository.streamOrderKeysByStatus(PaymentStatus.PENDING)).thenReturn(Stream.empty());
+        when(paymentRepository.streamOrderKeysCreatedSince(any(LocalDateTime.class)))
+                .thenReturn(Stream.of(orderKey("order1", "user1")));
+        orderKeyFilter.rebuild();
+
+        // When
+        orderKeyFilter.refresh();
+
+        // Then
+        assertTrue(orderKeyFilter.mightContain("order1", "user1"));
+    }
+
+    @Test
+    void rebuild_WhenQueryFails_ShouldKeepPreviousFilter() {
+        // Given
+        when(paymentRepository.streamOrderKeysByStatus(PaymentStatus.PENDING))
+                .thenReturn(Stream.of(orderKey("order1", "user1")))
+                .thenThrow(new IllegalStateException("connection lost"));
+        orderKeyFilter.rebuild();
+
+        // When
+        orderKeyFilter.rebuild();
+
+        // Then
+        assertTrue(orderKeyFilter.mightContain("order1", "user1"));
+        assertFalse(orderKeyFilter.mightContain("order2", "user1"));
+    }
+
+    @Test
+    void mightContain_WhenRefreshFailsBeyondMaxStaleness_ShouldReturnTrueUntilNextRefresh() throws Exception {
+        // Given
+        OrderKeyFilter filter = newFilter(true, Duration.ofMillis(100));
+        when(paymentRepository.streamOrderKeysByStatus(PaymentStatus.PENDING)).thenReturn(Stream.empty());
+        when(paymentRepository.streamOrderKeysCreatedSince(any(LocalDateTime.class)))
+                .thenThrow(new IllegalStateException("connection lost"))
+                .thenReturn(Stream.empty());
+        filter.rebuild();
+        assertFalse(filter.mightContain("order1", "user1"));
+
+        // When
+        Thread.sleep(150);
+        filter.refresh();
+
+        // Then - pairs created elsewhere meanwhile are unknown, so the lookup runs
+        assertTrue(filter.mightContain("order1", "user1"));
+        assertEquals(1.0, lookups("stale"));
+        filter.refresh();
+        assertFalse(filter.mightContain("order1", "user1"));
+    }
+
+    @Test
+    void recordLookup_ShouldCountOutcomes() {
+        // Given
+        when(paymentRepository.streamOrderKeysByStatus(PaymentStatus.PENDING)).thenReturn(Stream.empty());
+        orderKeyFilter.rebuild();
+
+        // When
+        orderKeyFilter.recordLookup(true);
+        orderKeyFilter.recordLookup(false);
+        orderKeyFilter.recordLookup(false);
+
+        // Then
+        assertEquals(1.0, lookups("found"));
+        assertEquals(2.0, lookups("not_found"));
+    }
+
+    @Test
+    void disabled_ShouldNeverRuleOutPairs() {
+        // Given
+        OrderKeyFilter disabled = newFilter(false);
+
+        // When
+        disabled.rebuild();
+
+        // Then
+        assertTrue(disabled.mightContain("order1", "user1"));
+        verifyNoInteractions(paymentRepository);
+    }
+
+    private OrderKeyFilter newFilter(boolean enabled) {
+        return newFilter(enabled, Duration.ofMinutes(1));
+    }
+
+    private OrderKeyFilter newFilter(boolean enabled, Duration maxStaleness) {
+        return new OrderKeyFilter(paymentRepository, transactionManager, meterRegistry,
+                enabled, 1000, 0.01, Duration.ofMinutes(1), maxStaleness);
+    }
+
+    private double lookups(String outcome) {
+        return meterRegistry.get("paymentservice.order.filter.lookups").tag("outcome", outcome).counter().count();
+    }
+
+    private PaymentRepository.OrderKey orderKey(String orderId, String userId) {
+        return new PaymentRepository.OrderKey() {
+            @Override
+            public String getOrderId() {
+                return orderId;
+            }
+
+            @Override
+            public String getUserId() {
+                return userId;
+            }
+        };
+    }
+}
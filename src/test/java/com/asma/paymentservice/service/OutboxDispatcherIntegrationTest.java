@@ -0,0 +1,189 @@
+package com.asma.paymentservice.service;
+
+import com.asma.paymentservice.entity.Invoice;
+import com.asma.paymentservice.entity.InvoiceStatus;
+import com.asma.paymentservice.entity.Payment;
+import com.asma.paymentservice.entity.PaymentStatus;
+import com.asma.paymentservice.exception.InvalidInvoiceRequestException;
+import com.asma.paymentservice.repository.InvoiceRepository;
+import com.asma.paymentservice.repository.OutboxEventRepository;
+import com.asma.paymentservice.repository.PaymentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the outbox against the database, committing each step as in production.
+ * Background workers are disabled so the test drives the dispatcher itself, and the test uses its own
+ * database so that the workers of other cached test contexts cannot claim its events.
+ */
+@SpringBootTest(properties = {
+        "paymentservice.outbox.workers=0",
+        "spring.datasource.url=jdbc:h2:mem:outbox_dispatcher_test"
+})
+class OutboxDispatcherIntegrationTest {
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        outboxEventRepository.deleteAll();
+        invoiceRepository.deleteAll();
+        paymentRepository.deleteAll();
+    }
+
+    @Test
+    void approvePayment_ShouldCreateInvoiceWhenOutboxIsDispatched() {
+        // Given
+        Payment payment = paymentRepository.save(pendingPayment("order-outbox-1"));
+
+        // When
+        paymentService.updatePaymentStatus(payment.getId(), PaymentStatus.APPROVED);
+
+        // Then - the invoice is created by the dispatcher, not by the approval
+        assertTrue(invoiceRepository.findByPaymentId(payment.getId()).isEmpty());
+        assertEquals(1, outboxEventRepository.count());
+
+        assertEquals(1, outboxDispatcher.dispatchBatch());
+        Optional<Invoice> invoice = invoiceRepository.findByPaymentId(payment.getId());
+        assertTrue(invoice.isPresent());
+        assertEquals("order-outbox-1", invoice.get().getOrderId());
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    @Test
+    void dispatchBatch_WithInvoiceAlreadyCreated_ShouldNotCreateDuplicate() {
+        // Given - the invoice was created manually before the event was handled
+        Payment payment = paymentRepository.save(pendingPayment("order-outbox-2"));
+        paymentService.updatePaymentStatus(payment.getId(), PaymentStatus.APPROVED);
+        invoiceRepository.save(Invoice.builder()
+                .invoiceNumber("INV-MANUAL-1")
+                .paymentId(payment.getId())
+                .userId(payment.getUserId())
+                .amount(payment.getAmount())
+                .currency(payment.getCurrency())
+                .status(InvoiceStatus.CREATED)
+                .issueDate(LocalDate.now())
+                .build());
+
+        // When
+        outboxDispatcher.dispatchBatch();
+
+        // Then
+        assertEquals("INV-MANUAL-1", invoiceRepository.findByPaymentId(payment.getId()).get().getInvoiceNumber());
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    @Test
+    void dispatchBatch_WithInvoiceCommittedDuringBatch_ShouldSkipPayment() throws Exception {
+        // Given - another transaction has inserted an invoice for the payment and commits while the batch inserts
+        Payment payment = paymentRepository.save(pendingPayment("order-outbox-3"));
+        paymentService.updatePaymentStatus(payment.getId(), PaymentStatus.APPROVED);
+        CompletableFuture<Void> concurrent = insertInvoiceAndCommitLater(payment, "INV-RACE-1");
+
+        // When
+        outboxDispatcher.dispatchBatch();
+
+        // Then - the batch failed on the unique payment ID, and the retry found the invoice
+        concurrent.get(5, TimeUnit.SECONDS);
+        assertEquals("INV-RACE-1", invoiceRepository.findByPaymentId(payment.getId()).get().getInvoiceNumber());
+        assertEquals(1, invoiceRepository.count());
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    @Test
+    void createInvoiceManually_WithInvoiceCommittedConcurrently_ShouldRejectAsDuplicate() throws Exception {
+        // Given
+        Payment payment = paymentRepository.save(pendingPayment("order-outbox-4"));
+        payment.setStatus(PaymentStatus.APPROVED);
+        paymentRepository.save(payment);
+        CompletableFuture<Void> concurrent = insertInvoiceAndCommitLater(payment, "INV-RACE-2");
+
+        // When
+        InvalidInvoiceRequestException exception = assertThrows(InvalidInvoiceRequestException.class,
+                () -> invoiceService.createInvoiceManually(payment.getId()));
+
+        // Then
+        concurrent.get(5, TimeUnit.SECONDS);
+        assertEquals("Invoice already exists for payment ID: " + payment.getId(), exception.getMessage());
+        assertEquals("INV-RACE-2", invoiceRepository.findByPaymentId(payment.getId()).get().getInvoiceNumber());
+        assertEquals(1, invoiceRepository.count());
+    }
+
+    /**
+     * Inserts an invoice for the payment in a transaction that commits 200 ms after this method returns, so that
+     * an insert started meanwhile passes the existence checks and then waits on the unique payment ID.
+     */
+    private CompletableFuture<Void> insertInvoiceAndCommitLater(Payment payment, String invoiceNumber) throws InterruptedException {
+        CountDownLatch inserted = new CountDownLatch(1);
+        CompletableFuture<Void> transaction = CompletableFuture.runAsync(() ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    invoiceRepository.saveAndFlush(manualInvoice(payment, invoiceNumber));
+                    inserted.countDown();
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+        assertTrue(inserted.await(5, TimeUnit.SECONDS));
+        return transaction;
+    }
+
+    private static Invoice manualInvoice(Payment payment, String invoiceNumber) {
+        return Invoice.builder()
+                .invoiceNumber(invoiceNumber)
+                .paymentId(payment.getId())
+                .userId(payment.getUserId())
+                .amount(payment.getAmount())
+                .currency(payment.getCurrency())
+                .status(InvoiceStatus.CREATED)
+                .issueDate(LocalDate.now())
+                .build();
+    }
+
+    private Payment pendingPayment(String orderId) {
+        return Payment.builder()
+                .amount(BigDecimal.valueOf(42.00))
+                .currency("USD")
+                .method("CREDIT_CARD")
+                .status(PaymentStatus.PENDING)
+                .userId("user-outbox")
+                .orderId(orderId)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,115 @@
+package com.asma.paymentservice.service;
+
+import com.asma.paymentservice.entity.OutboxEvent;
+import com.asma.paymentservice.entity.OutboxEventType;
+import com.asma.paymentservice.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxDispatcherTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private InvoiceService invoiceService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ServiceMetrics serviceMetrics = new ServiceMetrics(new SimpleMeterRegistry());
+
+    private OutboxDispatcher outboxDispatcher;
+
+    @BeforeEach
+    void setUp() {
+        outboxDispatcher = new OutboxDispatcher(outboxEventRepository, invoiceService, transactionManager, serviceMetrics,
+                0, 10, Duration.ofSeconds(1), Duration.ofMinutes(5), false);
+    }
+
+    @Test
+    void dispatchBatch_ShouldCreateInvoicesAndDeleteEvents() {
+        // Given
+        when(outboxEventRepository.claimBatch(any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(event(1L, 100L), event(2L, 200L)));
+
+        // When
+        int claimed = outboxDispatcher.dispatchBatch();
+
+        // Then
+        assertEquals(2, claimed);
+        verify(invoiceService).createInvoicesFromPayments(List.of(100L, 200L));
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+    }
+
+    @Test
+    void dispatchBatch_WithNoEvents_ShouldDoNothing() {
+        // Given
+        when(outboxEventRepository.claimBatch(any(LocalDateTime.class), any(Pageable.class))).thenReturn(List.of());
+
+        // When
+        int claimed = outboxDispatcher.dispatchBatch();
+
+        // Then
+        assertEquals(0, claimed);
+        verifyNoInteractions(invoiceService);
+    }
+
+    @Test
+    void dispatchBatch_WhenBatchFails_ShouldRetryEventsOneByOneAndBackOffFailingEvent() {
+        // Given - payment 200 cannot be invoiced
+        OutboxEvent good = event(1L, 100L);
+        OutboxEvent bad = event(2L, 200L);
+        when(outboxEventRepository.claimBatch(any(LocalDateTime.class), any(Pageable.class))).thenReturn(List.of(good, bad));
+        when(outboxEventRepository.claim(1L)).thenReturn(Optional.of(good));
+        when(outboxEventRepository.claim(2L)).thenReturn(Optional.of(bad));
+        when(invoiceService.createInvoicesFromPayments(anyList())).thenAnswer(invocation -> {
+            List<Long> paymentIds = invocation.getArgument(0);
+            if (paymentIds.contains(200L)) {
+                throw new IllegalStateException("constraint violation");
+            }
+            return List.of();
+        });
+
+        // When
+        outboxDispatcher.dispatchBatch();
+
+        // Then
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(1L));
+        verify(outboxEventRepository).recordFailure(eq(2L), any(LocalDateTime.class), eq("constraint violation"));
+        verify(outboxEventRepository, never()).recordFailure(eq(1L), any(), anyString());
+        assertEquals(1, serviceMetrics.getInvoiceBatchFailures().count());
+        assertEquals(1, serviceMetrics.getInvoiceEventFailures().count());
+    }
+
+    @Test
+    void backoff_ShouldDoubleAndBeCapped() {
+        assertEquals(Duration.ofSeconds(2), outboxDispatcher.backoff(1));
+        assertEquals(Duration.ofSeconds(8), outboxDispatcher.backoff(3));
+        assertEquals(Duration.ofMinutes(5), outboxDispatcher.backoff(30));
+    }
+
+    private OutboxEvent event(Long id, Long paymentId) {
+        OutboxEvent event = OutboxEvent.of(OutboxEventType.PAYMENT_APPROVED, paymentId);
+        event.setId(id);
+        return event;
+    }
+}
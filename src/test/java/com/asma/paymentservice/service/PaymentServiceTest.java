@@ -1,29 +1,49 @@
 package com.asma.paymentservice.service;
 
+import com.asma.paymentservice.dto.CreatePaymentBatchResponse;
 import com.asma.paymentservice.dto.CreatePaymentRequest;
+import com.asma.paymentservice.dto.PaymentBatchItemResult;
 import org.openapitools.jackson.nullable.JsonNullable;
 import com.asma.paymentservice.dto.PaymentListResponse;
 import com.asma.paymentservice.dto.PaymentResponse;
+import com.asma.paymentservice.dto.PaymentStatusUpdate;
+import com.asma.paymentservice.dto.PaymentStatusUpdateResult;
+import com.asma.paymentservice.dto.UpdatePaymentStatusBatchResponse;
+import com.asma.paymentservice.entity.OutboxEvent;
+import com.asma.paymentservice.entity.OutboxEventType;
 import com.asma.paymentservice.entity.Payment;
+import com.asma.paymentservice.entity.PaymentRollupKey;
 import com.asma.paymentservice.entity.PaymentStatus;
 import com.asma.paymentservice.exception.InvalidPaymentRequestException;
 import com.asma.paymentservice.exception.InvalidStatusTransitionException;
 import com.asma.paymentservice.exception.PaymentNotFoundException;
+import com.asma.paymentservice.repository.OutboxEventRepository;
 import com.asma.paymentservice.repository.PaymentRepository;
+import com.asma.paymentservice.repository.PaymentSpecifications;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -37,6 +57,30 @@ class PaymentServiceTest {
     @Mock
     private PaymentRepository paymentRepository;
 
+    @Mock
+    private OrderKeyFilter orderKeyFilter;
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Spy
+    private ResponseCache<PaymentResponse> paymentResponseCache =
+            new ResponseCache<>("payments", 100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+    @Mock
+    private MissingIdCache missingPayments;
+
+    @Mock
+    private PaymentStatusHub paymentStatusHub;
+
+    @Mock
+    private PaymentSummaryService paymentSummaryService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private ServiceMetrics serviceMetrics = new ServiceMetrics(meterRegistry);
+
     @InjectMocks
     private PaymentService paymentService;
 
@@ -78,6 +122,99 @@ class PaymentServiceTest {
         assertNotNull(response.getUpdatedAt());
 
         verify(paymentRepository, times(1)).save(any(Payment.class));
+        verify(orderKeyFilter).put("order456", "user123");
+        verify(paymentSummaryService).recordCreated(argThat(payment -> payment.getId() == 1L));
+    }
+
+    @Test
+    void createPayment_WithOrderIdRuledOutByFilter_ShouldSkipDuplicateLookup() {
+        // Given - filter has never seen the pair
+        when(orderKeyFilter.mightContain("order456", "user123")).thenReturn(false);
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> {
+            Payment payment = invocation.getArgument(0);
+            payment.setId(1L);
+            return payment;
+        });
+
+        // When
+        PaymentResponse response = paymentService.createPayment(validRequest);
+
+        // Then
+        assertEquals(1L, response.getId());
+        verify(paymentRepository, never()).findByOrderIdAndUserIdAndStatus(any(), any(), any());
+        verify(orderKeyFilter, never()).recordLookup(anyBoolean());
+        verify(orderKeyFilter).put("order456", "user123");
+    }
+
+    @Test
+    void createPayments_ShouldResolveDuplicatesWithOneQueryAndSaveAllAtOnce() {
+        // Given - order456 already has a PENDING payment, order789 is new
+        Payment existingPayment = Payment.builder()
+                .id(100L)
+                .amount(BigDecimal.valueOf(99.99))
+                .currency("USD")
+                .method("CREDIT_CARD")
+                .status(PaymentStatus.PENDING)
+                .userId("user123")
+                .orderId("order456")
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+        CreatePaymentRequest newOrder = new CreatePaymentRequest();
+        newOrder.setAmount(10.0);
+        newOrder.setCurrency("EUR");
+        newOrder.setMethod(CreatePaymentRequest.MethodEnum.PAYPAL);
+        newOrder.setUserId("user123");
+        newOrder.setOrderId(JsonNullable.of("order789"));
+        when(orderKeyFilter.mightContain(anyString(), anyString())).thenReturn(true);
+        when(paymentRepository.findByStatusAndOrderIdInAndUserIdIn(eq(PaymentStatus.PENDING), anyCollection(), anyCollection()))
+                .thenReturn(List.of(existingPayment));
+        when(paymentRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Payment> payments = invocation.getArgument(0);
+            payments.forEach(payment -> payment.setId(200L));
+            return payments;
+        });
+
+        // When
+        CreatePaymentBatchResponse response = paymentService.createPayments(List.of(validRequest, newOrder, newOrder));
+
+        // Then
+        assertEquals(1, response.getCreated());
+        assertEquals(2, response.getExisting());
+        assertEquals(100L, response.getResults().get(0).getPayment().getId());
+        assertEquals(PaymentBatchItemResult.OutcomeEnum.CREATED, response.getResults().get(1).getOutcome());
+        assertEquals(200L, response.getResults().get(2).getPayment().getId());
+        verify(paymentRepository, times(1)).findByStatusAndOrderIdInAndUserIdIn(any(), anyCollection(), anyCollection());
+        verify(paymentRepository, never()).findByOrderIdAndUserIdAndStatus(any(), any(), any());
+        verify(paymentRepository, never()).save(any(Payment.class));
+        verify(orderKeyFilter).put("order789", "user123");
+    }
+
+    @Test
+    void createPayments_WithInvalidItem_ShouldReportErrorAndCreateOthers() {
+        // Given - the filter rules out every orderId, so no lookup is needed
+        CreatePaymentRequest invalid = new CreatePaymentRequest();
+        invalid.setAmount(10.0);
+        invalid.setCurrency(" ");
+        invalid.setMethod(CreatePaymentRequest.MethodEnum.PAYPAL);
+        invalid.setUserId("user123");
+        when(orderKeyFilter.mightContain(anyString(), anyString())).thenReturn(false);
+        when(paymentRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Payment> payments = invocation.getArgument(0);
+            payments.forEach(payment -> payment.setId(1L));
+            return payments;
+        });
+
+        // When
+        CreatePaymentBatchResponse response = paymentService.createPayments(List.of(invalid, validRequest));
+
+        // Then
+        assertEquals(1, response.getFailed());
+        assertEquals(1, response.getCreated());
+        assertEquals(PaymentBatchItemResult.OutcomeEnum.ERROR, response.getResults().get(0).getOutcome());
+        assertEquals("Currency must not be empty", response.getResults().get(0).getError().getDetails());
+        assertEquals(PaymentBatchItemResult.OutcomeEnum.CREATED, response.getResults().get(1).getOutcome());
+        verify(paymentRepository, never()).findByStatusAndOrderIdInAndUserIdIn(any(), anyCollection(), anyCollection());
     }
 
     @Test
@@ -271,6 +408,7 @@ class PaymentServiceTest {
                 .updatedAt(LocalDateTime.now().minusMinutes(5))
                 .build();
 
+        when(orderKeyFilter.mightContain("order456", "user123")).thenReturn(true);
         when(paymentRepository.findByOrderIdAndUserIdAndStatus(
                 eq("order456"), eq("user123"), eq(PaymentStatus.PENDING)))
                 .thenReturn(Optional.of(existingPayment));
@@ -288,6 +426,7 @@ class PaymentServiceTest {
 
         // Verify that save was NOT called (existing payment returned)
         verify(paymentRepository, never()).save(any(Payment.class));
+        verify(orderKeyFilter).recordLookup(true);
         // Verify that idempotency check was performed
         verify(paymentRepository, times(1)).findByOrderIdAndUserIdAndStatus(
                 eq("order456"), eq("user123"), eq(PaymentStatus.PENDING));
@@ -341,6 +480,7 @@ class PaymentServiceTest {
                 .updatedAt(LocalDateTime.now())
                 .build();
 
+        when(orderKeyFilter.mightContain("order999", "user123")).thenReturn(true);
         when(paymentRepository.findByOrderIdAndUserIdAndStatus(
                 eq("order999"), eq("user123"), eq(PaymentStatus.PENDING)))
                 .thenReturn(Optional.empty()); // No existing payment
@@ -377,6 +517,7 @@ class PaymentServiceTest {
                 .updatedAt(LocalDateTime.now())
                 .build();
 
+        when(orderKeyFilter.mightContain("order456", "user999")).thenReturn(true);
         when(paymentRepository.findByOrderIdAndUserIdAndStatus(
                 eq("order456"), eq("user999"), eq(PaymentStatus.PENDING)))
                 .thenReturn(Optional.empty()); // No existing payment for this userId
@@ -401,6 +542,7 @@ class PaymentServiceTest {
     @Test
     void createPayment_WithSameOrderIdAndUserIdButDifferentStatus_ShouldCreateNewPayment() {
         // Given - existing payment with APPROVED status (not PENDING)
+        when(orderKeyFilter.mightContain("order456", "user123")).thenReturn(true);
         when(paymentRepository.findByOrderIdAndUserIdAndStatus(
                 eq("order456"), eq("user123"), eq(PaymentStatus.PENDING)))
                 .thenReturn(Optional.empty()); // No PENDING payment found
@@ -470,6 +612,79 @@ class PaymentServiceTest {
         verify(paymentRepository, times(1)).findById(paymentId);
     }
 
+    @Test
+    void getPaymentById_CalledRepeatedly_ShouldQueryDatabaseOnce() {
+        // Given
+        Long paymentId = 1L;
+        Payment payment = Payment.builder()
+                .id(paymentId)
+                .amount(BigDecimal.valueOf(99.99))
+                .currency("USD")
+                .method("CREDIT_CARD")
+                .status(PaymentStatus.PENDING)
+                .userId("user123")
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+        when(paymentRepository.findById(paymentId)).thenReturn(Optional.of(payment));
+
+        // When
+        PaymentResponse first = paymentService.getPaymentById(paymentId);
+        PaymentResponse second = paymentService.getPaymentById(paymentId);
+
+        // Then
+        assertSame(first, second);
+        verify(paymentRepository, times(1)).findById(paymentId);
+    }
+
+    @Test
+    void getPaymentById_AfterStatusUpdate_ShouldReturnNewStatus() {
+        // Given - the PENDING response is cached
+        Long paymentId = 1L;
+        Payment payment = Payment.builder()
+                .id(paymentId)
+                .amount(BigDecimal.valueOf(99.99))
+                .currency("USD")
+                .method("CREDIT_CARD")
+                .status(PaymentStatus.PENDING)
+                .userId("user123")
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+        Payment approved = Payment.builder()
+                .id(paymentId)
+                .amount(BigDecimal.valueOf(99.99))
+                .currency("USD")
+                .method("CREDIT_CARD")
+                .status(PaymentStatus.APPROVED)
+                .userId("user123")
+                .createdAt(payment.getCreatedAt())
+                .updatedAt(LocalDateTime.now())
+                .build();
+        when(paymentRepository.findById(paymentId)).thenReturn(Optional.of(payment), Optional.of(payment), Optional.of(approved));
+        when(paymentRepository.updateStatus(eq(List.of(paymentId)), eq(PaymentStatus.PENDING), eq(PaymentStatus.APPROVED), any(LocalDateTime.class)))
+                .thenReturn(1);
+        paymentService.getPaymentById(paymentId);
+
+        // When
+        paymentService.updatePaymentStatus(paymentId, PaymentStatus.APPROVED);
+        PaymentResponse response = paymentService.getPaymentById(paymentId);
+
+        // Then
+        assertEquals(PaymentResponse.StatusEnum.APPROVED, response.getStatus());
+        verify(paymentResponseCache).evictAfterCommit(paymentId);
+    }
+
+    @Test
+    void getPaymentById_WithKnownMissingId_ShouldNotQueryDatabase() {
+        // Given
+        when(missingPayments.isKnownMissing(999L)).thenReturn(true);
+
+        // When/Then
+        assertThrows(PaymentNotFoundException.class, () -> paymentService.getPaymentById(999L));
+        verify(paymentRepository, never()).findById(any());
+    }
+
     @Test
     void getPaymentById_WithNonExistentId_ShouldThrowException() {
         // Given
@@ -484,6 +699,7 @@ class PaymentServiceTest {
 
         assertEquals("Payment not found with ID: " + paymentId, exception.getMessage());
         verify(paymentRepository, times(1)).findById(paymentId);
+        verify(missingPayments).recordMissing(paymentId);
     }
 
     // Status Transition Validation Tests
@@ -534,6 +750,9 @@ class PaymentServiceTest {
 
         assertTrue(exception.getMessage().contains("Cannot transition from terminal state"));
         assertTrue(exception.getMessage().contains("APPROVED"));
+        assertEquals(1, meterRegistry.get("paymentservice.status.transitions.rejected")
+                .tags("entity", "payment", "from", "APPROVED", "to", "PENDING")
+                .counter().count());
     }
 
     @Test
@@ -627,20 +846,8 @@ class PaymentServiceTest {
                 .updatedAt(LocalDateTime.now().minusMinutes(5))
                 .build();
 
-        Payment updatedPayment = Payment.builder()
-                .id(paymentId)
-                .amount(BigDecimal.valueOf(99.99))
-                .currency("USD")
-                .method("CREDIT_CARD")
-                .status(PaymentStatus.APPROVED)
-                .userId("user123")
-                .orderId("order456")
-                .createdAt(payment.getCreatedAt())
-                .updatedAt(LocalDateTime.now())
-                .build();
-
         when(paymentRepository.findById(paymentId)).thenReturn(Optional.of(payment));
-        when(paymentRepository.save(any(Payment.class))).thenReturn(updatedPayment);
+        when(paymentRepository.updateStatus(eq(List.of(paymentId)), eq(PaymentStatus.PENDING), eq(PaymentStatus.APPROVED), any(LocalDateTime.class))).thenReturn(1);
 
         // When
         PaymentResponse response = paymentService.updatePaymentStatus(paymentId, PaymentStatus.APPROVED);
@@ -650,7 +857,14 @@ class PaymentServiceTest {
         assertEquals(paymentId, response.getId());
         assertEquals(PaymentResponse.StatusEnum.APPROVED, response.getStatus());
         verify(paymentRepository, times(1)).findById(paymentId);
-        verify(paymentRepository, times(1)).save(any(Payment.class));
+        verify(paymentRepository, times(1)).updateStatus(eq(List.of(paymentId)), eq(PaymentStatus.PENDING), eq(PaymentStatus.APPROVED), any(LocalDateTime.class));
+        // Invoice creation is deferred to the outbox dispatcher
+        ArgumentCaptor<OutboxEvent> event = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxEventRepository).save(event.capture());
+        assertEquals(OutboxEventType.PAYMENT_APPROVED, event.getValue().getType());
+        assertEquals(paymentId, event.getValue().getAggregateId());
+        verify(paymentSummaryService).recordStatusChange(
+                PaymentRollupKey.of(payment, PaymentStatus.PENDING), PaymentStatus.APPROVED, BigDecimal.valueOf(99.99));
     }
 
     @Test
@@ -669,20 +883,8 @@ class PaymentServiceTest {
                 .updatedAt(LocalDateTime.now().minusMinutes(5))
                 .build();
 
-        Payment updatedPayment = Payment.builder()
-                .id(paymentId)
-                .amount(BigDecimal.valueOf(99.99))
-                .currency("USD")
-                .method("CREDIT_CARD")
-                .status(PaymentStatus.FAILED)
-                .userId("user123")
-                .orderId("order456")
-                .createdAt(payment.getCreatedAt())
-                .updatedAt(LocalDateTime.now())
-                .build();
-
         when(paymentRepository.findById(paymentId)).thenReturn(Optional.of(payment));
-        when(paymentRepository.save(any(Payment.class))).thenReturn(updatedPayment);
+        when(paymentRepository.updateStatus(eq(List.of(paymentId)), eq(PaymentStatus.PENDING), eq(PaymentStatus.FAILED), any(LocalDateTime.class))).thenReturn(1);
 
         // When
         PaymentResponse response = paymentService.updatePaymentStatus(paymentId, PaymentStatus.FAILED);
@@ -692,7 +894,8 @@ class PaymentServiceTest {
         assertEquals(paymentId, response.getId());
         assertEquals(PaymentResponse.StatusEnum.FAILED, response.getStatus());
         verify(paymentRepository, times(1)).findById(paymentId);
-        verify(paymentRepository, times(1)).save(any(Payment.class));
+        verify(paymentRepository, times(1)).updateStatus(eq(List.of(paymentId)), eq(PaymentStatus.PENDING), eq(PaymentStatus.FAILED), any(LocalDateTime.class));
+        verify(outboxEventRepository, never()).save(any());
     }
 
     @Test
@@ -711,20 +914,8 @@ class PaymentServiceTest {
                 .updatedAt(LocalDateTime.now().minusMinutes(5))
                 .build();
 
-        Payment updatedPayment = Payment.builder()
-                .id(paymentId)
-                .amount(BigDecimal.valueOf(99.99))
-                .currency("USD")
-                .method("CREDIT_CARD")
-                .status(PaymentStatus.CANCELED)
-                .userId("user123")
-                .orderId("order456")
-                .createdAt(payment.getCreatedAt())
-                .updatedAt(LocalDateTime.now())
-                .build();
-
         when(paymentRepository.findById(paymentId)).thenReturn(Optional.of(payment));
-        when(paymentRepository.save(any(Payment.class))).thenReturn(updatedPayment);
+        when(paymentRepository.updateStatus(eq(List.of(paymentId)), eq(PaymentStatus.PENDING), eq(PaymentStatus.CANCELED), any(LocalDateTime.class))).thenReturn(1);
 
         // When
         PaymentResponse response = paymentService.updatePaymentStatus(paymentId, PaymentStatus.CANCELED);
@@ -734,7 +925,7 @@ class PaymentServiceTest {
         assertEquals(paymentId, response.getId());
         assertEquals(PaymentResponse.StatusEnum.CANCELED, response.getStatus());
         verify(paymentRepository, times(1)).findById(paymentId);
-        verify(paymentRepository, times(1)).save(any(Payment.class));
+        verify(paymentRepository, times(1)).updateStatus(eq(List.of(paymentId)), eq(PaymentStatus.PENDING), eq(PaymentStatus.CANCELED), any(LocalDateTime.class));
     }
 
     @Test
@@ -751,7 +942,7 @@ class PaymentServiceTest {
 
         assertEquals("Payment not found with ID: " + paymentId, exception.getMessage());
         verify(paymentRepository, times(1)).findById(paymentId);
-        verify(paymentRepository, never()).save(any(Payment.class));
+        verify(paymentRepository, never()).updateStatus(any(), any(), any(), any());
     }
 
     @Test
@@ -781,7 +972,7 @@ class PaymentServiceTest {
         assertTrue(exception.getMessage().contains("Cannot transition from terminal state"));
         assertTrue(exception.getMessage().contains("APPROVED"));
         verify(paymentRepository, times(1)).findById(paymentId);
-        verify(paymentRepository, never()).save(any(Payment.class));
+        verify(paymentRepository, never()).updateStatus(any(), any(), any(), any());
     }
 
     @Test
@@ -811,7 +1002,7 @@ class PaymentServiceTest {
         assertTrue(exception.getMessage().contains("Cannot transition from terminal state"));
         assertTrue(exception.getMessage().contains("FAILED"));
         verify(paymentRepository, times(1)).findById(paymentId);
-        verify(paymentRepository, never()).save(any(Payment.class));
+        verify(paymentRepository, never()).updateStatus(any(), any(), any(), any());
     }
 
     @Test
@@ -841,7 +1032,7 @@ class PaymentServiceTest {
         assertTrue(exception.getMessage().contains("Cannot transition from terminal state"));
         assertTrue(exception.getMessage().contains("CANCELED"));
         verify(paymentRepository, times(1)).findById(paymentId);
-        verify(paymentRepository, never()).save(any(Payment.class));
+        verify(paymentRepository, never()).updateStatus(any(), any(), any(), any());
     }
 
     @Test
@@ -862,24 +1053,183 @@ class PaymentServiceTest {
                 .build();
 
         when(paymentRepository.findById(paymentId)).thenReturn(Optional.of(payment));
-        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> {
-            Payment savedPayment = invocation.getArgument(0);
-            // Verify updatedAt was changed
-            assertTrue(savedPayment.getUpdatedAt().isAfter(originalUpdatedAt));
-            return savedPayment;
-        });
+        when(paymentRepository.updateStatus(eq(List.of(paymentId)), eq(PaymentStatus.PENDING), eq(PaymentStatus.APPROVED), any(LocalDateTime.class)))
+                .thenReturn(1);
 
         // When
-        paymentService.updatePaymentStatus(paymentId, PaymentStatus.APPROVED);
+        PaymentResponse response = paymentService.updatePaymentStatus(paymentId, PaymentStatus.APPROVED);
 
         // Then
-        verify(paymentRepository, times(1)).save(any(Payment.class));
+        ArgumentCaptor<LocalDateTime> updatedAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(paymentRepository, times(1)).updateStatus(eq(List.of(paymentId)), eq(PaymentStatus.PENDING), eq(PaymentStatus.APPROVED), updatedAt.capture());
+        // Verify updatedAt was changed
+        assertTrue(updatedAt.getValue().isAfter(originalUpdatedAt));
+        assertEquals(updatedAt.getValue().atOffset(ZoneOffset.UTC), response.getUpdatedAt());
+    }
+
+    @Test
+    void updatePaymentStatus_WhenChangedConcurrently_ShouldThrowException() {
+        // Given - the payment is read as PENDING but another request approves it before our update
+        Long paymentId = 1L;
+        Payment payment = Payment.builder()
+                .id(paymentId)
+                .amount(BigDecimal.valueOf(99.99))
+                .currency("USD")
+                .method("CREDIT_CARD")
+                .status(PaymentStatus.PENDING)
+                .userId("user123")
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+        Payment approved = Payment.builder()
+                .id(paymentId)
+                .status(PaymentStatus.APPROVED)
+                .build();
+
+        when(paymentRepository.findById(paymentId)).thenReturn(Optional.of(payment), Optional.of(approved));
+        when(paymentRepository.updateStatus(eq(List.of(paymentId)), eq(PaymentStatus.PENDING), eq(PaymentStatus.FAILED), any(LocalDateTime.class)))
+                .thenReturn(0);
+
+        // When & Then
+        InvalidStatusTransitionException exception = assertThrows(InvalidStatusTransitionException.class,
+                () -> paymentService.updatePaymentStatus(paymentId, PaymentStatus.FAILED));
+        assertTrue(exception.getMessage().contains("Cannot transition from terminal state APPROVED"));
+        verify(outboxEventRepository, never()).save(any());
+    }
+
+    @Test
+    void updatePaymentStatus_ShouldPublishUpdatedPaymentToWatchers() {
+        // Given
+        Long paymentId = 1L;
+        Payment payment = Payment.builder()
+                .id(paymentId)
+                .amount(BigDecimal.valueOf(99.99))
+                .currency("USD")
+                .method("CREDIT_CARD")
+                .status(PaymentStatus.PENDING)
+                .userId("user123")
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+        when(paymentRepository.findById(paymentId)).thenReturn(Optional.of(payment));
+        when(paymentRepository.updateStatus(eq(List.of(paymentId)), eq(PaymentStatus.PENDING), eq(PaymentStatus.FAILED), any(LocalDateTime.class)))
+                .thenReturn(1);
+
+        // When
+        PaymentResponse response = paymentService.updatePaymentStatus(paymentId, PaymentStatus.FAILED);
+
+        // Then
+        verify(paymentStatusHub).publish(response);
+        assertEquals(PaymentResponse.StatusEnum.FAILED, response.getStatus());
+    }
+
+    @Test
+    void pollWatchedPayments_ShouldPublishPaymentsChangedSinceLastSeen() {
+        // Given - payment 1 was approved by another node, payment 2 is unchanged
+        LocalDateTime now = LocalDateTime.now();
+        Payment approved = Payment.builder().id(1L).amount(BigDecimal.TEN).currency("USD").method("CREDIT_CARD")
+                .status(PaymentStatus.APPROVED).userId("user123").createdAt(now).updatedAt(now).build();
+        when(paymentStatusHub.watchedStatuses()).thenReturn(Map.of(
+                1L, PaymentResponse.StatusEnum.PENDING,
+                2L, PaymentResponse.StatusEnum.PENDING));
+        when(paymentRepository.findStatusesByIdIn(any())).thenReturn(List.of(
+                statusView(1L, PaymentStatus.APPROVED, now),
+                statusView(2L, PaymentStatus.PENDING, now)));
+        when(paymentStatusHub.isWatched(1L)).thenReturn(true);
+        when(paymentRepository.findAllById(List.of(1L))).thenReturn(List.of(approved));
+
+        // When
+        paymentService.pollWatchedPayments();
+
+        // Then
+        ArgumentCaptor<PaymentResponse> published = ArgumentCaptor.forClass(PaymentResponse.class);
+        verify(paymentStatusHub).publish(published.capture());
+        assertEquals(1L, published.getValue().getId());
+        assertEquals(PaymentResponse.StatusEnum.APPROVED, published.getValue().getStatus());
+        verify(paymentResponseCache).evictAfterCommit(List.of(1L));
+    }
+
+    @Test
+    void pollWatchedPayments_WithNothingWatched_ShouldNotQuery() {
+        // Given
+        when(paymentStatusHub.watchedStatuses()).thenReturn(Map.of());
+
+        // When
+        paymentService.pollWatchedPayments();
+
+        // Then
+        verifyNoInteractions(paymentRepository);
+    }
+
+    @Test
+    void updatePaymentStatuses_ShouldApplyOneConditionalUpdatePerTargetAndReportEachItem() {
+        // Given - 1 is PENDING, 2 is already APPROVED, 3 does not exist
+        LocalDateTime[] batchTime = new LocalDateTime[1];
+        when(paymentRepository.updateStatus(anyCollection(), eq(PaymentStatus.PENDING), any(PaymentStatus.class), any(LocalDateTime.class)))
+                .thenAnswer(invocation -> {
+                    batchTime[0] = invocation.getArgument(3);
+                    return invocation.<List<Long>>getArgument(0).contains(1L) ? 1 : 0;
+                });
+        when(paymentRepository.findStatusesByIdIn(anyCollection())).thenAnswer(invocation -> List.of(
+                statusView(1L, PaymentStatus.APPROVED, batchTime[0]),
+                statusView(2L, PaymentStatus.APPROVED, LocalDateTime.now().minusDays(1))));
+
+        // When
+        UpdatePaymentStatusBatchResponse response = paymentService.updatePaymentStatuses(List.of(
+                statusUpdate(1L, PaymentStatusUpdate.StatusEnum.APPROVED),
+                statusUpdate(2L, PaymentStatusUpdate.StatusEnum.FAILED),
+                statusUpdate(3L, PaymentStatusUpdate.StatusEnum.FAILED)));
+
+        // Then
+        assertEquals(1, response.getUpdated());
+        assertEquals(2, response.getFailed());
+        assertEquals(PaymentStatusUpdateResult.OutcomeEnum.UPDATED, response.getResults().get(0).getOutcome());
+        assertEquals(PaymentStatusUpdateResult.StatusEnum.APPROVED, response.getResults().get(0).getStatus());
+        assertEquals(PaymentStatusUpdateResult.OutcomeEnum.INVALID_TRANSITION, response.getResults().get(1).getOutcome());
+        assertEquals(409, response.getResults().get(1).getError().getCode());
+        assertTrue(response.getResults().get(1).getError().getDetails().contains("Cannot transition from terminal state"));
+        assertEquals(PaymentStatusUpdateResult.OutcomeEnum.NOT_FOUND, response.getResults().get(2).getOutcome());
+        assertEquals(404, response.getResults().get(2).getError().getCode());
+        verify(paymentRepository).updateStatus(eq(List.of(1L)), eq(PaymentStatus.PENDING), eq(PaymentStatus.APPROVED), any(LocalDateTime.class));
+        verify(paymentRepository).updateStatus(eq(List.of(2L, 3L)), eq(PaymentStatus.PENDING), eq(PaymentStatus.FAILED), any(LocalDateTime.class));
+        verify(paymentRepository, never()).findById(any());
+
+        ArgumentCaptor<List<OutboxEvent>> eventsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(outboxEventRepository).saveAll(eventsCaptor.capture());
+        assertEquals(1, eventsCaptor.getValue().size());
+        assertEquals(OutboxEventType.PAYMENT_APPROVED, eventsCaptor.getValue().get(0).getType());
+        assertEquals(1L, eventsCaptor.getValue().get(0).getAggregateId());
+    }
+
+    @Test
+    void updatePaymentStatuses_WithRepeatedId_ShouldApplyFirstItemOnly() {
+        // Given
+        LocalDateTime[] batchTime = new LocalDateTime[1];
+        when(paymentRepository.updateStatus(anyCollection(), eq(PaymentStatus.PENDING), eq(PaymentStatus.CANCELED), any(LocalDateTime.class)))
+                .thenAnswer(invocation -> {
+                    batchTime[0] = invocation.getArgument(3);
+                    return 1;
+                });
+        when(paymentRepository.findStatusesByIdIn(anyCollection()))
+                .thenAnswer(invocation -> List.of(statusView(1L, PaymentStatus.CANCELED, batchTime[0])));
+
+        // When
+        UpdatePaymentStatusBatchResponse response = paymentService.updatePaymentStatuses(List.of(
+                statusUpdate(1L, PaymentStatusUpdate.StatusEnum.CANCELED),
+                statusUpdate(1L, PaymentStatusUpdate.StatusEnum.APPROVED)));
+
+        // Then
+        assertEquals(1, response.getUpdated());
+        assertEquals(PaymentStatusUpdateResult.OutcomeEnum.UPDATED, response.getResults().get(0).getOutcome());
+        assertEquals(PaymentStatusUpdateResult.OutcomeEnum.INVALID_TRANSITION, response.getResults().get(1).getOutcome());
+        verify(paymentRepository, never()).updateStatus(anyCollection(), any(), eq(PaymentStatus.APPROVED), any());
+        verify(outboxEventRepository).saveAll(List.of());
     }
 
     @Test
     void listPayments_WithNoFilters_ShouldReturnAllPayments() {
         // Given
-        Pageable pageable = PageRequest.of(0, 20);
+        Pageable pageable = PageRequest.of(0, 20, PaymentSpecifications.KEYSET_SORT);
         Payment payment1 = Payment.builder()
                 .id(1L)
                 .amount(BigDecimal.valueOf(99.99))
@@ -904,10 +1254,10 @@ class PaymentServiceTest {
                 .build();
         Page<Payment> paymentPage = new PageImpl<>(List.of(payment1, payment2), pageable, 2);
 
-        when(paymentRepository.findAllOrderByCreatedAtDesc(pageable)).thenReturn(paymentPage);
+        when(paymentRepository.findAll(any(Specification.class), eq(pageable))).thenReturn(paymentPage);
 
         // When
-        PaymentListResponse response = paymentService.listPayments(null, null, null, null, null);
+        PaymentListResponse response = paymentService.listPayments(PaymentFilter.none(), null, null);
 
         // Then
         assertNotNull(response);
@@ -916,13 +1266,13 @@ class PaymentServiceTest {
         assertEquals(1, response.getTotalPages());
         assertEquals(0, response.getPage());
         assertEquals(20, response.getSize());
-        verify(paymentRepository, times(1)).findAllOrderByCreatedAtDesc(pageable);
+        verify(paymentRepository, times(1)).findAll(any(Specification.class), eq(pageable));
     }
 
     @Test
     void listPayments_WithStatusFilter_ShouldReturnFilteredPayments() {
         // Given
-        Pageable pageable = PageRequest.of(0, 20);
+        Pageable pageable = PageRequest.of(0, 20, PaymentSpecifications.KEYSET_SORT);
         Payment payment = Payment.builder()
                 .id(1L)
                 .amount(BigDecimal.valueOf(99.99))
@@ -936,23 +1286,23 @@ class PaymentServiceTest {
                 .build();
         Page<Payment> paymentPage = new PageImpl<>(List.of(payment), pageable, 1);
 
-        when(paymentRepository.findByStatusOrderByCreatedAtDesc(PaymentStatus.PENDING, pageable)).thenReturn(paymentPage);
+        when(paymentRepository.findAll(any(Specification.class), eq(pageable))).thenReturn(paymentPage);
 
         // When
-        PaymentListResponse response = paymentService.listPayments("PENDING", null, null, null, null);
+        PaymentListResponse response = paymentService.listPayments(PaymentFilter.builder().status("PENDING").build(), null, null);
 
         // Then
         assertNotNull(response);
         assertEquals(1, response.getContent().size());
         assertEquals(1, response.getTotalElements());
         assertEquals(PaymentResponse.StatusEnum.PENDING, response.getContent().get(0).getStatus());
-        verify(paymentRepository, times(1)).findByStatusOrderByCreatedAtDesc(PaymentStatus.PENDING, pageable);
+        verify(paymentRepository, times(1)).findAll(any(Specification.class), eq(pageable));
     }
 
     @Test
     void listPayments_WithUserIdFilter_ShouldReturnFilteredPayments() {
         // Given
-        Pageable pageable = PageRequest.of(0, 20);
+        Pageable pageable = PageRequest.of(0, 20, PaymentSpecifications.KEYSET_SORT);
         Payment payment = Payment.builder()
                 .id(1L)
                 .amount(BigDecimal.valueOf(99.99))
@@ -966,22 +1316,22 @@ class PaymentServiceTest {
                 .build();
         Page<Payment> paymentPage = new PageImpl<>(List.of(payment), pageable, 1);
 
-        when(paymentRepository.findByUserIdOrderByCreatedAtDesc("user123", pageable)).thenReturn(paymentPage);
+        when(paymentRepository.findAll(any(Specification.class), eq(pageable))).thenReturn(paymentPage);
 
         // When
-        PaymentListResponse response = paymentService.listPayments(null, "user123", null, null, null);
+        PaymentListResponse response = paymentService.listPayments(PaymentFilter.builder().userId("user123").build(), null, null);
 
         // Then
         assertNotNull(response);
         assertEquals(1, response.getContent().size());
         assertEquals("user123", response.getContent().get(0).getUserId());
-        verify(paymentRepository, times(1)).findByUserIdOrderByCreatedAtDesc("user123", pageable);
+        verify(paymentRepository, times(1)).findAll(any(Specification.class), eq(pageable));
     }
 
     @Test
     void listPayments_WithOrderIdFilter_ShouldReturnFilteredPayments() {
         // Given
-        Pageable pageable = PageRequest.of(0, 20);
+        Pageable pageable = PageRequest.of(0, 20, PaymentSpecifications.KEYSET_SORT);
         Payment payment = Payment.builder()
                 .id(1L)
                 .amount(BigDecimal.valueOf(99.99))
@@ -995,23 +1345,23 @@ class PaymentServiceTest {
                 .build();
         Page<Payment> paymentPage = new PageImpl<>(List.of(payment), pageable, 1);
 
-        when(paymentRepository.findByOrderIdOrderByCreatedAtDesc("order456", pageable)).thenReturn(paymentPage);
+        when(paymentRepository.findAll(any(Specification.class), eq(pageable))).thenReturn(paymentPage);
 
         // When
-        PaymentListResponse response = paymentService.listPayments(null, null, "order456", null, null);
+        PaymentListResponse response = paymentService.listPayments(PaymentFilter.builder().orderId("order456").build(), null, null);
 
         // Then
         assertNotNull(response);
         assertEquals(1, response.getContent().size());
         assertTrue(response.getContent().get(0).getOrderId().isPresent());
         assertEquals("order456", response.getContent().get(0).getOrderId().get());
-        verify(paymentRepository, times(1)).findByOrderIdOrderByCreatedAtDesc("order456", pageable);
+        verify(paymentRepository, times(1)).findAll(any(Specification.class), eq(pageable));
     }
 
     @Test
     void listPayments_WithMultipleFilters_ShouldReturnFilteredPayments() {
         // Given
-        Pageable pageable = PageRequest.of(0, 20);
+        Pageable pageable = PageRequest.of(0, 20, PaymentSpecifications.KEYSET_SORT);
         Payment payment = Payment.builder()
                 .id(1L)
                 .amount(BigDecimal.valueOf(99.99))
@@ -1025,23 +1375,23 @@ class PaymentServiceTest {
                 .build();
         Page<Payment> paymentPage = new PageImpl<>(List.of(payment), pageable, 1);
 
-        when(paymentRepository.findByStatusAndUserIdOrderByCreatedAtDesc(PaymentStatus.PENDING, "user123", pageable)).thenReturn(paymentPage);
+        when(paymentRepository.findAll(any(Specification.class), eq(pageable))).thenReturn(paymentPage);
 
         // When
-        PaymentListResponse response = paymentService.listPayments("PENDING", "user123", null, null, null);
+        PaymentListResponse response = paymentService.listPayments(PaymentFilter.builder().status("PENDING").userId("user123").build(), null, null);
 
         // Then
         assertNotNull(response);
         assertEquals(1, response.getContent().size());
         assertEquals(PaymentResponse.StatusEnum.PENDING, response.getContent().get(0).getStatus());
         assertEquals("user123", response.getContent().get(0).getUserId());
-        verify(paymentRepository, times(1)).findByStatusAndUserIdOrderByCreatedAtDesc(PaymentStatus.PENDING, "user123", pageable);
+        verify(paymentRepository, times(1)).findAll(any(Specification.class), eq(pageable));
     }
 
     @Test
     void listPayments_WithPagination_ShouldReturnPaginatedResults() {
         // Given
-        Pageable pageable = PageRequest.of(1, 5);
+        Pageable pageable = PageRequest.of(1, 5, PaymentSpecifications.KEYSET_SORT);
         List<Payment> payments = List.of(
                 Payment.builder().id(6L).amount(BigDecimal.valueOf(10.0)).currency("USD").method("CREDIT_CARD")
                         .status(PaymentStatus.PENDING).userId("user1").createdAt(LocalDateTime.now())
@@ -1052,10 +1402,10 @@ class PaymentServiceTest {
         );
         Page<Payment> paymentPage = new PageImpl<>(payments, pageable, 10);
 
-        when(paymentRepository.findAllOrderByCreatedAtDesc(pageable)).thenReturn(paymentPage);
+        when(paymentRepository.findAll(any(Specification.class), eq(pageable))).thenReturn(paymentPage);
 
         // When
-        PaymentListResponse response = paymentService.listPayments(null, null, null, 1, 5);
+        PaymentListResponse response = paymentService.listPayments(PaymentFilter.none(), 1, 5);
 
         // Then
         assertNotNull(response);
@@ -1064,7 +1414,7 @@ class PaymentServiceTest {
         assertEquals(2, response.getTotalPages());
         assertEquals(1, response.getPage());
         assertEquals(5, response.getSize());
-        verify(paymentRepository, times(1)).findAllOrderByCreatedAtDesc(pageable);
+        verify(paymentRepository, times(1)).findAll(any(Specification.class), eq(pageable));
     }
 
     @Test
@@ -1072,7 +1422,7 @@ class PaymentServiceTest {
         // When/Then
         InvalidPaymentRequestException exception = assertThrows(
                 InvalidPaymentRequestException.class,
-                () -> paymentService.listPayments(null, null, null, -1, null)
+                () -> paymentService.listPayments(PaymentFilter.none(), -1, null)
         );
 
         assertEquals("Page number must be >= 0", exception.getMessage());
@@ -1083,7 +1433,7 @@ class PaymentServiceTest {
         // When/Then
         InvalidPaymentRequestException exception = assertThrows(
                 InvalidPaymentRequestException.class,
-                () -> paymentService.listPayments(null, null, null, null, 200)
+                () -> paymentService.listPayments(PaymentFilter.none(), null, 200)
         );
 
         assertEquals("Page size must be between 1 and 100", exception.getMessage());
@@ -1094,9 +1444,144 @@ class PaymentServiceTest {
         // When/Then
         InvalidPaymentRequestException exception = assertThrows(
                 InvalidPaymentRequestException.class,
-                () -> paymentService.listPayments("INVALID", null, null, null, null)
+                () -> paymentService.listPayments(PaymentFilter.builder().status("INVALID").build(), null, null)
         );
 
         assertTrue(exception.getMessage().contains("Invalid status value"));
     }
+
+    @Test
+    void listPayments_WithInvalidAmountRange_ShouldThrowException() {
+        // When/Then
+        InvalidPaymentRequestException exception = assertThrows(
+                InvalidPaymentRequestException.class,
+                () -> paymentService.listPayments(PaymentFilter.builder().minAmount(100.0).maxAmount(10.0).build(), null, null)
+        );
+
+        assertEquals("minAmount must be <= maxAmount", exception.getMessage());
+        verify(paymentRepository, never()).findAll(any(Specification.class), any(Pageable.class));
+    }
+
+    @Test
+    void listPayments_WithInvalidCreatedAtRange_ShouldThrowException() {
+        // Given
+        OffsetDateTime now = OffsetDateTime.now();
+
+        // When/Then
+        InvalidPaymentRequestException exception = assertThrows(
+                InvalidPaymentRequestException.class,
+                () -> paymentService.listPayments(PaymentFilter.builder().createdFrom(now).createdTo(now.minusDays(1)).build(), null, null)
+        );
+
+        assertEquals("createdFrom must be <= createdTo", exception.getMessage());
+    }
+
+    @Test
+    void listPaymentsAfterCursor_WithMoreResults_ShouldReturnNextCursor() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        List<Payment> payments = List.of(
+                Payment.builder().id(9L).amount(BigDecimal.TEN).currency("USD").method("CREDIT_CARD")
+                        .status(PaymentStatus.PENDING).userId("user123").createdAt(now).updatedAt(now).build(),
+                Payment.builder().id(8L).amount(BigDecimal.TEN).currency("USD").method("CREDIT_CARD")
+                        .status(PaymentStatus.PENDING).userId("user123").createdAt(now).updatedAt(now).build());
+        when(paymentRepository.findSlice(any(), eq(PageRequest.of(0, 2, PaymentSpecifications.KEYSET_SORT))))
+                .thenReturn(new SliceImpl<>(payments, PageRequest.of(0, 2), true));
+        String cursor = PageCursor.encode(now, 10L);
+
+        // When
+        PaymentListResponse response = paymentService.listPaymentsAfterCursor(PaymentFilter.builder().userId("user123").build(), cursor, 2);
+
+        // Then
+        assertEquals(2, response.getContent().size());
+        assertEquals(2, response.getSize());
+        assertNull(response.getTotalElements());
+        assertNull(response.getPage());
+        assertTrue(response.getHasNext());
+        assertEquals(PageCursor.encode(now, 8L), response.getNextCursor());
+    }
+
+    @Test
+    void listPaymentsAfterCursor_WithLastPage_ShouldNotReturnNextCursor() {
+        // Given
+        when(paymentRepository.findSlice(any(), any())).thenReturn(new SliceImpl<>(List.of(), PageRequest.of(0, 20), false));
+
+        // When
+        PaymentListResponse response = paymentService.listPaymentsAfterCursor(PaymentFilter.none(), PageCursor.encode(LocalDateTime.now(), 1L), null);
+
+        // Then
+        assertTrue(response.getContent().isEmpty());
+        assertNull(response.getNextCursor());
+    }
+
+    @Test
+    void listPaymentsAfterCursor_WithInvalidCursor_ShouldThrowException() {
+        // When/Then
+        InvalidPaymentRequestException exception = assertThrows(
+                InvalidPaymentRequestException.class,
+                () -> paymentService.listPaymentsAfterCursor(PaymentFilter.none(), "not-a-cursor", null)
+        );
+
+        assertEquals("Invalid cursor value", exception.getMessage());
+        verify(paymentRepository, never()).findSlice(any(), any());
+    }
+
+    @Test
+    void listPaymentsWithoutTotal_ShouldUseSliceQueryAndReturnHasNext() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        Payment payment = Payment.builder().id(1L).amount(BigDecimal.TEN).currency("USD").method("CREDIT_CARD")
+                .status(PaymentStatus.PENDING).userId("user123").createdAt(now).updatedAt(now).build();
+        Pageable pageable = PageRequest.of(1, 1, PaymentSpecifications.KEYSET_SORT);
+        when(paymentRepository.findSlice(any(), eq(pageable))).thenReturn(new SliceImpl<>(List.of(payment), pageable, true));
+
+        // When
+        PaymentListResponse response = paymentService.listPaymentsWithoutTotal(PaymentFilter.builder().status("PENDING").userId("user123").build(), 1, 1);
+
+        // Then
+        assertEquals(1, response.getContent().size());
+        assertEquals(1, response.getPage());
+        assertEquals(1, response.getSize());
+        assertTrue(response.getHasNext());
+        assertNull(response.getTotalElements());
+        assertNull(response.getTotalPages());
+        verify(paymentRepository, never()).findAll(any(Specification.class), any(Pageable.class));
+    }
+
+    @Test
+    void listPaymentsWithoutTotal_WithInvalidPage_ShouldThrowException() {
+        // When/Then
+        InvalidPaymentRequestException exception = assertThrows(
+                InvalidPaymentRequestException.class,
+                () -> paymentService.listPaymentsWithoutTotal(PaymentFilter.none(), -1, null)
+        );
+
+        assertEquals("Page number must be >= 0", exception.getMessage());
+    }
+
+    private static PaymentStatusUpdate statusUpdate(Long id, PaymentStatusUpdate.StatusEnum status) {
+        PaymentStatusUpdate update = new PaymentStatusUpdate();
+        update.setId(id);
+        update.setStatus(status);
+        return update;
+    }
+
+    private static PaymentRepository.StatusView statusView(Long id, PaymentStatus status, LocalDateTime updatedAt) {
+        return new PaymentRepository.StatusView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public PaymentStatus getStatus() {
+                return status;
+            }
+
+            @Override
+            public LocalDateTime getUpdatedAt() {
+                return updatedAt;
+            }
+        };
+    }
 }
@@ -0,0 +1,115 @@
+package com.asma.paymentservice.service;
+
+import com.asma.paymentservice.dto.PaymentResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentStatusHubTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Deliveries run on the publishing thread, so that the assertions follow publish() directly
+    private final PaymentStatusHub hub = new PaymentStatusHub(meterRegistry, Runnable::run);
+
+    @Test
+    void publish_ShouldDeliverToListenersOfThatPaymentOnly() {
+        // Given
+        List<PaymentResponse> first = new ArrayList<>();
+        List<PaymentResponse> other = new ArrayList<>();
+        hub.subscribe(1L, PaymentResponse.StatusEnum.PENDING, first::add);
+        hub.subscribe(2L, PaymentResponse.StatusEnum.PENDING, other::add);
+
+        // When
+        hub.publish(payment(1L, PaymentResponse.StatusEnum.APPROVED));
+
+        // Then
+        assertEquals(1, first.size());
+        assertTrue(other.isEmpty());
+        assertEquals(Map.of(1L, PaymentResponse.StatusEnum.APPROVED, 2L, PaymentResponse.StatusEnum.PENDING),
+                hub.watchedStatuses());
+    }
+
+    @Test
+    void cancel_ShouldStopWatchingOnceTheLastListenerIsGone() {
+        // Given
+        PaymentStatusHub.Subscription first = hub.subscribe(1L, PaymentResponse.StatusEnum.PENDING, payment -> { });
+        PaymentStatusHub.Subscription second = hub.subscribe(1L, PaymentResponse.StatusEnum.PENDING, payment -> { });
+        assertEquals(2.0, meterRegistry.get("paymentservice.status.watchers").gauge().value());
+
+        // When
+        first.cancel();
+        first.cancel();
+
+        // Then
+        assertTrue(hub.isWatched(1L));
+        assertEquals(1.0, meterRegistry.get("paymentservice.status.watchers").gauge().value());
+        second.cancel();
+        assertFalse(hub.isWatched(1L));
+        assertEquals(0.0, meterRegistry.get("paymentservice.status.watchers").gauge().value());
+    }
+
+    @Test
+    void publish_WithFailingListener_ShouldStillDeliverToTheOthers() {
+        // Given
+        List<PaymentResponse> received = new ArrayList<>();
+        hub.subscribe(1L, PaymentResponse.StatusEnum.PENDING, payment -> {
+            throw new IllegalStateException("client gone");
+        });
+        hub.subscribe(1L, PaymentResponse.StatusEnum.PENDING, received::add);
+
+        // When
+        hub.publish(payment(1L, PaymentResponse.StatusEnum.FAILED));
+
+        // Then
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    void publish_ShouldNotWaitForSlowListeners() throws Exception {
+        // Given - a listener blocked on its client, on the hub's delivery threads
+        PaymentStatusHub asyncHub = new PaymentStatusHub(meterRegistry, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<PaymentResponse.StatusEnum> received = new CopyOnWriteArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(2);
+        asyncHub.subscribe(1L, PaymentResponse.StatusEnum.PENDING, payment -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.add(payment.getStatus());
+            delivered.countDown();
+        });
+
+        try {
+            // When
+            long startedAt = System.nanoTime();
+            asyncHub.publish(payment(1L, PaymentResponse.StatusEnum.PENDING));
+            asyncHub.publish(payment(1L, PaymentResponse.StatusEnum.APPROVED));
+            long publishMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+            release.countDown();
+
+            // Then - publishing returned at once, and the changes arrive in order
+            assertTrue(publishMillis < 1000, "publish took " + publishMillis + " ms");
+            assertTrue(delivered.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of(PaymentResponse.StatusEnum.PENDING, PaymentResponse.StatusEnum.APPROVED), received);
+        } finally {
+            asyncHub.shutdown();
+        }
+    }
+
+    private static PaymentResponse payment(Long id, PaymentResponse.StatusEnum status) {
+        PaymentResponse payment = new PaymentResponse();
+        payment.setId(id);
+        payment.setStatus(status);
+        return payment;
+    }
+}
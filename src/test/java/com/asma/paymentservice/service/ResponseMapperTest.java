@@ -0,0 +1,109 @@
+package com.asma.paymentservice.service;
+
+import com.asma.paymentservice.dto.InvoiceResponse;
+import com.asma.paymentservice.dto.PaymentResponse;
+import com.asma.paymentservice.entity.Invoice;
+import com.asma.paymentservice.entity.InvoiceStatus;
+import com.asma.paymentservice.entity.Payment;
+import com.asma.paymentservice.entity.PaymentStatus;
+import org.junit.jupiter.api.Test;
+import org.openapitools.jackson.nullable.JsonNullable;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseMapperTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 3, 15, 10, 30);
+
+    @Test
+    void toPaymentResponse_ShouldMapAllFieldsWithUtcOffset() {
+        // Given
+        Payment payment = payment(1L, "order-1");
+
+        // When
+        PaymentResponse response = ResponseMapper.toPaymentResponse(payment);
+
+        // Then
+        assertEquals(1L, response.getId());
+        assertEquals(149.99, response.getAmount());
+        assertEquals("EUR", response.getCurrency());
+        assertEquals("CREDIT_CARD", response.getMethod());
+        assertEquals(PaymentResponse.StatusEnum.APPROVED, response.getStatus());
+        assertEquals("user-1", response.getUserId());
+        assertEquals(JsonNullable.of("order-1"), response.getOrderId());
+        assertEquals(CREATED_AT.atOffset(ZoneOffset.UTC), response.getCreatedAt());
+        assertEquals(CREATED_AT.plusMinutes(1).atOffset(ZoneOffset.UTC), response.getUpdatedAt());
+    }
+
+    @Test
+    void toPaymentResponse_WithoutOrderId_ShouldLeaveOrderIdUndefined() {
+        // When
+        PaymentResponse response = ResponseMapper.toPaymentResponse(payment(1L, null));
+
+        // Then
+        assertSame(JsonNullable.undefined(), response.getOrderId());
+    }
+
+    @Test
+    void toInvoiceResponse_ShouldMapPresentOptionalFieldsOnly() {
+        // Given
+        Invoice invoice = Invoice.builder()
+                .id(7L)
+                .invoiceNumber("INV-20240315-00000007")
+                .paymentId(3L)
+                .userId("user-3")
+                .amount(new BigDecimal("20.50"))
+                .currency("USD")
+                .status(InvoiceStatus.SENT)
+                .issueDate(LocalDate.of(2024, 3, 15))
+                .dueDate(LocalDate.of(2024, 4, 14))
+                .sentAt(LocalDate.of(2024, 3, 16))
+                .build();
+
+        // When
+        InvoiceResponse response = ResponseMapper.toInvoiceResponse(invoice);
+
+        // Then
+        assertEquals(7L, response.getId());
+        assertEquals("INV-20240315-00000007", response.getInvoiceNumber());
+        assertEquals(3L, response.getPaymentId());
+        assertEquals(20.50, response.getAmount());
+        assertEquals(InvoiceResponse.StatusEnum.SENT, response.getStatus());
+        assertEquals(JsonNullable.of(LocalDate.of(2024, 4, 14)), response.getDueDate());
+        assertEquals(JsonNullable.of(LocalDate.of(2024, 3, 16)), response.getSentAt());
+        assertFalse(response.getPaidAt().isPresent());
+        assertFalse(response.getCancelledAt().isPresent());
+        assertFalse(response.getOrderId().isPresent());
+    }
+
+    @Test
+    void toPaymentResponses_ShouldKeepOrder() {
+        // When
+        List<PaymentResponse> responses = ResponseMapper.toPaymentResponses(List.of(payment(2L, null), payment(1L, "order-1")));
+
+        // Then
+        assertEquals(2, responses.size());
+        assertEquals(2L, responses.get(0).getId());
+        assertEquals(1L, responses.get(1).getId());
+    }
+
+    private static Payment payment(Long id, String orderId) {
+        return Payment.builder()
+                .id(id)
+                .amount(new BigDecimal("149.99"))
+                .currency("EUR")
+                .method("CREDIT_CARD")
+                .status(PaymentStatus.APPROVED)
+                .userId("user-" + id)
+                .orderId(orderId)
+                .createdAt(CREATED_AT)
+                .updatedAt(CREATED_AT.plusMinutes(1))
+                .build();
+    }
+}
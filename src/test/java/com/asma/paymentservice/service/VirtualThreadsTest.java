@@ -0,0 +1,55 @@
+package com.asma.paymentservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Holds on any runtime: virtual threads where Java 21+ has them, nothing (and no failure) elsewhere.
+ */
+class VirtualThreadsTest {
+
+    private static final boolean JAVA_21 = Runtime.version().feature() >= 21;
+
+    @Test
+    void isSupported_ShouldMatchRuntimeVersion() {
+        assertEquals(JAVA_21, VirtualThreads.isSupported());
+    }
+
+    @Test
+    void factory_ShouldCreateNamedVirtualThreadsWhenSupported() {
+        // When
+        Optional<ThreadFactory> factory = VirtualThreads.factory("test-vt-");
+
+        // Then
+        assertEquals(JAVA_21, factory.isPresent());
+        factory.ifPresent(threads -> {
+            Thread thread = threads.newThread(() -> { });
+            assertTrue(VirtualThreads.isVirtual(thread));
+            assertEquals("test-vt-1", thread.getName());
+        });
+    }
+
+    @Test
+    void newThreadPerTaskExecutor_ShouldRunTasksOnVirtualThreadsWhenSupported() throws Exception {
+        // When
+        Optional<ExecutorService> executor = VirtualThreads.newThreadPerTaskExecutor("test-vt-");
+
+        // Then
+        assertEquals(JAVA_21, executor.isPresent());
+        if (executor.isPresent()) {
+            assertTrue(executor.get().submit(() -> VirtualThreads.isVirtual(Thread.currentThread())).get(5, TimeUnit.SECONDS));
+            executor.get().shutdown();
+        }
+    }
+
+    @Test
+    void isVirtual_ShouldBeFalseForPlatformThreads() {
+        assertFalse(VirtualThreads.isVirtual(Thread.currentThread()));
+    }
+}